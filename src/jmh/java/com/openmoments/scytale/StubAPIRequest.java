@@ -0,0 +1,139 @@
+package com.openmoments.scytale;
+
+import com.openmoments.scytale.api.APIRequest;
+import org.json.JSONObject;
+
+import javax.net.ssl.SSLSession;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/***
+ * In-process stand in for the Scytale API which answers after a fixed latency. Synchronous calls block the caller
+ * for the latency, asynchronous calls complete after it without holding a thread, as the native client would.
+ */
+public class StubAPIRequest implements APIRequest {
+    private final Duration latency;
+    private final Executor delayedExecutor;
+    private Function<String, HttpResponse<String>> getHandler = uri -> response(404, "");
+    private BiFunction<String, JSONObject, HttpResponse<String>> postHandler = (uri, json) -> response(404, "");
+    private BiFunction<String, JSONObject, HttpResponse<String>> putHandler = (uri, json) -> response(404, "");
+
+    public StubAPIRequest(Duration latency) {
+        this.latency = latency;
+        this.delayedExecutor = CompletableFuture.delayedExecutor(latency.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    public StubAPIRequest onGet(Function<String, HttpResponse<String>> getHandler) {
+        this.getHandler = getHandler;
+        return this;
+    }
+
+    public StubAPIRequest onPost(BiFunction<String, JSONObject, HttpResponse<String>> postHandler) {
+        this.postHandler = postHandler;
+        return this;
+    }
+
+    public StubAPIRequest onPut(BiFunction<String, JSONObject, HttpResponse<String>> putHandler) {
+        this.putHandler = putHandler;
+        return this;
+    }
+
+    @Override
+    public HttpResponse<String> get(String uri) throws InterruptedException {
+        pause();
+        return getHandler.apply(uri);
+    }
+
+    @Override
+    public HttpResponse<String> post(String uri, JSONObject json) throws InterruptedException {
+        pause();
+        return postHandler.apply(uri, json);
+    }
+
+    @Override
+    public HttpResponse<String> put(String uri, JSONObject json) throws InterruptedException {
+        pause();
+        return putHandler.apply(uri, json);
+    }
+
+    @Override
+    public CompletableFuture<HttpResponse<String>> getAsync(String uri) {
+        return CompletableFuture.supplyAsync(() -> getHandler.apply(uri), delayedExecutor);
+    }
+
+    @Override
+    public CompletableFuture<HttpResponse<String>> postAsync(String uri, JSONObject json) {
+        return CompletableFuture.supplyAsync(() -> postHandler.apply(uri, json), delayedExecutor);
+    }
+
+    @Override
+    public CompletableFuture<HttpResponse<String>> putAsync(String uri, JSONObject json) {
+        return CompletableFuture.supplyAsync(() -> putHandler.apply(uri, json), delayedExecutor);
+    }
+
+    private void pause() throws InterruptedException {
+        if (!latency.isZero()) {
+            Thread.sleep(latency.toMillis(), latency.toNanosPart() % 1_000_000);
+        }
+    }
+
+    public static HttpResponse<String> response(int statusCode, String body) {
+        return response(statusCode, body, Map.of());
+    }
+
+    public static HttpResponse<String> response(int statusCode, String body, Map<String, List<String>> headers) {
+        return new HttpResponse<>() {
+            @Override
+            public int statusCode() {
+                return statusCode;
+            }
+
+            @Override
+            public HttpRequest request() {
+                return null;
+            }
+
+            @Override
+            public Optional<HttpResponse<String>> previousResponse() {
+                return Optional.empty();
+            }
+
+            @Override
+            public HttpHeaders headers() {
+                return HttpHeaders.of(headers, (name, value) -> true);
+            }
+
+            @Override
+            public String body() {
+                return body;
+            }
+
+            @Override
+            public Optional<SSLSession> sslSession() {
+                return Optional.empty();
+            }
+
+            @Override
+            public URI uri() {
+                return null;
+            }
+
+            @Override
+            public HttpClient.Version version() {
+                return HttpClient.Version.HTTP_1_1;
+            }
+        };
+    }
+}
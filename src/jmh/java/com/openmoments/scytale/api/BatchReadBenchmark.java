@@ -0,0 +1,66 @@
+package com.openmoments.scytale.api;
+
+import com.openmoments.scytale.StubAPIRequest;
+import com.openmoments.scytale.entities.BatchResult;
+import com.openmoments.scytale.entities.KeyStore;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+/***
+ * Time to look up a set of keystores one blocking request at a time and with a bounded fan-out against an API
+ * without batch endpoints.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BatchReadBenchmark {
+
+    @Param({"200"})
+    int keyStoreCount;
+
+    @Param({"5"})
+    int latencyMillis;
+
+    @Param({"64", "256"})
+    int concurrency;
+
+    private List<Long> ids;
+    private StubAPIRequest apiRequest;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        ids = LongStream.rangeClosed(1, keyStoreCount).boxed().collect(Collectors.toList());
+        apiRequest = new StubAPIRequest(Duration.ofMillis(latencyMillis)).onGet(uri -> {
+            if (uri.contains("?ids=")) {
+                return StubAPIRequest.response(404, "Not Found");
+            }
+            String id = uri.substring(uri.lastIndexOf('/') + 1);
+            return StubAPIRequest.response(200, new JSONObject().put("id", Long.parseLong(id)).put("name", "KeyStore " + id).toString());
+        });
+    }
+
+    @Benchmark
+    public List<KeyStore> serial() throws Exception {
+        KeyStoreRequest keyStoreRequest = new KeyStoreRequest(apiRequest);
+        List<KeyStore> found = new ArrayList<>();
+        for (Long id : ids) {
+            found.add(keyStoreRequest.getById(id).orElseThrow());
+        }
+        return found;
+    }
+
+    @Benchmark
+    public BatchResult<Long, KeyStore> fanOut() throws Exception {
+        return new KeyStoreRequest(apiRequest).concurrency(concurrency).getByIds(ids);
+    }
+}
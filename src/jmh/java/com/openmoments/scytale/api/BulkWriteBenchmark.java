@@ -0,0 +1,83 @@
+package com.openmoments.scytale.api;
+
+import com.openmoments.scytale.StubAPIRequest;
+import com.openmoments.scytale.entities.BatchResult;
+import com.openmoments.scytale.entities.KeyStore;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/***
+ * Time to create a set of keystores one blocking request at a time, pipelined against an API without a batch
+ * endpoint, and with a single batch request.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BulkWriteBenchmark {
+
+    @Param({"100"})
+    int keyStoreCount;
+
+    @Param({"5"})
+    int latencyMillis;
+
+    @Param({"8", "32"})
+    int concurrency;
+
+    private final AtomicLong ids = new AtomicLong();
+    private List<String> names;
+    private StubAPIRequest batchAPI;
+    private StubAPIRequest individualAPI;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        names = IntStream.range(0, keyStoreCount).mapToObj(i -> "KeyStore " + i).collect(Collectors.toList());
+        Duration latency = Duration.ofMillis(latencyMillis);
+
+        individualAPI = new StubAPIRequest(latency).onPost((uri, json) -> uri.endsWith("/batch") ?
+                StubAPIRequest.response(404, "Not Found") :
+                StubAPIRequest.response(200, created(json.getString("name")).toString()));
+
+        batchAPI = new StubAPIRequest(latency).onPost((uri, json) -> {
+            JSONArray results = new JSONArray();
+            json.getJSONArray("keystores").forEach(item -> results.put(created(((JSONObject) item).getString("name"))));
+            return StubAPIRequest.response(200, results.toString());
+        });
+    }
+
+    @Benchmark
+    public List<KeyStore> serial() throws Exception {
+        KeyStoreRequest keyStoreRequest = new KeyStoreRequest(individualAPI);
+        List<KeyStore> created = new ArrayList<>();
+        for (String name : names) {
+            created.add(keyStoreRequest.createKeyStore(name).orElseThrow());
+        }
+        return created;
+    }
+
+    @Benchmark
+    public BatchResult<String, KeyStore> pipelined() throws Exception {
+        return new KeyStoreRequest(individualAPI).concurrency(concurrency).createKeyStores(names);
+    }
+
+    @Benchmark
+    public BatchResult<String, KeyStore> batch() throws Exception {
+        return new KeyStoreRequest(batchAPI).createKeyStores(names);
+    }
+
+    private JSONObject created(String name) {
+        return new JSONObject().put("id", ids.incrementAndGet()).put("name", name);
+    }
+}
@@ -0,0 +1,93 @@
+package com.openmoments.scytale.cache;
+
+import com.openmoments.scytale.StubAPIRequest;
+import com.openmoments.scytale.api.PublicKeyRequest;
+import com.openmoments.scytale.encryption.CertificateEncoder;
+import com.openmoments.scytale.encryption.CertificateFactory;
+import com.openmoments.scytale.encryption.CertificateType;
+import com.openmoments.scytale.encryption.Encryptor;
+import com.openmoments.scytale.entities.KeyStore;
+import com.openmoments.scytale.entities.ScytalePublicKey;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/***
+ * Time from an empty JVM level cache to the first encryption for a keystore, when keys must be fetched from the API
+ * (cold) and when they are served from a {@link PublicKeyCacheFile PublicKeyCacheFile} written by a previous run (warm).
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 20)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PublicKeyCacheStartupBenchmark {
+
+    @Param({"10", "100"})
+    int keyCount;
+
+    @Param({"50"})
+    int latencyMillis;
+
+    private final KeyStore keyStore = new KeyStore(1L, "Benchmark");
+    private StubAPIRequest apiRequest;
+    private Encryptor encryptor;
+    private KeyPair senderKeyPair;
+    private Path cachePath;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        CertificateEncoder certificateEncoder = new CertificateEncoder();
+        senderKeyPair = new CertificateFactory().get(CertificateType.RSA).length(2048).generateKeyPair();
+
+        JSONArray keysJson = new JSONArray();
+        List<ScytalePublicKey> keys = new ArrayList<>();
+        for (long id = 1; id <= keyCount; id++) {
+            KeyPair keyPair = new CertificateFactory().get(CertificateType.RSA).length(2048).generateKeyPair();
+            String publicKey = certificateEncoder.base64EncodePublicKey(keyPair.getPublic());
+            keysJson.put(new JSONObject().put("id", id).put("publicKey", publicKey));
+            keys.add(new ScytalePublicKey(id, publicKey));
+        }
+
+        String body = keysJson.toString();
+        apiRequest = new StubAPIRequest(Duration.ofMillis(latencyMillis))
+                .onGet(uri -> StubAPIRequest.response(200, body));
+        encryptor = new Encryptor();
+
+        cachePath = Files.createTempFile("scytale-keys", ".cache");
+        Files.delete(cachePath);
+        try (PublicKeyCacheFile cacheFile = new PublicKeyCacheFile(cachePath)) {
+            new PublicKeyCache().persistTo(cacheFile).put(keyStore.getId(), keys, null);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        Files.deleteIfExists(cachePath);
+    }
+
+    @Benchmark
+    public List<String> coldStart() throws Exception {
+        PublicKeyRequest publicKeyRequest = new PublicKeyRequest(apiRequest).cache(new PublicKeyCache());
+        return encryptor.encrypt("Benchmark", senderKeyPair.getPrivate(), publicKeyRequest.getAll(keyStore));
+    }
+
+    @Benchmark
+    public List<String> warmStart() throws Exception {
+        try (PublicKeyCacheFile cacheFile = new PublicKeyCacheFile(cachePath)) {
+            // Only the time to first encryption is measured, the background revalidation is discarded
+            PublicKeyCache publicKeyCache = new PublicKeyCache().persistTo(cacheFile).refreshExecutor(task -> { });
+            PublicKeyRequest publicKeyRequest = new PublicKeyRequest(apiRequest).cache(publicKeyCache);
+            return encryptor.encrypt("Benchmark", senderKeyPair.getPrivate(), publicKeyRequest.getAll(keyStore));
+        }
+    }
+}
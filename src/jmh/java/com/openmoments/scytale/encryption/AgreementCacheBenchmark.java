@@ -0,0 +1,53 @@
+package com.openmoments.scytale.encryption;
+
+import com.openmoments.scytale.entities.ScytalePublicKey;
+import org.openjdk.jmh.annotations.*;
+
+import java.security.KeyPair;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/***
+ * Cost of ECC encryption and decryption between the same pair of keys, with the ECDH agreement calculated for every
+ * operation compared with taken from the agreement cache.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class AgreementCacheBenchmark {
+    @Param({"false", "true"})
+    private boolean cached;
+
+    private Encryptor encryptor;
+    private KeyPair sender;
+    private KeyPair recipient;
+    private List<ScytalePublicKey> recipientKeys;
+    private List<ScytalePublicKey> senderKeys;
+    private String cipherText;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        AsymmetricCertificate eccCertificate = new CertificateFactory().get(CertificateType.ECC);
+        CertificateEncoder certificateEncoder = new CertificateEncoder();
+        sender = eccCertificate.generateKeyPair();
+        recipient = eccCertificate.generateKeyPair();
+        recipientKeys = List.of(new ScytalePublicKey(1L, certificateEncoder.base64EncodePublicKey(recipient.getPublic())));
+        senderKeys = List.of(new ScytalePublicKey(2L, certificateEncoder.base64EncodePublicKey(sender.getPublic())));
+
+        encryptor = cached ? new Encryptor().agreementCache(1000) : new Encryptor();
+        cipherText = encryptor.encrypt("Test", sender.getPrivate(), recipientKeys).get(0);
+    }
+
+    @Benchmark
+    public List<String> encrypt() throws Exception {
+        return encryptor.encrypt("Test", sender.getPrivate(), recipientKeys);
+    }
+
+    @Benchmark
+    public String decrypt() throws Exception {
+        return encryptor.decrypt(cipherText, recipient.getPrivate(), senderKeys);
+    }
+}
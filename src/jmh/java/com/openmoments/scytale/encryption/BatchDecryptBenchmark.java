@@ -0,0 +1,69 @@
+package com.openmoments.scytale.encryption;
+
+import com.openmoments.scytale.entities.BatchResult;
+import com.openmoments.scytale.entities.ScytalePublicKey;
+import org.openjdk.jmh.annotations.*;
+
+import java.security.KeyPair;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/***
+ * Cost of decrypting a batch of ECC messages from a few senders one at a time compared with decryptAll, which
+ * calculates each sender's agreement once for the batch.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class BatchDecryptBenchmark {
+    private static final int SENDERS = 4;
+
+    @Param({"100"})
+    private int messages;
+
+    private Encryptor encryptor;
+    private KeyPair recipient;
+    private List<ScytalePublicKey> senderKeys;
+    private List<String> cipherTexts;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        AsymmetricCertificate eccCertificate = new CertificateFactory().get(CertificateType.ECC);
+        CertificateEncoder certificateEncoder = new CertificateEncoder();
+        recipient = eccCertificate.generateKeyPair();
+        List<ScytalePublicKey> recipientKeys = List.of(new ScytalePublicKey(0L, certificateEncoder.base64EncodePublicKey(recipient.getPublic())));
+        encryptor = new Encryptor();
+
+        List<KeyPair> senders = new ArrayList<>();
+        senderKeys = new ArrayList<>();
+        for (long id = 1; id <= SENDERS; id++) {
+            KeyPair sender = eccCertificate.generateKeyPair();
+            senders.add(sender);
+            senderKeys.add(new ScytalePublicKey(id, certificateEncoder.base64EncodePublicKey(sender.getPublic())));
+        }
+
+        Encryptor cachingEncryptor = new Encryptor().agreementCache(SENDERS);
+        cipherTexts = new ArrayList<>();
+        for (int i = 0; i < messages; i++) {
+            cipherTexts.add(cachingEncryptor.encrypt("Message " + i, senders.get(i % SENDERS).getPrivate(), recipientKeys).get(0));
+        }
+    }
+
+    @Benchmark
+    public List<String> decryptEach() throws Exception {
+        List<String> decrypted = new ArrayList<>(cipherTexts.size());
+        for (String cipherText : cipherTexts) {
+            decrypted.add(encryptor.decrypt(cipherText, recipient.getPrivate(), senderKeys));
+        }
+        return decrypted;
+    }
+
+    @Benchmark
+    public BatchResult<Integer, String> decryptAll() {
+        return encryptor.decryptAll(cipherTexts, recipient.getPrivate(), senderKeys);
+    }
+}
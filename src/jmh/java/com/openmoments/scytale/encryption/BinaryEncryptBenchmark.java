@@ -0,0 +1,65 @@
+package com.openmoments.scytale.encryption;
+
+import com.openmoments.scytale.entities.ScytalePublicKey;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.security.KeyPair;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/***
+ * Cost of ECC encryption through the String API, which Base64 encodes the cipher text, compared with the byte array
+ * API and direct buffers. The agreement cache is enabled so the encoding and copying are not hidden by the key
+ * agreement.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class BinaryEncryptBenchmark {
+    @Param({"1024", "65536"})
+    private int size;
+
+    private Encryptor encryptor;
+    private KeyPair keyPair;
+    private ScytalePublicKey publicKey;
+    private String text;
+    private byte[] bytes;
+    private ByteBuffer data;
+    private ByteBuffer cipherText;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        keyPair = new CertificateFactory().get(CertificateType.ECC).generateKeyPair();
+        publicKey = new ScytalePublicKey(1L, new CertificateEncoder().base64EncodePublicKey(keyPair.getPublic()));
+        encryptor = new Encryptor().agreementCache(10);
+
+        char[] chars = new char[size];
+        Arrays.fill(chars, 'a');
+        text = new String(chars);
+        bytes = text.getBytes();
+        data = ByteBuffer.allocateDirect(size).put(bytes);
+        cipherText = ByteBuffer.allocateDirect(size + 1024);
+    }
+
+    @Benchmark
+    public List<String> encryptString() throws Exception {
+        return encryptor.encrypt(text, keyPair.getPrivate(), List.of(publicKey));
+    }
+
+    @Benchmark
+    public List<byte[]> encryptBytes() throws Exception {
+        return encryptor.encrypt(bytes, keyPair.getPrivate(), List.of(publicKey));
+    }
+
+    @Benchmark
+    public int encryptDirectBuffer() throws Exception {
+        data.flip();
+        cipherText.clear();
+        return encryptor.encrypt(data, keyPair.getPrivate(), publicKey, cipherText);
+    }
+}
@@ -0,0 +1,54 @@
+package com.openmoments.scytale.encryption;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.Writer;
+import java.security.KeyPair;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/***
+ * Generating a batch of key pairs one after another on the calling thread compared with the
+ * {@link BulkKeyPairGenerator BulkKeyPairGenerator}, which scales with the cores available
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class BulkKeyPairBenchmark {
+    private static final int COUNT = 256;
+
+    @Param({"ECC", "X25519"})
+    public CertificateType certificateType;
+
+    private AsymmetricCertificate certificate;
+    private BulkKeyPairGenerator bulkKeyPairGenerator;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        certificate = new CertificateFactory().get(certificateType);
+        bulkKeyPairGenerator = new BulkKeyPairGenerator(certificateType);
+    }
+
+    @Benchmark
+    public List<KeyPair> loop() throws Exception {
+        List<KeyPair> keyPairs = new ArrayList<>(COUNT);
+        for (int i = 0; i < COUNT; i++) {
+            keyPairs.add(certificate.generateKeyPair());
+        }
+        return keyPairs;
+    }
+
+    @Benchmark
+    public List<KeyPair> bulk() throws Exception {
+        return bulkKeyPairGenerator.generateKeyPairs(COUNT);
+    }
+
+    @Benchmark
+    public void bulkEncoded() throws Exception {
+        bulkKeyPairGenerator.writeKeyPairs(COUNT, Writer.nullWriter());
+    }
+}
@@ -0,0 +1,53 @@
+package com.openmoments.scytale.encryption;
+
+import com.openmoments.scytale.entities.ScytalePublicKey;
+import org.openjdk.jmh.annotations.*;
+
+import java.security.KeyPair;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/***
+ * Cost of key generation, encryption and decryption for one recipient with each certificate type at its default key
+ * size, without the agreement cache.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class CertificateTypeBenchmark {
+    @Param({"RSA", "ECC", "X25519"})
+    private CertificateType certificateType;
+
+    private AsymmetricCertificate certificate;
+    private Encryptor encryptor;
+    private KeyPair keyPair;
+    private List<ScytalePublicKey> publicKeys;
+    private String cipherText;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        certificate = new CertificateFactory().get(certificateType);
+        keyPair = certificate.generateKeyPair();
+        publicKeys = List.of(new ScytalePublicKey(1L, new CertificateEncoder().base64EncodePublicKey(keyPair.getPublic())));
+        encryptor = new Encryptor();
+        cipherText = encryptor.encrypt("Test", keyPair.getPrivate(), publicKeys).get(0);
+    }
+
+    @Benchmark
+    public KeyPair generateKeyPair() throws Exception {
+        return certificate.generateKeyPair();
+    }
+
+    @Benchmark
+    public List<String> encrypt() throws Exception {
+        return encryptor.encrypt("Test", keyPair.getPrivate(), publicKeys);
+    }
+
+    @Benchmark
+    public String decrypt() throws Exception {
+        return encryptor.decrypt(cipherText, keyPair.getPrivate(), publicKeys);
+    }
+}
@@ -0,0 +1,65 @@
+package com.openmoments.scytale.encryption;
+
+import com.openmoments.scytale.entities.ScytalePublicKey;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.openjdk.jmh.annotations.*;
+
+import javax.crypto.Cipher;
+import java.security.KeyPair;
+import java.security.Security;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/***
+ * Cost of looking up an RSA-OAEP cipher from the provider for every operation compared with re-initialising one
+ * cipher, and the resulting cost of a single recipient encryption and decryption through the Encryptor.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class CipherReuseBenchmark {
+    private static final String RSA_TRANSFORMATION = "RSA/ECB/OAEPwithSHA1andMGF1Padding";
+
+    private final byte[] data = "Test".getBytes();
+    private Encryptor encryptor;
+    private KeyPair keyPair;
+    private List<ScytalePublicKey> publicKeys;
+    private String cipherText;
+    private Cipher cipher;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        Security.addProvider(new BouncyCastleProvider());
+        keyPair = new RSACertificate().length(2048).generateKeyPair();
+        publicKeys = List.of(new ScytalePublicKey(1L, new CertificateEncoder().base64EncodePublicKey(keyPair.getPublic())));
+        encryptor = new Encryptor();
+        cipherText = encryptor.encrypt("Test", keyPair.getPrivate(), publicKeys).get(0);
+        cipher = Cipher.getInstance(RSA_TRANSFORMATION, "BC");
+    }
+
+    @Benchmark
+    public byte[] getInstancePerOperation() throws Exception {
+        Cipher perOperation = Cipher.getInstance(RSA_TRANSFORMATION, "BC");
+        perOperation.init(Cipher.ENCRYPT_MODE, keyPair.getPublic());
+        return perOperation.doFinal(data);
+    }
+
+    @Benchmark
+    public byte[] reusedCipher() throws Exception {
+        cipher.init(Cipher.ENCRYPT_MODE, keyPair.getPublic());
+        return cipher.doFinal(data);
+    }
+
+    @Benchmark
+    public List<String> encryptorEncrypt() throws Exception {
+        return encryptor.encrypt("Test", keyPair.getPrivate(), publicKeys);
+    }
+
+    @Benchmark
+    public String encryptorDecrypt() throws Exception {
+        return encryptor.decrypt(cipherText, keyPair.getPrivate(), publicKeys);
+    }
+}
@@ -0,0 +1,55 @@
+package com.openmoments.scytale.encryption;
+
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.openjdk.jmh.annotations.*;
+
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.PublicKey;
+import java.security.Security;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.concurrent.TimeUnit;
+
+/***
+ * Cost of registering BouncyCastle and looking up a key factory for every object or decode compared with the shared
+ * {@link CryptoContext CryptoContext}
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class CryptoContextBenchmark {
+    private final CertificateEncoder certificateEncoder = new CertificateEncoder();
+    private byte[] eccPublicKey;
+    private String encodedEccPublicKey;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        KeyPair keyPair = new ECCCertificate().generateKeyPair();
+        eccPublicKey = keyPair.getPublic().getEncoded();
+        encodedEccPublicKey = certificateEncoder.base64EncodePublicKey(keyPair.getPublic());
+    }
+
+    @Benchmark
+    public PublicKey registerAndGetInstancePerDecode() throws Exception {
+        Security.addProvider(new BouncyCastleProvider());
+        return KeyFactory.getInstance(ECCCertificate.ALGORITHM, Encryptor.PROVIDER).generatePublic(new X509EncodedKeySpec(eccPublicKey));
+    }
+
+    @Benchmark
+    public PublicKey sharedContextDecode() throws Exception {
+        return CryptoContext.get().keyFactory(ECCCertificate.ALGORITHM, Encryptor.PROVIDER).generatePublic(new X509EncodedKeySpec(eccPublicKey));
+    }
+
+    @Benchmark
+    public PublicKey certificateEncoderDecode() throws Exception {
+        return certificateEncoder.base64DecodePublicKey(encodedEccPublicKey, CertificateType.ECC);
+    }
+
+    @Benchmark
+    public Encryptor constructEncryptor() {
+        return new Encryptor();
+    }
+}
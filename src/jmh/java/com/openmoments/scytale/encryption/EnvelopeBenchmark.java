@@ -0,0 +1,57 @@
+package com.openmoments.scytale.encryption;
+
+import com.openmoments.scytale.entities.Envelope;
+import com.openmoments.scytale.entities.ScytalePublicKey;
+import org.openjdk.jmh.annotations.*;
+
+import java.security.KeyPair;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/***
+ * Time to encrypt a payload for several EC recipients by encrypting the whole payload for each recipient, and by
+ * encrypting it once and wrapping only the content key for each recipient.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EnvelopeBenchmark {
+
+    @Param({"1024", "1048576", "10485760"})
+    int payloadBytes;
+
+    @Param({"1", "10", "100"})
+    int recipients;
+
+    private final Encryptor encryptor = new Encryptor();
+    private String data;
+    private KeyPair sender;
+    private List<ScytalePublicKey> publicKeys;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        AsymmetricCertificate eccCertificate = new CertificateFactory().get(CertificateType.ECC);
+        CertificateEncoder certificateEncoder = new CertificateEncoder();
+        sender = eccCertificate.generateKeyPair();
+        publicKeys = new ArrayList<>();
+        for (long id = 1; id <= recipients; id++) {
+            publicKeys.add(new ScytalePublicKey(id, certificateEncoder.base64EncodePublicKey(eccCertificate.generateKeyPair().getPublic())));
+        }
+        publicKeys.forEach(ScytalePublicKey::getPublicKey);
+        data = "x".repeat(payloadBytes);
+    }
+
+    @Benchmark
+    public List<String> perRecipient() throws Exception {
+        return encryptor.encrypt(data, sender.getPrivate(), publicKeys);
+    }
+
+    @Benchmark
+    public Envelope envelope() throws Exception {
+        return encryptor.encryptEnvelope(data, sender.getPrivate(), publicKeys);
+    }
+}
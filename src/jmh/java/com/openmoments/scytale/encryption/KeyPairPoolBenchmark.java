@@ -0,0 +1,54 @@
+package com.openmoments.scytale.encryption;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.security.KeyPair;
+import java.util.concurrent.TimeUnit;
+
+/***
+ * Latency seen by a caller needing an RSA key pair, generating inline compared with taking from a filled
+ * {@link KeyPairPool KeyPairPool}
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 1, batchSize = KeyPairPoolBenchmark.POOL_SIZE)
+@Measurement(iterations = 3, batchSize = KeyPairPoolBenchmark.POOL_SIZE)
+@Fork(1)
+@State(Scope.Thread)
+public class KeyPairPoolBenchmark {
+    static final int POOL_SIZE = 8;
+
+    @Param({"2048", "4096"})
+    public int keyLength;
+
+    private AsymmetricCertificate certificate;
+    private KeyPairPool keyPairPool;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        certificate = new RSACertificate().length(keyLength);
+        keyPairPool = new KeyPairPool(CertificateType.RSA).length(keyLength).highWaterMark(POOL_SIZE).start();
+    }
+
+    @Setup(Level.Iteration)
+    public void fill() throws InterruptedException {
+        while (keyPairPool.size() < POOL_SIZE) {
+            Thread.sleep(10);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        keyPairPool.close();
+    }
+
+    @Benchmark
+    public KeyPair inline() throws Exception {
+        return certificate.generateKeyPair();
+    }
+
+    @Benchmark
+    public KeyPair pooled() throws Exception {
+        return keyPairPool.take();
+    }
+}
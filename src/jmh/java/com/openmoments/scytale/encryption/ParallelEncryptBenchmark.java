@@ -0,0 +1,67 @@
+package com.openmoments.scytale.encryption;
+
+import com.openmoments.scytale.entities.ScytalePublicKey;
+import org.openjdk.jmh.annotations.*;
+
+import java.security.KeyPair;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/***
+ * Time to encrypt a small payload for a keystore of recipients on a pool of a given number of threads. With one
+ * thread no executor is configured, matching the sequential behaviour.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParallelEncryptBenchmark {
+
+    @Param({"RSA", "ECC"})
+    CertificateType certificateType;
+
+    @Param({"32"})
+    int recipients;
+
+    @Param({"1", "2", "4", "8"})
+    int threads;
+
+    private Encryptor encryptor;
+    private ForkJoinPool pool;
+    private KeyPair sender;
+    private List<ScytalePublicKey> publicKeys;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        AsymmetricCertificate certificate = new CertificateFactory().get(certificateType);
+        CertificateEncoder certificateEncoder = new CertificateEncoder();
+        sender = certificate.generateKeyPair();
+        publicKeys = new ArrayList<>();
+        for (long id = 1; id <= recipients; id++) {
+            publicKeys.add(new ScytalePublicKey(id, certificateEncoder.base64EncodePublicKey(certificate.generateKeyPair().getPublic())));
+        }
+        publicKeys.forEach(ScytalePublicKey::getPublicKey);
+
+        encryptor = new Encryptor();
+        if (threads > 1) {
+            pool = new ForkJoinPool(threads);
+            encryptor.parallel(pool);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    @Benchmark
+    public List<String> encrypt() throws Exception {
+        return encryptor.encrypt("Test", sender.getPrivate(), publicKeys);
+    }
+}
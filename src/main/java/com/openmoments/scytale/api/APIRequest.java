@@ -5,10 +5,28 @@ import org.json.JSONObject;
 import java.io.IOException;
 import java.net.http.HttpResponse;
 import java.security.cert.CertificateException;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
 public interface APIRequest {
     HttpResponse<String> get(String uri) throws IOException, InterruptedException, CertificateException;
+
+    default HttpResponse<String> get(String uri, Map<String, String> headers) throws IOException, InterruptedException, CertificateException {
+        return get(uri);
+    }
+
+    /***
+     * @return true if {@link #stream(String, Map) stream} is implemented
+     */
+    default boolean supportsStreaming() {
+        return false;
+    }
+
+    default HttpResponse<Stream<String>> stream(String uri, Map<String, String> headers) throws IOException, InterruptedException, CertificateException {
+        throw new UnsupportedOperationException("Streaming requests are not supported");
+    }
+
     HttpResponse<String> post(String uri, JSONObject json) throws IOException, InterruptedException, CertificateException;
     HttpResponse<String> put(String uri, JSONObject json) throws IOException, InterruptedException, CertificateException;
 
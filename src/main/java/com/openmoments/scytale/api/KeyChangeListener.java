@@ -0,0 +1,9 @@
+package com.openmoments.scytale.api;
+
+import com.openmoments.scytale.entities.KeyStore;
+import com.openmoments.scytale.entities.ScytalePublicKey;
+
+public interface KeyChangeListener {
+    void onKeyChanged(Long keyStoreId, ScytalePublicKey scytalePublicKey);
+    void onKeyStoreChanged(KeyStore keyStore);
+}
@@ -0,0 +1,387 @@
+package com.openmoments.scytale.api;
+
+import com.openmoments.scytale.cache.KeyStoreCache;
+import com.openmoments.scytale.cache.PublicKeyCache;
+import com.openmoments.scytale.entities.KeyStore;
+import com.openmoments.scytale.entities.ScytalePublicKey;
+import com.openmoments.scytale.exception.ScytaleException;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.http.HttpResponse;
+import java.security.cert.CertificateException;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/***
+ * Subscribes to the Server-Sent Events stream of key changes and applies them to a {@link KeyStoreCache KeyStoreCache}
+ * and {@link PublicKeyCache PublicKeyCache}, replacing the need to poll for new or rotated keys.
+ * <p>
+ * The stream is resumed from the last event received after a disconnect. Once a number of consecutive connections
+ * fail the keys of watched keystores are polled instead, with the stream retried after each poll. When the
+ * {@link APIRequest APIRequest} does not support streaming the watched keystores are only polled.
+ */
+public class KeyChangeSubscription implements Closeable {
+    private static final Logger LOG = Logger.getLogger(KeyChangeSubscription.class.getName());
+    protected static final String EVENTS_URI = KeyStoreRequest.KEYSTORE_URI + "/events";
+    protected static final String LAST_EVENT_ID_HEADER = "Last-Event-ID";
+    protected static final String KEY_ADDED = "key.added";
+    protected static final String KEY_UPDATED = "key.updated";
+    protected static final String KEYSTORE_UPDATED = "keystore.updated";
+    private static final String KEYSTORE_ID_ATTR = "keystoreId";
+    private static final String ID_ATTR = "id";
+    private static final String NAME_ATTR = "name";
+    private static final String PUBLIC_KEY_ATTR = "publicKey";
+    private static final Duration DEFAULT_RECONNECT_DELAY = Duration.ofSeconds(1);
+    private static final Duration DEFAULT_POLL_INTERVAL = Duration.ofSeconds(30);
+    private static final int DEFAULT_RECONNECT_ATTEMPTS = 3;
+
+    private final APIRequest apiRequest;
+    private final Set<KeyStore> watched = new CopyOnWriteArraySet<>();
+    private final Map<Long, Set<ScytalePublicKey>> polledKeys = new HashMap<>();
+    private KeyStoreCache keyStoreCache;
+    private PublicKeyCache publicKeyCache;
+    private KeyChangeListener listener;
+    private volatile Duration reconnectDelay = DEFAULT_RECONNECT_DELAY;
+    private Duration pollInterval = DEFAULT_POLL_INTERVAL;
+    private int reconnectAttempts = DEFAULT_RECONNECT_ATTEMPTS;
+
+    private volatile boolean running;
+    private volatile boolean polling;
+    private volatile String lastEventId;
+    private volatile Stream<String> body;
+    private Thread worker;
+
+    /***
+     * Constructor requiring an APIRequest
+     * @param apiRequest - Implementation of APIRequest interface supporting streamed requests
+     * @throws IllegalArgumentException - if the APIRequest is invalid
+     */
+    public KeyChangeSubscription(APIRequest apiRequest) {
+        if (apiRequest == null) {
+            throw new IllegalArgumentException("API Request interface is required");
+        }
+        this.apiRequest = apiRequest;
+    }
+
+    /***
+     * Apply keystore changes to a {@link KeyStoreCache KeyStoreCache}
+     * @param keyStoreCache - Cache to update
+     * @return Instance of KeyChangeSubscription
+     */
+    public KeyChangeSubscription keyStoreCache(KeyStoreCache keyStoreCache) {
+        this.keyStoreCache = keyStoreCache;
+        return this;
+    }
+
+    /***
+     * Apply key changes to a {@link PublicKeyCache PublicKeyCache}
+     * @param publicKeyCache - Cache to update
+     * @return Instance of KeyChangeSubscription
+     */
+    public KeyChangeSubscription publicKeyCache(PublicKeyCache publicKeyCache) {
+        this.publicKeyCache = publicKeyCache;
+        return this;
+    }
+
+    /***
+     * Notify a {@link KeyChangeListener KeyChangeListener} of each change received over the stream
+     * @param listener - Listener to notify
+     * @return Instance of KeyChangeSubscription
+     */
+    public KeyChangeSubscription listener(KeyChangeListener listener) {
+        this.listener = listener;
+        return this;
+    }
+
+    /***
+     * Specify keystores whose keys are polled while the stream is unavailable
+     * @param keyStores - {@link Collection Collection} of {@link KeyStore KeyStore} items to watch
+     * @return Instance of KeyChangeSubscription
+     */
+    public KeyChangeSubscription watch(Collection<KeyStore> keyStores) {
+        watched.addAll(keyStores);
+        return this;
+    }
+
+    /***
+     * Specify the delay before reconnecting a dropped stream, defaults to 1 second. A retry interval sent by the API
+     * takes precedence.
+     * @param reconnectDelay - {@link Duration Duration} to wait
+     * @return Instance of KeyChangeSubscription
+     */
+    public KeyChangeSubscription reconnectDelay(Duration reconnectDelay) {
+        this.reconnectDelay = reconnectDelay;
+        return this;
+    }
+
+    /***
+     * Specify the number of consecutive failed connections before polling, defaults to 3
+     * @param reconnectAttempts - Failed connections tolerated
+     * @return Instance of KeyChangeSubscription
+     */
+    public KeyChangeSubscription reconnectAttempts(int reconnectAttempts) {
+        this.reconnectAttempts = reconnectAttempts;
+        return this;
+    }
+
+    /***
+     * Specify the interval watched keystores are polled at while the stream is unavailable, defaults to 30 seconds
+     * @param pollInterval - {@link Duration Duration} between polls
+     * @return Instance of KeyChangeSubscription
+     */
+    public KeyChangeSubscription pollInterval(Duration pollInterval) {
+        this.pollInterval = pollInterval;
+        return this;
+    }
+
+    /***
+     * Resume from a known event, for example one persisted by a previous process
+     * @param lastEventId - ID of the last event applied
+     * @return Instance of KeyChangeSubscription
+     */
+    public KeyChangeSubscription lastEventId(String lastEventId) {
+        this.lastEventId = lastEventId;
+        return this;
+    }
+
+    public String getLastEventId() {
+        return lastEventId;
+    }
+
+    public boolean isPolling() {
+        return polling;
+    }
+
+    /***
+     * Start receiving changes on a background daemon thread
+     * @return Instance of KeyChangeSubscription
+     */
+    public synchronized KeyChangeSubscription start() {
+        if (running) {
+            return this;
+        }
+
+        running = true;
+        worker = new Thread(this::run, "scytale-key-changes");
+        worker.setDaemon(true);
+        worker.start();
+        return this;
+    }
+
+    /***
+     * Stop receiving changes, closing the stream if connected
+     */
+    @Override
+    public synchronized void close() {
+        running = false;
+        Stream<String> lines = body;
+        if (lines != null) {
+            lines.close();
+        }
+        if (worker != null) {
+            worker.interrupt();
+        }
+    }
+
+    private void run() {
+        boolean streaming = apiRequest.supportsStreaming();
+        if (!streaming) {
+            LOG.log(Level.WARNING, "API Request does not support streaming, polling for key changes");
+        }
+        int failures = streaming ? 0 : reconnectAttempts;
+
+        while (running) {
+            try {
+                if (streaming) {
+                    subscribe();
+                    failures = 0;
+                    polling = false;
+                    pause(reconnectDelay);
+                }
+            } catch (IOException | ScytaleException | CertificateException | RuntimeException e) {
+                // Includes UncheckedIOException from a connection dropped part way through the stream
+                if (running) {
+                    LOG.log(Level.WARNING, "Key change stream failed", e);
+                }
+                failures++;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            try {
+                if (failures >= reconnectAttempts) {
+                    polling = true;
+                    poll();
+                    pause(pollInterval);
+                } else if (failures > 0) {
+                    pause(reconnectDelay);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void subscribe() throws IOException, InterruptedException, CertificateException, ScytaleException {
+        Map<String, String> headers = lastEventId == null ? Map.of() : Map.of(LAST_EVENT_ID_HEADER, lastEventId);
+        HttpResponse<Stream<String>> response = apiRequest.stream(EVENTS_URI, headers);
+
+        if (response.statusCode() != 200) {
+            response.body().close();
+            throw new ScytaleException(ScytaleRequest.FAILED_WITH + response.statusCode());
+        }
+
+        polling = false;
+        try (Stream<String> lines = response.body()) {
+            body = lines;
+            Iterator<String> iterator = lines.iterator();
+            EventBuilder event = new EventBuilder();
+
+            while (running && iterator.hasNext()) {
+                String line = iterator.next();
+                if (line.isEmpty()) {
+                    dispatch(event);
+                    event = new EventBuilder();
+                } else {
+                    event.add(line);
+                }
+            }
+        } finally {
+            body = null;
+        }
+    }
+
+    private void dispatch(EventBuilder event) {
+        // An event without data still moves the stream position on
+        if (event.id != null) {
+            lastEventId = event.id;
+        }
+        if (event.data.length() == 0) {
+            return;
+        }
+
+        try {
+            JSONObject data = new JSONObject(event.data.toString());
+            switch (event.type) {
+                case KEY_ADDED:
+                case KEY_UPDATED:
+                    applyKeyChange(data.getLong(KEYSTORE_ID_ATTR), new ScytalePublicKey(data.getLong(ID_ATTR), data.getString(PUBLIC_KEY_ATTR)));
+                    break;
+                case KEYSTORE_UPDATED:
+                    applyKeyStoreChange(new KeyStore(data.getLong(ID_ATTR), data.getString(NAME_ATTR)));
+                    break;
+                default:
+                    LOG.log(Level.FINE, "Ignoring event of type {0}", event.type);
+            }
+        } catch (JSONException jsonException) {
+            LOG.log(Level.SEVERE, ScytaleRequest.RETURNED_INVALID_JSON, jsonException);
+        } catch (IllegalArgumentException illegalArgumentException) {
+            LOG.log(Level.SEVERE, "Event contained an invalid public key", illegalArgumentException);
+        }
+    }
+
+    private void applyKeyChange(Long keyStoreId, ScytalePublicKey scytalePublicKey) {
+        if (publicKeyCache != null) {
+            publicKeyCache.putKey(keyStoreId, scytalePublicKey);
+        }
+        if (listener != null) {
+            listener.onKeyChanged(keyStoreId, scytalePublicKey);
+        }
+    }
+
+    private void applyKeyStoreChange(KeyStore keyStore) {
+        if (keyStoreCache != null) {
+            keyStoreCache.put(keyStore);
+        }
+        if (listener != null) {
+            listener.onKeyStoreChanged(keyStore);
+        }
+    }
+
+    /***
+     * Fetch the keys of watched keystores, updating the cache if any, and notify the listener of keys which are new or
+     * changed since the previous poll. Every key is notified on the first poll, as changes may have been missed while
+     * the stream was failing.
+     */
+    private void poll() throws InterruptedException {
+        PublicKeyRequest publicKeyRequest = new PublicKeyRequest(apiRequest).cache(publicKeyCache);
+
+        for (KeyStore keyStore : watched) {
+            try {
+                Set<ScytalePublicKey> keys = new HashSet<>(publicKeyRequest.refresh(keyStore));
+                Set<ScytalePublicKey> previous = polledKeys.put(keyStore.getId(), keys);
+                if (listener == null) {
+                    continue;
+                }
+                for (ScytalePublicKey scytalePublicKey : keys) {
+                    if (previous == null || !previous.contains(scytalePublicKey)) {
+                        listener.onKeyChanged(keyStore.getId(), scytalePublicKey);
+                    }
+                }
+            } catch (IOException | ScytaleException | CertificateException | RuntimeException e) {
+                LOG.log(Level.WARNING, "Failed to poll keys for " + keyStore, e);
+            }
+        }
+    }
+
+    private void pause(Duration duration) throws InterruptedException {
+        if (running) {
+            Thread.sleep(duration.toMillis());
+        }
+    }
+
+    /***
+     * Accumulates the fields of a single Server-Sent Event
+     */
+    private class EventBuilder {
+        private String id;
+        private String type = "message";
+        private final StringBuilder data = new StringBuilder();
+
+        private void add(String line) {
+            if (line.startsWith(":")) {
+                return;
+            }
+
+            int separator = line.indexOf(':');
+            String field = separator < 0 ? line : line.substring(0, separator);
+            String value = separator < 0 ? "" : line.substring(separator + 1);
+            if (value.startsWith(" ")) {
+                value = value.substring(1);
+            }
+
+            switch (field) {
+                case "id":
+                    id = value;
+                    break;
+                case "event":
+                    type = value;
+                    break;
+                case "data":
+                    if (data.length() > 0) {
+                        data.append('\n');
+                    }
+                    data.append(value);
+                    break;
+                case "retry":
+                    try {
+                        reconnectDelay = Duration.ofMillis(Long.parseLong(value));
+                    } catch (NumberFormatException e) {
+                        LOG.log(Level.FINE, "Ignoring invalid retry interval {0}", value);
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+}
@@ -1,5 +1,8 @@
 package com.openmoments.scytale.api;
 
+import com.openmoments.scytale.cache.KeyStoreCache;
+import com.openmoments.scytale.cache.KeyStoreReplica;
+import com.openmoments.scytale.entities.BatchResult;
 import com.openmoments.scytale.entities.KeyStore;
 import com.openmoments.scytale.exception.InvalidKeystoreException;
 import com.openmoments.scytale.exception.ScytaleException;
@@ -9,9 +12,17 @@ import org.json.JSONObject;
 
 import java.io.IOException;
 import java.security.cert.CertificateException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
 public class KeyStoreRequest extends ScytaleRequest {
@@ -19,6 +30,12 @@ public class KeyStoreRequest extends ScytaleRequest {
     protected static final String KEYSTORE_ID_ATTR = "id";
     protected static final String KEYSTORE_NAME_ATTR = "name";
     protected static final String KEYSTORE_URI = "keystores";
+    private static final String BATCH_URI = KEYSTORE_URI + "/batch";
+    private static final String KEYSTORES_ATTR = "keystores";
+    private static final int BATCH_READ_SIZE = 100;
+
+    private KeyStoreCache keyStoreCache;
+    private KeyStoreReplica replica;
 
     /***
      * Constructor requiring an APIRequest
@@ -33,6 +50,39 @@ public class KeyStoreRequest extends ScytaleRequest {
         super(apiRequest, callback);
     }
 
+    /***
+     * Serve lookups from a {@link KeyStoreCache KeyStoreCache}, only calling the API on a cache miss
+     * @param keyStoreCache - Cache to read from and populate, null to disable caching
+     * @return Instance of KeyStoreRequest
+     */
+    public KeyStoreRequest cache(KeyStoreCache keyStoreCache) {
+        this.keyStoreCache = keyStoreCache;
+        return this;
+    }
+
+    /***
+     * Serve lookups from a synced {@link KeyStoreReplica KeyStoreReplica}, calling the API for keystores the replica
+     * does not hold
+     * @param replica - Replica to read from, null to disable
+     * @return Instance of KeyStoreRequest
+     */
+    public KeyStoreRequest replica(KeyStoreReplica replica) {
+        this.replica = replica;
+        return this;
+    }
+
+    @Override
+    public KeyStoreRequest concurrency(int concurrency) {
+        super.concurrency(concurrency);
+        return this;
+    }
+
+    @Override
+    public KeyStoreRequest pageSize(int pageSize) {
+        super.pageSize(pageSize);
+        return this;
+    }
+
     /***
      * Find a keystore based on the ID
      * @param id - Id of the keystore to retrieve
@@ -45,13 +95,55 @@ public class KeyStoreRequest extends ScytaleRequest {
     public Optional<KeyStore> getById(Long id) throws InterruptedException, ScytaleException, IOException, CertificateException {
         validateID(id);
 
+        Optional<KeyStore> local = getLocally(id);
+        if (local.isPresent()) {
+            return local;
+        }
+
         String bodyResponse = this.get(KEYSTORE_URI + "/" + id);
 
         if (bodyResponse.isEmpty()) {
             return Optional.empty();
         }
 
-        return Optional.of(fromJson(bodyResponse));
+        return Optional.of(cacheKeyStore(fromJson(bodyResponse)));
+    }
+
+    /***
+     * Find several keystores based on their IDs. Keystores not held by a configured replica or cache are fetched with
+     * a single batch request when the API supports one, otherwise individual requests are pipelined up to the
+     * configured {@link #concurrency(int) concurrency}. Keystores the batch response omits are looked up individually.
+     * Always run synchronously regardless of any class callback.
+     * @param ids - {@link Collection Collection} of keystore IDs to retrieve
+     * @return {@link BatchResult BatchResult} of the {@link KeyStore KeyStore}, or failure, for each ID
+     * @throws IOException - If an I/O error occurs when sending the batch request
+     * @throws InterruptedException - If the API operation is interrupted
+     * @throws ScytaleException - If the batch endpoint did not return a successful response
+     * @throws CertificateException - Certificate authentication failed
+     */
+    public BatchResult<Long, KeyStore> getByIds(Collection<Long> ids) throws InterruptedException, ScytaleException, IOException, CertificateException {
+        ids.forEach(this::validateID);
+
+        Map<Long, KeyStore> local = new HashMap<>();
+        List<Long> remote = new ArrayList<>();
+        for (Long id : new LinkedHashSet<>(ids)) {
+            getLocally(id).ifPresentOrElse(keyStore -> local.put(id, keyStore), () -> remote.add(id));
+        }
+
+        BatchResult<Long, KeyStore> fetched = remote.isEmpty() ? new BatchResult<>() : fetchByIds(remote);
+        fetched.getResults().values().forEach(this::cacheKeyStore);
+
+        BatchResult<Long, KeyStore> found = new BatchResult<>();
+        for (Long id : new LinkedHashSet<>(ids)) {
+            if (local.containsKey(id)) {
+                found.success(id, local.get(id));
+            } else if (fetched.getResults().containsKey(id)) {
+                found.success(id, fetched.getResults().get(id));
+            } else {
+                found.failure(id, fetched.getFailures().get(id));
+            }
+        }
+        return found;
     }
 
     /***
@@ -73,7 +165,34 @@ public class KeyStoreRequest extends ScytaleRequest {
             return Optional.empty();
         }
 
-        return Optional.of(fromJson(postBody));
+        return Optional.of(replicate(cacheKeyStore(fromJson(postBody))));
+    }
+
+    /***
+     * Create several keystores on the remote API. A single batch request is made when the API supports one, otherwise
+     * individual requests are pipelined up to the configured {@link #concurrency(int) concurrency}. Always run
+     * synchronously regardless of any class callback.
+     * @param names - {@link Collection Collection} of keystore names to create
+     * @return {@link BatchResult BatchResult} of the {@link KeyStore KeyStore} created, or failure, for each name
+     * @throws IOException - If an I/O error occurs when sending the batch request
+     * @throws InterruptedException - If the API operation is interrupted
+     * @throws ScytaleException - If the batch endpoint did not return a result for each name
+     * @throws CertificateException - Certificate authentication failed
+     */
+    public BatchResult<String, KeyStore> createKeyStores(Collection<String> names) throws InterruptedException, ScytaleException, IOException, CertificateException {
+        names.forEach(this::validateName);
+        List<String> uniqueNames = new ArrayList<>(new LinkedHashSet<>(names));
+
+        JSONArray keyStoresJson = new JSONArray();
+        uniqueNames.forEach(name -> keyStoresJson.put(new JSONObject().put(KEYSTORE_NAME_ATTR, name)));
+
+        Optional<JSONArray> batch = this.postBatch(BATCH_URI, new JSONObject().put(KEYSTORES_ATTR, keyStoresJson));
+        BatchResult<String, KeyStore> created = batch.isPresent() ?
+                this.fromBatch(uniqueNames, batch.get(), this::fromJson) :
+                this.postEach(uniqueNames, name -> KEYSTORE_URI, name -> new JSONObject().put(KEYSTORE_NAME_ATTR, name), this::fromJson);
+
+        created.getResults().values().forEach(keyStore -> replicate(cacheKeyStore(keyStore)));
+        return created;
     }
 
     /***
@@ -95,12 +214,36 @@ public class KeyStoreRequest extends ScytaleRequest {
 
         String updateURI = KEYSTORE_URI + "/" + updated.getId();
 
+        if (hasCallback()) {
+            // The PUT is still in flight, so the cache and replica are only changed once the API accepts it. A lookup
+            // meanwhile cannot cache the old keystore again, and a rejected update is never replicated.
+            this.put(updateURI, updateJson, () -> accepted(updated));
+            return Optional.empty();
+        }
+
         String updateBody = this.put(updateURI, updateJson);
         if (updateBody.isEmpty()) {
+            accepted(updated);
             return Optional.empty();
         }
 
-        return Optional.of(fromJson(updateBody));
+        return Optional.of(replicate(cacheKeyStore(fromJson(updateBody))));
+    }
+
+    /***
+     * Stream every keystore matching a name search one page at a time, fetching the next page while the current one
+     * is consumed. Always run asynchronously regardless of any class callback. Keystores are added to any configured
+     * cache as they are read.
+     * @param name - Name to search for
+     * @return Lazy {@link Stream Stream} of matching {@link KeyStore KeyStore} items, which should be closed if not
+     * consumed completely
+     * @throws IOException - If an I/O error occurs when sending the first request
+     * @throws InterruptedException - If the API operation is interrupted
+     * @throws CertificateException - Certificate authentication failed
+     */
+    public Stream<KeyStore> streamByName(String name) throws IOException, InterruptedException, CertificateException {
+        Stream<KeyStore> keyStores = this.getPaged(KEYSTORE_URI + "/search?name=" + name, KEYSTORES_ATTR, this::fromJsonArray);
+        return keyStoreCache == null ? keyStores : keyStores.peek(keyStoreCache::put);
     }
 
     /***
@@ -116,28 +259,141 @@ public class KeyStoreRequest extends ScytaleRequest {
     public Optional<KeyStore> searchByName(String name) throws IOException, InterruptedException, ScytaleException, InvalidKeystoreException, CertificateException {
         String searchURL = KEYSTORE_URI + "/search?name=" + name;
 
-        try {
-            String searchBody = this.get(searchURL);
-            if (searchBody.isEmpty()) {
-                return Optional.empty();
+        if (replica != null && replica.isSynced()) {
+            Optional<KeyStore> replicated = replica.getByName(name);
+            if (replicated.isPresent()) {
+                return replicated;
             }
+        }
 
-            JSONArray foundByName = new JSONArray(searchBody);
-            Optional<JSONObject> jsonObject = StreamSupport.stream(foundByName.spliterator(), false)
-                    .map(JSONObject.class::cast)
-                    .filter(o -> o.get(KeyStoreRequest.KEYSTORE_NAME_ATTR).equals(name))
-                    .findFirst();
+        if (keyStoreCache != null) {
+            if (keyStoreCache.isMissing(name)) {
+                throw new InvalidKeystoreException(notFoundMessage(name));
+            }
 
-            if (jsonObject.isEmpty()) {
-                throw new InvalidKeystoreException("Keystore with name " + name + " does not exist");
+            Optional<KeyStore> cached = keyStoreCache.getByName(name);
+            if (cached.isPresent()) {
+                return cached;
             }
+        }
 
-            return Optional.of(new KeyStore(jsonObject.get().getLong(KEYSTORE_ID_ATTR),
-                                            jsonObject.get().getString(KEYSTORE_NAME_ATTR)));
-        } catch (JSONException jsonException) {
-            LOG.log(Level.SEVERE, RETURNED_INVALID_JSON, jsonException);
-            throw new ScytaleException(RETURNED_INVALID_JSON);
+        String searchBody = this.get(searchURL);
+        if (searchBody.isEmpty()) {
+            return Optional.empty();
+        }
+
+        List<KeyStore> keyStores = fromJsonArray(searchBody);
+
+        if (keyStoreCache != null) {
+            keyStores.forEach(keyStoreCache::put);
+        }
+
+        Optional<KeyStore> keyStore = keyStores.stream()
+                .filter(k -> k.getName().equals(name))
+                .findFirst();
+
+        if (keyStore.isEmpty()) {
+            if (keyStoreCache != null) {
+                keyStoreCache.putMissing(name);
+            }
+            throw new InvalidKeystoreException(notFoundMessage(name));
+        }
+
+        return keyStore;
+    }
+
+    private Optional<KeyStore> getLocally(Long id) {
+        if (replica != null && replica.isSynced()) {
+            Optional<KeyStore> replicated = replica.getById(id);
+            if (replicated.isPresent()) {
+                return replicated;
+            }
+        }
+
+        if (keyStoreCache != null) {
+            return keyStoreCache.getById(id);
+        }
+
+        return Optional.empty();
+    }
+
+    private BatchResult<Long, KeyStore> fetchByIds(List<Long> ids) throws InterruptedException, ScytaleException, IOException, CertificateException {
+        BatchResult<Long, KeyStore> fetched = new BatchResult<>();
+
+        for (int from = 0; from < ids.size(); from += BATCH_READ_SIZE) {
+            List<Long> chunk = ids.subList(from, Math.min(from + BATCH_READ_SIZE, ids.size()));
+            String batchURL = KEYSTORE_URI + "?ids=" + chunk.stream().map(String::valueOf).collect(Collectors.joining(","));
+
+            Optional<Map<Long, KeyStore>> returned = this.getBatch(batchURL).flatMap(this::byId);
+            // A server ignoring the ids parameter lists keystores which were not requested
+            if (returned.isPresent() && !chunk.containsAll(returned.get().keySet())) {
+                this.batchUnsupported(batchURL);
+                returned = Optional.empty();
+            }
+            if (returned.isEmpty()) {
+                merge(fetched, this.getEach(ids.subList(from, ids.size()), id -> KEYSTORE_URI + "/" + id, this::fromJson));
+                return fetched;
+            }
+
+            List<Long> omitted = new ArrayList<>();
+            for (Long id : chunk) {
+                if (returned.get().containsKey(id)) {
+                    fetched.success(id, returned.get().get(id));
+                } else {
+                    omitted.add(id);
+                }
+            }
+            // Confirm omitted keystores individually rather than assume the filter was applied in full
+            if (!omitted.isEmpty()) {
+                merge(fetched, this.getEach(omitted, id -> KEYSTORE_URI + "/" + id, this::fromJson));
+            }
         }
+
+        return fetched;
+    }
+
+    /***
+     * Index the keystores returned by a batch lookup, empty if the response is not a list of keystores
+     */
+    private Optional<Map<Long, KeyStore>> byId(String jsonString) {
+        try {
+            return Optional.of(fromJsonArray(jsonString).stream()
+                    .collect(Collectors.toMap(KeyStore::getId, keyStore -> keyStore, (first, second) -> first)));
+        } catch (ScytaleException scytaleException) {
+            return Optional.empty();
+        }
+    }
+
+    private KeyStore cacheKeyStore(KeyStore keyStore) {
+        if (keyStoreCache != null) {
+            keyStoreCache.put(keyStore);
+        }
+        return keyStore;
+    }
+
+    /***
+     * The API accepted an update without returning the keystore, so the replica holds what was sent until the next sync
+     */
+    private void accepted(KeyStore updated) {
+        if (keyStoreCache != null) {
+            keyStoreCache.invalidate(updated.getId());
+        }
+        replicate(updated);
+    }
+
+    /***
+     * Apply a local write to any configured replica, as it is otherwise only updated by the next sync
+     */
+
+    private KeyStore replicate(KeyStore keyStore) {
+        if (replica != null) {
+            replica.putKeyStore(keyStore);
+        }
+        return keyStore;
+    }
+
+    private String notFoundMessage(String name) {
+        return "Keystore with name " + name + " does not exist";
     }
 
     private void validateID(Long id) {
@@ -152,6 +408,19 @@ public class KeyStoreRequest extends ScytaleRequest {
         }
     }
 
+    private List<KeyStore> fromJsonArray(String jsonString) throws ScytaleException {
+        try {
+            JSONArray jsonArray = new JSONArray(jsonString);
+            return StreamSupport.stream(jsonArray.spliterator(), false)
+                    .map(JSONObject.class::cast)
+                    .map(o -> new KeyStore(o.getLong(KEYSTORE_ID_ATTR), o.getString(KEYSTORE_NAME_ATTR)))
+                    .collect(Collectors.toList());
+        } catch (JSONException | ClassCastException jsonException) {
+            LOG.log(Level.SEVERE, RETURNED_INVALID_JSON, jsonException);
+            throw new ScytaleException(RETURNED_INVALID_JSON);
+        }
+    }
+
     private KeyStore fromJson(String jsonString) throws ScytaleException {
         try {
             JSONObject jsonObject = new JSONObject(jsonString);
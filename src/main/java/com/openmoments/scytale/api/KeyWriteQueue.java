@@ -0,0 +1,417 @@
+package com.openmoments.scytale.api;
+
+import com.openmoments.scytale.encryption.CertificateEncoder;
+import com.openmoments.scytale.entities.BatchResult;
+import com.openmoments.scytale.entities.KeyStore;
+import com.openmoments.scytale.entities.ScytalePublicKey;
+import com.openmoments.scytale.exception.ScytaleException;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.cert.CertificateException;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/***
+ * Write-behind queue for public key registration. Adds and updates are accepted immediately and flushed to the API
+ * in batches once {@link #batchSize(int) batchSize} writes are queued or every {@link #flushInterval(Duration)
+ * flushInterval}, whichever comes first. Repeated updates of the same key are coalesced so only the latest is sent.
+ * <p>
+ * When a journal file is configured every queued write is appended to it and replayed by {@link #start()}, so writes
+ * which had not been flushed survive a restart. Writes the API rejects complete exceptionally; writes which could not
+ * be sent at all remain queued for the next flush.
+ */
+public class KeyWriteQueue implements Closeable {
+    private static final Logger LOG = Logger.getLogger(KeyWriteQueue.class.getName());
+    private static final int DEFAULT_BATCH_SIZE = 100;
+    private static final Duration DEFAULT_FLUSH_INTERVAL = Duration.ofSeconds(1);
+    private static final String OP_ATTR = "op";
+    private static final String ADD_OP = "add";
+    private static final String UPDATE_OP = "update";
+    private static final String KEYSTORE_ID_ATTR = "keystoreId";
+    private static final String KEYSTORE_NAME_ATTR = "keystoreName";
+    private static final String ID_ATTR = "id";
+    private static final String PUBLIC_KEY_ATTR = "publicKey";
+
+    private final PublicKeyRequest publicKeyRequest;
+    private final Object flushLock = new Object();
+    private final Map<KeyStore, Map<String, CompletableFuture<ScytalePublicKey>>> pendingAdds = new LinkedHashMap<>();
+    private final Map<KeyStore, Map<Long, PendingUpdate>> pendingUpdates = new LinkedHashMap<>();
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private Duration flushInterval = DEFAULT_FLUSH_INTERVAL;
+    private Path journalPath;
+    private BufferedWriter journal;
+    private ScheduledExecutorService scheduler;
+    private int pendingCount;
+
+    /***
+     * Constructor requiring the request used to write keys
+     * @param publicKeyRequest - {@link PublicKeyRequest PublicKeyRequest} to flush writes with
+     * @throws IllegalArgumentException - if the PublicKeyRequest is invalid
+     */
+    public KeyWriteQueue(PublicKeyRequest publicKeyRequest) {
+        if (publicKeyRequest == null) {
+            throw new IllegalArgumentException("PublicKey request is required");
+        }
+        this.publicKeyRequest = publicKeyRequest;
+    }
+
+    /***
+     * Specify the number of queued writes which triggers a flush, defaults to 100
+     * @param batchSize - Writes per flush
+     * @return Instance of KeyWriteQueue
+     */
+    public KeyWriteQueue batchSize(int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive integer");
+        }
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    /***
+     * Specify the longest a write is queued before being flushed, defaults to 1 second
+     * @param flushInterval - {@link Duration Duration} between flushes
+     * @return Instance of KeyWriteQueue
+     */
+    public KeyWriteQueue flushInterval(Duration flushInterval) {
+        this.flushInterval = flushInterval;
+        return this;
+    }
+
+    /***
+     * Record queued writes in a journal file, replaying any found when started
+     * @param journalPath - {@link Path Path} of the journal file
+     * @return Instance of KeyWriteQueue
+     */
+    public KeyWriteQueue journal(Path journalPath) {
+        this.journalPath = journalPath;
+        return this;
+    }
+
+    /***
+     * Replay the journal, if any, and start flushing in the background on a daemon thread. Writes queued before the
+     * queue was started are journaled along with those replayed.
+     * @return Instance of KeyWriteQueue
+     * @throws IOException - If the journal could not be read or written
+     */
+    public synchronized KeyWriteQueue start() throws IOException {
+        if (scheduler != null) {
+            return this;
+        }
+
+        if (journalPath != null) {
+            replay();
+            Path rewritten = journalPath.resolveSibling(journalPath.getFileName() + ".tmp");
+            writePending(rewritten);
+            Files.move(rewritten, journalPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            journal = Files.newBufferedWriter(journalPath, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        }
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "scytale-key-writes");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::flushQuietly, flushInterval.toMillis(), flushInterval.toMillis(), TimeUnit.MILLISECONDS);
+        return this;
+    }
+
+    /***
+     * Queue a public key to be added to a keystore
+     * @param publicKey - Base64 encoded public key
+     * @param keyStore - {@link KeyStore KeyStore} to add the key to
+     * @return {@link CompletableFuture CompletableFuture} completing with the key once added by the API
+     * @throws IOException - If the write could not be journaled
+     */
+    public synchronized CompletableFuture<ScytalePublicKey> add(String publicKey, KeyStore keyStore) throws IOException {
+        Map<String, CompletableFuture<ScytalePublicKey>> adds = pendingAdds.computeIfAbsent(keyStore, k -> new LinkedHashMap<>());
+        CompletableFuture<ScytalePublicKey> queued = adds.get(publicKey);
+        if (queued != null) {
+            return queued;
+        }
+
+        journal(new JSONObject().put(OP_ATTR, ADD_OP).put(PUBLIC_KEY_ATTR, publicKey), keyStore);
+        CompletableFuture<ScytalePublicKey> added = new CompletableFuture<>();
+        adds.put(publicKey, added);
+        queued();
+        return added;
+    }
+
+    /***
+     * Queue an update of a public key, replacing any queued update of the same key
+     * @param updatedKey - {@link ScytalePublicKey ScytalePublicKey} with the ID of the key to update
+     * @param keyStore - {@link KeyStore KeyStore} the key belongs to
+     * @return {@link CompletableFuture CompletableFuture} completing with the key once updated by the API
+     * @throws IOException - If the write could not be journaled
+     */
+    public synchronized CompletableFuture<ScytalePublicKey> update(ScytalePublicKey updatedKey, KeyStore keyStore) throws IOException {
+        String publicKey = new CertificateEncoder().base64EncodePublicKey(updatedKey.getPublicKey());
+        journal(new JSONObject().put(OP_ATTR, UPDATE_OP).put(ID_ATTR, updatedKey.getId()).put(PUBLIC_KEY_ATTR, publicKey), keyStore);
+
+        Map<Long, PendingUpdate> updates = pendingUpdates.computeIfAbsent(keyStore, k -> new LinkedHashMap<>());
+        PendingUpdate replaced = updates.get(updatedKey.getId());
+        PendingUpdate pending = new PendingUpdate(updatedKey, new CompletableFuture<>());
+        updates.put(updatedKey.getId(), pending);
+
+        if (replaced == null) {
+            queued();
+        } else {
+            pending.future.whenComplete((key, error) -> complete(replaced.future, key, error));
+        }
+        return pending.future;
+    }
+
+    /***
+     * @return Number of writes waiting to be flushed
+     */
+    public synchronized int size() {
+        return pendingCount;
+    }
+
+    /***
+     * Send all queued writes to the API now
+     * @throws InterruptedException - If the API operation is interrupted
+     */
+    public void flush() throws InterruptedException {
+        // Flushes run one at a time so the journal is never rewritten while another flush has writes in flight
+        synchronized (flushLock) {
+            Map<KeyStore, Map<String, CompletableFuture<ScytalePublicKey>>> adds;
+            Map<KeyStore, Map<Long, PendingUpdate>> updates;
+            synchronized (this) {
+                adds = new LinkedHashMap<>(pendingAdds);
+                updates = new LinkedHashMap<>(pendingUpdates);
+                pendingAdds.clear();
+                pendingUpdates.clear();
+                pendingCount = 0;
+            }
+
+            adds.forEach(this::sendAdds);
+            updates.forEach((keyStore, keyUpdates) -> keyUpdates.values().forEach(update -> sendUpdate(keyStore, update)));
+            rewriteJournal();
+
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+    }
+
+    /***
+     * Stop flushing in the background after sending any queued writes
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (scheduler != null) {
+                scheduler.shutdown();
+            }
+        }
+
+        flushQuietly();
+
+        synchronized (this) {
+            try {
+                if (journal != null) {
+                    journal.close();
+                    journal = null;
+                }
+            } catch (IOException e) {
+                LOG.log(Level.WARNING, "Failed to close key write journal", e);
+            }
+            scheduler = null;
+        }
+    }
+
+    private void sendAdds(KeyStore keyStore, Map<String, CompletableFuture<ScytalePublicKey>> keys) {
+        try {
+            BatchResult<String, ScytalePublicKey> added = publicKeyRequest.addAll(new ArrayList<>(keys.keySet()), keyStore);
+            added.getResults().forEach((publicKey, scytalePublicKey) -> keys.get(publicKey).complete(scytalePublicKey));
+            added.getFailures().forEach((publicKey, failure) -> keys.get(publicKey).completeExceptionally(failure));
+        } catch (ScytaleException e) {
+            keys.values().forEach(future -> future.completeExceptionally(e));
+        } catch (IOException | CertificateException e) {
+            LOG.log(Level.WARNING, "Failed to flush keys for " + keyStore + ", retrying next flush", e);
+            requeueAdds(keyStore, keys);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            requeueAdds(keyStore, keys);
+        }
+    }
+
+    private void sendUpdate(KeyStore keyStore, PendingUpdate update) {
+        try {
+            update.future.complete(publicKeyRequest.update(update.key, keyStore));
+        } catch (ScytaleException e) {
+            update.future.completeExceptionally(e);
+        } catch (IOException | CertificateException e) {
+            LOG.log(Level.WARNING, "Failed to flush key update for " + keyStore + ", retrying next flush", e);
+            requeueUpdate(keyStore, update);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            requeueUpdate(keyStore, update);
+        }
+    }
+
+    private synchronized void requeueAdds(KeyStore keyStore, Map<String, CompletableFuture<ScytalePublicKey>> keys) {
+        Map<String, CompletableFuture<ScytalePublicKey>> adds = pendingAdds.computeIfAbsent(keyStore, k -> new LinkedHashMap<>());
+        keys.forEach((publicKey, future) -> {
+            CompletableFuture<ScytalePublicKey> queued = adds.putIfAbsent(publicKey, future);
+            if (queued == null) {
+                pendingCount++;
+            } else {
+                queued.whenComplete((key, error) -> complete(future, key, error));
+            }
+        });
+    }
+
+    private synchronized void requeueUpdate(KeyStore keyStore, PendingUpdate update) {
+        Map<Long, PendingUpdate> updates = pendingUpdates.computeIfAbsent(keyStore, k -> new LinkedHashMap<>());
+        PendingUpdate newer = updates.putIfAbsent(update.key.getId(), update);
+        if (newer == null) {
+            pendingCount++;
+        } else {
+            newer.future.whenComplete((key, error) -> complete(update.future, key, error));
+        }
+    }
+
+    private void complete(CompletableFuture<ScytalePublicKey> future, ScytalePublicKey key, Throwable error) {
+        if (error == null) {
+            future.complete(key);
+        } else {
+            future.completeExceptionally(error);
+        }
+    }
+
+    private void queued() {
+        pendingCount++;
+        if (pendingCount >= batchSize && scheduler != null) {
+            scheduler.execute(this::flushQuietly);
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            LOG.log(Level.SEVERE, "Key write flush failed", e);
+        }
+    }
+
+    private void journal(JSONObject entry, KeyStore keyStore) throws IOException {
+        if (journal == null) {
+            return;
+        }
+
+        entry.put(KEYSTORE_ID_ATTR, keyStore.getId()).put(KEYSTORE_NAME_ATTR, keyStore.getName());
+        journal.write(entry.toString());
+        journal.newLine();
+        journal.flush();
+    }
+
+    /***
+     * Replace the journal with the writes still queued, so flushed writes are not replayed
+     */
+    private synchronized void rewriteJournal() {
+        if (journal == null) {
+            return;
+        }
+
+        Path rewritten = journalPath.resolveSibling(journalPath.getFileName() + ".tmp");
+        try {
+            writePending(rewritten);
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "Failed to rewrite key write journal, flushed writes may be replayed", e);
+            return;
+        }
+
+        try {
+            journal.close();
+            Files.move(rewritten, journalPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "Failed to replace key write journal, flushed writes may be replayed", e);
+        } finally {
+            try {
+                journal = Files.newBufferedWriter(journalPath, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            } catch (IOException e) {
+                LOG.log(Level.SEVERE, "Failed to reopen key write journal, writes are no longer journaled", e);
+                journal = null;
+            }
+        }
+    }
+
+    /***
+     * Write every queued write to a file in journal form
+     */
+    private void writePending(Path path) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            for (Map.Entry<KeyStore, Map<String, CompletableFuture<ScytalePublicKey>>> adds : pendingAdds.entrySet()) {
+                for (String publicKey : adds.getValue().keySet()) {
+                    writeEntry(writer, new JSONObject().put(OP_ATTR, ADD_OP).put(PUBLIC_KEY_ATTR, publicKey), adds.getKey());
+                }
+            }
+            for (Map.Entry<KeyStore, Map<Long, PendingUpdate>> updates : pendingUpdates.entrySet()) {
+                for (PendingUpdate update : updates.getValue().values()) {
+                    String publicKey = new CertificateEncoder().base64EncodePublicKey(update.key.getPublicKey());
+                    writeEntry(writer, new JSONObject().put(OP_ATTR, UPDATE_OP).put(ID_ATTR, update.key.getId()).put(PUBLIC_KEY_ATTR, publicKey), updates.getKey());
+                }
+            }
+        }
+    }
+
+    private void writeEntry(BufferedWriter writer, JSONObject entry, KeyStore keyStore) throws IOException {
+        entry.put(KEYSTORE_ID_ATTR, keyStore.getId()).put(KEYSTORE_NAME_ATTR, keyStore.getName());
+        writer.write(entry.toString());
+        writer.newLine();
+    }
+
+    private void replay() throws IOException {
+        if (!Files.exists(journalPath)) {
+            return;
+        }
+
+        int replayed = 0;
+        for (String line : Files.readAllLines(journalPath, StandardCharsets.UTF_8)) {
+            try {
+                JSONObject entry = new JSONObject(line);
+                KeyStore keyStore = new KeyStore(entry.getLong(KEYSTORE_ID_ATTR), entry.getString(KEYSTORE_NAME_ATTR));
+                if (ADD_OP.equals(entry.getString(OP_ATTR))) {
+                    add(entry.getString(PUBLIC_KEY_ATTR), keyStore);
+                } else {
+                    update(new ScytalePublicKey(entry.getLong(ID_ATTR), entry.getString(PUBLIC_KEY_ATTR)), keyStore);
+                }
+                replayed++;
+            } catch (JSONException | IllegalArgumentException e) {
+                // A write interrupted by a crash leaves a partial last line
+                LOG.log(Level.WARNING, "Skipping unreadable key write journal entry", e);
+            }
+        }
+
+        LOG.log(Level.INFO, "Replayed {0} queued key writes", replayed);
+    }
+
+    private static final class PendingUpdate {
+        private final ScytalePublicKey key;
+        private final CompletableFuture<ScytalePublicKey> future;
+
+        private PendingUpdate(ScytalePublicKey key, CompletableFuture<ScytalePublicKey> future) {
+            this.key = key;
+            this.future = future;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.openmoments.scytale.api;
+
+import com.openmoments.scytale.exception.ScytaleException;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.net.http.HttpResponse;
+import java.security.cert.CertificateException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/***
+ * Iterates the items of a paginated listing. When a page is taken the request for the following page is sent at once,
+ * so it downloads while the caller works through the current page. A response holding a plain array rather than a
+ * page is treated as the only page, for APIs without pagination.
+ * @param <T> - Type of the items
+ */
+class PageIterator<T> implements Iterator<T> {
+    private static final Logger LOG = Logger.getLogger(PageIterator.class.getName());
+    static final String NEXT_CURSOR_ATTR = "nextCursor";
+
+    private final PageCall pageCall;
+    private final String itemsAttr;
+    private final ScytaleRequest.ResponseParser<List<T>> parser;
+    private CompletableFuture<HttpResponse<String>> nextPage;
+    private Iterator<T> page = Collections.emptyIterator();
+
+    PageIterator(PageCall pageCall, String itemsAttr, ScytaleRequest.ResponseParser<List<T>> parser) throws IOException, InterruptedException, CertificateException {
+        this.pageCall = pageCall;
+        this.itemsAttr = itemsAttr;
+        this.parser = parser;
+        this.nextPage = pageCall.send(null);
+    }
+
+    /***
+     * @throws CompletionException - If a page could not be fetched, with the {@link ScytaleException ScytaleException}
+     * or I/O failure as cause
+     */
+    @Override
+    public boolean hasNext() {
+        while (!page.hasNext()) {
+            if (nextPage == null) {
+                return false;
+            }
+            page = take().iterator();
+        }
+        return true;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return page.next();
+    }
+
+    /***
+     * Abandon any page still being fetched
+     */
+    void close() {
+        if (nextPage != null) {
+            nextPage.cancel(true);
+            nextPage = null;
+        }
+    }
+
+    private List<T> take() {
+        HttpResponse<String> response = await(nextPage);
+        nextPage = null;
+
+        try {
+            if (response.statusCode() != 200) {
+                throw new ScytaleException(ScytaleRequest.FAILED_WITH + response.body());
+            }
+
+            String body = response.body().trim();
+            if (body.startsWith("[")) {
+                return parser.parse(body);
+            }
+
+            JSONObject pageObject = new JSONObject(body);
+            if (!pageObject.isNull(NEXT_CURSOR_ATTR)) {
+                nextPage = pageCall.send(pageObject.getString(NEXT_CURSOR_ATTR));
+            }
+
+            JSONArray items = pageObject.optJSONArray(itemsAttr);
+            return items == null ? List.of() : parser.parse(items.toString());
+        } catch (JSONException jsonException) {
+            LOG.log(Level.SEVERE, ScytaleRequest.RETURNED_INVALID_JSON, jsonException);
+            throw new CompletionException(new ScytaleException(ScytaleRequest.RETURNED_INVALID_JSON));
+        } catch (ScytaleException | IOException | CertificateException e) {
+            throw new CompletionException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CompletionException(e);
+        }
+    }
+
+    private HttpResponse<String> await(CompletableFuture<HttpResponse<String>> pending) {
+        try {
+            return pending.get();
+        } catch (ExecutionException executionException) {
+            throw new CompletionException(executionException.getCause());
+        } catch (InterruptedException interruptedException) {
+            Thread.currentThread().interrupt();
+            throw new CompletionException(interruptedException);
+        }
+    }
+
+    /***
+     * Requests one page of the listing
+     */
+    @FunctionalInterface
+    interface PageCall {
+        CompletableFuture<HttpResponse<String>> send(String cursor) throws IOException, InterruptedException, CertificateException;
+    }
+}
@@ -1,6 +1,10 @@
 package com.openmoments.scytale.api;
 
+import com.openmoments.scytale.cache.CachedKeys;
+import com.openmoments.scytale.cache.KeyStoreReplica;
+import com.openmoments.scytale.cache.PublicKeyCache;
 import com.openmoments.scytale.encryption.CertificateEncoder;
+import com.openmoments.scytale.entities.BatchResult;
 import com.openmoments.scytale.entities.KeyStore;
 import com.openmoments.scytale.entities.ScytalePublicKey;
 import com.openmoments.scytale.exception.ScytaleException;
@@ -9,11 +13,21 @@ import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.io.IOException;
+import java.net.http.HttpResponse;
 import java.security.cert.CertificateException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
 public class PublicKeyRequest extends ScytaleRequest {
@@ -21,6 +35,13 @@ public class PublicKeyRequest extends ScytaleRequest {
     private static final String KEYS_URI_FORMAT = KeyStoreRequest.KEYSTORE_URI + "/%d/keys";
     private static final String ID_ATTR = "id";
     private static final String PUBLIC_KEY_ATTR = "publicKey";
+    private static final String KEYS_ATTR = "keys";
+    private static final String ID_FIELDS = "?fields=" + ID_ATTR;
+    private static final String BATCH_KEYS_URI = KeyStoreRequest.KEYSTORE_URI + "/keys";
+    private static final int BATCH_READ_SIZE = 100;
+
+    private PublicKeyCache publicKeyCache;
+    private KeyStoreReplica replica;
 
     /***
      * Constructor requiring an APIRequest
@@ -35,6 +56,39 @@ public class PublicKeyRequest extends ScytaleRequest {
         super(apiRequest, apiRequestCallback);
     }
 
+    /***
+     * Serve keys from a {@link PublicKeyCache PublicKeyCache}, revalidating expired keys with a conditional request
+     * @param publicKeyCache - Cache to read from and populate, null to disable caching
+     * @return Instance of PublicKeyRequest
+     */
+    public PublicKeyRequest cache(PublicKeyCache publicKeyCache) {
+        this.publicKeyCache = publicKeyCache;
+        return this;
+    }
+
+    @Override
+    public PublicKeyRequest concurrency(int concurrency) {
+        super.concurrency(concurrency);
+        return this;
+    }
+
+    @Override
+    public PublicKeyRequest pageSize(int pageSize) {
+        super.pageSize(pageSize);
+        return this;
+    }
+
+    /***
+     * Serve keys from a synced {@link KeyStoreReplica KeyStoreReplica}, calling the API for keystores the replica does
+     * not hold
+     * @param replica - Replica to read from, null to disable
+     * @return Instance of PublicKeyRequest
+     */
+    public PublicKeyRequest replica(KeyStoreReplica replica) {
+        this.replica = replica;
+        return this;
+    }
+
     /***
      * Retrieve all keys associated with a keystore
      * @param keyStore {@link KeyStore KeyStore} to retriever keys for
@@ -47,19 +101,137 @@ public class PublicKeyRequest extends ScytaleRequest {
     public List<ScytalePublicKey> getAll(KeyStore keyStore) throws IOException, InterruptedException, ScytaleException, CertificateException {
         String getURL = String.format(KEYS_URI_FORMAT, keyStore.getId());
 
-        try {
-            JSONArray apiResult = new JSONArray(this.get(getURL));
-            List<JSONObject> jsonObjects = StreamSupport.stream(apiResult.spliterator(), false)
-                    .map(JSONObject.class::cast)
-                    .collect(Collectors.toList());
+        if (replica != null && replica.isSynced()) {
+            Optional<List<ScytalePublicKey>> replicated = replica.getKeys(keyStore.getId());
+            if (replicated.isPresent()) {
+                return replicated.get();
+            }
+        }
 
-            return jsonObjects.stream()
-                    .map(o -> new ScytalePublicKey(o.getLong(ID_ATTR), o.getString(PUBLIC_KEY_ATTR)))
-                    .collect(Collectors.toList());
-        } catch (JSONException jsonException) {
-            LOG.log(Level.SEVERE, RETURNED_INVALID_JSON, jsonException);
-            throw new ScytaleException(RETURNED_INVALID_JSON);
+        if (publicKeyCache == null) {
+            return fromJsonArray(this.get(getURL));
+        }
+
+        Optional<CachedKeys> cached = publicKeyCache.get(keyStore.getId());
+        if (cached.isPresent() && publicKeyCache.isFresh(cached.get())) {
+            if (publicKeyCache.shouldRefresh(cached.get())) {
+                refreshInBackground(keyStore);
+            }
+            return cached.get().getKeys();
+        }
+
+        return revalidate(keyStore, cached.orElse(null));
+    }
+
+    /***
+     * Stream all keys associated with a keystore one page at a time, fetching the next page while the current one is
+     * consumed. Served from a synced replica when configured, otherwise always run asynchronously regardless of any
+     * class callback. Streamed keys are not added to any configured cache.
+     * @param keyStore {@link KeyStore KeyStore} to retrieve keys for
+     * @return Lazy {@link Stream Stream} of {@link ScytalePublicKey PublicKey} items, which should be closed if not
+     * consumed completely
+     * @throws IOException - If an I/O error occurs when sending the first request
+     * @throws InterruptedException - If the API operation is interrupted
+     * @throws CertificateException - Certificate authentication failed
+     */
+    public Stream<ScytalePublicKey> streamAll(KeyStore keyStore) throws IOException, InterruptedException, CertificateException {
+        if (replica != null && replica.isSynced()) {
+            Optional<List<ScytalePublicKey>> replicated = replica.getKeys(keyStore.getId());
+            if (replicated.isPresent()) {
+                return replicated.get().stream();
+            }
+        }
+
+        return this.getPaged(String.format(KEYS_URI_FORMAT, keyStore.getId()), KEYS_ATTR, this::fromJsonArray);
+    }
+
+    /***
+     * Retrieve only the IDs of the keys associated with a keystore, asking the API to omit the encoded keys
+     * @param keyStore {@link KeyStore KeyStore} to retrieve key IDs for
+     * @return {@link List List} of key IDs
+     * @throws IOException - If an I/O error occurs when sending or receiving API requests
+     * @throws InterruptedException - If the API operation is interrupted
+     * @throws ScytaleException - If the API did not return a valid list of keys
+     * @throws CertificateException - Certificate authentication failed
+     */
+    public List<Long> getIds(KeyStore keyStore) throws IOException, InterruptedException, ScytaleException, CertificateException {
+        if (replica != null && replica.isSynced()) {
+            Optional<List<ScytalePublicKey>> replicated = replica.getKeys(keyStore.getId());
+            if (replicated.isPresent()) {
+                return replicated.get().stream().map(ScytalePublicKey::getId).collect(Collectors.toList());
+            }
         }
+
+        return idsFromJsonArray(this.get(String.format(KEYS_URI_FORMAT, keyStore.getId()) + ID_FIELDS));
+    }
+
+    /***
+     * Stream only the IDs of the keys associated with a keystore one page at a time, asking the API to omit the
+     * encoded keys. Always run asynchronously regardless of any class callback.
+     * @param keyStore {@link KeyStore KeyStore} to retrieve key IDs for
+     * @return Lazy {@link Stream Stream} of key IDs, which should be closed if not consumed completely
+     * @throws IOException - If an I/O error occurs when sending the first request
+     * @throws InterruptedException - If the API operation is interrupted
+     * @throws CertificateException - Certificate authentication failed
+     */
+    public Stream<Long> streamIds(KeyStore keyStore) throws IOException, InterruptedException, CertificateException {
+        return this.getPaged(String.format(KEYS_URI_FORMAT, keyStore.getId()) + ID_FIELDS, KEYS_ATTR, this::idsFromJsonArray);
+    }
+
+    /***
+     * Retrieve all keys associated with several keystores. Keys not held fresh by a configured replica or cache are
+     * fetched with a single batch request when the API supports one, otherwise individual requests are pipelined up
+     * to the configured {@link #concurrency(int) concurrency}. Keystores the batch response omits are looked up
+     * individually. Always run synchronously regardless of any class callback.
+     * @param keyStores {@link Collection Collection} of {@link KeyStore KeyStore} items to retrieve keys for
+     * @return {@link BatchResult BatchResult} of the {@link ScytalePublicKey PublicKey} items, or failure, for each
+     * keystore
+     * @throws IOException - If an I/O error occurs when sending the batch request
+     * @throws InterruptedException - If the API operation is interrupted
+     * @throws ScytaleException - If the batch endpoint returned invalid lists of public keys
+     * @throws CertificateException - Certificate authentication failed
+     */
+    public BatchResult<KeyStore, List<ScytalePublicKey>> getAllKeys(Collection<KeyStore> keyStores) throws IOException, InterruptedException, ScytaleException, CertificateException {
+        Map<KeyStore, List<ScytalePublicKey>> local = new HashMap<>();
+        List<KeyStore> remote = new ArrayList<>();
+        for (KeyStore keyStore : new LinkedHashSet<>(keyStores)) {
+            getLocally(keyStore).ifPresentOrElse(keys -> local.put(keyStore, keys), () -> remote.add(keyStore));
+        }
+
+        BatchResult<KeyStore, List<ScytalePublicKey>> fetched = remote.isEmpty() ? new BatchResult<>() : fetchAll(remote);
+        if (publicKeyCache != null) {
+            fetched.getResults().forEach((keyStore, keys) -> publicKeyCache.put(keyStore.getId(), keys, null));
+        }
+
+        BatchResult<KeyStore, List<ScytalePublicKey>> found = new BatchResult<>();
+        for (KeyStore keyStore : new LinkedHashSet<>(keyStores)) {
+            if (local.containsKey(keyStore)) {
+                found.success(keyStore, local.get(keyStore));
+            } else if (fetched.getResults().containsKey(keyStore)) {
+                found.success(keyStore, fetched.getResults().get(keyStore));
+            } else {
+                found.failure(keyStore, fetched.getFailures().get(keyStore));
+            }
+        }
+        return found;
+    }
+
+    /***
+     * Retrieve all keys associated with a keystore, revalidating any cached keys with the API even if they have not
+     * expired
+     * @param keyStore {@link KeyStore KeyStore} to retrieve keys for
+     * @return {@link List List} of {@link ScytalePublicKey PublicKey} items
+     * @throws IOException - If an I/O error occurs when sending or receiving API requests
+     * @throws InterruptedException - If the API operation is interrupted
+     * @throws ScytaleException - If the API did not return a valid list of public keys
+     * @throws CertificateException - Certificate authentication failed
+     */
+    public List<ScytalePublicKey> refresh(KeyStore keyStore) throws IOException, InterruptedException, ScytaleException, CertificateException {
+        if (publicKeyCache == null) {
+            return getAll(keyStore);
+        }
+
+        return revalidate(keyStore, publicKeyCache.get(keyStore.getId()).orElse(null));
     }
 
     /***
@@ -76,13 +248,35 @@ public class PublicKeyRequest extends ScytaleRequest {
         String addUrl = String.format(KEYS_URI_FORMAT, keyStore.getId());
         JSONObject addKeyJson = new JSONObject().put(PUBLIC_KEY_ATTR, publicKey);
 
-        try {
-            JSONObject createdJSON = new JSONObject(this.post(addUrl, addKeyJson));
-            return new ScytalePublicKey(createdJSON.getLong(ID_ATTR), createdJSON.getString(PUBLIC_KEY_ATTR));
-        } catch (JSONException jsonException) {
-            LOG.log(Level.SEVERE, RETURNED_INVALID_JSON, jsonException);
-            throw new ScytaleException(RETURNED_INVALID_JSON);
-        }
+        return cacheKey(keyStore, fromJson(this.post(addUrl, addKeyJson)));
+    }
+
+    /***
+     * Add several public keys to a {@link KeyStore KeyStore}. A single batch request is made when the API supports
+     * one, otherwise individual requests are pipelined up to the configured {@link #concurrency(int) concurrency}.
+     * Always run synchronously regardless of any class callback.
+     * @param publicKeys {@link List List} of Base64 encoded public keys to add
+     * @param keyStore {@link KeyStore KeyStore} to add the keys to
+     * @return {@link BatchResult BatchResult} of the {@link ScytalePublicKey PublicKey} added, or failure, for each key
+     * @throws IOException - If an I/O error occurs when sending the batch request
+     * @throws InterruptedException - If the API operation is interrupted
+     * @throws ScytaleException - If the batch endpoint did not return a result for each key
+     * @throws CertificateException - Certificate authentication failed
+     */
+    public BatchResult<String, ScytalePublicKey> addAll(List<String> publicKeys, KeyStore keyStore) throws IOException, InterruptedException, ScytaleException, CertificateException {
+        String addUrl = String.format(KEYS_URI_FORMAT, keyStore.getId());
+        List<String> uniqueKeys = new ArrayList<>(new LinkedHashSet<>(publicKeys));
+
+        JSONArray keysJson = new JSONArray();
+        uniqueKeys.forEach(publicKey -> keysJson.put(new JSONObject().put(PUBLIC_KEY_ATTR, publicKey)));
+
+        Optional<JSONArray> batch = this.postBatch(addUrl + "/batch", new JSONObject().put(KEYS_ATTR, keysJson));
+        BatchResult<String, ScytalePublicKey> added = batch.isPresent() ?
+                this.fromBatch(uniqueKeys, batch.get(), this::fromJson) :
+                this.postEach(uniqueKeys, publicKey -> addUrl, publicKey -> new JSONObject().put(PUBLIC_KEY_ATTR, publicKey), this::fromJson);
+
+        added.getResults().values().forEach(scytalePublicKey -> cacheKey(keyStore, scytalePublicKey));
+        return added;
     }
 
     /***
@@ -100,9 +294,165 @@ public class PublicKeyRequest extends ScytaleRequest {
         String publicKey = new CertificateEncoder().base64EncodePublicKey(updatedKey.getPublicKey());
         JSONObject updateJson = new JSONObject().put(ID_ATTR, updatedKey.getId()).put(PUBLIC_KEY_ATTR, publicKey);
 
+        return cacheKey(keyStore, fromJson(this.put(updateUrl, updateJson)));
+    }
+
+    /***
+     * Revalidate cached keys using the entity tag they were returned with, replacing them if modified
+     * @param keyStore {@link KeyStore KeyStore} to revalidate keys for
+     * @param cached {@link CachedKeys CachedKeys} currently held, null if not cached
+     * @return {@link List List} of current {@link ScytalePublicKey PublicKey} items
+     */
+    private List<ScytalePublicKey> revalidate(KeyStore keyStore, CachedKeys cached) throws IOException, InterruptedException, ScytaleException, CertificateException {
+        String getURL = String.format(KEYS_URI_FORMAT, keyStore.getId());
+        HttpResponse<String> response = this.conditionalGet(getURL, cached == null ? null : cached.getETag());
+
+        if (response.statusCode() == NOT_MODIFIED) {
+            Optional<CachedKeys> revalidated = publicKeyCache.revalidated(keyStore.getId());
+            if (revalidated.isPresent()) {
+                return revalidated.get().getKeys();
+            }
+            // Evicted since the entity tag was read, the empty 304 body is not the key list
+            response = this.conditionalGet(getURL, null);
+        }
+
+        String eTag = Optional.ofNullable(response.headers())
+                .flatMap(headers -> headers.firstValue(ETAG_HEADER))
+                .orElse(null);
+
+        return publicKeyCache.put(keyStore.getId(), fromJsonArray(response.body()), eTag).getKeys();
+    }
+
+    private Optional<List<ScytalePublicKey>> getLocally(KeyStore keyStore) {
+        if (replica != null && replica.isSynced()) {
+            Optional<List<ScytalePublicKey>> replicated = replica.getKeys(keyStore.getId());
+            if (replicated.isPresent()) {
+                return replicated;
+            }
+        }
+
+        if (publicKeyCache != null) {
+            return publicKeyCache.get(keyStore.getId())
+                    .filter(publicKeyCache::isFresh)
+                    .map(CachedKeys::getKeys);
+        }
+
+        return Optional.empty();
+    }
+
+    private BatchResult<KeyStore, List<ScytalePublicKey>> fetchAll(List<KeyStore> keyStores) throws IOException, InterruptedException, ScytaleException, CertificateException {
+        BatchResult<KeyStore, List<ScytalePublicKey>> fetched = new BatchResult<>();
+
+        for (int from = 0; from < keyStores.size(); from += BATCH_READ_SIZE) {
+            List<KeyStore> chunk = keyStores.subList(from, Math.min(from + BATCH_READ_SIZE, keyStores.size()));
+            Set<String> requested = chunk.stream().map(keyStore -> String.valueOf(keyStore.getId())).collect(Collectors.toCollection(LinkedHashSet::new));
+            String batchURL = BATCH_KEYS_URI + "?ids=" + String.join(",", requested);
+
+            Optional<JSONObject> keysById = this.getBatch(batchURL).flatMap(this::batchObject);
+            // A server ignoring the ids parameter returns keys of keystores which were not requested
+            if (keysById.isPresent() && !requested.containsAll(keysById.get().keySet())) {
+                this.batchUnsupported(batchURL);
+                keysById = Optional.empty();
+            }
+            if (keysById.isEmpty()) {
+                merge(fetched, this.getEach(keyStores.subList(from, keyStores.size()),
+                        keyStore -> String.format(KEYS_URI_FORMAT, keyStore.getId()), this::fromJsonArray));
+                return fetched;
+            }
+
+            List<KeyStore> omitted = new ArrayList<>();
+            for (KeyStore keyStore : chunk) {
+                JSONArray keys = keysById.get().optJSONArray(String.valueOf(keyStore.getId()));
+                if (keys == null) {
+                    omitted.add(keyStore);
+                } else {
+                    fetched.success(keyStore, fromJsonArray(keys.toString()));
+                }
+            }
+            // Confirm omitted keystores individually rather than assume the filter was applied in full
+            if (!omitted.isEmpty()) {
+                merge(fetched, this.getEach(omitted, keyStore -> String.format(KEYS_URI_FORMAT, keyStore.getId()), this::fromJsonArray));
+            }
+        }
+
+        return fetched;
+    }
+
+    /***
+     * Parse the keys returned by a batch lookup, empty if the response is not an object of keys by keystore ID
+     */
+    private Optional<JSONObject> batchObject(String jsonString) {
+        try {
+            return Optional.of(new JSONObject(jsonString));
+        } catch (JSONException jsonException) {
+            LOG.log(Level.WARNING, RETURNED_INVALID_JSON, jsonException);
+            return Optional.empty();
+        }
+    }
+
+    private void refreshInBackground(KeyStore keyStore) {
+        if (!publicKeyCache.startRefresh(keyStore.getId())) {
+            return;
+        }
+
+        CompletableFuture.runAsync(() -> {
+            try {
+                revalidate(keyStore, publicKeyCache.get(keyStore.getId()).orElse(null));
+            } catch (IOException | ScytaleException | CertificateException e) {
+                LOG.log(Level.WARNING, "Background refresh of keys failed for " + keyStore, e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                publicKeyCache.finishRefresh(keyStore.getId());
+            }
+        }, publicKeyCache.getRefreshExecutor());
+    }
+
+    private ScytalePublicKey cacheKey(KeyStore keyStore, ScytalePublicKey scytalePublicKey) {
+        if (publicKeyCache != null) {
+            publicKeyCache.putKey(keyStore.getId(), scytalePublicKey);
+        }
+        // The replica is read before the cache, so local writes must reach it before the next sync
+        if (replica != null) {
+            replica.putKey(keyStore.getId(), scytalePublicKey);
+        }
+        return scytalePublicKey;
+    }
+
+    private ScytalePublicKey fromJson(String jsonString) throws ScytaleException {
+        try {
+            JSONObject jsonObject = new JSONObject(jsonString);
+            return new ScytalePublicKey(jsonObject.getLong(ID_ATTR), jsonObject.getString(PUBLIC_KEY_ATTR));
+        } catch (JSONException jsonException) {
+            LOG.log(Level.SEVERE, RETURNED_INVALID_JSON, jsonException);
+            throw new ScytaleException(RETURNED_INVALID_JSON);
+        }
+    }
+
+    private List<ScytalePublicKey> fromJsonArray(String jsonString) throws ScytaleException {
+        try {
+            JSONArray apiResult = new JSONArray(jsonString);
+            List<JSONObject> jsonObjects = StreamSupport.stream(apiResult.spliterator(), false)
+                    .map(JSONObject.class::cast)
+                    .collect(Collectors.toList());
+
+            return jsonObjects.stream()
+                    .map(o -> new ScytalePublicKey(o.getLong(ID_ATTR), o.getString(PUBLIC_KEY_ATTR)))
+                    .collect(Collectors.toList());
+        } catch (JSONException jsonException) {
+            LOG.log(Level.SEVERE, RETURNED_INVALID_JSON, jsonException);
+            throw new ScytaleException(RETURNED_INVALID_JSON);
+        }
+    }
+
+    private List<Long> idsFromJsonArray(String jsonString) throws ScytaleException {
         try {
-            JSONObject updatedJSON = new JSONObject(this.put(updateUrl, updateJson));
-            return new ScytalePublicKey(updatedJSON.getLong(ID_ATTR), updatedJSON.getString(PUBLIC_KEY_ATTR));
+            JSONArray apiResult = new JSONArray(jsonString);
+            List<Long> ids = new ArrayList<>(apiResult.length());
+            for (int i = 0; i < apiResult.length(); i++) {
+                ids.add(apiResult.getJSONObject(i).getLong(ID_ATTR));
+            }
+            return ids;
         } catch (JSONException jsonException) {
             LOG.log(Level.SEVERE, RETURNED_INVALID_JSON, jsonException);
             throw new ScytaleException(RETURNED_INVALID_JSON);
@@ -0,0 +1,201 @@
+package com.openmoments.scytale.api;
+
+import com.openmoments.scytale.cache.KeyStoreReplica;
+import com.openmoments.scytale.entities.KeyStore;
+import com.openmoments.scytale.entities.ScytalePublicKey;
+import com.openmoments.scytale.exception.ScytaleException;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.cert.CertificateException;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/***
+ * Keeps a {@link KeyStoreReplica KeyStoreReplica} up to date by fetching the changes made since the replica's cursor.
+ * The first sync, or a sync after the API rejects an expired cursor, fetches the complete catalogue.
+ * <p>
+ * The changes endpoint returns pages of the form:
+ * <pre>
+ * {"cursor": "...", "hasMore": false,
+ *  "keystores": [{"id": 1, "name": "..."}], "deletedKeystores": [2],
+ *  "keys": [{"keystoreId": 1, "id": 3, "publicKey": "..."}], "deletedKeys": [{"keystoreId": 1, "id": 4}]}
+ * </pre>
+ */
+public class ReplicaSync extends ScytaleRequest implements Closeable {
+    private static final Logger LOG = Logger.getLogger(ReplicaSync.class.getName());
+    protected static final String CHANGES_URI = KeyStoreRequest.KEYSTORE_URI + "/changes";
+    protected static final int CURSOR_EXPIRED = 410;
+    private static final String CURSOR_ATTR = "cursor";
+    private static final String HAS_MORE_ATTR = "hasMore";
+    private static final String KEYSTORES_ATTR = "keystores";
+    private static final String DELETED_KEYSTORES_ATTR = "deletedKeystores";
+    private static final String KEYS_ATTR = "keys";
+    private static final String DELETED_KEYS_ATTR = "deletedKeys";
+    private static final String KEYSTORE_ID_ATTR = "keystoreId";
+    private static final String ID_ATTR = "id";
+    private static final String NAME_ATTR = "name";
+    private static final String PUBLIC_KEY_ATTR = "publicKey";
+
+    private final APIRequest apiRequest;
+    private final KeyStoreReplica replica;
+    private ScheduledExecutorService scheduler;
+
+    /***
+     * Constructor requiring an APIRequest and the replica to maintain
+     * @param apiRequest - Implementation of APIRequest interface
+     * @param replica - {@link KeyStoreReplica KeyStoreReplica} to apply changes to
+     * @throws IllegalArgumentException - if the APIRequest or replica is invalid
+     */
+    public ReplicaSync(APIRequest apiRequest, KeyStoreReplica replica) {
+        super(apiRequest);
+        if (replica == null) {
+            throw new IllegalArgumentException("Replica is required");
+        }
+        this.apiRequest = apiRequest;
+        this.replica = replica;
+    }
+
+    /***
+     * Apply all changes made since the last sync
+     * @return Number of keystores and keys added, updated or removed
+     * @throws IOException - If an I/O error occurs when sending or receiving API requests
+     * @throws InterruptedException - If the API operation is interrupted
+     * @throws ScytaleException - If the API did not return a valid set of changes
+     * @throws CertificateException - Certificate authentication failed
+     */
+    public synchronized int sync() throws IOException, InterruptedException, ScytaleException, CertificateException {
+        String cursor = replica.getCursor();
+        boolean complete = cursor == null;
+        // A complete catalogue is built aside and swapped in once every page is applied, so reads keep being served
+        KeyStoreReplica target = complete ? new KeyStoreReplica() : replica;
+        int changes = 0;
+        boolean hasMore = true;
+
+        while (hasMore) {
+            HttpResponse<String> response = apiRequest.get(changesURL(cursor));
+
+            if (response.statusCode() == CURSOR_EXPIRED && !complete) {
+                LOG.log(Level.INFO, "Replica cursor {0} expired, fetching complete catalogue", cursor);
+                cursor = null;
+                complete = true;
+                target = new KeyStoreReplica();
+                changes = 0;
+                continue;
+            }
+            if (response.statusCode() != 200) {
+                throw new ScytaleException(FAILED_WITH + response.body());
+            }
+
+            try {
+                JSONObject page = new JSONObject(response.body());
+                changes += apply(target, page);
+                cursor = page.getString(CURSOR_ATTR);
+                hasMore = page.optBoolean(HAS_MORE_ATTR, false);
+            } catch (JSONException jsonException) {
+                LOG.log(Level.SEVERE, RETURNED_INVALID_JSON, jsonException);
+                throw new ScytaleException(RETURNED_INVALID_JSON);
+            }
+
+            target.setCursor(cursor);
+        }
+
+        if (complete) {
+            replica.replaceWith(target);
+        }
+        return changes;
+    }
+
+    /***
+     * Sync immediately and then repeatedly in the background on a daemon thread
+     * @param interval - {@link Duration Duration} between syncs
+     * @return Instance of ReplicaSync
+     */
+    public synchronized ReplicaSync start(Duration interval) {
+        if (scheduler != null) {
+            return this;
+        }
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "scytale-replica-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::syncInBackground, 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+        return this;
+    }
+
+    /***
+     * Stop background syncs
+     */
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    private void syncInBackground() {
+        try {
+            int changes = sync();
+            LOG.log(Level.FINE, "Applied {0} replica changes", changes);
+        } catch (IOException | ScytaleException | CertificateException e) {
+            LOG.log(Level.WARNING, "Replica sync failed, serving from cursor " + replica.getCursor(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private int apply(KeyStoreReplica target, JSONObject page) {
+        int changes = 0;
+
+        for (Object item : array(page, KEYSTORES_ATTR)) {
+            JSONObject keyStore = (JSONObject) item;
+            target.putKeyStore(new KeyStore(keyStore.getLong(ID_ATTR), keyStore.getString(NAME_ATTR)));
+            changes++;
+        }
+
+        for (Object item : array(page, KEYS_ATTR)) {
+            JSONObject key = (JSONObject) item;
+            target.putKey(key.getLong(KEYSTORE_ID_ATTR), new ScytalePublicKey(key.getLong(ID_ATTR), key.getString(PUBLIC_KEY_ATTR)));
+            changes++;
+        }
+
+        for (Object item : array(page, DELETED_KEYS_ATTR)) {
+            JSONObject key = (JSONObject) item;
+            target.removeKey(key.getLong(KEYSTORE_ID_ATTR), key.getLong(ID_ATTR));
+            changes++;
+        }
+
+        JSONArray deletedKeyStores = array(page, DELETED_KEYSTORES_ATTR);
+        for (int i = 0; i < deletedKeyStores.length(); i++) {
+            target.removeKeyStore(deletedKeyStores.getLong(i));
+            changes++;
+        }
+
+        return changes;
+    }
+
+    private JSONArray array(JSONObject page, String attribute) {
+        JSONArray array = page.optJSONArray(attribute);
+        return array == null ? new JSONArray() : array;
+    }
+
+    static String changesURL(String cursor) {
+        if (cursor == null) {
+            return CHANGES_URI;
+        }
+        return CHANGES_URI + "?since=" + URLEncoder.encode(cursor, StandardCharsets.UTF_8);
+    }
+}
@@ -12,10 +12,12 @@ import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.security.*;
 import java.security.cert.CertificateException;
+import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.CompletableFuture;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.Stream;
 
 /***
  * Implementation of the {@link APIRequest APIRequest} interface using native {@link HttpClient HttpClient}.
@@ -31,8 +33,7 @@ public class Request implements APIRequest {
     private static final String API_AUTH_TRUSTSTORE = "api.auth.truststore";
     private static final String API_AUTH_TRUSTSTORE_PASSWORD = "api.auth.truststore-password";
 
-    private HttpClient client;
-    private HttpRequest.Builder apiRequestBuilder;
+    private volatile HttpClient client;
     private final Properties properties;
 
     public Request() throws IOException {
@@ -53,12 +54,54 @@ public class Request implements APIRequest {
      */
     @Override
     public HttpResponse<String> get(String uri) throws IOException, InterruptedException, CertificateException {
-        createRequest(uri);
+        HttpRequest.Builder apiRequestBuilder = createRequest(uri);
         apiRequestBuilder.GET();
 
         return client.send(apiRequestBuilder.build(), HttpResponse.BodyHandlers.ofString());
     }
 
+    /***
+     * Perform a HTTP GET with additional request headers
+     * @param uri {@link String String} URI to perform GET against
+     * @param headers {@link Map Map} of header names to values to send with the request
+     * @return A String {@link HttpResponse HttpResponse}
+     * @throws IOException - If an I/O error occurs when sending or receiving
+     * @throws InterruptedException - If the operation is interrupted
+     * @throws CertificateException - If certificate authentication used but is invalid
+     */
+    @Override
+    public HttpResponse<String> get(String uri, Map<String, String> headers) throws IOException, InterruptedException, CertificateException {
+        HttpRequest.Builder apiRequestBuilder = createRequest(uri);
+        headers.forEach(apiRequestBuilder::header);
+        apiRequestBuilder.GET();
+
+        return client.send(apiRequestBuilder.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    @Override
+    public boolean supportsStreaming() {
+        return true;
+    }
+
+    /***
+     * Perform a HTTP GET whose response body is read line by line as it arrives, used for event streams
+     * @param uri {@link String String} URI to perform GET against
+     * @param headers {@link Map Map} of header names to values to send with the request
+     * @return A {@link HttpResponse HttpResponse} with a {@link Stream Stream} of body lines
+     * @throws IOException - If an I/O error occurs when sending or receiving
+     * @throws InterruptedException - If the operation is interrupted
+     * @throws CertificateException - If certificate authentication used but is invalid
+     */
+    @Override
+    public HttpResponse<Stream<String>> stream(String uri, Map<String, String> headers) throws IOException, InterruptedException, CertificateException {
+        HttpRequest.Builder apiRequestBuilder = createRequest(uri);
+        apiRequestBuilder.header("Accept", "text/event-stream");
+        headers.forEach(apiRequestBuilder::header);
+        apiRequestBuilder.GET();
+
+        return client.send(apiRequestBuilder.build(), HttpResponse.BodyHandlers.ofLines());
+    }
+
     /***
      * Perform a async HTTP GET
      * @param uri {@link String String} URI to perform GET against
@@ -67,7 +110,7 @@ public class Request implements APIRequest {
      */
     @Override
     public CompletableFuture<HttpResponse<String>> getAsync(String uri) throws CertificateException {
-        createRequest(uri);
+        HttpRequest.Builder apiRequestBuilder = createRequest(uri);
         apiRequestBuilder.GET();
 
         return client.sendAsync(apiRequestBuilder.build(), HttpResponse.BodyHandlers.ofString());
@@ -83,7 +126,7 @@ public class Request implements APIRequest {
      */
     @Override
     public HttpResponse<String> post(String uri, JSONObject json) throws IOException, InterruptedException, CertificateException {
-        createRequest(uri);
+        HttpRequest.Builder apiRequestBuilder = createRequest(uri);
         apiRequestBuilder.POST(HttpRequest.BodyPublishers.ofString(json.toString()));
 
         return client.send(apiRequestBuilder.build(), HttpResponse.BodyHandlers.ofString());
@@ -97,7 +140,7 @@ public class Request implements APIRequest {
      */
     @Override
     public CompletableFuture<HttpResponse<String>> postAsync(String uri, JSONObject json) throws CertificateException {
-        createRequest(uri);
+        HttpRequest.Builder apiRequestBuilder = createRequest(uri);
         apiRequestBuilder.POST(HttpRequest.BodyPublishers.ofString(json.toString()));
 
         return client.sendAsync(apiRequestBuilder.build(), HttpResponse.BodyHandlers.ofString());
@@ -113,7 +156,7 @@ public class Request implements APIRequest {
      */
     @Override
     public HttpResponse<String> put(String uri, JSONObject json) throws IOException, InterruptedException, CertificateException {
-        createRequest(uri);
+        HttpRequest.Builder apiRequestBuilder = createRequest(uri);
         apiRequestBuilder.PUT(HttpRequest.BodyPublishers.ofString(json.toString()));
 
         return client.send(apiRequestBuilder.build(), HttpResponse.BodyHandlers.ofString());
@@ -127,42 +170,63 @@ public class Request implements APIRequest {
      */
     @Override
     public CompletableFuture<HttpResponse<String>> putAsync(String uri, JSONObject json) throws CertificateException {
-        createRequest(uri);
+        HttpRequest.Builder apiRequestBuilder = createRequest(uri);
         apiRequestBuilder.PUT(HttpRequest.BodyPublishers.ofString(json.toString()));
 
         return client.sendAsync(apiRequestBuilder.build(), HttpResponse.BodyHandlers.ofString());
     }
 
     /***
-     * Construct the {@link HttpRequest HttpRequest} and {@link HttpClient HttpClient} instances required to
-     * perform operations
+     * Construct the {@link HttpRequest HttpRequest} required to perform operations. A new builder is returned for
+     * each call so that requests can be made concurrently.
      * @param uri {@link String String} endpoint URI to perform HTTP operation against
+     * @return {@link HttpRequest.Builder HttpRequest.Builder} with URI and authentication headers set
      * @throws CertificateException - If certificate authentication used but is invalid
      */
-    private void createRequest(String uri) throws CertificateException {
+    private HttpRequest.Builder createRequest(String uri) throws CertificateException {
         String authType = properties.getProperty(API_AUTH_TYPE);
 
-        apiRequestBuilder = HttpRequest.newBuilder().uri(URI.create(getAPIURL(uri)));
+        HttpRequest.Builder apiRequestBuilder = HttpRequest.newBuilder().uri(URI.create(getAPIURL(uri)));
         apiRequestBuilder.header("Content-Type", "application/json");
 
         if (authType == null) {
             LOG.log(Level.FINE, "Authentication not configured");
+        } else if (authType.equalsIgnoreCase("key")) {
+            apiRequestBuilder.header(AUTHENTICATION_KEY_HEADER, properties.get(API_AUTH_KEY).toString());
+        }
+
+        createClient(authType);
+        return apiRequestBuilder;
+    }
+
+    /***
+     * Construct the {@link HttpClient HttpClient} on first use, reusing it and its connections for later requests
+     * @param authType {@link String String} configured authentication type
+     * @throws CertificateException - If certificate authentication used but is invalid
+     */
+    private void createClient(String authType) throws CertificateException {
+        if (client != null) {
             return;
         }
 
-        if (authType.equalsIgnoreCase("key")) {
-            apiRequestBuilder.header(AUTHENTICATION_KEY_HEADER, properties.get(API_AUTH_KEY).toString());
-            client = HttpClient.newBuilder().build();
-        } else if (authType.equalsIgnoreCase("cert")) {
-            try {
-                SSLContext sslContext = getSslContext();
-                SSLParameters sslParam = new SSLParameters();
-                sslParam.setNeedClientAuth(true);
-
-                client = HttpClient.newBuilder().sslContext(sslContext).sslParameters(sslParam).build();
-            } catch (NoSuchAlgorithmException | KeyStoreException | IOException | UnrecoverableKeyException | KeyManagementException e) {
-                LOG.log(Level.SEVERE, "Failed to configure mutual authentication for API Requests", e);
-                throw new CertificateException("Certificate used for mutual authentication is invalid");
+        synchronized (this) {
+            if (client != null) {
+                return;
+            }
+
+            if (authType != null && authType.equalsIgnoreCase("cert")) {
+                try {
+                    SSLContext sslContext = getSslContext();
+                    SSLParameters sslParam = new SSLParameters();
+                    sslParam.setNeedClientAuth(true);
+
+                    client = HttpClient.newBuilder().sslContext(sslContext).sslParameters(sslParam).build();
+                } catch (NoSuchAlgorithmException | KeyStoreException | IOException | UnrecoverableKeyException | KeyManagementException e) {
+                    LOG.log(Level.SEVERE, "Failed to configure mutual authentication for API Requests", e);
+                    throw new CertificateException("Certificate used for mutual authentication is invalid");
+                }
+            } else {
+                client = HttpClient.newBuilder().build();
             }
         }
     }
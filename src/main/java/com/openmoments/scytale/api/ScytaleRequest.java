@@ -1,14 +1,34 @@
 package com.openmoments.scytale.api;
 
+import com.openmoments.scytale.entities.BatchResult;
 import com.openmoments.scytale.exception.ScytaleException;
+import org.json.JSONArray;
+import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.io.IOException;
+import java.net.URLEncoder;
 import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
 import java.security.cert.CertificateException;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class ScytaleRequest {
     private static final Logger LOG = Logger.getLogger(ScytaleRequest.class.getName());
@@ -16,6 +36,19 @@ public class ScytaleRequest {
     private final APIRequestCallback apiRequestCallback;
     protected static final String FAILED_WITH = "API response failed with ";
     protected static final String RETURNED_INVALID_JSON = "API Returned invalid JSON";
+    protected static final String ETAG_HEADER = "ETag";
+    protected static final String IF_NONE_MATCH_HEADER = "If-None-Match";
+    protected static final int NOT_MODIFIED = 304;
+    protected static final String ERROR_ATTR = "error";
+    private static final Set<Integer> UNSUPPORTED = Set.of(405, 501);
+    private static final Set<Integer> NOT_FOUND = Set.of(404);
+    private static final Set<Integer> QUERY_NOT_SUPPORTED = Set.of(400, 404);
+    private static final int DEFAULT_CONCURRENCY = 8;
+    private static final int DEFAULT_PAGE_SIZE = 100;
+
+    private int concurrency = DEFAULT_CONCURRENCY;
+    private int pageSize = DEFAULT_PAGE_SIZE;
+    private final Set<String> unsupportedBatches = ConcurrentHashMap.newKeySet();
 
     /***
      *
@@ -33,6 +66,39 @@ public class ScytaleRequest {
         this.apiRequestCallback = apiRequestCallback;
     }
 
+    /***
+     * @return True if requests are sent asynchronously and reported to a class callback
+     */
+    protected boolean hasCallback() {
+        return apiRequestCallback != null;
+    }
+
+    /***
+     * Specify the maximum number of requests in flight during bulk operations, defaults to 8
+     * @param concurrency - Maximum concurrent requests
+     * @return Instance of ScytaleRequest
+     */
+    public ScytaleRequest concurrency(int concurrency) {
+        if (concurrency <= 0) {
+            throw new IllegalArgumentException("Concurrency must be positive integer");
+        }
+        this.concurrency = concurrency;
+        return this;
+    }
+
+    /***
+     * Specify the number of items requested per page when streaming a listing, defaults to 100
+     * @param pageSize - Items per page
+     * @return Instance of ScytaleRequest
+     */
+    public ScytaleRequest pageSize(int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Page size must be positive integer");
+        }
+        this.pageSize = pageSize;
+        return this;
+    }
+
     /***
      * Perform a HTTP GET. When run with a class callback method will return an empty string.
      * @param getURL {@link String String} URL to perform GET against
@@ -69,6 +135,27 @@ public class ScytaleRequest {
         return "";
     }
 
+    /***
+     * Perform a conditional HTTP GET, always run synchronously regardless of any class callback.
+     * @param getURL {@link String String} URL to perform GET against
+     * @param eTag {@link String String} entity tag previously returned for the URL, null to perform a plain GET
+     * @return {@link HttpResponse HttpResponse} with a status of either 200 or 304 (Not Modified)
+     * @throws IOException - If an I/O error occurs when sending or receiving API requests
+     * @throws InterruptedException - If the API operation is interrupted
+     * @throws ScytaleException - If the API did not return a successful response
+     */
+    protected HttpResponse<String> conditionalGet(String getURL, String eTag) throws IOException, InterruptedException, ScytaleException, CertificateException {
+        HttpResponse<String> getResponse = eTag == null ?
+                apiRequest.get(getURL) :
+                apiRequest.get(getURL, Map.of(IF_NONE_MATCH_HEADER, eTag));
+
+        if (getResponse.statusCode() != 200 && getResponse.statusCode() != NOT_MODIFIED) {
+            throw new ScytaleException(FAILED_WITH + getResponse.body());
+        }
+
+        return getResponse;
+    }
+
     /***
      * Perform a HTTP POST. When run with a class callback method will return an empty string.
      * @param postURL {@link String String} URL to perform POST against
@@ -116,6 +203,21 @@ public class ScytaleRequest {
      * @throws ScytaleException - If the API did not return a valid Keystore
      */
     protected String put(String putURL, JSONObject putBody) throws IOException, InterruptedException, ScytaleException, CertificateException {
+        return put(putURL, putBody, null);
+    }
+
+    /***
+     * Perform a HTTP PUT. When run with a class callback method will return an empty string, and run the accepted
+     * action once the API accepts the PUT, before the class callback is notified.
+     * @param putURL {@link String String} URL to perform PUT against
+     * @param putBody {@link JSONObject JSONObject} to send
+     * @param accepted {@link Runnable Runnable} run when a PUT made with the class callback succeeds, may be null
+     * @return {@link String String} JSON object returned from API
+     * @throws IOException - If an I/O error occurs when sending or receiving API requests
+     * @throws InterruptedException - If the API operation is interrupted
+     * @throws ScytaleException - If the API did not return a valid Keystore
+     */
+    protected String put(String putURL, JSONObject putBody, Runnable accepted) throws IOException, InterruptedException, ScytaleException, CertificateException {
 
         if (apiRequestCallback == null) {
             HttpResponse<String> putResponse = apiRequest.put(putURL, putBody);
@@ -132,6 +234,9 @@ public class ScytaleRequest {
                 if (response.statusCode() != 200) {
                     apiRequestCallback.onError(response);
                 } else {
+                    if (accepted != null) {
+                        accepted.run();
+                    }
                     apiRequestCallback.onSuccess(response);
                 }
             }
@@ -142,4 +247,254 @@ public class ScytaleRequest {
 
         return "";
     }
-}
\ No newline at end of file
+
+    /***
+     * Perform a single HTTP GET to a batch endpoint, always run synchronously regardless of any class callback. Once
+     * the API reports the method is not supported, later calls return empty without a request. A 400 or 404 only
+     * returns empty for this call, as it may be about the resources requested rather than the endpoint. A server which
+     * ignores the batch query parameters still returns 200, so callers should check the response holds only what was
+     * requested and otherwise {@link #batchUnsupported(String) mark} the endpoint unsupported.
+     * @param batchURL {@link String String} URL of the batch endpoint
+     * @return {@link String String} body returned from API, empty if batches are not supported
+     * @throws IOException - If an I/O error occurs when sending or receiving API requests
+     * @throws InterruptedException - If the API operation is interrupted
+     * @throws ScytaleException - If the API did not return a successful response
+     */
+    protected Optional<String> getBatch(String batchURL) throws IOException, InterruptedException, ScytaleException, CertificateException {
+        return sendBatch(batchURL, QUERY_NOT_SUPPORTED, () -> apiRequest.get(batchURL));
+    }
+
+    /***
+     * Remember that a batch endpoint is not supported, so later calls return empty without a request
+     * @param batchURL {@link String String} URL of the batch endpoint
+     */
+    protected void batchUnsupported(String batchURL) {
+        String endpoint = endpointOf(batchURL);
+        LOG.log(Level.INFO, "Batch endpoint {0} not supported, sending individual requests", endpoint);
+        unsupportedBatches.add(endpoint);
+    }
+
+    /***
+     * Perform a single HTTP POST to a batch endpoint, always run synchronously regardless of any class callback. Once
+     * the API reports the method is not supported, later calls return empty without a request. A 404 only returns
+     * empty for this call, as it may be about the resource posted to rather than the endpoint.
+     * @param batchURL {@link String String} URL of the batch endpoint
+     * @param postBody {@link JSONObject JSONObject} describing all items
+     * @return {@link JSONArray JSONArray} of results in the order submitted, empty if batches are not supported
+     * @throws IOException - If an I/O error occurs when sending or receiving API requests
+     * @throws InterruptedException - If the API operation is interrupted
+     * @throws ScytaleException - If the API did not return a valid array
+     */
+    protected Optional<JSONArray> postBatch(String batchURL, JSONObject postBody) throws IOException, InterruptedException, ScytaleException, CertificateException {
+        Optional<String> batchBody = sendBatch(batchURL, NOT_FOUND, () -> apiRequest.post(batchURL, postBody));
+        if (batchBody.isEmpty()) {
+            return Optional.empty();
+        }
+
+        try {
+            return Optional.of(new JSONArray(batchBody.get()));
+        } catch (JSONException jsonException) {
+            LOG.log(Level.SEVERE, RETURNED_INVALID_JSON, jsonException);
+            throw new ScytaleException(RETURNED_INVALID_JSON);
+        }
+    }
+
+    /***
+     * Perform a HTTP GET per item, pipelining up to the configured concurrency. Always run asynchronously regardless
+     * of any class callback, returning once every request has completed.
+     * @param items {@link Collection Collection} of items to fetch
+     * @param getURL {@link Function Function} providing the URL for an item
+     * @param parser {@link ResponseParser ResponseParser} converting a successful response body
+     * @param <T> - Type of the items
+     * @param <R> - Type of the parsed results
+     * @return {@link BatchResult BatchResult} of each item
+     * @throws InterruptedException - If the API operation is interrupted
+     */
+    protected <T, R> BatchResult<T, R> getEach(Collection<T> items, Function<T, String> getURL, ResponseParser<R> parser) throws InterruptedException {
+        return fanOut(items, item -> apiRequest.getAsync(getURL.apply(item)), parser);
+    }
+
+    /***
+     * Perform a HTTP POST per item, pipelining up to the configured concurrency. Always run asynchronously regardless
+     * of any class callback, returning once every request has completed.
+     * @param items {@link Collection Collection} of items to send
+     * @param postURL {@link Function Function} providing the URL for an item
+     * @param postBody {@link Function Function} providing the body for an item
+     * @param parser {@link ResponseParser ResponseParser} converting a successful response body
+     * @param <T> - Type of the items
+     * @param <R> - Type of the parsed results
+     * @return {@link BatchResult BatchResult} of each item
+     * @throws InterruptedException - If the API operation is interrupted
+     */
+    protected <T, R> BatchResult<T, R> postEach(Collection<T> items, Function<T, String> postURL, Function<T, JSONObject> postBody,
+                                                ResponseParser<R> parser) throws InterruptedException {
+        return fanOut(items, item -> apiRequest.postAsync(postURL.apply(item), postBody.apply(item)), parser);
+    }
+
+    /***
+     * Perform paginated HTTP GETs of a listing, requesting the configured page size and reading one page ahead of
+     * the caller. Always run asynchronously regardless of any class callback. Failures fetching later pages are
+     * thrown from the stream as a {@link CompletionException CompletionException} with the original exception as
+     * cause. The stream should be closed if it is not consumed completely.
+     * @param listURL {@link String String} URL of the listing
+     * @param itemsAttr {@link String String} attribute of a page holding its items
+     * @param parser {@link ResponseParser ResponseParser} converting the items of a page
+     * @param <T> - Type of the items
+     * @return Lazy {@link Stream Stream} of the items in the order returned
+     * @throws IOException - If an I/O error occurs when sending the first request
+     * @throws InterruptedException - If the API operation is interrupted
+     * @throws CertificateException - Certificate authentication failed
+     */
+    protected <T> Stream<T> getPaged(String listURL, String itemsAttr, ResponseParser<List<T>> parser) throws IOException, InterruptedException, CertificateException {
+        PageIterator<T> pages = new PageIterator<>(cursor -> apiRequest.getAsync(pageURL(listURL, cursor)), itemsAttr, parser);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(pages, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(pages::close);
+    }
+
+    /***
+     * Pair the results of a batch endpoint with the items submitted. Results holding an error attribute are reported
+     * as failures of their item.
+     * @param items {@link List List} of items in the order submitted
+     * @param results {@link JSONArray JSONArray} returned by the batch endpoint
+     * @param parser {@link ResponseParser ResponseParser} converting a successful result
+     * @param <T> - Type of the items
+     * @param <R> - Type of the parsed results
+     * @return {@link BatchResult BatchResult} of each item
+     * @throws ScytaleException - If the API did not return a result for each item
+     */
+    protected <T, R> BatchResult<T, R> fromBatch(List<T> items, JSONArray results, ResponseParser<R> parser) throws ScytaleException {
+        if (results.length() != items.size()) {
+            LOG.log(Level.SEVERE, "Batch returned {0} results for {1} items", new Object[]{results.length(), items.size()});
+            throw new ScytaleException(RETURNED_INVALID_JSON);
+        }
+
+        BatchResult<T, R> batchResult = new BatchResult<>();
+        for (int i = 0; i < items.size(); i++) {
+            JSONObject result = results.optJSONObject(i);
+            try {
+                if (result == null) {
+                    throw new ScytaleException(RETURNED_INVALID_JSON);
+                }
+                if (result.has(ERROR_ATTR)) {
+                    throw new ScytaleException(FAILED_WITH + result.get(ERROR_ATTR));
+                }
+                batchResult.success(items.get(i), parser.parse(result.toString()));
+            } catch (ScytaleException scytaleException) {
+                batchResult.failure(items.get(i), scytaleException);
+            }
+        }
+        return batchResult;
+    }
+
+    /***
+     * Add the results and failures of one {@link BatchResult BatchResult} to another
+     * @param into {@link BatchResult BatchResult} to add to
+     * @param from {@link BatchResult BatchResult} to add from
+     * @param <T> - Type of the items
+     * @param <R> - Type of the results
+     */
+    protected static <T, R> void merge(BatchResult<T, R> into, BatchResult<T, R> from) {
+        from.getResults().forEach(into::success);
+        from.getFailures().forEach(into::failure);
+    }
+
+    private Optional<String> sendBatch(String batchURL, Set<Integer> fallBack, BatchCall batchCall) throws IOException, InterruptedException, ScytaleException, CertificateException {
+        if (unsupportedBatches.contains(endpointOf(batchURL))) {
+            return Optional.empty();
+        }
+
+        HttpResponse<String> batchResponse = batchCall.send();
+        if (UNSUPPORTED.contains(batchResponse.statusCode())) {
+            batchUnsupported(batchURL);
+            return Optional.empty();
+        }
+        if (fallBack.contains(batchResponse.statusCode())) {
+            LOG.log(Level.FINE, "Batch request {0} failed with {1}, sending individual requests",
+                    new Object[]{batchURL, batchResponse.statusCode()});
+            return Optional.empty();
+        }
+        if (batchResponse.statusCode() != 200) {
+            throw new ScytaleException(FAILED_WITH + batchResponse.body());
+        }
+
+        return Optional.of(batchResponse.body());
+    }
+
+    private <T, R> BatchResult<T, R> fanOut(Collection<T> items, ItemCall<T> itemCall, ResponseParser<R> parser) throws InterruptedException {
+        Semaphore inFlight = new Semaphore(concurrency);
+        Map<T, CompletableFuture<String>> responses = new LinkedHashMap<>();
+
+        for (T item : items) {
+            inFlight.acquire();
+            try {
+                responses.put(item, itemCall.send(item)
+                        .whenComplete((response, error) -> inFlight.release())
+                        .thenApply(response -> {
+                            if (response.statusCode() != 200) {
+                                throw new CompletionException(new ScytaleException(FAILED_WITH + response.body()));
+                            }
+                            return response.body();
+                        }));
+            } catch (IOException | CertificateException | RuntimeException e) {
+                inFlight.release();
+                responses.put(item, CompletableFuture.failedFuture(e));
+            }
+        }
+
+        try {
+            CompletableFuture.allOf(responses.values().toArray(CompletableFuture[]::new)).get();
+        } catch (ExecutionException ignored) {
+            // Failures are reported per item below
+        }
+
+        BatchResult<T, R> batchResult = new BatchResult<>();
+        responses.forEach((item, response) -> {
+            try {
+                batchResult.success(item, parser.parse(response.join()));
+            } catch (CompletionException completionException) {
+                batchResult.failure(item, asException(completionException.getCause()));
+            } catch (ScytaleException scytaleException) {
+                batchResult.failure(item, scytaleException);
+            }
+        });
+        return batchResult;
+    }
+
+    private String pageURL(String listURL, String cursor) {
+        String pageURL = listURL + (listURL.contains("?") ? "&" : "?") + "limit=" + pageSize;
+        return cursor == null ? pageURL : pageURL + "&cursor=" + URLEncoder.encode(cursor, StandardCharsets.UTF_8);
+    }
+
+    /***
+     * Batch support is remembered per endpoint, ignoring query parameters and keystore IDs within the path
+     */
+    private String endpointOf(String batchURL) {
+        return batchURL.replaceAll("\\?.*$", "").replaceAll("/\\d+(?=/|$)", "/{id}");
+    }
+
+    private Exception asException(Throwable throwable) {
+        if (throwable instanceof Exception) {
+            return (Exception) throwable;
+        }
+        return new ScytaleException(String.valueOf(throwable));
+    }
+
+    @FunctionalInterface
+    private interface BatchCall {
+        HttpResponse<String> send() throws IOException, InterruptedException, CertificateException;
+    }
+
+    @FunctionalInterface
+    private interface ItemCall<T> {
+        CompletableFuture<HttpResponse<String>> send(T item) throws IOException, InterruptedException, CertificateException;
+    }
+
+    /***
+     * Converts the body of a successful API response
+     * @param <R> - Type of the result
+     */
+    @FunctionalInterface
+    protected interface ResponseParser<R> {
+        R parse(String body) throws ScytaleException;
+    }
+}
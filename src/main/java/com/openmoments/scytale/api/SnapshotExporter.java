@@ -0,0 +1,262 @@
+package com.openmoments.scytale.api;
+
+import com.openmoments.scytale.exception.ScytaleException;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.cert.CertificateException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/***
+ * Writes every keystore and public key to a newline delimited JSON snapshot. Each line is one of:
+ * <pre>
+ * {"type": "keystore", "id": 1, "name": "..."}
+ * {"type": "key", "keystoreId": 1, "id": 2, "publicKey": "..."}
+ * {"type": "end", "cursor": "..."}
+ * </pre>
+ * The catalogue is read from the change feed one page at a time and spooled beside the snapshot, with a checkpoint
+ * after every page so an interrupted export resumes from the last complete page. The feed may repeat a keystore or
+ * key which changed more than once and reports deletions, so once every page is read the spool is replayed into the
+ * snapshot holding only the latest version of each keystore and key that was not deleted. Only the IDs seen are held
+ * in memory, not the keys themselves. The final cursor may be used to start a {@link ReplicaSync ReplicaSync} from
+ * the snapshot.
+ */
+public class SnapshotExporter extends ScytaleRequest {
+    private static final Logger LOG = Logger.getLogger(SnapshotExporter.class.getName());
+    protected static final String TYPE_ATTR = "type";
+    protected static final String KEYSTORE_TYPE = "keystore";
+    protected static final String KEY_TYPE = "key";
+    protected static final String END_TYPE = "end";
+    protected static final String KEYSTORE_ID_ATTR = "keystoreId";
+    protected static final String ID_ATTR = "id";
+    protected static final String NAME_ATTR = "name";
+    protected static final String PUBLIC_KEY_ATTR = "publicKey";
+    protected static final String CURSOR_ATTR = "cursor";
+    private static final String HAS_MORE_ATTR = "hasMore";
+    private static final String KEYSTORES_ATTR = "keystores";
+    private static final String KEYS_ATTR = "keys";
+    private static final String DELETED_KEYSTORES_ATTR = "deletedKeystores";
+    private static final String DELETED_KEYS_ATTR = "deletedKeys";
+    private static final String DELETED_KEYSTORE_TYPE = "deletedKeystore";
+    private static final String DELETED_KEY_TYPE = "deletedKey";
+    private static final String OFFSET_ATTR = "offset";
+    private static final String CHECKPOINT_SUFFIX = ".checkpoint";
+    private static final String SPOOL_SUFFIX = ".pages";
+
+    private Consumer<TransferProgress> progressListener = progress -> { };
+
+    /***
+     * Constructor requiring an APIRequest
+     * @param apiRequest - Implementation of APIRequest interface
+     * @throws IllegalArgumentException - if the APIRequest is invalid
+     */
+    public SnapshotExporter(APIRequest apiRequest) {
+        super(apiRequest);
+    }
+
+    /***
+     * Receive progress after each page is written
+     * @param progressListener - {@link Consumer Consumer} of {@link TransferProgress TransferProgress}
+     * @return Instance of SnapshotExporter
+     */
+    public SnapshotExporter progress(Consumer<TransferProgress> progressListener) {
+        this.progressListener = progressListener;
+        return this;
+    }
+
+    /***
+     * Export the complete catalogue, resuming a previous export to the same file if it was interrupted
+     * @param snapshot - {@link Path Path} of the snapshot file to write
+     * @return {@link TransferProgress TransferProgress} of the completed export
+     * @throws IOException - If an I/O error occurs writing the snapshot or sending API requests
+     * @throws InterruptedException - If the API operation is interrupted
+     * @throws ScytaleException - If the API did not return a valid page of the catalogue
+     * @throws CertificateException - Certificate authentication failed
+     */
+    public TransferProgress export(Path snapshot) throws IOException, InterruptedException, ScytaleException, CertificateException {
+        Path checkpoint = snapshot.resolveSibling(snapshot.getFileName() + CHECKPOINT_SUFFIX);
+        Path spool = snapshot.resolveSibling(snapshot.getFileName() + SPOOL_SUFFIX);
+        String cursor = null;
+        long offset = 0;
+
+        if (Files.exists(checkpoint) && Files.exists(spool)) {
+            JSONObject saved = new JSONObject(Files.readString(checkpoint));
+            cursor = saved.getString(CURSOR_ATTR);
+            offset = saved.getLong(OFFSET_ATTR);
+            LOG.log(Level.INFO, "Resuming export to {0} from cursor {1}", new Object[]{snapshot, cursor});
+        }
+
+        long started = System.nanoTime();
+        long keyStores = 0;
+        long keys = 0;
+        boolean hasMore = true;
+
+        try (FileChannel channel = FileChannel.open(spool, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             Writer writer = Channels.newWriter(channel, StandardCharsets.UTF_8)) {
+            // Anything after the checkpoint belongs to a page which was not completely written
+            channel.truncate(offset);
+            channel.position(offset);
+
+            while (hasMore) {
+                JSONObject page = page(cursor);
+                JSONArray pageKeyStores = array(page, KEYSTORES_ATTR);
+                JSONArray pageKeys = array(page, KEYS_ATTR);
+                JSONArray deletedKeys = array(page, DELETED_KEYS_ATTR);
+                JSONArray deletedKeyStores = array(page, DELETED_KEYSTORES_ATTR);
+
+                for (int i = 0; i < pageKeyStores.length(); i++) {
+                    JSONObject keyStore = pageKeyStores.getJSONObject(i);
+                    writeLine(writer, new JSONObject().put(TYPE_ATTR, KEYSTORE_TYPE)
+                            .put(ID_ATTR, keyStore.getLong(ID_ATTR))
+                            .put(NAME_ATTR, keyStore.getString(NAME_ATTR)));
+                    keyStores++;
+                }
+                for (int i = 0; i < pageKeys.length(); i++) {
+                    JSONObject key = pageKeys.getJSONObject(i);
+                    writeLine(writer, new JSONObject().put(TYPE_ATTR, KEY_TYPE)
+                            .put(KEYSTORE_ID_ATTR, key.getLong(KEYSTORE_ID_ATTR))
+                            .put(ID_ATTR, key.getLong(ID_ATTR))
+                            .put(PUBLIC_KEY_ATTR, key.getString(PUBLIC_KEY_ATTR)));
+                    keys++;
+                }
+                // Deletions are applied after the changes of the same page, as ReplicaSync does
+                for (int i = 0; i < deletedKeys.length(); i++) {
+                    JSONObject key = deletedKeys.getJSONObject(i);
+                    writeLine(writer, new JSONObject().put(TYPE_ATTR, DELETED_KEY_TYPE)
+                            .put(KEYSTORE_ID_ATTR, key.getLong(KEYSTORE_ID_ATTR))
+                            .put(ID_ATTR, key.getLong(ID_ATTR)));
+                }
+                for (int i = 0; i < deletedKeyStores.length(); i++) {
+                    writeLine(writer, new JSONObject().put(TYPE_ATTR, DELETED_KEYSTORE_TYPE).put(ID_ATTR, deletedKeyStores.getLong(i)));
+                }
+
+                cursor = page.getString(CURSOR_ATTR);
+                hasMore = page.optBoolean(HAS_MORE_ATTR, false);
+
+                writer.flush();
+                writeCheckpoint(checkpoint, cursor, channel.position());
+                progressListener.accept(new TransferProgress(keyStores, keys, 0, Duration.ofNanos(System.nanoTime() - started)));
+            }
+        } catch (JSONException jsonException) {
+            LOG.log(Level.SEVERE, RETURNED_INVALID_JSON, jsonException);
+            throw new ScytaleException(RETURNED_INVALID_JSON);
+        }
+
+        TransferProgress exported = compact(spool, snapshot, cursor, started);
+        Files.delete(spool);
+        Files.deleteIfExists(checkpoint);
+        LOG.log(Level.INFO, "Exported {0}", exported);
+        return exported;
+    }
+
+    /***
+     * Write the latest version of each keystore and key in the spool which was not later deleted, in the order they
+     * were last changed. The spool is read twice: once to find the line holding the final state of each ID, and once to
+     * copy those lines.
+     */
+    private TransferProgress compact(Path spool, Path snapshot, String cursor, long started) throws IOException {
+        Map<Long, Long> keyStoreLines = new HashMap<>();
+        Map<Long, Long> keyStoreDeletions = new HashMap<>();
+        Map<String, Long> keyLines = new HashMap<>();
+        Map<String, Long> keyDeletions = new HashMap<>();
+
+        try (BufferedReader reader = Files.newBufferedReader(spool, StandardCharsets.UTF_8)) {
+            long lineNumber = 0;
+            for (String line = reader.readLine(); line != null; line = reader.readLine(), lineNumber++) {
+                JSONObject entry = new JSONObject(line);
+                switch (entry.getString(TYPE_ATTR)) {
+                    case KEYSTORE_TYPE:
+                        keyStoreLines.put(entry.getLong(ID_ATTR), lineNumber);
+                        break;
+                    case DELETED_KEYSTORE_TYPE:
+                        keyStoreDeletions.put(entry.getLong(ID_ATTR), lineNumber);
+                        break;
+                    case KEY_TYPE:
+                        keyLines.put(keyOf(entry), lineNumber);
+                        break;
+                    case DELETED_KEY_TYPE:
+                        keyDeletions.put(keyOf(entry), lineNumber);
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+
+        long keyStores = 0;
+        long keys = 0;
+        Path pending = snapshot.resolveSibling(snapshot.getFileName() + ".tmp");
+        try (BufferedReader reader = Files.newBufferedReader(spool, StandardCharsets.UTF_8);
+             Writer writer = Files.newBufferedWriter(pending, StandardCharsets.UTF_8)) {
+            long lineNumber = 0;
+            for (String line = reader.readLine(); line != null; line = reader.readLine(), lineNumber++) {
+                JSONObject entry = new JSONObject(line);
+                String type = entry.getString(TYPE_ATTR);
+                if (KEYSTORE_TYPE.equals(type)) {
+                    Long id = entry.getLong(ID_ATTR);
+                    if (keyStoreLines.get(id) == lineNumber && lineNumber > keyStoreDeletions.getOrDefault(id, -1L)) {
+                        writeLine(writer, entry);
+                        keyStores++;
+                    }
+                } else if (KEY_TYPE.equals(type)) {
+                    String key = keyOf(entry);
+                    if (keyLines.get(key) == lineNumber && lineNumber > keyDeletions.getOrDefault(key, -1L)
+                            && lineNumber > keyStoreDeletions.getOrDefault(entry.getLong(KEYSTORE_ID_ATTR), -1L)) {
+                        writeLine(writer, entry);
+                        keys++;
+                    }
+                }
+            }
+            writeLine(writer, new JSONObject().put(TYPE_ATTR, END_TYPE).put(CURSOR_ATTR, cursor));
+        }
+
+        Files.move(pending, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return new TransferProgress(keyStores, keys, 0, Duration.ofNanos(System.nanoTime() - started));
+    }
+
+    private static String keyOf(JSONObject entry) {
+        return entry.getLong(KEYSTORE_ID_ATTR) + "/" + entry.getLong(ID_ATTR);
+    }
+
+    private static JSONArray array(JSONObject page, String attribute) {
+        JSONArray array = page.optJSONArray(attribute);
+        return array == null ? new JSONArray() : array;
+    }
+
+    private JSONObject page(String cursor) throws IOException, InterruptedException, ScytaleException, CertificateException {
+        String body = this.get(ReplicaSync.changesURL(cursor));
+        try {
+            return new JSONObject(body);
+        } catch (JSONException jsonException) {
+            LOG.log(Level.SEVERE, RETURNED_INVALID_JSON, jsonException);
+            throw new ScytaleException(RETURNED_INVALID_JSON);
+        }
+    }
+
+    private void writeLine(Writer writer, JSONObject line) throws IOException {
+        writer.write(line.toString());
+        writer.write('\n');
+    }
+
+    private void writeCheckpoint(Path checkpoint, String cursor, long offset) throws IOException {
+        Path pending = checkpoint.resolveSibling(checkpoint.getFileName() + ".tmp");
+        Files.writeString(pending, new JSONObject().put(CURSOR_ATTR, cursor).put(OFFSET_ATTR, offset).toString());
+        Files.move(pending, checkpoint, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,341 @@
+package com.openmoments.scytale.api;
+
+import com.openmoments.scytale.entities.BatchResult;
+import com.openmoments.scytale.entities.KeyStore;
+import com.openmoments.scytale.entities.ScytalePublicKey;
+import com.openmoments.scytale.exception.ScytaleException;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.cert.CertificateException;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/***
+ * Replays a snapshot written by {@link SnapshotExporter SnapshotExporter} into another environment. Lines are read in
+ * chunks: the keystores of a chunk are created with {@link KeyStoreRequest#createKeyStores(Collection)} and the keys of
+ * up to {@link #concurrency(int) concurrency} keystores are then added at once with
+ * {@link PublicKeyRequest#addAll(List, KeyStore)}.
+ * <p>
+ * Keystores are assigned new IDs by the target API. The mapping from exported to created keystores is appended to a
+ * checkpoint beside the snapshot as soon as they are created, followed by the last line of each complete chunk, so an
+ * interrupted import resumes after the last complete chunk without creating its keystores again. Keys of a chunk
+ * which was interrupted part way may be added again. Keystores are only ever matched by exported ID: one which cannot
+ * be created, such as one whose name is already taken in the target, is reported as a failure along with its keys
+ * rather than merged into a keystore of the same name.
+ */
+public class SnapshotImporter {
+    private static final Logger LOG = Logger.getLogger(SnapshotImporter.class.getName());
+    private static final int DEFAULT_CHUNK_SIZE = 500;
+    private static final int DEFAULT_CONCURRENCY = 8;
+    private static final String CHECKPOINT_SUFFIX = ".import-checkpoint";
+    private static final String LINE_ATTR = "line";
+    private static final String KEYSTORES_ATTR = "keystores";
+
+    private final KeyStoreRequest keyStoreRequest;
+    private final PublicKeyRequest publicKeyRequest;
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+    private int concurrency = DEFAULT_CONCURRENCY;
+    private Consumer<TransferProgress> progressListener = progress -> { };
+
+    /***
+     * Constructor requiring the requests used to write to the target environment
+     * @param keyStoreRequest - {@link KeyStoreRequest KeyStoreRequest} used to create keystores
+     * @param publicKeyRequest - {@link PublicKeyRequest PublicKeyRequest} used to add keys
+     */
+    public SnapshotImporter(KeyStoreRequest keyStoreRequest, PublicKeyRequest publicKeyRequest) {
+        if (keyStoreRequest == null || publicKeyRequest == null) {
+            throw new IllegalArgumentException("KeyStore and PublicKey requests are required");
+        }
+        this.keyStoreRequest = keyStoreRequest;
+        this.publicKeyRequest = publicKeyRequest;
+    }
+
+    /***
+     * Specify the number of snapshot lines imported between checkpoints, defaults to 500
+     * @param chunkSize - Lines per chunk
+     * @return Instance of SnapshotImporter
+     */
+    public SnapshotImporter chunkSize(int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive integer");
+        }
+        this.chunkSize = chunkSize;
+        return this;
+    }
+
+    /***
+     * Specify the maximum number of keystores keys are added to at once, defaults to 8
+     * @param concurrency - Maximum concurrent keystores
+     * @return Instance of SnapshotImporter
+     */
+    public SnapshotImporter concurrency(int concurrency) {
+        if (concurrency <= 0) {
+            throw new IllegalArgumentException("Concurrency must be positive integer");
+        }
+        this.concurrency = concurrency;
+        return this;
+    }
+
+    /***
+     * Receive progress after each chunk is imported
+     * @param progressListener - {@link Consumer Consumer} of {@link TransferProgress TransferProgress}
+     * @return Instance of SnapshotImporter
+     */
+    public SnapshotImporter progress(Consumer<TransferProgress> progressListener) {
+        this.progressListener = progressListener;
+        return this;
+    }
+
+    /***
+     * Import a snapshot, resuming a previous import of the same file if it was interrupted
+     * @param snapshot - {@link Path Path} of the snapshot file to read
+     * @return {@link TransferProgress TransferProgress} of the completed import
+     * @throws IOException - If an I/O error occurs reading the snapshot or sending API requests
+     * @throws InterruptedException - If the API operation is interrupted
+     * @throws ScytaleException - If the snapshot is invalid or the API failed a whole chunk
+     * @throws CertificateException - Certificate authentication failed
+     */
+    public TransferProgress importFrom(Path snapshot) throws IOException, InterruptedException, ScytaleException, CertificateException {
+        Path checkpoint = snapshot.resolveSibling(snapshot.getFileName() + CHECKPOINT_SUFFIX);
+        Map<Long, KeyStore> imported = new HashMap<>();
+        long completedLines = readCheckpoint(checkpoint, imported);
+        Progress progress = new Progress();
+
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency, runnable -> {
+            Thread thread = new Thread(runnable, "scytale-import");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try (BufferedReader reader = Files.newBufferedReader(snapshot, StandardCharsets.UTF_8);
+             BufferedWriter checkpointWriter = Files.newBufferedWriter(checkpoint, StandardCharsets.UTF_8,
+                     StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            List<JSONObject> chunk = new ArrayList<>();
+            long lineNumber = 0;
+            String line;
+
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (lineNumber <= completedLines || line.isBlank()) {
+                    continue;
+                }
+
+                chunk.add(parse(line, lineNumber));
+                if (chunk.size() == chunkSize) {
+                    importChunk(chunk, lineNumber, imported, progress, executor, checkpointWriter);
+                    chunk.clear();
+                }
+            }
+
+            if (!chunk.isEmpty()) {
+                importChunk(chunk, lineNumber, imported, progress, executor, checkpointWriter);
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        Files.deleteIfExists(checkpoint);
+        TransferProgress completed = progress.snapshot();
+        LOG.log(Level.INFO, "Imported {0}", completed);
+        return completed;
+    }
+
+    private void importChunk(List<JSONObject> chunk, long lastLine, Map<Long, KeyStore> imported, Progress progress,
+                             ExecutorService executor, BufferedWriter checkpointWriter) throws IOException, InterruptedException, ScytaleException, CertificateException {
+        Map<Long, String> namesByExportedId = new LinkedHashMap<>();
+        Map<Long, List<String>> keysByExportedId = new LinkedHashMap<>();
+
+        for (JSONObject entry : chunk) {
+            String type = entry.getString(SnapshotExporter.TYPE_ATTR);
+            if (SnapshotExporter.KEYSTORE_TYPE.equals(type)) {
+                long exportedId = entry.getLong(SnapshotExporter.ID_ATTR);
+                // Keystores journaled before an interruption were already created
+                if (!imported.containsKey(exportedId)) {
+                    namesByExportedId.put(exportedId, entry.getString(SnapshotExporter.NAME_ATTR));
+                }
+            } else if (SnapshotExporter.KEY_TYPE.equals(type)) {
+                keysByExportedId.computeIfAbsent(entry.getLong(SnapshotExporter.KEYSTORE_ID_ATTR), id -> new ArrayList<>())
+                        .add(entry.getString(SnapshotExporter.PUBLIC_KEY_ATTR));
+            }
+        }
+
+        if (!namesByExportedId.isEmpty()) {
+            createKeyStores(namesByExportedId, imported, progress, checkpointWriter);
+        }
+
+        List<CompletableFuture<BatchResult<String, ScytalePublicKey>>> additions = new ArrayList<>();
+        for (Map.Entry<Long, List<String>> keys : keysByExportedId.entrySet()) {
+            KeyStore keyStore = imported.get(keys.getKey());
+            if (keyStore == null) {
+                LOG.log(Level.WARNING, "Skipping {0} keys of keystore {1} which was not imported", new Object[]{keys.getValue().size(), keys.getKey()});
+                progress.failures += keys.getValue().size();
+                continue;
+            }
+            additions.add(CompletableFuture.supplyAsync(() -> addAll(keys.getValue(), keyStore), executor));
+        }
+
+        for (CompletableFuture<BatchResult<String, ScytalePublicKey>> addition : additions) {
+            try {
+                BatchResult<String, ScytalePublicKey> added = addition.join();
+                progress.keys += added.getResults().size();
+                progress.failures += added.getFailures().size();
+            } catch (CompletionException completionException) {
+                rethrow(completionException.getCause());
+            }
+        }
+
+        journal(checkpointWriter, new JSONObject().put(LINE_ATTR, lastLine));
+        progressListener.accept(progress.snapshot());
+    }
+
+    /***
+     * Create the keystores of a chunk and journal them before any keys are added. Exported keystores sharing a name
+     * are created separately, as a batch creates one keystore per name.
+     */
+    private void createKeyStores(Map<Long, String> namesByExportedId, Map<Long, KeyStore> imported, Progress progress,
+                                 BufferedWriter checkpointWriter) throws IOException, InterruptedException, ScytaleException, CertificateException {
+        Set<String> batched = new LinkedHashSet<>();
+        Map<Long, String> repeated = new LinkedHashMap<>();
+        namesByExportedId.forEach((exportedId, name) -> {
+            if (!batched.add(name)) {
+                repeated.put(exportedId, name);
+            }
+        });
+
+        BatchResult<String, KeyStore> createdKeyStores = keyStoreRequest.createKeyStores(batched);
+        JSONObject created = new JSONObject();
+        for (Map.Entry<Long, String> exported : namesByExportedId.entrySet()) {
+            String name = exported.getValue();
+            boolean single = repeated.containsKey(exported.getKey());
+            Optional<KeyStore> keyStore = single ? create(name) : Optional.ofNullable(createdKeyStores.getResults().get(name));
+            if (keyStore.isPresent()) {
+                imported.put(exported.getKey(), keyStore.get());
+                created.put(String.valueOf(exported.getKey()), toJson(keyStore.get()));
+                progress.keyStores++;
+            } else {
+                LOG.log(Level.WARNING, "Failed to import keystore " + name, single ? null : createdKeyStores.getFailures().get(name));
+                progress.failures++;
+            }
+        }
+
+        journal(checkpointWriter, new JSONObject().put(KEYSTORES_ATTR, created));
+    }
+
+    private Optional<KeyStore> create(String name) {
+        try {
+            return keyStoreRequest.createKeyStore(name);
+        } catch (IOException | ScytaleException | CertificateException e) {
+            LOG.log(Level.FINE, "Failed to create keystore " + name, e);
+            return Optional.empty();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Optional.empty();
+        }
+    }
+
+    private void journal(BufferedWriter checkpointWriter, JSONObject entry) throws IOException {
+        checkpointWriter.write(entry.toString());
+        checkpointWriter.newLine();
+        checkpointWriter.flush();
+    }
+
+    private BatchResult<String, ScytalePublicKey> addAll(List<String> publicKeys, KeyStore keyStore) {
+        try {
+            return publicKeyRequest.addAll(publicKeys, keyStore);
+        } catch (IOException | ScytaleException | CertificateException e) {
+            throw new CompletionException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CompletionException(e);
+        }
+    }
+
+    private void rethrow(Throwable cause) throws IOException, InterruptedException, ScytaleException, CertificateException {
+        if (cause instanceof IOException) {
+            throw (IOException) cause;
+        }
+        if (cause instanceof InterruptedException) {
+            throw (InterruptedException) cause;
+        }
+        if (cause instanceof ScytaleException) {
+            throw (ScytaleException) cause;
+        }
+        if (cause instanceof CertificateException) {
+            throw (CertificateException) cause;
+        }
+        throw new CompletionException(cause);
+    }
+
+    private long readCheckpoint(Path checkpoint, Map<Long, KeyStore> imported) throws IOException {
+        if (!Files.exists(checkpoint)) {
+            return 0;
+        }
+
+        long completedLines = 0;
+        List<String> readable = new ArrayList<>();
+        for (String line : Files.readAllLines(checkpoint, StandardCharsets.UTF_8)) {
+            try {
+                JSONObject entry = new JSONObject(line);
+                JSONObject created = entry.optJSONObject(KEYSTORES_ATTR);
+                if (created != null) {
+                    for (String exportedId : created.keySet()) {
+                        JSONObject keyStore = created.getJSONObject(exportedId);
+                        imported.put(Long.parseLong(exportedId),
+                                new KeyStore(keyStore.getLong(SnapshotExporter.ID_ATTR), keyStore.getString(SnapshotExporter.NAME_ATTR)));
+                    }
+                }
+                if (entry.has(LINE_ATTR)) {
+                    completedLines = entry.getLong(LINE_ATTR);
+                }
+                readable.add(line);
+            } catch (JSONException e) {
+                // A checkpoint interrupted by a crash leaves a partial last line
+                LOG.log(Level.WARNING, "Skipping unreadable import checkpoint entry", e);
+            }
+        }
+
+        // Later entries are appended, so must not follow a partial line
+        Files.write(checkpoint, readable, StandardCharsets.UTF_8);
+        LOG.log(Level.INFO, "Resuming import after line {0}", completedLines);
+        return completedLines;
+    }
+
+    private JSONObject parse(String line, long lineNumber) throws ScytaleException {
+        try {
+            return new JSONObject(line);
+        } catch (JSONException jsonException) {
+            LOG.log(Level.SEVERE, "Invalid snapshot line " + lineNumber, jsonException);
+            throw new ScytaleException("Invalid snapshot line " + lineNumber);
+        }
+    }
+
+    private JSONObject toJson(KeyStore keyStore) {
+        return new JSONObject().put(SnapshotExporter.ID_ATTR, keyStore.getId()).put(SnapshotExporter.NAME_ATTR, keyStore.getName());
+    }
+
+    private static final class Progress {
+        private final long started = System.nanoTime();
+        private long keyStores;
+        private long keys;
+        private long failures;
+
+        private TransferProgress snapshot() {
+            return new TransferProgress(keyStores, keys, failures, Duration.ofNanos(System.nanoTime() - started));
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.openmoments.scytale.api;
+
+import java.time.Duration;
+
+/***
+ * Progress of a {@link SnapshotExporter SnapshotExporter} or {@link SnapshotImporter SnapshotImporter} since it was
+ * started or resumed
+ */
+public final class TransferProgress {
+    private final long keyStores;
+    private final long keys;
+    private final long failures;
+    private final Duration elapsed;
+
+    public TransferProgress(long keyStores, long keys, long failures, Duration elapsed) {
+        this.keyStores = keyStores;
+        this.keys = keys;
+        this.failures = failures;
+        this.elapsed = elapsed;
+    }
+
+    public long getKeyStores() {
+        return keyStores;
+    }
+
+    public long getKeys() {
+        return keys;
+    }
+
+    public long getFailures() {
+        return failures;
+    }
+
+    public Duration getElapsed() {
+        return elapsed;
+    }
+
+    /***
+     * @return Keystores and keys transferred per second
+     */
+    public double getItemsPerSecond() {
+        double seconds = elapsed.toNanos() / 1e9;
+        return seconds == 0 ? 0 : (keyStores + keys) / seconds;
+    }
+
+    @Override
+    public String toString() {
+        return "TransferProgress{keyStores=" + keyStores + ", keys=" + keys + ", failures=" + failures +
+                ", elapsed=" + elapsed + ", itemsPerSecond=" + String.format("%.1f", getItemsPerSecond()) + "}";
+    }
+}
@@ -0,0 +1,38 @@
+package com.openmoments.scytale.cache;
+
+import com.openmoments.scytale.entities.ScytalePublicKey;
+
+import java.time.Instant;
+import java.util.List;
+
+/***
+ * Decoded public keys of a single keystore, along with the entity tag the API returned them with
+ */
+public final class CachedKeys {
+    private final List<ScytalePublicKey> keys;
+    private final String eTag;
+    private final Instant validatedAt;
+
+    CachedKeys(List<ScytalePublicKey> keys, String eTag, Instant validatedAt) {
+        this.keys = List.copyOf(keys);
+        this.eTag = eTag;
+        this.validatedAt = validatedAt;
+    }
+
+    public List<ScytalePublicKey> getKeys() {
+        return keys;
+    }
+
+    public String getETag() {
+        return eTag;
+    }
+
+    public Instant getValidatedAt() {
+        return validatedAt;
+    }
+
+    @Override
+    public String toString() {
+        return "CachedKeys{keys=" + keys.size() + ", eTag='" + eTag + "', validatedAt=" + validatedAt + "}";
+    }
+}
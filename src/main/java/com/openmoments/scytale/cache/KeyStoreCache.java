@@ -0,0 +1,148 @@
+package com.openmoments.scytale.cache;
+
+import com.openmoments.scytale.entities.KeyStore;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Optional;
+
+/***
+ * In-process cache of {@link KeyStore KeyStore} items, indexed by ID and by name. Names which the API reported as
+ * missing are remembered for a shorter period so repeated misses do not cause repeated API requests.
+ */
+public class KeyStoreCache {
+    private static final int DEFAULT_MAXIMUM_SIZE = 1000;
+    private static final Duration DEFAULT_EXPIRY = Duration.ofMinutes(5);
+    private static final Duration DEFAULT_MISSING_EXPIRY = Duration.ofSeconds(30);
+
+    private int maximumSize = DEFAULT_MAXIMUM_SIZE;
+    private Duration expireAfterWrite = DEFAULT_EXPIRY;
+    private Duration missingExpireAfterWrite = DEFAULT_MISSING_EXPIRY;
+    private final Clock clock;
+
+    private volatile LruCache<Long, KeyStore> byId;
+    private volatile LruCache<String, Long> nameIndex;
+    private volatile LruCache<String, Boolean> missingNames;
+
+    public KeyStoreCache() {
+        this(Clock.systemUTC());
+    }
+
+    KeyStoreCache(Clock clock) {
+        this.clock = clock;
+        build();
+    }
+
+    /***
+     * Specify the maximum number of keystores to hold, defaults to 1000. Clears any cached entries.
+     * @param maximumSize - Maximum number of entries
+     * @return Instance of KeyStoreCache
+     */
+    public KeyStoreCache maximumSize(int maximumSize) {
+        this.maximumSize = maximumSize;
+        build();
+        return this;
+    }
+
+    /***
+     * Specify how long a keystore remains cached, defaults to 5 minutes. Clears any cached entries.
+     * @param expireAfterWrite - {@link Duration Duration} entries remain valid
+     * @return Instance of KeyStoreCache
+     */
+    public KeyStoreCache expireAfterWrite(Duration expireAfterWrite) {
+        this.expireAfterWrite = expireAfterWrite;
+        build();
+        return this;
+    }
+
+    /***
+     * Specify how long a missing keystore name is remembered, defaults to 30 seconds. Clears any cached entries.
+     * @param missingExpireAfterWrite - {@link Duration Duration} negative entries remain valid
+     * @return Instance of KeyStoreCache
+     */
+    public KeyStoreCache missingExpireAfterWrite(Duration missingExpireAfterWrite) {
+        this.missingExpireAfterWrite = missingExpireAfterWrite;
+        build();
+        return this;
+    }
+
+    /***
+     * Find a cached keystore by ID
+     * @param id - ID of the keystore
+     * @return {@link Optional Optional} containing the {@link KeyStore KeyStore}, empty when not cached
+     */
+    public Optional<KeyStore> getById(Long id) {
+        return byId.get(id);
+    }
+
+    /***
+     * Find a cached keystore by exact name
+     * @param name - Name of the keystore
+     * @return {@link Optional Optional} containing the {@link KeyStore KeyStore}, empty when not cached
+     */
+    public Optional<KeyStore> getByName(String name) {
+        Optional<KeyStore> keyStore = nameIndex.get(name).flatMap(byId::get);
+
+        if (keyStore.isPresent() && !keyStore.get().getName().equals(name)) {
+            nameIndex.invalidate(name);
+            return Optional.empty();
+        }
+
+        return keyStore;
+    }
+
+    /***
+     * Check if a name was recently reported as not existing
+     * @param name - Name of the keystore
+     * @return true if the name is known to be missing
+     */
+    public boolean isMissing(String name) {
+        return missingNames.get(name).isPresent();
+    }
+
+    /***
+     * Cache a keystore, replacing any previous entry for the same ID
+     * @param keyStore - {@link KeyStore KeyStore} to cache
+     */
+    public synchronized void put(KeyStore keyStore) {
+        byId.get(keyStore.getId())
+            .filter(previous -> !previous.getName().equals(keyStore.getName()))
+            .ifPresent(previous -> nameIndex.invalidate(previous.getName()));
+
+        byId.put(keyStore.getId(), keyStore);
+        nameIndex.put(keyStore.getName(), keyStore.getId());
+        missingNames.invalidate(keyStore.getName());
+    }
+
+    /***
+     * Remember that a keystore name does not exist
+     * @param name - Name reported as missing
+     */
+    public void putMissing(String name) {
+        missingNames.put(name, Boolean.TRUE);
+    }
+
+    /***
+     * Remove a keystore from the cache
+     * @param id - ID of the keystore to remove
+     */
+    public synchronized void invalidate(Long id) {
+        byId.get(id).ifPresent(previous -> nameIndex.invalidate(previous.getName()));
+        byId.invalidate(id);
+    }
+
+    /***
+     * Remove all cached keystores and missing names
+     */
+    public synchronized void invalidateAll() {
+        byId.invalidateAll();
+        nameIndex.invalidateAll();
+        missingNames.invalidateAll();
+    }
+
+    private synchronized void build() {
+        byId = new LruCache<>(maximumSize, expireAfterWrite, clock);
+        nameIndex = new LruCache<>(maximumSize, expireAfterWrite, clock);
+        missingNames = new LruCache<>(maximumSize, missingExpireAfterWrite, clock);
+    }
+}
@@ -0,0 +1,154 @@
+package com.openmoments.scytale.cache;
+
+import com.openmoments.scytale.api.KeyStoreRequest;
+import com.openmoments.scytale.api.PublicKeyRequest;
+import com.openmoments.scytale.entities.KeyStore;
+import com.openmoments.scytale.exception.InvalidKeystoreException;
+import com.openmoments.scytale.exception.ScytaleException;
+
+import java.io.IOException;
+import java.security.cert.CertificateException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/***
+ * Loads a known working set of keystores and their public keys while an application starts, so that the first
+ * request for each keystore is served from the {@link KeyStoreCache KeyStoreCache} and
+ * {@link PublicKeyCache PublicKeyCache} configured on the requests used.
+ * <p>
+ * Keystore names are read from the {@code prefetch.keystores} property as a comma separated list, with at most
+ * {@code prefetch.concurrency} keystores (default 4) fetched at once.
+ */
+public class KeyStorePrefetcher {
+    private static final Logger LOG = Logger.getLogger(KeyStorePrefetcher.class.getName());
+    private static final String PREFETCH_KEYSTORES = "prefetch.keystores";
+    private static final String PREFETCH_CONCURRENCY = "prefetch.concurrency";
+    private static final int DEFAULT_CONCURRENCY = 4;
+
+    private final KeyStoreRequest keyStoreRequest;
+    private final PublicKeyRequest publicKeyRequest;
+    private Set<String> names = new LinkedHashSet<>();
+    private int concurrency = DEFAULT_CONCURRENCY;
+
+    /***
+     * Constructor requiring the requests to warm
+     * @param keyStoreRequest - {@link KeyStoreRequest KeyStoreRequest} used to find keystores by name
+     * @param publicKeyRequest - {@link PublicKeyRequest PublicKeyRequest} used to load keys of each keystore
+     */
+    public KeyStorePrefetcher(KeyStoreRequest keyStoreRequest, PublicKeyRequest publicKeyRequest) {
+        if (keyStoreRequest == null || publicKeyRequest == null) {
+            throw new IllegalArgumentException("KeyStore and PublicKey requests are required");
+        }
+        this.keyStoreRequest = keyStoreRequest;
+        this.publicKeyRequest = publicKeyRequest;
+    }
+
+    /***
+     * Read the keystore names and concurrency from properties, as loaded by
+     * {@link com.openmoments.scytale.config.PropertiesLoader PropertiesLoader}
+     * @param properties - {@link Properties Properties} to read from
+     * @return Instance of KeyStorePrefetcher
+     */
+    public KeyStorePrefetcher properties(Properties properties) {
+        String configuredNames = properties.getProperty(PREFETCH_KEYSTORES, "");
+        names(Arrays.stream(configuredNames.split(","))
+                .map(String::trim)
+                .filter(name -> !name.isEmpty())
+                .collect(Collectors.toList()));
+
+        String configuredConcurrency = properties.getProperty(PREFETCH_CONCURRENCY, "").trim();
+        if (!configuredConcurrency.isEmpty()) {
+            concurrency(Integer.parseInt(configuredConcurrency));
+        }
+
+        return this;
+    }
+
+    /***
+     * Specify the keystore names to prefetch, replacing any previously specified
+     * @param names - {@link Collection Collection} of keystore names
+     * @return Instance of KeyStorePrefetcher
+     */
+    public KeyStorePrefetcher names(Collection<String> names) {
+        this.names = new LinkedHashSet<>(names);
+        return this;
+    }
+
+    /***
+     * Specify the maximum number of keystores fetched at once, defaults to 4
+     * @param concurrency - Maximum concurrent fetches
+     * @return Instance of KeyStorePrefetcher
+     */
+    public KeyStorePrefetcher concurrency(int concurrency) {
+        if (concurrency <= 0) {
+            throw new IllegalArgumentException("Prefetch concurrency must be positive integer");
+        }
+        this.concurrency = concurrency;
+        return this;
+    }
+
+    /***
+     * Start fetching the keystores and their keys in the background
+     * @return {@link CompletableFuture CompletableFuture} completing with the fetched keystores by name once all are
+     * loaded, or exceptionally with a {@link ScytaleException ScytaleException} naming those which failed
+     */
+    public CompletableFuture<Map<String, KeyStore>> start() {
+        if (names.isEmpty()) {
+            return CompletableFuture.completedFuture(Map.of());
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(concurrency, names.size()), prefetchThreadFactory());
+        Map<String, KeyStore> loaded = new ConcurrentHashMap<>();
+        Map<String, Throwable> failed = new ConcurrentHashMap<>();
+
+        CompletableFuture<?>[] fetches = names.stream()
+                .map(name -> CompletableFuture.runAsync(() -> fetch(name, loaded, failed), executor))
+                .toArray(CompletableFuture[]::new);
+
+        return CompletableFuture.allOf(fetches).handle((ignored, error) -> {
+            executor.shutdown();
+            if (!failed.isEmpty()) {
+                throw new CompletionException(new ScytaleException("Failed to prefetch keystores " + failed.keySet()));
+            }
+
+            LOG.log(Level.INFO, "Prefetched {0} keystores", loaded.size());
+            return Map.copyOf(loaded);
+        });
+    }
+
+    private void fetch(String name, Map<String, KeyStore> loaded, Map<String, Throwable> failed) {
+        try {
+            Optional<KeyStore> keyStore = keyStoreRequest.searchByName(name);
+            if (keyStore.isEmpty()) {
+                throw new InvalidKeystoreException("Keystore with name " + name + " does not exist");
+            }
+
+            publicKeyRequest.getAll(keyStore.get());
+            loaded.put(name, keyStore.get());
+        } catch (IOException | ScytaleException | InvalidKeystoreException | CertificateException | RuntimeException e) {
+            LOG.log(Level.WARNING, "Failed to prefetch keystore " + name, e);
+            failed.put(name, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failed.put(name, e);
+        }
+    }
+
+    private static ThreadFactory prefetchThreadFactory() {
+        AtomicInteger threadCount = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "scytale-prefetch-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,154 @@
+package com.openmoments.scytale.cache;
+
+import com.openmoments.scytale.entities.KeyStore;
+import com.openmoments.scytale.entities.ScytalePublicKey;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/***
+ * Complete in-process copy of the keystore and public key catalogue, kept up to date by
+ * {@link com.openmoments.scytale.api.ReplicaSync ReplicaSync}. Unlike the caches entries never expire; the replica
+ * is only as current as the last delta applied, identified by the sync cursor. A complete catalogue can be built in
+ * a separate replica and swapped in with {@link #replaceWith(KeyStoreReplica) replaceWith}, so readers keep being
+ * served while it is fetched.
+ */
+public class KeyStoreReplica {
+    private volatile Catalogue catalogue = new Catalogue();
+    private volatile String cursor;
+
+    /***
+     * Find a keystore by ID
+     * @param id - ID of the keystore
+     * @return {@link KeyStore KeyStore} if replicated
+     */
+    public Optional<KeyStore> getById(Long id) {
+        return Optional.ofNullable(catalogue.keyStores.get(id));
+    }
+
+    /***
+     * Find a keystore by name
+     * @param name - Name of the keystore
+     * @return {@link KeyStore KeyStore} if replicated
+     */
+    public Optional<KeyStore> getByName(String name) {
+        Catalogue current = catalogue;
+        return Optional.ofNullable(current.nameIndex.get(name)).map(current.keyStores::get);
+    }
+
+    /***
+     * Retrieve the public keys of a keystore
+     * @param keyStoreId - ID of the keystore
+     * @return {@link List List} of {@link ScytalePublicKey ScytalePublicKey} ordered by ID, empty if the keystore is
+     * not replicated
+     */
+    public Optional<List<ScytalePublicKey>> getKeys(Long keyStoreId) {
+        Catalogue current = catalogue;
+        if (!current.keyStores.containsKey(keyStoreId)) {
+            return Optional.empty();
+        }
+
+        return Optional.of(List.copyOf(current.keys.getOrDefault(keyStoreId, Map.of()).values()));
+    }
+
+    /***
+     * @return {@link List List} of all replicated {@link KeyStore KeyStore} items
+     */
+    public List<KeyStore> keyStores() {
+        return new ArrayList<>(catalogue.keyStores.values());
+    }
+
+    /***
+     * Add or replace a keystore
+     * @param keyStore - {@link KeyStore KeyStore} to replicate
+     */
+    public synchronized void putKeyStore(KeyStore keyStore) {
+        Catalogue current = catalogue;
+        KeyStore previous = current.keyStores.put(keyStore.getId(), keyStore);
+        if (previous != null && !previous.getName().equals(keyStore.getName())) {
+            current.nameIndex.remove(previous.getName(), previous.getId());
+        }
+        current.nameIndex.put(keyStore.getName(), keyStore.getId());
+    }
+
+    /***
+     * Remove a keystore along with its keys
+     * @param keyStoreId - ID of the keystore to remove
+     */
+    public synchronized void removeKeyStore(Long keyStoreId) {
+        Catalogue current = catalogue;
+        KeyStore removed = current.keyStores.remove(keyStoreId);
+        if (removed != null) {
+            current.nameIndex.remove(removed.getName(), keyStoreId);
+        }
+        current.keys.remove(keyStoreId);
+    }
+
+    /***
+     * Add or replace a public key
+     * @param keyStoreId - ID of the keystore the key belongs to
+     * @param scytalePublicKey - {@link ScytalePublicKey ScytalePublicKey} to replicate
+     */
+    public void putKey(Long keyStoreId, ScytalePublicKey scytalePublicKey) {
+        catalogue.keys.computeIfAbsent(keyStoreId, id -> new ConcurrentSkipListMap<>()).put(scytalePublicKey.getId(), scytalePublicKey);
+    }
+
+    /***
+     * Remove a public key
+     * @param keyStoreId - ID of the keystore the key belongs to
+     * @param keyId - ID of the key to remove
+     */
+    public void removeKey(Long keyStoreId, Long keyId) {
+        Optional.ofNullable(catalogue.keys.get(keyStoreId)).ifPresent(keyStoreKeys -> keyStoreKeys.remove(keyId));
+    }
+
+    /***
+     * Remove all replicated data, so that the next sync fetches the complete catalogue
+     */
+    public synchronized void clear() {
+        catalogue = new Catalogue();
+        cursor = null;
+    }
+
+    /***
+     * Replace all replicated data and the cursor with those of another replica in one step, so readers see either the
+     * old or the new catalogue and never a partial one. The other replica should not be used afterwards.
+     * @param replacement - {@link KeyStoreReplica KeyStoreReplica} holding a complete catalogue
+     */
+    public synchronized void replaceWith(KeyStoreReplica replacement) {
+        catalogue = replacement.catalogue;
+        cursor = replacement.cursor;
+    }
+
+    /***
+     * @return Cursor of the last delta applied, null if never synced
+     */
+    public String getCursor() {
+        return cursor;
+    }
+
+    /***
+     * Record that all changes up to a cursor have been applied
+     * @param cursor - Cursor returned by the API with the last delta
+     */
+    public void setCursor(String cursor) {
+        this.cursor = cursor;
+    }
+
+    /***
+     * @return true once a complete catalogue has been applied and reads may be served from the replica
+     */
+    public boolean isSynced() {
+        return cursor != null;
+    }
+
+    private static class Catalogue {
+        private final Map<Long, KeyStore> keyStores = new ConcurrentHashMap<>();
+        private final Map<String, Long> nameIndex = new ConcurrentHashMap<>();
+        private final Map<Long, Map<Long, ScytalePublicKey>> keys = new ConcurrentHashMap<>();
+    }
+}
@@ -0,0 +1,115 @@
+package com.openmoments.scytale.cache;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/***
+ * Bounded, thread safe cache evicting the least recently used entry once full. Entries expire a fixed
+ * {@link Duration Duration} after they were written.
+ * @param <K> Type of the cache key
+ * @param <V> Type of the cached value
+ */
+public class LruCache<K, V> {
+    private final int maximumSize;
+    private final Duration expireAfterWrite;
+    private final Clock clock;
+    private final LinkedHashMap<K, Timed<V>> entries;
+
+    /***
+     * Create a cache
+     * @param maximumSize - Maximum number of entries held before the least recently used is evicted
+     * @param expireAfterWrite - {@link Duration Duration} an entry remains valid after being written
+     * @throws IllegalArgumentException - if the size is not positive or the expiry is negative
+     */
+    public LruCache(int maximumSize, Duration expireAfterWrite) {
+        this(maximumSize, expireAfterWrite, Clock.systemUTC());
+    }
+
+    LruCache(int maximumSize, Duration expireAfterWrite, Clock clock) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive integer");
+        }
+        if (expireAfterWrite == null || expireAfterWrite.isNegative()) {
+            throw new IllegalArgumentException("Cache expiry cannot be negative");
+        }
+
+        this.maximumSize = maximumSize;
+        this.expireAfterWrite = expireAfterWrite;
+        this.clock = clock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Timed<V>> eldest) {
+                return size() > LruCache.this.maximumSize;
+            }
+        };
+    }
+
+    /***
+     * Retrieve a value which has not yet expired
+     * @param key - Key to look up
+     * @return {@link Optional Optional} containing the value, empty if absent or expired
+     */
+    public synchronized Optional<V> get(K key) {
+        Timed<V> entry = entries.get(key);
+        if (entry == null) {
+            return Optional.empty();
+        }
+
+        if (entry.isExpired(clock.instant())) {
+            entries.remove(key);
+            return Optional.empty();
+        }
+
+        return Optional.of(entry.value);
+    }
+
+    /***
+     * Store a value, replacing and resetting the expiry of any existing entry
+     * @param key - Key to store against
+     * @param value - Value to store
+     */
+    public synchronized void put(K key, V value) {
+        entries.put(key, new Timed<>(value, clock.instant().plus(expireAfterWrite)));
+    }
+
+    /***
+     * Remove a single entry
+     * @param key - Key to remove
+     */
+    public synchronized void invalidate(K key) {
+        entries.remove(key);
+    }
+
+    /***
+     * Remove all entries
+     */
+    public synchronized void invalidateAll() {
+        entries.clear();
+    }
+
+    /***
+     * Number of entries currently held, which may include entries that have expired but not yet been removed
+     * @return Entry count
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private static final class Timed<V> {
+        private final V value;
+        private final Instant expiresAt;
+
+        private Timed(V value, Instant expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isExpired(Instant now) {
+            return !now.isBefore(expiresAt);
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package com.openmoments.scytale.cache;
+
+import com.openmoments.scytale.entities.ScytalePublicKey;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/***
+ * Per keystore cache of decoded {@link ScytalePublicKey ScytalePublicKey} lists.
+ * <p>
+ * Entries are served without contacting the API until they expire, after which they are revalidated using the
+ * entity tag they were returned with. Entries older than the refresh period are served while being revalidated in
+ * the background, so frequently read keystores never block on the API.
+ * <p>
+ * When backed by a {@link PublicKeyCacheFile PublicKeyCacheFile} keys are also written to disk. Keys read back from
+ * disk by a new JVM are served immediately and revalidated in the background.
+ */
+public class PublicKeyCache {
+    private static final Logger LOG = Logger.getLogger(PublicKeyCache.class.getName());
+    private static final int DEFAULT_MAXIMUM_SIZE = 1000;
+    private static final Duration DEFAULT_EXPIRY = Duration.ofMinutes(1);
+    private static final Duration DEFAULT_REFRESH = Duration.ofSeconds(45);
+    private static final Duration DEFAULT_RETENTION = Duration.ofHours(1);
+
+    private int maximumSize = DEFAULT_MAXIMUM_SIZE;
+    private Duration expireAfterWrite = DEFAULT_EXPIRY;
+    private Duration refreshAfterWrite = DEFAULT_REFRESH;
+    private Duration retainAfterWrite = DEFAULT_RETENTION;
+    private Executor refreshExecutor = ForkJoinPool.commonPool();
+    private PublicKeyCacheFile cacheFile;
+    private final Clock clock;
+    private final Set<Long> refreshing = ConcurrentHashMap.newKeySet();
+
+    private volatile LruCache<Long, CachedKeys> entries;
+
+    public PublicKeyCache() {
+        this(Clock.systemUTC());
+    }
+
+    PublicKeyCache(Clock clock) {
+        this.clock = clock;
+        build();
+    }
+
+    /***
+     * Specify the maximum number of keystores to hold keys for, defaults to 1000. Clears any cached entries.
+     * @param maximumSize - Maximum number of keystores
+     * @return Instance of PublicKeyCache
+     */
+    public PublicKeyCache maximumSize(int maximumSize) {
+        this.maximumSize = maximumSize;
+        build();
+        return this;
+    }
+
+    /***
+     * Specify how long keys are served before they must be revalidated, defaults to 1 minute
+     * @param expireAfterWrite - {@link Duration Duration} keys are served without revalidation
+     * @return Instance of PublicKeyCache
+     */
+    public PublicKeyCache expireAfterWrite(Duration expireAfterWrite) {
+        this.expireAfterWrite = expireAfterWrite;
+        return this;
+    }
+
+    /***
+     * Specify how old keys can be before a read triggers background revalidation, defaults to 45 seconds.
+     * Should be less than the expiry to refresh ahead of it.
+     * @param refreshAfterWrite - {@link Duration Duration} after which keys are refreshed in the background
+     * @return Instance of PublicKeyCache
+     */
+    public PublicKeyCache refreshAfterWrite(Duration refreshAfterWrite) {
+        this.refreshAfterWrite = refreshAfterWrite;
+        return this;
+    }
+
+    /***
+     * Specify how long expired keys and their entity tag are retained for revalidation, defaults to 1 hour.
+     * Clears any cached entries.
+     * @param retainAfterWrite - {@link Duration Duration} expired entries are retained
+     * @return Instance of PublicKeyCache
+     */
+    public PublicKeyCache retainAfterWrite(Duration retainAfterWrite) {
+        this.retainAfterWrite = retainAfterWrite;
+        build();
+        return this;
+    }
+
+    /***
+     * Specify the {@link Executor Executor} background refreshes run on, defaults to the common fork join pool
+     * @param refreshExecutor - {@link Executor Executor} to refresh on
+     * @return Instance of PublicKeyCache
+     */
+    public PublicKeyCache refreshExecutor(Executor refreshExecutor) {
+        this.refreshExecutor = refreshExecutor;
+        return this;
+    }
+
+    /***
+     * Persist keys to a {@link PublicKeyCacheFile PublicKeyCacheFile}, reading from it when keys are not in memory
+     * @param cacheFile - {@link PublicKeyCacheFile PublicKeyCacheFile} to persist to, null to disable persistence
+     * @return Instance of PublicKeyCache
+     */
+    public PublicKeyCache persistTo(PublicKeyCacheFile cacheFile) {
+        this.cacheFile = cacheFile;
+        return this;
+    }
+
+    public Executor getRefreshExecutor() {
+        return refreshExecutor;
+    }
+
+    /***
+     * Retrieve the cached keys of a keystore, which may have expired
+     * @param keyStoreId - ID of the keystore
+     * @return {@link Optional Optional} containing {@link CachedKeys CachedKeys}, empty when not cached
+     */
+    public Optional<CachedKeys> get(Long keyStoreId) {
+        Optional<CachedKeys> cached = entries.get(keyStoreId);
+        if (cached.isPresent() || cacheFile == null) {
+            return cached;
+        }
+
+        return cacheFile.read(keyStoreId).map(stored -> {
+            CachedKeys loaded = new CachedKeys(stored.getKeys(), stored.getETag(), clock.instant().minus(refreshAfterWrite));
+            entries.put(keyStoreId, loaded);
+            return loaded;
+        });
+    }
+
+    /***
+     * Check if cached keys can be served without revalidation
+     * @param cachedKeys - {@link CachedKeys CachedKeys} to check
+     * @return true if the keys have not expired
+     */
+    public boolean isFresh(CachedKeys cachedKeys) {
+        return clock.instant().isBefore(cachedKeys.getValidatedAt().plus(expireAfterWrite));
+    }
+
+    /***
+     * Check if cached keys are old enough to be refreshed in the background
+     * @param cachedKeys - {@link CachedKeys CachedKeys} to check
+     * @return true if the keys should be refreshed
+     */
+    public boolean shouldRefresh(CachedKeys cachedKeys) {
+        return !clock.instant().isBefore(cachedKeys.getValidatedAt().plus(refreshAfterWrite));
+    }
+
+    /***
+     * Cache the keys of a keystore
+     * @param keyStoreId - ID of the keystore
+     * @param keys - {@link List List} of {@link ScytalePublicKey ScytalePublicKey} belonging to the keystore
+     * @param eTag - Entity tag returned with the keys, may be null
+     * @return {@link CachedKeys CachedKeys} stored
+     */
+    public CachedKeys put(Long keyStoreId, List<ScytalePublicKey> keys, String eTag) {
+        CachedKeys cachedKeys = new CachedKeys(keys, eTag, clock.instant());
+        entries.put(keyStoreId, cachedKeys);
+        persist(keyStoreId, cachedKeys);
+        return cachedKeys;
+    }
+
+    /***
+     * Mark cached keys as revalidated, used when the API reports them as not modified. Not written to disk as the
+     * stored keys and entity tag are unchanged.
+     * @param keyStoreId - ID of the keystore
+     * @return {@link Optional Optional} containing the revalidated {@link CachedKeys CachedKeys}
+     */
+    public synchronized Optional<CachedKeys> revalidated(Long keyStoreId) {
+        return entries.get(keyStoreId).map(cached -> {
+            CachedKeys renewed = new CachedKeys(cached.getKeys(), cached.getETag(), clock.instant());
+            entries.put(keyStoreId, renewed);
+            return renewed;
+        });
+    }
+
+    /***
+     * Add or replace a single key within the cached keys of a keystore. Has no effect if the keystore is not cached.
+     * The entity tag is dropped, as it no longer describes the cached keys, so the next revalidation fetches them.
+     * @param keyStoreId - ID of the keystore
+     * @param scytalePublicKey - {@link ScytalePublicKey ScytalePublicKey} to add or replace by ID
+     */
+    public synchronized void putKey(Long keyStoreId, ScytalePublicKey scytalePublicKey) {
+        entries.get(keyStoreId).ifPresent(cached -> {
+            List<ScytalePublicKey> keys = new ArrayList<>(cached.getKeys());
+            keys.removeIf(k -> k.getId().equals(scytalePublicKey.getId()));
+            keys.add(scytalePublicKey);
+            CachedKeys updated = new CachedKeys(keys, null, cached.getValidatedAt());
+            entries.put(keyStoreId, updated);
+            persist(keyStoreId, updated);
+        });
+    }
+
+    /***
+     * Claim the background refresh of a keystore so that only one refresh runs at a time
+     * @param keyStoreId - ID of the keystore
+     * @return true if the caller should perform the refresh
+     */
+    public boolean startRefresh(Long keyStoreId) {
+        return refreshing.add(keyStoreId);
+    }
+
+    /***
+     * Release a claim made with {@link #startRefresh(Long)}
+     * @param keyStoreId - ID of the keystore
+     */
+    public void finishRefresh(Long keyStoreId) {
+        refreshing.remove(keyStoreId);
+    }
+
+    /***
+     * Remove the cached keys of a keystore
+     * @param keyStoreId - ID of the keystore
+     */
+    public void invalidate(Long keyStoreId) {
+        entries.invalidate(keyStoreId);
+        if (cacheFile != null) {
+            try {
+                cacheFile.remove(keyStoreId);
+            } catch (IOException e) {
+                LOG.log(Level.WARNING, "Failed to remove keys of keystore " + keyStoreId + " from cache file", e);
+            }
+        }
+    }
+
+    /***
+     * Remove all cached keys, including those persisted to any cache file
+     */
+    public void invalidateAll() {
+        entries.invalidateAll();
+        if (cacheFile != null) {
+            try {
+                cacheFile.clear();
+            } catch (IOException e) {
+                LOG.log(Level.WARNING, "Failed to clear cache file", e);
+            }
+        }
+    }
+
+    private void persist(Long keyStoreId, CachedKeys cachedKeys) {
+        if (cacheFile == null) {
+            return;
+        }
+
+        try {
+            cacheFile.write(keyStoreId, cachedKeys);
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "Failed to write keys of keystore " + keyStoreId + " to cache file", e);
+        }
+    }
+
+    private void build() {
+        entries = new LruCache<>(maximumSize, retainAfterWrite, clock);
+    }
+}
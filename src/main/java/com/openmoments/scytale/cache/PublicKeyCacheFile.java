@@ -0,0 +1,297 @@
+package com.openmoments.scytale.cache;
+
+import com.openmoments.scytale.encryption.CertificateEncoder;
+import com.openmoments.scytale.entities.ScytalePublicKey;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/***
+ * Memory mapped file of public keys keyed by keystore ID, allowing a new JVM to serve keys cached by a previous one.
+ * <p>
+ * The file is an append only log of records, each holding the encoded keys of a keystore along with the entity tag
+ * and time they were validated. Later records for a keystore replace earlier ones and the file is compacted once
+ * superseded records make up most of it. A record torn by a crash is discarded when the file is next opened.
+ * <p>
+ * The mapping is grown geometrically ahead of the records, so appending does not re-map the whole file. The file is
+ * extended to the size of the mapping while open and truncated to the end of the last record when closed.
+ */
+public class PublicKeyCacheFile implements Closeable {
+    private static final Logger LOG = Logger.getLogger(PublicKeyCacheFile.class.getName());
+    private static final int MAGIC = 0x5343594B;
+    private static final int FORMAT_VERSION = 2;
+    private static final int HEADER_LENGTH = Integer.BYTES * 2;
+    private static final int REMOVED = -1;
+    private static final long COMPACT_THRESHOLD = 1024L * 1024L;
+    private static final long INITIAL_MAPPING = 64L * 1024L;
+
+    private final Path path;
+    private final CertificateEncoder certificateEncoder = new CertificateEncoder();
+    private final Map<Long, Integer> offsets = new HashMap<>();
+    private final Map<Long, Integer> lengths = new HashMap<>();
+    private FileChannel channel;
+    private MappedByteBuffer mapped;
+    private long end;
+    private long liveBytes;
+
+    /***
+     * Open, or create, a public key cache file
+     * @param path - {@link Path Path} of the file
+     * @throws IOException - If the file cannot be read or written, or is not a public key cache file
+     */
+    public PublicKeyCacheFile(Path path) throws IOException {
+        this.path = path;
+        open();
+    }
+
+    /***
+     * Read the keys stored for a keystore
+     * @param keyStoreId - ID of the keystore
+     * @return {@link Optional Optional} containing {@link CachedKeys CachedKeys}, empty if none are stored
+     */
+    public synchronized Optional<CachedKeys> read(Long keyStoreId) {
+        Integer offset = offsets.get(keyStoreId);
+        if (offset == null) {
+            return Optional.empty();
+        }
+
+        ByteBuffer record = mapped.duplicate();
+        record.position(offset + Integer.BYTES + Long.BYTES);
+
+        long validatedAt = record.getLong();
+        String eTag = readString(record);
+        int keyCount = record.getInt();
+
+        List<ScytalePublicKey> keys = new ArrayList<>(keyCount);
+        for (int k = 0; k < keyCount; k++) {
+            long id = record.getLong();
+            byte[] encoded = new byte[record.getInt()];
+            record.get(encoded);
+            keys.add(new ScytalePublicKey(id, new String(encoded, StandardCharsets.US_ASCII)));
+        }
+
+        return Optional.of(new CachedKeys(keys, eTag, Instant.ofEpochMilli(validatedAt)));
+    }
+
+    /***
+     * Store the keys of a keystore, replacing any previously stored
+     * @param keyStoreId - ID of the keystore
+     * @param cachedKeys - {@link CachedKeys CachedKeys} to store
+     * @throws IOException - If the file cannot be written
+     */
+    public synchronized void write(Long keyStoreId, CachedKeys cachedKeys) throws IOException {
+        int size = Integer.BYTES + Long.BYTES + Long.BYTES + stringLength(cachedKeys.getETag()) + Integer.BYTES;
+        List<byte[]> encodedKeys = new ArrayList<>(cachedKeys.getKeys().size());
+        for (ScytalePublicKey scytalePublicKey : cachedKeys.getKeys()) {
+            byte[] encoded = certificateEncoder.base64EncodePublicKey(scytalePublicKey.getPublicKey()).getBytes(StandardCharsets.US_ASCII);
+            encodedKeys.add(encoded);
+            size += Long.BYTES + Integer.BYTES + encoded.length;
+        }
+
+        ByteBuffer record = ByteBuffer.allocate(size);
+        record.putInt(size).putLong(keyStoreId).putLong(cachedKeys.getValidatedAt().toEpochMilli());
+        writeString(record, cachedKeys.getETag());
+        record.putInt(encodedKeys.size());
+        for (int k = 0; k < encodedKeys.size(); k++) {
+            record.putLong(cachedKeys.getKeys().get(k).getId());
+            record.putInt(encodedKeys.get(k).length);
+            record.put(encodedKeys.get(k));
+        }
+
+        append(keyStoreId, record.flip(), true);
+    }
+
+    /***
+     * Remove the keys stored for a keystore
+     * @param keyStoreId - ID of the keystore
+     * @throws IOException - If the file cannot be written
+     */
+    public synchronized void remove(Long keyStoreId) throws IOException {
+        if (!offsets.containsKey(keyStoreId)) {
+            return;
+        }
+
+        int size = Integer.BYTES + Long.BYTES + Long.BYTES + stringLength(null) + Integer.BYTES;
+        ByteBuffer record = ByteBuffer.allocate(size);
+        record.putInt(size).putLong(keyStoreId).putLong(0L);
+        writeString(record, null);
+        record.putInt(REMOVED);
+
+        append(keyStoreId, record.flip(), false);
+    }
+
+    /***
+     * Remove the keys stored for every keystore
+     * @throws IOException - If the file cannot be truncated
+     */
+    public synchronized void clear() throws IOException {
+        channel.truncate(HEADER_LENGTH);
+        offsets.clear();
+        lengths.clear();
+        liveBytes = HEADER_LENGTH;
+        end = HEADER_LENGTH;
+        map(INITIAL_MAPPING);
+    }
+
+    /***
+     * IDs of all keystores with stored keys
+     * @return {@link Set Set} of keystore IDs
+     */
+    public synchronized Set<Long> keyStoreIds() {
+        return Set.copyOf(offsets.keySet());
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.truncate(end);
+        channel.close();
+    }
+
+    private void append(Long keyStoreId, ByteBuffer record, boolean live) throws IOException {
+        long offset = end;
+        int length = record.remaining();
+        channel.write(record, offset);
+        end += length;
+
+        index(keyStoreId, (int) offset, length, live);
+        if (end > mapped.capacity()) {
+            map(Math.max(end, mapped.capacity() * 2L));
+        }
+
+        if (end > COMPACT_THRESHOLD && end > liveBytes * 2) {
+            compact();
+        }
+    }
+
+    /***
+     * Map the file, extending it with zeros up to the size of the mapping
+     */
+    private void map(long size) throws IOException {
+        mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+    }
+
+    private void index(Long keyStoreId, int offset, int length, boolean live) {
+        Integer previous = lengths.remove(keyStoreId);
+        offsets.remove(keyStoreId);
+        if (previous != null) {
+            liveBytes -= previous;
+        }
+
+        if (live) {
+            offsets.put(keyStoreId, offset);
+            lengths.put(keyStoreId, length);
+            liveBytes += length;
+        }
+    }
+
+    private void open() throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        if (channel.size() < HEADER_LENGTH) {
+            channel.truncate(0);
+            channel.write(ByteBuffer.allocate(HEADER_LENGTH).putInt(MAGIC).putInt(FORMAT_VERSION).flip(), 0);
+        }
+
+        mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        if (mapped.getInt(0) != MAGIC) {
+            channel.close();
+            throw new IOException("File " + path + " is not a public key cache");
+        }
+        if (mapped.getInt(Integer.BYTES) != FORMAT_VERSION) {
+            LOG.log(Level.INFO, "Discarding public key cache {0} written in an older format", path);
+            channel.truncate(HEADER_LENGTH);
+            channel.write(ByteBuffer.allocate(Integer.BYTES).putInt(FORMAT_VERSION).flip(), Integer.BYTES);
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        offsets.clear();
+        lengths.clear();
+        liveBytes = HEADER_LENGTH;
+
+        int offset = HEADER_LENGTH;
+        while (offset + Integer.BYTES <= mapped.limit()) {
+            int length = mapped.getInt(offset);
+            if (length <= 0 || offset + (long) length > mapped.limit()) {
+                break;
+            }
+
+            ByteBuffer record = mapped.duplicate();
+            record.position(offset + Integer.BYTES);
+            long keyStoreId = record.getLong();
+            record.getLong();
+            int eTagLength = record.getInt();
+            record.position(record.position() + Math.max(eTagLength, 0));
+
+            index(keyStoreId, offset, length, record.getInt() != REMOVED);
+            offset += length;
+        }
+
+        // A zero length is the padding of a mapping which was not truncated on close
+        if (offset + Integer.BYTES <= mapped.limit() && mapped.getInt(offset) != 0) {
+            LOG.log(Level.WARNING, "Discarding incomplete record at the end of {0}", path);
+        }
+        end = offset;
+        channel.truncate(end);
+        map(Math.max(end, INITIAL_MAPPING));
+    }
+
+    private void compact() throws IOException {
+        Path compacted = path.resolveSibling(path.getFileName() + ".compact");
+
+        try (FileChannel target = FileChannel.open(compacted, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            target.write(ByteBuffer.allocate(HEADER_LENGTH).putInt(MAGIC).putInt(FORMAT_VERSION).flip());
+            for (Map.Entry<Long, Integer> entry : offsets.entrySet()) {
+                ByteBuffer record = mapped.duplicate();
+                record.position(entry.getValue()).limit(entry.getValue() + lengths.get(entry.getKey()));
+                target.write(record);
+            }
+        }
+
+        channel.close();
+        Files.move(compacted, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        open();
+    }
+
+    private static int stringLength(String value) {
+        return Integer.BYTES + (value == null ? 0 : value.getBytes(StandardCharsets.UTF_8).length);
+    }
+
+    private static void writeString(ByteBuffer buffer, String value) {
+        if (value == null) {
+            buffer.putInt(REMOVED);
+            return;
+        }
+
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length == REMOVED) {
+            return null;
+        }
+
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
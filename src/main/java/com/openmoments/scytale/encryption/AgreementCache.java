@@ -0,0 +1,98 @@
+package com.openmoments.scytale.encryption;
+
+import org.bouncycastle.crypto.BasicAgreement;
+import org.bouncycastle.crypto.CipherParameters;
+import org.bouncycastle.crypto.agreement.ECDHBasicAgreement;
+
+import java.math.BigInteger;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/***
+ * Bounded cache of ECDH and X25519 agreement values by the fingerprints of the private and public key, so repeat
+ * encryption and decryption between the same pair of keys skips the point multiplication. The least recently used
+ * agreement is evicted once the cache is full. Agreement values are secrets equivalent to the key pair, entries for a
+ * key should be purged when it is rotated.
+ */
+final class AgreementCache {
+    private static final char SEPARATOR = '.';
+
+    private final Map<String, BigInteger> agreements;
+
+    /***
+     * @param maximumSize - Maximum number of key pairs to hold agreements for
+     */
+    AgreementCache(int maximumSize) {
+        this.agreements = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, BigInteger> eldest) {
+                return size() > maximumSize;
+            }
+        };
+    }
+
+    /***
+     * An ECDH agreement which is only calculated if not already held for the pair of keys
+     * @param privateFingerprint - {@link KeyFingerprint KeyFingerprint} of the private key
+     * @param publicFingerprint - {@link KeyFingerprint KeyFingerprint} of the public key
+     * @return {@link BasicAgreement BasicAgreement}
+     */
+    BasicAgreement agreement(String privateFingerprint, String publicFingerprint) {
+        return agreement(privateFingerprint, publicFingerprint, new ECDHBasicAgreement());
+    }
+
+    /***
+     * An agreement which is only calculated if not already held for the pair of keys
+     * @param privateFingerprint - {@link KeyFingerprint KeyFingerprint} of the private key
+     * @param publicFingerprint - {@link KeyFingerprint KeyFingerprint} of the public key
+     * @param calculation - {@link BasicAgreement BasicAgreement} to calculate the agreement when not held
+     * @return {@link BasicAgreement BasicAgreement}
+     */
+    BasicAgreement agreement(String privateFingerprint, String publicFingerprint, BasicAgreement calculation) {
+        String pair = privateFingerprint + SEPARATOR + publicFingerprint;
+
+        return new BasicAgreement() {
+            @Override
+            public void init(CipherParameters privateKey) {
+                calculation.init(privateKey);
+            }
+
+            @Override
+            public BigInteger calculateAgreement(CipherParameters publicKey) {
+                BigInteger agreement = get(pair);
+                if (agreement == null) {
+                    agreement = calculation.calculateAgreement(publicKey);
+                    put(pair, agreement);
+                }
+                return agreement;
+            }
+        };
+    }
+
+    /***
+     * Remove every agreement made with a key
+     * @param fingerprint - {@link KeyFingerprint KeyFingerprint} of the private or public key
+     */
+    synchronized void purge(String fingerprint) {
+        Iterator<String> pairs = agreements.keySet().iterator();
+        while (pairs.hasNext()) {
+            String pair = pairs.next();
+            if (pair.startsWith(fingerprint + SEPARATOR) || pair.endsWith(SEPARATOR + fingerprint)) {
+                pairs.remove();
+            }
+        }
+    }
+
+    synchronized int size() {
+        return agreements.size();
+    }
+
+    private synchronized BigInteger get(String pair) {
+        return agreements.get(pair);
+    }
+
+    private synchronized void put(String pair, BigInteger agreement) {
+        agreements.put(pair, agreement);
+    }
+}
@@ -1,5 +1,9 @@
 package com.openmoments.scytale.encryption;
 
+import org.bouncycastle.asn1.ASN1Object;
+import org.bouncycastle.asn1.x509.SubjectPublicKeyInfo;
+
+import java.io.IOException;
 import java.security.*;
 import java.security.spec.InvalidKeySpecException;
 import java.security.spec.PKCS8EncodedKeySpec;
@@ -7,6 +11,7 @@ import java.security.spec.X509EncodedKeySpec;
 import java.util.Base64;
 import java.util.EnumMap;
 import java.util.Map;
+import java.util.Optional;
 
 public final class CertificateEncoder {
 
@@ -15,9 +20,14 @@ public final class CertificateEncoder {
     protected static final String RSA_PUBLIC_HEADER = "-----BEGIN RSA PUBLIC KEY-----";
     protected static final String RSA_PUBLIC_FOOTER = "-----END RSA PUBLIC KEY-----";
 
+    private static final Map<String, CertificateType> PUBLIC_KEY_ALGORITHMS = Map.of(
+            "1.2.840.113549.1.1.1", CertificateType.RSA,
+            "1.2.840.10045.2.1", CertificateType.ECC,
+            "1.3.101.110", CertificateType.X25519);
     private static final int RSA_LINE_LENGTH = 67;
     private static final String RSA_LINE_REGEX = "(.{"+RSA_LINE_LENGTH+"})";
     private final Base64.Encoder base64Encoder = Base64.getEncoder();
+    private final CryptoContext context = CryptoContext.get();
 
     public enum KeyType {
         PRIVATE,
@@ -52,6 +62,32 @@ public final class CertificateEncoder {
                 .replace(RSA_PRIVATE_HEADER, "").replace(RSA_PRIVATE_FOOTER, "");
     }
 
+    /***
+     * Remove any RSA header, footer and line breaks from a Base64 encoded public key
+     * @param key {@link String String} Base64 encoded public key
+     * @return {@link String String} Base64 encoded public key without header, footer or line breaks
+     */
+    public String trimPublicKey(String key) {
+        return stripHeaderFooter(key).replaceAll("\\s", "");
+    }
+
+    /***
+     * Identify the type of a Base64 encoded public key from the algorithm named by its X.509 encoding, without
+     * building the key
+     * @param encoded {@link String String} Base64 encoded public key
+     * @return {@link CertificateType CertificateType} of the key, empty if the algorithm is not supported
+     * @throws IllegalArgumentException - if the key is not valid Base64 or not X.509 encoded
+     */
+    public Optional<CertificateType> publicKeyType(String encoded) {
+        byte[] der = Base64.getDecoder().decode(trimPublicKey(encoded));
+        try {
+            String algorithm = SubjectPublicKeyInfo.getInstance(ASN1Object.fromByteArray(der)).getAlgorithmId().getAlgorithm().getId();
+            return Optional.ofNullable(PUBLIC_KEY_ALGORITHMS.get(algorithm));
+        } catch (IOException | RuntimeException e) {
+            throw new IllegalArgumentException("Public key is not X.509 encoded", e);
+        }
+    }
+
     /***
      * Encode a {@link PublicKey PublicKey} as {@link Base64 Base64}
      * @param publicKey {@link PublicKey PublicKey} to encode
@@ -60,7 +96,8 @@ public final class CertificateEncoder {
     public String base64EncodePublicKey(PublicKey publicKey) {
         if (publicKey.getAlgorithm().equalsIgnoreCase(RSACertificate.ALGORITHM)) {
             return base64EncodeRSAPublicKey(publicKey);
-        } else if (publicKey.getAlgorithm().equalsIgnoreCase(ECCCertificate.ALGORITHM)) {
+        } else if (publicKey.getAlgorithm().equalsIgnoreCase(ECCCertificate.ALGORITHM) ||
+                publicKey.getAlgorithm().equalsIgnoreCase(X25519Certificate.ALGORITHM)) {
             return base64EncodeECCPublicKey(publicKey);
         }
 
@@ -81,6 +118,8 @@ public final class CertificateEncoder {
                 return getRSAPublicKey(encoded);
             case ECC:
                 return getECCPublicKey(encoded);
+            case X25519:
+                return getX25519PublicKey(encoded);
             default:
                 throw new IllegalArgumentException("Certificate type " + certificateType + " not supported");
         }
@@ -94,7 +133,8 @@ public final class CertificateEncoder {
     public String base64EncodePrivateKey(PrivateKey privateKey) {
         if (privateKey.getAlgorithm().equalsIgnoreCase(RSACertificate.ALGORITHM)) {
             return base64EncodeRSAPrivate(privateKey);
-        } else if (privateKey.getAlgorithm().equalsIgnoreCase(ECCCertificate.ALGORITHM)) {
+        } else if (privateKey.getAlgorithm().equalsIgnoreCase(ECCCertificate.ALGORITHM) ||
+                privateKey.getAlgorithm().equalsIgnoreCase(X25519Certificate.ALGORITHM)) {
             return base64EncodeECCPrivate(privateKey);
         }
 
@@ -117,6 +157,8 @@ public final class CertificateEncoder {
                 return getRSAPrivateKey(encoded);
             case ECC:
                 return getECCPrivateKey(encoded);
+            case X25519:
+                return getX25519PrivateKey(encoded);
             default:
                 throw new IllegalArgumentException("Certificate type " + certificateType + " not supported");
         }
@@ -159,30 +201,40 @@ public final class CertificateEncoder {
         key = key.replace("\n", "");
 
         PKCS8EncodedKeySpec keySpec = new PKCS8EncodedKeySpec(Base64.getDecoder().decode(key.getBytes()));
-        KeyFactory keyFactory = KeyFactory.getInstance(RSACertificate.ALGORITHM);
+        KeyFactory keyFactory = context.keyFactory(RSACertificate.ALGORITHM);
 
         return keyFactory.generatePrivate(keySpec);
     }
 
     private PrivateKey getECCPrivateKey(String key) throws NoSuchAlgorithmException, NoSuchProviderException, InvalidKeySpecException {
-        KeyFactory kf = KeyFactory.getInstance(ECCCertificate.ALGORITHM, Encryptor.PROVIDER);
+        KeyFactory kf = context.keyFactory(ECCCertificate.ALGORITHM, Encryptor.PROVIDER);
         byte[] bytes = Base64.getDecoder().decode(key);
         return kf.generatePrivate(new PKCS8EncodedKeySpec(bytes));
     }
 
+    private PrivateKey getX25519PrivateKey(String key) throws NoSuchAlgorithmException, InvalidKeySpecException {
+        KeyFactory keyFactory = context.keyFactory(X25519Certificate.ALGORITHM);
+        return keyFactory.generatePrivate(new PKCS8EncodedKeySpec(Base64.getDecoder().decode(key)));
+    }
+
     private PublicKey getRSAPublicKey(String key) throws NoSuchAlgorithmException, InvalidKeySpecException {
         key = stripHeaderFooter(key);
         key = key.replace("\n", "");
 
         X509EncodedKeySpec x509EncodedKeySpec = new X509EncodedKeySpec(Base64.getDecoder().decode(key.getBytes()));
-        KeyFactory keyFactory = KeyFactory.getInstance(RSACertificate.ALGORITHM);
+        KeyFactory keyFactory = context.keyFactory(RSACertificate.ALGORITHM);
 
         return keyFactory.generatePublic(x509EncodedKeySpec);
     }
 
     private PublicKey getECCPublicKey(String key) throws NoSuchProviderException, NoSuchAlgorithmException, InvalidKeySpecException {
-        KeyFactory keyFactory = KeyFactory.getInstance(ECCCertificate.ALGORITHM, Encryptor.PROVIDER);
+        KeyFactory keyFactory = context.keyFactory(ECCCertificate.ALGORITHM, Encryptor.PROVIDER);
         byte[] bytes = Base64.getDecoder().decode(key);
         return keyFactory.generatePublic(new X509EncodedKeySpec(bytes));
     }
+
+    private PublicKey getX25519PublicKey(String key) throws NoSuchAlgorithmException, InvalidKeySpecException {
+        KeyFactory keyFactory = context.keyFactory(X25519Certificate.ALGORITHM);
+        return keyFactory.generatePublic(new X509EncodedKeySpec(Base64.getDecoder().decode(key)));
+    }
 }
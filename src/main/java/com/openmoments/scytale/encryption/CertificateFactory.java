@@ -20,6 +20,9 @@ public final class CertificateFactory {
             case ECC:
                 certValue = "ECC";
                 break;
+            case X25519:
+                certValue = "X25519";
+                break;
             default:
                 throw new IllegalArgumentException("Certificate type not set, cannot generate certificate");
         }
@@ -6,7 +6,8 @@ import static java.util.Objects.requireNonNull;
 
 public enum CertificateType {
     RSA(RSACertificate::new),
-    ECC(ECCCertificate::new);
+    ECC(ECCCertificate::new),
+    X25519(X25519Certificate::new);
 
     public final Supplier<AsymmetricCertificate> factory;
     CertificateType(Supplier<AsymmetricCertificate> factory) {
@@ -0,0 +1,35 @@
+package com.openmoments.scytale.encryption;
+
+import javax.crypto.Cipher;
+import javax.crypto.NoSuchPaddingException;
+import java.security.NoSuchAlgorithmException;
+import java.security.NoSuchProviderException;
+
+/***
+ * Holds one {@link Cipher Cipher} of a transformation per thread, so the provider is only searched the first time a
+ * thread uses the transformation. A cipher must be initialised before each use and must not be used across a call
+ * which may take the same cipher on the same thread.
+ */
+final class CipherPool {
+    private final String transformation;
+    private final String provider;
+    private final ThreadLocal<Cipher> ciphers = new ThreadLocal<>();
+
+    /***
+     * @param transformation - Cipher transformation
+     * @param provider - Name of the security provider, null for the highest priority provider
+     */
+    CipherPool(String transformation, String provider) {
+        this.transformation = transformation;
+        this.provider = provider;
+    }
+
+    Cipher get() throws NoSuchAlgorithmException, NoSuchProviderException, NoSuchPaddingException {
+        Cipher cipher = ciphers.get();
+        if (cipher == null) {
+            cipher = provider == null ? Cipher.getInstance(transformation) : Cipher.getInstance(transformation, provider);
+            ciphers.set(cipher);
+        }
+        return cipher;
+    }
+}
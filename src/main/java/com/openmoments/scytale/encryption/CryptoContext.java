@@ -0,0 +1,173 @@
+package com.openmoments.scytale.encryption;
+
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+
+import javax.crypto.KeyAgreement;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.security.NoSuchProviderException;
+import java.security.SecureRandom;
+import java.security.Security;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/***
+ * Process wide cryptographic state shared by the {@link Encryptor Encryptor},
+ * {@link CertificateEncoder CertificateEncoder} and certificates. BouncyCastle is registered once, when the context is
+ * first used, rather than by every constructor. Key factories, key pair generators and key agreements are held per
+ * thread, as none are safe to share, so the providers are only searched the first time a thread uses an algorithm. Key
+ * generation draws from a random generator per thread, so threads generating keys at once do not contend on the
+ * platform's shared one.
+ */
+final class CryptoContext {
+    private static final Logger LOG = Logger.getLogger(CryptoContext.class.getName());
+    private static final CryptoContext INSTANCE = new CryptoContext();
+    private static final char SEPARATOR = '/';
+    private static final String RANDOM_ALGORITHM = "DRBG";
+
+    private final ThreadLocal<Map<String, KeyFactory>> keyFactories = ThreadLocal.withInitial(HashMap::new);
+    private final ThreadLocal<Map<String, KeyPairGenerator>> keyPairGenerators = ThreadLocal.withInitial(HashMap::new);
+    private final ThreadLocal<Map<String, KeyAgreement>> keyAgreements = ThreadLocal.withInitial(HashMap::new);
+    private final ThreadLocal<SecureRandom> secureRandoms = ThreadLocal.withInitial(CryptoContext::newSecureRandom);
+
+    private CryptoContext() {
+        if (Security.getProvider(Encryptor.PROVIDER) == null) {
+            Security.addProvider(new BouncyCastleProvider());
+        }
+        prewarm();
+    }
+
+    /***
+     * @return The shared {@link CryptoContext CryptoContext}
+     */
+    static CryptoContext get() {
+        return INSTANCE;
+    }
+
+    /***
+     * The calling thread's key factory for an algorithm from the highest priority provider
+     * @param algorithm - Key algorithm
+     * @return {@link KeyFactory KeyFactory}
+     * @throws NoSuchAlgorithmException - if no provider supports the algorithm
+     */
+    KeyFactory keyFactory(String algorithm) throws NoSuchAlgorithmException {
+        try {
+            return keyFactory(algorithm, null);
+        } catch (NoSuchProviderException e) {
+            throw new NoSuchAlgorithmException(algorithm, e);
+        }
+    }
+
+    /***
+     * The calling thread's key factory for an algorithm. It must not be used across a call which may take the same
+     * key factory on the same thread.
+     * @param algorithm - Key algorithm
+     * @param provider - Name of the security provider, null for the highest priority provider
+     * @return {@link KeyFactory KeyFactory}
+     * @throws NoSuchAlgorithmException - if no provider supports the algorithm
+     * @throws NoSuchProviderException - if the provider is not installed
+     */
+    KeyFactory keyFactory(String algorithm, String provider) throws NoSuchAlgorithmException, NoSuchProviderException {
+        Map<String, KeyFactory> factories = keyFactories.get();
+        String name = algorithm + SEPARATOR + provider;
+        KeyFactory keyFactory = factories.get(name);
+        if (keyFactory == null) {
+            keyFactory = provider == null ? KeyFactory.getInstance(algorithm) : KeyFactory.getInstance(algorithm, provider);
+            factories.put(name, keyFactory);
+        }
+        return keyFactory;
+    }
+
+    /***
+     * The calling thread's key pair generator for an algorithm from the highest priority provider
+     * @param algorithm - Key pair algorithm
+     * @return {@link KeyPairGenerator KeyPairGenerator}
+     * @throws NoSuchAlgorithmException - if no provider supports the algorithm
+     */
+    KeyPairGenerator keyPairGenerator(String algorithm) throws NoSuchAlgorithmException {
+        try {
+            return keyPairGenerator(algorithm, null);
+        } catch (NoSuchProviderException e) {
+            throw new NoSuchAlgorithmException(algorithm, e);
+        }
+    }
+
+    /***
+     * The calling thread's key pair generator for an algorithm. It is shared by every caller on the thread, so must be
+     * initialised before each use.
+     * @param algorithm - Key pair algorithm
+     * @param provider - Name of the security provider, null for the highest priority provider
+     * @return {@link KeyPairGenerator KeyPairGenerator}
+     * @throws NoSuchAlgorithmException - if no provider supports the algorithm
+     * @throws NoSuchProviderException - if the provider is not installed
+     */
+    KeyPairGenerator keyPairGenerator(String algorithm, String provider) throws NoSuchAlgorithmException, NoSuchProviderException {
+        Map<String, KeyPairGenerator> generators = keyPairGenerators.get();
+        String name = algorithm + SEPARATOR + provider;
+        KeyPairGenerator keyPairGenerator = generators.get(name);
+        if (keyPairGenerator == null) {
+            keyPairGenerator = provider == null ? KeyPairGenerator.getInstance(algorithm) : KeyPairGenerator.getInstance(algorithm, provider);
+            generators.put(name, keyPairGenerator);
+        }
+        return keyPairGenerator;
+    }
+
+    /***
+     * The calling thread's key agreement for an algorithm from the highest priority provider. It is shared by every
+     * caller on the thread, so must be initialised before each use and not used across a call which may take the same
+     * key agreement on the same thread.
+     * @param algorithm - Key agreement algorithm
+     * @return {@link KeyAgreement KeyAgreement}
+     * @throws NoSuchAlgorithmException - if no provider supports the algorithm
+     */
+    KeyAgreement keyAgreement(String algorithm) throws NoSuchAlgorithmException {
+        Map<String, KeyAgreement> agreements = keyAgreements.get();
+        KeyAgreement keyAgreement = agreements.get(algorithm);
+        if (keyAgreement == null) {
+            keyAgreement = KeyAgreement.getInstance(algorithm);
+            agreements.put(algorithm, keyAgreement);
+        }
+        return keyAgreement;
+    }
+
+    /***
+     * The calling thread's random generator, for initialising key pair generators and drawing keys and nonces
+     * @return {@link SecureRandom SecureRandom}
+     */
+    SecureRandom secureRandom() {
+        return secureRandoms.get();
+    }
+
+    /***
+     * A DRBG keeps its own state once seeded, unlike the default NativePRNG whose instances all read through one lock
+     */
+    private static SecureRandom newSecureRandom() {
+        try {
+            return SecureRandom.getInstance(RANDOM_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            return new SecureRandom();
+        }
+    }
+
+    /***
+     * Load the provider classes of every supported key type once for the process, so class loading and provider
+     * initialisation are not paid by the first decode or generation of each. The instances created are only kept by
+     * the loading thread, other threads still create their own on first use of each algorithm.
+     */
+    private void prewarm() {
+        try {
+            keyFactory(RSACertificate.ALGORITHM);
+            keyFactory(ECCCertificate.ALGORITHM, Encryptor.PROVIDER);
+            keyFactory(X25519Certificate.ALGORITHM);
+            keyPairGenerator(RSACertificate.ALGORITHM);
+            keyPairGenerator(X25519Certificate.CURVE);
+            keyAgreement(X25519Certificate.ALGORITHM);
+        } catch (GeneralSecurityException e) {
+            LOG.log(Level.FINE, "Not every key type is supported by the installed providers", e);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.openmoments.scytale.encryption;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+
+/***
+ * Decrypts a stream written by {@link EncryptingOutputStream EncryptingOutputStream} one segment at a time. No
+ * plaintext of a segment is returned until the segment has been authenticated, and reaching the end of the stream
+ * without a valid last segment fails rather than returning truncated data.
+ */
+class DecryptingInputStream extends FilterInputStream {
+    private static final int TAG_LENGTH = EncryptingOutputStream.TAG_LENGTH;
+
+    private final Cipher cipher;
+    private final SecretKey contentKey;
+    private final byte[] noncePrefix;
+    private final int segmentSize;
+    // One byte beyond a full segment is read to tell whether the segment is the last
+    private final byte[] sealed;
+    private final byte[] segment;
+    private int sealedCount;
+    private int position;
+    private int limit;
+    private int segmentNumber;
+    private boolean finished;
+
+    /***
+     * @param cipher - AES-GCM {@link Cipher Cipher} for the stream alone
+     */
+    DecryptingInputStream(InputStream in, Cipher cipher, SecretKey contentKey, byte[] noncePrefix, int segmentSize) {
+        super(in);
+        this.cipher = cipher;
+        this.contentKey = contentKey;
+        this.noncePrefix = noncePrefix.clone();
+        this.segmentSize = segmentSize;
+        this.sealed = new byte[segmentSize + TAG_LENGTH + 1];
+        this.segment = new byte[segmentSize];
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] single = new byte[1];
+        return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+
+        while (position == limit) {
+            if (finished) {
+                return -1;
+            }
+            open();
+        }
+
+        int copied = Math.min(len, limit - position);
+        System.arraycopy(segment, position, b, off, copied);
+        position += copied;
+        return copied;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = 0;
+        byte[] discard = new byte[(int) Math.min(segmentSize, Math.max(n, 1))];
+        while (skipped < n) {
+            int read = read(discard, 0, (int) Math.min(discard.length, n - skipped));
+            if (read == -1) {
+                break;
+            }
+            skipped += read;
+        }
+        return skipped;
+    }
+
+    @Override
+    public int available() {
+        return limit - position;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public void close() throws IOException {
+        Arrays.fill(segment, (byte) 0);
+        super.close();
+    }
+
+    private void open() throws IOException {
+        while (sealedCount < sealed.length) {
+            int read = in.read(sealed, sealedCount, sealed.length - sealedCount);
+            if (read == -1) {
+                break;
+            }
+            sealedCount += read;
+        }
+
+        boolean last = sealedCount < sealed.length;
+        int sealedLength = last ? sealedCount : sealed.length - 1;
+        if (sealedLength < TAG_LENGTH) {
+            throw new IOException("Encrypted stream truncated");
+        }
+
+        try {
+            cipher.init(Cipher.DECRYPT_MODE, contentKey, new GCMParameterSpec(TAG_LENGTH * Byte.SIZE, EncryptingOutputStream.nonce(noncePrefix, segmentNumber++, last)));
+            limit = cipher.doFinal(sealed, 0, sealedLength, segment, 0);
+            position = 0;
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Failed to authenticate segment " + (segmentNumber - 1), e);
+        }
+
+        if (last) {
+            finished = true;
+            sealedCount = 0;
+        } else {
+            sealed[0] = sealed[sealed.length - 1];
+            sealedCount = 1;
+        }
+    }
+}
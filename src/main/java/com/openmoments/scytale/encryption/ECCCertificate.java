@@ -1,7 +1,5 @@
 package com.openmoments.scytale.encryption;
 
-import org.bouncycastle.jce.provider.BouncyCastleProvider;
-
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -14,10 +12,11 @@ public final class ECCCertificate implements AsymmetricCertificate {
     private static final int DEFAULT_KEY_SIZE = -1;
     private static final String PROVIDER = "BC";
     private int keySize = DEFAULT_KEY_SIZE;
+    private ProviderSelector providers = new ProviderSelector();
 
-    ECCCertificate() {
-        Security.addProvider(new BouncyCastleProvider());
-    }
+    private final CryptoContext context = CryptoContext.get();
+
+    ECCCertificate() {}
 
     /***
      * Generate a EC KeyPair
@@ -28,10 +27,36 @@ public final class ECCCertificate implements AsymmetricCertificate {
      */
     @Override
     public KeyPair generateKeyPair() throws NoSuchAlgorithmException, NoSuchProviderException, InvalidAlgorithmParameterException {
-        KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance(ALGORITHM, PROVIDER);
-        keyPairGenerator.initialize(new ECGenParameterSpec(EC_GEN_PARAMETER_SPEC));
+        KeyPairGenerator keyPairGenerator = providers.keyPairGenerator(ProviderSelector.Primitive.EC_KEY_PAIR);
+        keyPairGenerator.initialize(new ECGenParameterSpec(EC_GEN_PARAMETER_SPEC), context.secureRandom());
 
-        return keyPairGenerator.generateKeyPair();
+        KeyPair keyPair = keyPairGenerator.generateKeyPair();
+        if (PROVIDER.equals(keyPairGenerator.getProvider().getName())) {
+            return keyPair;
+        }
+
+        // BouncyCastle's ECIES only accepts its own key classes
+        KeyFactory keyFactory = context.keyFactory(ALGORITHM, PROVIDER);
+        try {
+            return new KeyPair(keyFactory.generatePublic(new X509EncodedKeySpec(keyPair.getPublic().getEncoded())),
+                    keyFactory.generatePrivate(new PKCS8EncodedKeySpec(keyPair.getPrivate().getEncoded())));
+        } catch (InvalidKeySpecException invalidKeySpecException) {
+            throw new InvalidAlgorithmParameterException("Generated key is not usable with " + PROVIDER, invalidKeySpecException);
+        }
+    }
+
+    /***
+     * Generate key pairs with the provider chosen by a {@link ProviderSelector ProviderSelector}, defaults to
+     * BouncyCastle. Keys from another provider are converted to BouncyCastle keys, which ECIES requires.
+     * @param providers - {@link ProviderSelector ProviderSelector} to take the provider from
+     * @return Instance of ECCCertificate
+     */
+    public ECCCertificate providers(ProviderSelector providers) {
+        if (providers == null) {
+            throw new IllegalArgumentException("Provider selector is required");
+        }
+        this.providers = providers;
+        return this;
     }
 
     @Override
@@ -74,9 +99,9 @@ public final class ECCCertificate implements AsymmetricCertificate {
 
         KeyFactory keyFactory;
         try {
-            keyFactory = KeyFactory.getInstance(ALGORITHM, PROVIDER);
+            keyFactory = context.keyFactory(ALGORITHM, PROVIDER);
         } catch (NoSuchProviderException e) {
-            keyFactory = KeyFactory.getInstance(ALGORITHM);
+            keyFactory = context.keyFactory(ALGORITHM);
         }
 
         PKCS8EncodedKeySpec keySpec = new PKCS8EncodedKeySpec(privateKeyBytes);
@@ -0,0 +1,110 @@
+package com.openmoments.scytale.encryption;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+
+/***
+ * Encrypts a stream as a sequence of AES-GCM segments so neither side needs more memory than one segment. Each segment
+ * is authenticated on its own with a nonce made of a per-stream prefix, the segment number and whether it is the last
+ * segment, so segments cannot be reordered, dropped or the stream truncated without decryption failing. The last
+ * segment is always written on {@link #finish() finish}, even when empty.
+ */
+class EncryptingOutputStream extends FilterOutputStream {
+    static final int TAG_LENGTH = 16;
+    static final int NONCE_PREFIX_LENGTH = 7;
+    private static final int NONCE_LENGTH = 12;
+
+    private final Cipher cipher;
+    private final SecretKey contentKey;
+    private final byte[] noncePrefix;
+    private final byte[] segment;
+    private final byte[] sealed;
+    private int count;
+    private int segmentNumber;
+    private boolean finished;
+
+    /***
+     * @param cipher - AES-GCM {@link Cipher Cipher} for the stream alone
+     */
+    EncryptingOutputStream(OutputStream out, Cipher cipher, SecretKey contentKey, byte[] noncePrefix, int segmentSize) {
+        super(out);
+        this.cipher = cipher;
+        this.contentKey = contentKey;
+        this.noncePrefix = noncePrefix.clone();
+        this.segment = new byte[segmentSize];
+        this.sealed = new byte[segmentSize + TAG_LENGTH];
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (finished) {
+            throw new IOException("Stream already finished");
+        }
+
+        while (len > 0) {
+            // A full segment is only sealed once more data arrives, as it may turn out to be the last
+            if (count == segment.length) {
+                seal(false);
+            }
+            int copied = Math.min(len, segment.length - count);
+            System.arraycopy(b, off, segment, count, copied);
+            count += copied;
+            off += copied;
+            len -= copied;
+        }
+    }
+
+    /***
+     * Seal the last segment without closing the underlying stream
+     * @throws IOException - If the segment cannot be encrypted or written
+     */
+    void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+        seal(true);
+        finished = true;
+        Arrays.fill(segment, (byte) 0);
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            finish();
+        } finally {
+            out.close();
+        }
+    }
+
+    private void seal(boolean last) throws IOException {
+        try {
+            cipher.init(Cipher.ENCRYPT_MODE, contentKey, new GCMParameterSpec(TAG_LENGTH * Byte.SIZE, nonce(noncePrefix, segmentNumber++, last)));
+            int sealedLength = cipher.doFinal(segment, 0, count, sealed, 0);
+            out.write(sealed, 0, sealedLength);
+            count = 0;
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Failed to encrypt segment " + segmentNumber, e);
+        }
+    }
+
+    static byte[] nonce(byte[] noncePrefix, int segmentNumber, boolean last) {
+        return ByteBuffer.allocate(NONCE_LENGTH)
+                .put(noncePrefix)
+                .putInt(segmentNumber)
+                .put(last ? (byte) 1 : (byte) 0)
+                .array();
+    }
+}
@@ -1,35 +1,203 @@
 package com.openmoments.scytale.encryption;
 
+import com.openmoments.scytale.entities.BatchResult;
+import com.openmoments.scytale.entities.Envelope;
 import com.openmoments.scytale.entities.ScytalePublicKey;
-import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.bouncycastle.crypto.BasicAgreement;
+import org.bouncycastle.crypto.CipherParameters;
+import org.bouncycastle.crypto.InvalidCipherTextException;
+import org.bouncycastle.crypto.digests.SHA1Digest;
+import org.bouncycastle.crypto.engines.IESEngine;
+import org.bouncycastle.crypto.generators.KDF2BytesGenerator;
+import org.bouncycastle.crypto.macs.HMac;
+import org.bouncycastle.crypto.params.IESParameters;
+import org.bouncycastle.jce.provider.asymmetric.ec.ECUtil;
 import org.bouncycastle.jce.spec.IEKeySpec;
 import org.bouncycastle.jce.spec.IESParameterSpec;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
 
 import javax.crypto.BadPaddingException;
 import javax.crypto.Cipher;
 import javax.crypto.IllegalBlockSizeException;
 import javax.crypto.NoSuchPaddingException;
+import javax.crypto.SecretKey;
+import javax.crypto.ShortBufferException;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
 import java.security.*;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 public class Encryptor {
 
-    private static final String RSA_TRANSFORMATION = "RSA/ECB/OAEPwithSHA1andMGF1Padding";
     private static final String ECC_TRANSFORMATION = "ECIES";
+    private static final String AES_ALGORITHM = "AES";
+    private static final int AES_KEY_SIZE = 256;
+    private static final int GCM_NONCE_LENGTH = 12;
+    private static final int GCM_TAG_LENGTH = 128;
+    private static final int DEFAULT_SEGMENT_SIZE = 64 * 1024;
+    private static final int DEFAULT_PARALLEL_THRESHOLD = 8;
+    private static final int MAX_HEADER_LENGTH = 16 * 1024 * 1024;
+    private static final int BATCH_WINDOW = 256;
+    private static final String KEYS_ATTR = "keys";
+    private static final String NONCE_ATTR = "nonce";
+    private static final String SEGMENT_SIZE_ATTR = "segmentSize";
     private final IESParameterSpec iesParameterSpec;
+    private final IESParameters iesParameters;
+    private final CryptoContext context = CryptoContext.get();
+    private final CipherPool eccCiphers = new CipherPool(ECC_TRANSFORMATION, PROVIDER);
+    private ProviderSelector providers = new ProviderSelector();
+    private CipherPool rsaCiphers = cipherPool(ProviderSelector.Primitive.RSA_OAEP);
+    private CipherPool aesCiphers = cipherPool(ProviderSelector.Primitive.AES_GCM);
+    private final Map<PrivateKey, String> privateKeyFingerprints = Collections.synchronizedMap(new WeakHashMap<>());
+    private int segmentSize = DEFAULT_SEGMENT_SIZE;
+    private Executor executor;
+    private int parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+    private AgreementCache agreementCache;
     protected static final String PROVIDER = "BC";
 
     public Encryptor() {
-        Security.addProvider(new BouncyCastleProvider());
         byte[]  decrypt = new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 };
         byte[]  encrypt = new byte[] { 8, 7, 6, 5, 4, 3, 2, 1 };
         iesParameterSpec = new IESParameterSpec(decrypt, encrypt, 256);
+        iesParameters = new IESParameters(decrypt, encrypt, 256);
     }
 
     /***
-     * Performs encryption for each of the public keys provided
+     * Specify the amount of plaintext encrypted and authenticated as one unit when streaming, defaults to 64 KiB.
+     * Streaming memory use is a small multiple of the segment size regardless of the size of the data.
+     * @param segmentSize - Bytes of plaintext per segment
+     * @return Instance of Encryptor
+     */
+    public Encryptor segmentSize(int segmentSize) {
+        if (segmentSize <= 0) {
+            throw new IllegalArgumentException("Segment size must be positive integer");
+        }
+        this.segmentSize = segmentSize;
+        return this;
+    }
+
+    /***
+     * Encrypt for each recipient in parallel on the common {@link ForkJoinPool ForkJoinPool}, see
+     * {@link #parallel(Executor) parallel}
+     * @return Instance of Encryptor
+     */
+    public Encryptor parallel() {
+        return parallel(ForkJoinPool.commonPool());
+    }
+
+    /***
+     * Encrypt for each recipient in parallel once there are at least {@link #parallelThreshold(int) parallelThreshold}
+     * recipients. Results are returned in the order of the public keys provided.
+     * @param executor - {@link Executor Executor} to encrypt on, null to always encrypt on the calling thread
+     * @return Instance of Encryptor
+     */
+    public Encryptor parallel(Executor executor) {
+        this.executor = executor;
+        return this;
+    }
+
+    /***
+     * Specify the number of recipients below which encryption stays on the calling thread, defaults to 8
+     * @param parallelThreshold - Minimum recipients to encrypt in parallel
+     * @return Instance of Encryptor
+     */
+    public Encryptor parallelThreshold(int parallelThreshold) {
+        if (parallelThreshold <= 0) {
+            throw new IllegalArgumentException("Parallel threshold must be positive integer");
+        }
+        this.parallelThreshold = parallelThreshold;
+        return this;
+    }
+
+    /***
+     * Use the security providers chosen by a {@link ProviderSelector ProviderSelector} for RSA-OAEP and AES-GCM, such as
+     * the platform's AES-GCM with hardware acceleration. Cipher text is the same whichever provider produces it.
+     * Defaults to BouncyCastle for RSA-OAEP and the highest priority provider for AES-GCM.
+     * @param providers - {@link ProviderSelector ProviderSelector} to take providers from
+     * @return Instance of Encryptor
+     */
+    public Encryptor providers(ProviderSelector providers) {
+        if (providers == null) {
+            throw new IllegalArgumentException("Provider selector is required");
+        }
+        this.providers = providers;
+        this.rsaCiphers = cipherPool(ProviderSelector.Primitive.RSA_OAEP);
+        this.aesCiphers = cipherPool(ProviderSelector.Primitive.AES_GCM);
+        return this;
+    }
+
+    /***
+     * Keep the ECDH agreement of up to the given number of private and public key pairs, so repeat ECC encryption and
+     * decryption between the same keys skips the elliptic curve multiplication. Agreements are secrets, purge them with
+     * {@link #purgeAgreements(PrivateKey) purgeAgreements} when a key is rotated. Disabled by default.
+     * @param maximumSize - Maximum number of key pairs to keep agreements for, least recently used are evicted first
+     * @return Instance of Encryptor
+     */
+    public Encryptor agreementCache(int maximumSize) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("Agreement cache size must be positive integer");
+        }
+        this.agreementCache = new AgreementCache(maximumSize);
+        return this;
+    }
+
+    /***
+     * Remove every cached agreement made with a private key
+     * @param privateKey - {@link PrivateKey PrivateKey} being rotated
+     * @return Instance of Encryptor
+     */
+    public Encryptor purgeAgreements(PrivateKey privateKey) {
+        String fingerprint = fingerprintOf(privateKey);
+        if (agreementCache != null && fingerprint != null) {
+            agreementCache.purge(fingerprint);
+        }
+        privateKeyFingerprints.remove(privateKey);
+        return this;
+    }
+
+    /***
+     * Remove every cached agreement made with a public key
+     * @param scytalePublicKey - {@link ScytalePublicKey ScytalePublicKey} being rotated
+     * @return Instance of Encryptor
+     */
+    public Encryptor purgeAgreements(ScytalePublicKey scytalePublicKey) {
+        String fingerprint = scytalePublicKey.getFingerprint();
+        if (agreementCache != null && fingerprint != null) {
+            agreementCache.purge(fingerprint);
+        }
+        return this;
+    }
+
+    /***
+     * Performs encryption for each of the public keys provided. Each cipher text is prefixed with the
+     * {@link KeyFingerprint KeyFingerprint} of its recipient and sender keys.
      * @param data {@link String String} to be encrypted
      * @param privateKey {@link PrivateKey PrivateKey} the private key of the user performing the encryption
      * @param scytalePublicKeys {@link List List} of {@link ScytalePublicKey ScytalePublicKey}'s of the recipient
@@ -48,16 +216,13 @@ public class Encryptor {
             return encryptedData;
         }
 
-        String privateKeyType = privateKey.getAlgorithm();
-        String publicKeyType;
-
-        for (ScytalePublicKey scytalePublicKey : scytalePublicKeys) {
-            publicKeyType = scytalePublicKey.getPublicKey().getAlgorithm();
-
-            if (publicKeyType.equalsIgnoreCase(RSACertificate.ALGORITHM)) {
-                encryptedData.add(rsaEncrypt(data, scytalePublicKey));
-            } else if (publicKeyType.equalsIgnoreCase(ECCCertificate.ALGORITHM) && publicKeyType.equalsIgnoreCase(privateKeyType)) {
-                encryptedData.add(eccEncrypt(data, privateKey, scytalePublicKey));
+        String senderFingerprint = fingerprintOf(privateKey);
+        byte[] plainText = data.getBytes();
+        List<byte[]> cipherTexts = encryptForEach(plainText, privateKey, scytalePublicKeys);
+        wipe(plainText);
+        for (int i = 0; i < cipherTexts.size(); i++) {
+            if (cipherTexts.get(i) != null) {
+                encryptedData.add(Sealed.format(scytalePublicKeys.get(i), senderFingerprint, cipherTexts.get(i)));
             }
         }
 
@@ -65,11 +230,14 @@ public class Encryptor {
     }
 
     /***
-     * Attempts decryption of ciphertext
+     * Attempts decryption of ciphertext. Cipher text produced by {@link #encrypt(String, PrivateKey, List) encrypt}
+     * names the fingerprints of its recipient and sender key, so cipher text for another recipient is rejected without
+     * decrypting and only the sender's public key is tried. Cipher text without fingerprints is also accepted, trying
+     * each public key in turn.
      * @param data {@link String String} to be decrypted
      * @param privateKey {@link PrivateKey PrivateKey} of cipher text recipient to decrypt with
      * @param scytalePublicKeys {@link List List} of {@link ScytalePublicKey ScytalePublicKey}'s of encryptor to decrypt with
-     * @return {@link String String} plaintext
+     * @return {@link String String} plaintext, empty if the cipher text names another recipient or no sender key
      * @throws NoSuchPaddingException - Padding requested by not available
      * @throws NoSuchAlgorithmException - Decryption algorithm is not available
      * @throws IllegalBlockSizeException - Block size for block cipher is incorrect
@@ -79,45 +247,909 @@ public class Encryptor {
      * @throws InvalidAlgorithmParameterException - Incorrect ECC parameters
      */
     public String decrypt(String data, PrivateKey privateKey, List<ScytalePublicKey> scytalePublicKeys) throws NoSuchPaddingException, NoSuchAlgorithmException, IllegalBlockSizeException, BadPaddingException, NoSuchProviderException, InvalidKeyException, InvalidAlgorithmParameterException {
+        byte[] plainText = open(Sealed.parse(data), privateKey, scytalePublicKeys);
+        if (plainText == null) {
+            return "";
+        }
+
+        String decrypted = new String(plainText);
+        wipe(plainText);
+        return decrypted;
+    }
+
+    /***
+     * Performs encryption of binary data for each of the public keys provided, without Base64 encoding. Each cipher
+     * text is prefixed with the {@link KeyFingerprint KeyFingerprint} of its recipient and sender keys.
+     * @param data - Bytes to be encrypted
+     * @param privateKey - {@link PrivateKey PrivateKey} the private key of the user performing the encryption
+     * @param scytalePublicKeys - {@link List List} of {@link ScytalePublicKey ScytalePublicKey}'s of the recipient
+     * @return {@link List List} of cipher text
+     * @throws NoSuchPaddingException - Padding requested by not available
+     * @throws InvalidAlgorithmParameterException - Incorrect ECC parameters
+     * @throws NoSuchAlgorithmException - Encryption algorithm is not available
+     * @throws IllegalBlockSizeException - Block size for block cipher is incorrect
+     * @throws BadPaddingException - Input data is not correctly padding for selected padding mechanism
+     * @throws NoSuchProviderException - Security provider is not available
+     * @throws InvalidKeyException - Public Key invalid (invalid encoding, wrong length, uninitialized, etc).
+     */
+    public List<byte[]> encrypt(byte[] data, PrivateKey privateKey, List<ScytalePublicKey> scytalePublicKeys) throws NoSuchPaddingException, InvalidAlgorithmParameterException, NoSuchAlgorithmException, IllegalBlockSizeException, BadPaddingException, NoSuchProviderException, InvalidKeyException {
+        List<byte[]> encryptedData = new ArrayList<>();
+        if (scytalePublicKeys.isEmpty()) {
+            return encryptedData;
+        }
+
+        String senderFingerprint = fingerprintOf(privateKey);
+        List<byte[]> cipherTexts = encryptForEach(data, privateKey, scytalePublicKeys);
+        for (int i = 0; i < cipherTexts.size(); i++) {
+            if (cipherTexts.get(i) != null) {
+                encryptedData.add(Sealed.seal(scytalePublicKeys.get(i), senderFingerprint, cipherTexts.get(i)));
+            }
+        }
+
+        return encryptedData;
+    }
+
+    /***
+     * Attempts decryption of binary cipher text from {@link #encrypt(byte[], PrivateKey, List) encrypt}
+     * @param data - Cipher text to be decrypted
+     * @param privateKey - {@link PrivateKey PrivateKey} of cipher text recipient to decrypt with
+     * @param scytalePublicKeys - {@link List List} of {@link ScytalePublicKey ScytalePublicKey}'s of encryptor to decrypt with
+     * @return Plaintext, empty if the cipher text names another recipient or no sender key. The caller owns the array
+     * and may {@link #wipe(byte[]) wipe} it once used.
+     * @throws NoSuchPaddingException - Padding requested by not available
+     * @throws NoSuchAlgorithmException - Decryption algorithm is not available
+     * @throws IllegalBlockSizeException - Block size for block cipher is incorrect
+     * @throws BadPaddingException - Input data is not correctly padding for selected padding mechanism
+     * @throws NoSuchProviderException - Security provider is not available
+     * @throws InvalidKeyException - Key invalid (invalid encoding, wrong length, uninitialized, etc).
+     * @throws InvalidAlgorithmParameterException - Incorrect ECC parameters
+     */
+    public byte[] decrypt(byte[] data, PrivateKey privateKey, List<ScytalePublicKey> scytalePublicKeys) throws NoSuchPaddingException, NoSuchAlgorithmException, IllegalBlockSizeException, BadPaddingException, NoSuchProviderException, InvalidKeyException, InvalidAlgorithmParameterException {
+        byte[] plainText = open(Sealed.parse(data), privateKey, scytalePublicKeys);
+        return plainText == null ? new byte[0] : plainText;
+    }
+
+    /***
+     * Encrypt the remaining bytes of a buffer for one public key, writing binary cipher text as produced by
+     * {@link #encrypt(byte[], PrivateKey, List) encrypt} into the output buffer. Either buffer may be direct. The
+     * plaintext copied out of the input buffer is wiped once encrypted. The input buffer is consumed and the output
+     * buffer advanced only on success.
+     * @param data - {@link ByteBuffer ByteBuffer} holding the bytes to be encrypted
+     * @param privateKey - {@link PrivateKey PrivateKey} the private key of the user performing the encryption
+     * @param scytalePublicKey - {@link ScytalePublicKey ScytalePublicKey} of the recipient
+     * @param cipherText - {@link ByteBuffer ByteBuffer} to write cipher text to
+     * @return Number of bytes written, -1 if the private key cannot encrypt for the public key
+     * @throws ShortBufferException - If the output buffer has too little space remaining
+     * @throws NoSuchPaddingException - Padding requested by not available
+     * @throws InvalidAlgorithmParameterException - Incorrect ECC parameters
+     * @throws NoSuchAlgorithmException - Encryption algorithm is not available
+     * @throws IllegalBlockSizeException - Block size for block cipher is incorrect
+     * @throws BadPaddingException - Input data is not correctly padding for selected padding mechanism
+     * @throws NoSuchProviderException - Security provider is not available
+     * @throws InvalidKeyException - Public Key invalid (invalid encoding, wrong length, uninitialized, etc).
+     */
+    public int encrypt(ByteBuffer data, PrivateKey privateKey, ScytalePublicKey scytalePublicKey, ByteBuffer cipherText) throws ShortBufferException, NoSuchPaddingException, InvalidAlgorithmParameterException, NoSuchAlgorithmException, IllegalBlockSizeException, BadPaddingException, NoSuchProviderException, InvalidKeyException {
+        byte[] plainText = new byte[data.remaining()];
+        data.duplicate().get(plainText);
+
+        byte[] encrypted;
+        try {
+            encrypted = encryptFor(plainText, privateKey, scytalePublicKey);
+        } finally {
+            wipe(plainText);
+        }
+        if (encrypted == null) {
+            return -1;
+        }
+
+        byte[] sealed = Sealed.seal(scytalePublicKey, fingerprintOf(privateKey), encrypted);
+        if (cipherText.remaining() < sealed.length) {
+            throw new ShortBufferException("Cipher text needs " + sealed.length + " bytes");
+        }
+        cipherText.put(sealed);
+        data.position(data.limit());
+        return sealed.length;
+    }
+
+    /***
+     * Decrypt the remaining bytes of a buffer holding binary cipher text, writing the plaintext into the output buffer.
+     * Either buffer may be direct. Intermediate plaintext is wiped once copied to the output buffer. The input buffer is
+     * consumed and the output buffer advanced only on success.
+     * @param cipherText - {@link ByteBuffer ByteBuffer} holding the cipher text to be decrypted
+     * @param privateKey - {@link PrivateKey PrivateKey} of cipher text recipient to decrypt with
+     * @param scytalePublicKeys - {@link List List} of {@link ScytalePublicKey ScytalePublicKey}'s of encryptor to decrypt with
+     * @param data - {@link ByteBuffer ByteBuffer} to write plaintext to
+     * @return Number of bytes written, -1 if the cipher text names another recipient or no sender key
+     * @throws ShortBufferException - If the output buffer has too little space remaining
+     * @throws NoSuchPaddingException - Padding requested by not available
+     * @throws NoSuchAlgorithmException - Decryption algorithm is not available
+     * @throws IllegalBlockSizeException - Block size for block cipher is incorrect
+     * @throws BadPaddingException - Input data is not correctly padding for selected padding mechanism
+     * @throws NoSuchProviderException - Security provider is not available
+     * @throws InvalidKeyException - Key invalid (invalid encoding, wrong length, uninitialized, etc).
+     * @throws InvalidAlgorithmParameterException - Incorrect ECC parameters
+     */
+    public int decrypt(ByteBuffer cipherText, PrivateKey privateKey, List<ScytalePublicKey> scytalePublicKeys, ByteBuffer data) throws ShortBufferException, NoSuchPaddingException, NoSuchAlgorithmException, IllegalBlockSizeException, BadPaddingException, NoSuchProviderException, InvalidKeyException, InvalidAlgorithmParameterException {
+        byte[] sealed = new byte[cipherText.remaining()];
+        cipherText.duplicate().get(sealed);
+
+        byte[] plainText = open(Sealed.parse(sealed), privateKey, scytalePublicKeys);
+        if (plainText == null) {
+            return -1;
+        }
+
+        try {
+            if (data.remaining() < plainText.length) {
+                throw new ShortBufferException("Plaintext needs " + plainText.length + " bytes");
+            }
+            data.put(plainText);
+            cipherText.position(cipherText.limit());
+            return plainText.length;
+        } finally {
+            wipe(plainText);
+        }
+    }
+
+    /***
+     * Overwrite plaintext with zeros once it is no longer needed, so it does not linger in memory until collected
+     * @param data - Bytes to wipe
+     */
+    public static void wipe(byte[] data) {
+        if (data != null) {
+            Arrays.fill(data, (byte) 0);
+        }
+    }
+
+    /***
+     * Overwrite the whole of a buffer with zeros, regardless of its position and limit, see {@link #wipe(byte[]) wipe}
+     * @param data - {@link ByteBuffer ByteBuffer} to wipe, heap or direct
+     */
+    public static void wipe(ByteBuffer data) {
+        if (data == null) {
+            return;
+        }
+        ByteBuffer whole = data.duplicate();
+        whole.clear();
+        while (whole.hasRemaining()) {
+            whole.put((byte) 0);
+        }
+    }
+
+    /***
+     * Decrypts a batch of cipher text for one private key, such as messages taken from a queue. The private key is
+     * fingerprinted, the senders indexed and each ECDH agreement calculated once for the whole batch rather than for each
+     * item, and the items are decrypted in parallel when configured with {@link #parallel(Executor) parallel}. A failure
+     * to decrypt one item is reported against it without affecting the rest of the batch.
+     * @param cipherTexts - {@link Collection Collection} of cipher text from {@link #encrypt(String, PrivateKey, List) encrypt}
+     * @param privateKey - {@link PrivateKey PrivateKey} of cipher text recipient to decrypt with
+     * @param scytalePublicKeys - {@link List List} of {@link ScytalePublicKey ScytalePublicKey}'s of encryptors to decrypt with
+     * @return {@link BatchResult BatchResult} of plaintext, or failure, for each cipher text by its position in the
+     * collection, so repeated cipher text is reported once for each time it appears. Cipher text for another key or
+     * from an unknown sender fails with {@link InvalidKeyException InvalidKeyException}.
+     */
+    public BatchResult<Integer, String> decryptAll(Collection<String> cipherTexts, PrivateKey privateKey, List<ScytalePublicKey> scytalePublicKeys) {
+        BatchResult<Integer, String> decrypted = new BatchResult<>();
+        decryptAll(new BatchDecryption(privateKey, scytalePublicKeys), new ArrayList<>(cipherTexts), 0, decrypted);
+        return decrypted;
+    }
+
+    /***
+     * Decrypts a stream of cipher text for one private key, see {@link #decryptAll(Collection, PrivateKey, List)
+     * decryptAll}. The stream is consumed in windows of a few hundred items, so memory use does not grow with the
+     * length of the stream, and the result of each window is passed on in order before the next is read.
+     * @param cipherTexts - {@link Stream Stream} of cipher text, left open
+     * @param privateKey - {@link PrivateKey PrivateKey} of cipher text recipient to decrypt with
+     * @param scytalePublicKeys - {@link List List} of {@link ScytalePublicKey ScytalePublicKey}'s of encryptors to decrypt with
+     * @param results - {@link Consumer Consumer} of the {@link BatchResult BatchResult} of each window, by position in
+     * the stream
+     */
+    public void decryptAll(Stream<String> cipherTexts, PrivateKey privateKey, List<ScytalePublicKey> scytalePublicKeys, Consumer<BatchResult<Integer, String>> results) {
+        BatchDecryption batch = new BatchDecryption(privateKey, scytalePublicKeys);
+        List<String> window = new ArrayList<>(BATCH_WINDOW);
+        int offset = 0;
+
+        Iterator<String> pending = cipherTexts.iterator();
+        while (pending.hasNext()) {
+            window.add(pending.next());
+            if (window.size() == BATCH_WINDOW || !pending.hasNext()) {
+                BatchResult<Integer, String> decrypted = new BatchResult<>();
+                decryptAll(batch, window, offset, decrypted);
+                results.accept(decrypted);
+                offset += window.size();
+                window.clear();
+            }
+        }
+    }
+
+    /***
+     * Encrypts the data once with a random AES-256-GCM content key, then encrypts only the content key for each of the
+     * public keys provided. Unlike {@link #encrypt(String, PrivateKey, List) encrypt} the cost of encrypting the data
+     * does not grow with the number of recipients, and RSA recipients are not limited to data smaller than the key.
+     * @param data {@link String String} to be encrypted
+     * @param privateKey {@link PrivateKey PrivateKey} the private key of the user performing the encryption
+     * @param scytalePublicKeys {@link List List} of {@link ScytalePublicKey ScytalePublicKey}'s of the recipient
+     * @return {@link Envelope Envelope} holding the cipher text and the content key wrapped for each recipient
+     * @throws NoSuchPaddingException - Padding requested by not available
+     * @throws InvalidAlgorithmParameterException - Incorrect ECC or GCM parameters
+     * @throws NoSuchAlgorithmException - Encryption algorithm is not available
+     * @throws IllegalBlockSizeException - Block size for block cipher is incorrect
+     * @throws BadPaddingException - Input data is not correctly padding for selected padding mechanism
+     * @throws NoSuchProviderException - Security provider is not available
+     * @throws InvalidKeyException - Public Key invalid (invalid encoding, wrong length, uninitialized, etc).
+     */
+    public Envelope encryptEnvelope(String data, PrivateKey privateKey, List<ScytalePublicKey> scytalePublicKeys) throws NoSuchPaddingException, InvalidAlgorithmParameterException, NoSuchAlgorithmException, IllegalBlockSizeException, BadPaddingException, NoSuchProviderException, InvalidKeyException {
+        SecretKey contentKey = newContentKey();
+
+        byte[] plainText = data.getBytes(StandardCharsets.UTF_8);
+        byte[] nonce = new byte[GCM_NONCE_LENGTH];
+        context.secureRandom().nextBytes(nonce);
+
+        Cipher cipher = aesCiphers.get();
+        cipher.init(Cipher.ENCRYPT_MODE, contentKey, new GCMParameterSpec(GCM_TAG_LENGTH, nonce));
+        byte[] payload = new byte[GCM_NONCE_LENGTH + cipher.getOutputSize(plainText.length)];
+        System.arraycopy(nonce, 0, payload, 0, GCM_NONCE_LENGTH);
+        try {
+            cipher.doFinal(plainText, 0, plainText.length, payload, GCM_NONCE_LENGTH);
+        } catch (ShortBufferException shortBufferException) {
+            throw new IllegalStateException("Cipher output larger than reported", shortBufferException);
+        }
+
+        List<String> wrappedKeys = wrapContentKey(contentKey, privateKey, scytalePublicKeys);
+        return new Envelope(Base64.getEncoder().encodeToString(payload), wrappedKeys);
+    }
+
+    /***
+     * Attempts decryption of an envelope produced by {@link #encryptEnvelope(String, PrivateKey, List) encryptEnvelope}
+     * @param envelope {@link Envelope Envelope} to be decrypted
+     * @param privateKey {@link PrivateKey PrivateKey} of a recipient to unwrap the content key with
+     * @param scytalePublicKeys {@link List List} of {@link ScytalePublicKey ScytalePublicKey}'s of encryptor to decrypt with
+     * @return {@link String String} plaintext, empty if no content key in the envelope was wrapped for the private key
+     * @throws NoSuchPaddingException - Padding requested by not available
+     * @throws NoSuchAlgorithmException - Decryption algorithm is not available
+     * @throws IllegalBlockSizeException - Block size for block cipher is incorrect
+     * @throws BadPaddingException - Cipher text failed authentication
+     * @throws NoSuchProviderException - Security provider is not available
+     * @throws InvalidKeyException - Key invalid (invalid encoding, wrong length, uninitialized, etc).
+     * @throws InvalidAlgorithmParameterException - Incorrect ECC or GCM parameters
+     */
+    public String decryptEnvelope(Envelope envelope, PrivateKey privateKey, List<ScytalePublicKey> scytalePublicKeys) throws NoSuchPaddingException, NoSuchAlgorithmException, IllegalBlockSizeException, BadPaddingException, NoSuchProviderException, InvalidKeyException, InvalidAlgorithmParameterException {
+        byte[] contentKey = unwrapContentKey(envelope.getWrappedKeys(), privateKey, scytalePublicKeys);
+        if (contentKey == null) {
+            return "";
+        }
+
+        try {
+            byte[] payload = Base64.getDecoder().decode(envelope.getPayload());
+            if (payload.length < GCM_NONCE_LENGTH) {
+                throw new IllegalBlockSizeException("Envelope payload too short");
+            }
+
+            Cipher cipher = aesCiphers.get();
+            cipher.init(Cipher.DECRYPT_MODE, new SecretKeySpec(contentKey, AES_ALGORITHM), new GCMParameterSpec(GCM_TAG_LENGTH, payload, 0, GCM_NONCE_LENGTH));
+            return new String(cipher.doFinal(payload, GCM_NONCE_LENGTH, payload.length - GCM_NONCE_LENGTH), StandardCharsets.UTF_8);
+        } finally {
+            Arrays.fill(contentKey, (byte) 0);
+        }
+    }
+
+    /***
+     * Wrap a stream so that data written to it is encrypted in segments with a random AES-256-GCM content key, which
+     * is wrapped for each of the public keys provided and written first. Closing the returned stream writes the last
+     * segment and closes the underlying stream. To produce text, wrap the underlying stream with
+     * {@link Base64.Encoder#wrap(OutputStream) Base64.getEncoder().wrap}.
+     * @param out {@link OutputStream OutputStream} to write the encrypted stream to
+     * @param privateKey {@link PrivateKey PrivateKey} the private key of the user performing the encryption
+     * @param scytalePublicKeys {@link List List} of {@link ScytalePublicKey ScytalePublicKey}'s of the recipient
+     * @return {@link OutputStream OutputStream} accepting plaintext
+     * @throws IOException - If the header cannot be written
+     * @throws NoSuchPaddingException - Padding requested by not available
+     * @throws InvalidAlgorithmParameterException - Incorrect ECC parameters
+     * @throws NoSuchAlgorithmException - Encryption algorithm is not available
+     * @throws IllegalBlockSizeException - Block size for block cipher is incorrect
+     * @throws BadPaddingException - Input data is not correctly padding for selected padding mechanism
+     * @throws NoSuchProviderException - Security provider is not available
+     * @throws InvalidKeyException - Public Key invalid (invalid encoding, wrong length, uninitialized, etc).
+     */
+    public OutputStream encryptingStream(OutputStream out, PrivateKey privateKey, List<ScytalePublicKey> scytalePublicKeys) throws IOException, NoSuchPaddingException, InvalidAlgorithmParameterException, NoSuchAlgorithmException, IllegalBlockSizeException, BadPaddingException, NoSuchProviderException, InvalidKeyException {
+        return startEncryption(out, privateKey, scytalePublicKeys);
+    }
+
+    /***
+     * Wrap a stream produced by {@link #encryptingStream(OutputStream, PrivateKey, List) encryptingStream} so that
+     * reading returns the plaintext. Each segment is authenticated before any of it is returned, and an
+     * {@link IOException IOException} is thrown if the stream has been modified or truncated. To read text, wrap the
+     * underlying stream with {@link Base64.Decoder#wrap(InputStream) Base64.getDecoder().wrap}.
+     * @param in {@link InputStream InputStream} to read the encrypted stream from
+     * @param privateKey {@link PrivateKey PrivateKey} of a recipient to unwrap the content key with
+     * @param scytalePublicKeys {@link List List} of {@link ScytalePublicKey ScytalePublicKey}'s of encryptor to decrypt with
+     * @return {@link InputStream InputStream} of plaintext
+     * @throws IOException - If the header cannot be read
+     * @throws NoSuchPaddingException - Padding requested by not available
+     * @throws NoSuchAlgorithmException - Decryption algorithm is not available
+     * @throws NoSuchProviderException - Security provider is not available
+     * @throws InvalidKeyException - If no content key in the stream was wrapped for the private key
+     * @throws InvalidAlgorithmParameterException - Incorrect ECC parameters
+     */
+    public InputStream decryptingStream(InputStream in, PrivateKey privateKey, List<ScytalePublicKey> scytalePublicKeys) throws IOException, NoSuchPaddingException, NoSuchAlgorithmException, NoSuchProviderException, InvalidKeyException, InvalidAlgorithmParameterException {
+        DataInputStream header = new DataInputStream(in);
+        int headerLength = header.readInt();
+        if (headerLength <= 0 || headerLength > MAX_HEADER_LENGTH) {
+            throw new IOException("Invalid encrypted stream header");
+        }
+        byte[] headerBytes = new byte[headerLength];
+        header.readFully(headerBytes);
+
+        List<String> wrappedKeys = new ArrayList<>();
+        byte[] noncePrefix;
+        int streamSegmentSize;
+        try {
+            JSONObject headerJson = new JSONObject(new String(headerBytes, StandardCharsets.UTF_8));
+            JSONArray keys = headerJson.getJSONArray(KEYS_ATTR);
+            for (int i = 0; i < keys.length(); i++) {
+                wrappedKeys.add(keys.getString(i));
+            }
+            noncePrefix = Base64.getDecoder().decode(headerJson.getString(NONCE_ATTR));
+            streamSegmentSize = headerJson.getInt(SEGMENT_SIZE_ATTR);
+        } catch (JSONException | IllegalArgumentException e) {
+            throw new IOException("Invalid encrypted stream header", e);
+        }
+        if (noncePrefix.length != EncryptingOutputStream.NONCE_PREFIX_LENGTH || streamSegmentSize <= 0 || streamSegmentSize > MAX_HEADER_LENGTH) {
+            throw new IOException("Invalid encrypted stream header");
+        }
+
+        byte[] contentKey = unwrapContentKey(wrappedKeys, privateKey, scytalePublicKeys);
+        if (contentKey == null) {
+            throw new InvalidKeyException("Private key is not a recipient of the encrypted stream");
+        }
+        try {
+            return new DecryptingInputStream(in, providers.cipher(ProviderSelector.Primitive.AES_GCM),
+                    new SecretKeySpec(contentKey, AES_ALGORITHM), noncePrefix, streamSegmentSize);
+        } finally {
+            Arrays.fill(contentKey, (byte) 0);
+        }
+    }
+
+    /***
+     * Encrypt everything read from the input to the output with constant memory, see
+     * {@link #encryptingStream(OutputStream, PrivateKey, List) encryptingStream}. Neither stream is closed.
+     * @param in {@link InputStream InputStream} of plaintext
+     * @param out {@link OutputStream OutputStream} to write the encrypted stream to
+     * @param privateKey {@link PrivateKey PrivateKey} the private key of the user performing the encryption
+     * @param scytalePublicKeys {@link List List} of {@link ScytalePublicKey ScytalePublicKey}'s of the recipient
+     * @throws IOException - If an I/O error occurs reading or writing
+     * @throws NoSuchPaddingException - Padding requested by not available
+     * @throws InvalidAlgorithmParameterException - Incorrect ECC parameters
+     * @throws NoSuchAlgorithmException - Encryption algorithm is not available
+     * @throws IllegalBlockSizeException - Block size for block cipher is incorrect
+     * @throws BadPaddingException - Input data is not correctly padding for selected padding mechanism
+     * @throws NoSuchProviderException - Security provider is not available
+     * @throws InvalidKeyException - Public Key invalid (invalid encoding, wrong length, uninitialized, etc).
+     */
+    public void encrypt(InputStream in, OutputStream out, PrivateKey privateKey, List<ScytalePublicKey> scytalePublicKeys) throws IOException, NoSuchPaddingException, InvalidAlgorithmParameterException, NoSuchAlgorithmException, IllegalBlockSizeException, BadPaddingException, NoSuchProviderException, InvalidKeyException {
+        EncryptingOutputStream encrypting = startEncryption(out, privateKey, scytalePublicKeys);
+        in.transferTo(encrypting);
+        encrypting.finish();
+    }
+
+    /***
+     * Decrypt everything read from the input to the output with constant memory, see
+     * {@link #decryptingStream(InputStream, PrivateKey, List) decryptingStream}. Neither stream is closed.
+     * @param in {@link InputStream InputStream} of the encrypted stream
+     * @param out {@link OutputStream OutputStream} to write plaintext to
+     * @param privateKey {@link PrivateKey PrivateKey} of a recipient to unwrap the content key with
+     * @param scytalePublicKeys {@link List List} of {@link ScytalePublicKey ScytalePublicKey}'s of encryptor to decrypt with
+     * @throws IOException - If an I/O error occurs, or the stream has been modified or truncated
+     * @throws NoSuchPaddingException - Padding requested by not available
+     * @throws NoSuchAlgorithmException - Decryption algorithm is not available
+     * @throws NoSuchProviderException - Security provider is not available
+     * @throws InvalidKeyException - If no content key in the stream was wrapped for the private key
+     * @throws InvalidAlgorithmParameterException - Incorrect ECC parameters
+     */
+    public void decrypt(InputStream in, OutputStream out, PrivateKey privateKey, List<ScytalePublicKey> scytalePublicKeys) throws IOException, NoSuchPaddingException, NoSuchAlgorithmException, NoSuchProviderException, InvalidKeyException, InvalidAlgorithmParameterException {
+        decryptingStream(in, privateKey, scytalePublicKeys).transferTo(out);
+        out.flush();
+    }
+
+    /***
+     * Encrypt everything read from one channel to another with constant memory, see
+     * {@link #encrypt(InputStream, OutputStream, PrivateKey, List) encrypt}. Neither channel is closed.
+     * @param source {@link ReadableByteChannel ReadableByteChannel} of plaintext
+     * @param target {@link WritableByteChannel WritableByteChannel} to write the encrypted stream to
+     * @param privateKey {@link PrivateKey PrivateKey} the private key of the user performing the encryption
+     * @param scytalePublicKeys {@link List List} of {@link ScytalePublicKey ScytalePublicKey}'s of the recipient
+     * @throws IOException - If an I/O error occurs reading or writing
+     * @throws NoSuchPaddingException - Padding requested by not available
+     * @throws InvalidAlgorithmParameterException - Incorrect ECC parameters
+     * @throws NoSuchAlgorithmException - Encryption algorithm is not available
+     * @throws IllegalBlockSizeException - Block size for block cipher is incorrect
+     * @throws BadPaddingException - Input data is not correctly padding for selected padding mechanism
+     * @throws NoSuchProviderException - Security provider is not available
+     * @throws InvalidKeyException - Public Key invalid (invalid encoding, wrong length, uninitialized, etc).
+     */
+    public void encrypt(ReadableByteChannel source, WritableByteChannel target, PrivateKey privateKey, List<ScytalePublicKey> scytalePublicKeys) throws IOException, NoSuchPaddingException, InvalidAlgorithmParameterException, NoSuchAlgorithmException, IllegalBlockSizeException, BadPaddingException, NoSuchProviderException, InvalidKeyException {
+        encrypt(Channels.newInputStream(source), Channels.newOutputStream(target), privateKey, scytalePublicKeys);
+    }
+
+    /***
+     * Decrypt everything read from one channel to another with constant memory, see
+     * {@link #decrypt(InputStream, OutputStream, PrivateKey, List) decrypt}. Neither channel is closed.
+     * @param source {@link ReadableByteChannel ReadableByteChannel} of the encrypted stream
+     * @param target {@link WritableByteChannel WritableByteChannel} to write plaintext to
+     * @param privateKey {@link PrivateKey PrivateKey} of a recipient to unwrap the content key with
+     * @param scytalePublicKeys {@link List List} of {@link ScytalePublicKey ScytalePublicKey}'s of encryptor to decrypt with
+     * @throws IOException - If an I/O error occurs, or the stream has been modified or truncated
+     * @throws NoSuchPaddingException - Padding requested by not available
+     * @throws NoSuchAlgorithmException - Decryption algorithm is not available
+     * @throws NoSuchProviderException - Security provider is not available
+     * @throws InvalidKeyException - If no content key in the stream was wrapped for the private key
+     * @throws InvalidAlgorithmParameterException - Incorrect ECC parameters
+     */
+    public void decrypt(ReadableByteChannel source, WritableByteChannel target, PrivateKey privateKey, List<ScytalePublicKey> scytalePublicKeys) throws IOException, NoSuchPaddingException, NoSuchAlgorithmException, NoSuchProviderException, InvalidKeyException, InvalidAlgorithmParameterException {
+        decrypt(Channels.newInputStream(source), Channels.newOutputStream(target), privateKey, scytalePublicKeys);
+    }
+
+    private EncryptingOutputStream startEncryption(OutputStream out, PrivateKey privateKey, List<ScytalePublicKey> scytalePublicKeys) throws IOException, NoSuchPaddingException, InvalidAlgorithmParameterException, NoSuchAlgorithmException, IllegalBlockSizeException, BadPaddingException, NoSuchProviderException, InvalidKeyException {
+        SecretKey contentKey = newContentKey();
+        byte[] noncePrefix = new byte[EncryptingOutputStream.NONCE_PREFIX_LENGTH];
+        context.secureRandom().nextBytes(noncePrefix);
+
+        byte[] headerBytes = new JSONObject()
+                .put(KEYS_ATTR, new JSONArray(wrapContentKey(contentKey, privateKey, scytalePublicKeys)))
+                .put(NONCE_ATTR, Base64.getEncoder().encodeToString(noncePrefix))
+                .put(SEGMENT_SIZE_ATTR, segmentSize)
+                .toString().getBytes(StandardCharsets.UTF_8);
+
+        DataOutputStream header = new DataOutputStream(out);
+        header.writeInt(headerBytes.length);
+        header.write(headerBytes);
+
+        return new EncryptingOutputStream(out, providers.cipher(ProviderSelector.Primitive.AES_GCM), contentKey, noncePrefix, segmentSize);
+    }
+
+    /***
+     * An AES key is any random bytes of the key size, so is drawn from the thread's random generator without looking
+     * up a key generator for every message
+     */
+    private SecretKey newContentKey() {
+        byte[] encoded = new byte[AES_KEY_SIZE / Byte.SIZE];
+        context.secureRandom().nextBytes(encoded);
+        try {
+            return new SecretKeySpec(encoded, AES_ALGORITHM);
+        } finally {
+            Arrays.fill(encoded, (byte) 0);
+        }
+    }
+
+    private List<String> wrapContentKey(SecretKey contentKey, PrivateKey privateKey, List<ScytalePublicKey> scytalePublicKeys) throws NoSuchPaddingException, InvalidAlgorithmParameterException, NoSuchAlgorithmException, IllegalBlockSizeException, BadPaddingException, NoSuchProviderException, InvalidKeyException {
+        byte[] encodedContentKey = contentKey.getEncoded();
+        List<String> wrappedKeys = new ArrayList<>(scytalePublicKeys.size());
+
+        try {
+            String senderFingerprint = fingerprintOf(privateKey);
+            List<byte[]> wrapped = encryptForEach(encodedContentKey, privateKey, scytalePublicKeys);
+            for (int i = 0; i < wrapped.size(); i++) {
+                if (wrapped.get(i) != null) {
+                    wrappedKeys.add(Sealed.format(scytalePublicKeys.get(i), senderFingerprint, wrapped.get(i)));
+                }
+            }
+        } finally {
+            Arrays.fill(encodedContentKey, (byte) 0);
+        }
+
+        return wrappedKeys;
+    }
+
+    /***
+     * Encrypt the data for each public key, in parallel when configured and there are enough keys. The result holds
+     * the cipher text for each key in order, or null where the key cannot be encrypted to with the private key.
+     */
+    private List<byte[]> encryptForEach(byte[] data, PrivateKey privateKey, List<ScytalePublicKey> scytalePublicKeys) throws NoSuchPaddingException, InvalidAlgorithmParameterException, NoSuchAlgorithmException, IllegalBlockSizeException, BadPaddingException, NoSuchProviderException, InvalidKeyException {
+        List<byte[]> encrypted = new ArrayList<>(scytalePublicKeys.size());
+
+        if (executor == null || scytalePublicKeys.size() < parallelThreshold) {
+            for (ScytalePublicKey scytalePublicKey : scytalePublicKeys) {
+                encrypted.add(encryptFor(data, privateKey, scytalePublicKey));
+            }
+            return encrypted;
+        }
+
+        List<CompletableFuture<byte[]>> pending = new ArrayList<>(scytalePublicKeys.size());
+        for (ScytalePublicKey scytalePublicKey : scytalePublicKeys) {
+            pending.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return encryptFor(data, privateKey, scytalePublicKey);
+                } catch (GeneralSecurityException e) {
+                    throw new CompletionException(e);
+                }
+            }, executor));
+        }
+
+        for (CompletableFuture<byte[]> cipherText : pending) {
+            try {
+                encrypted.add(cipherText.join());
+            } catch (CompletionException completionException) {
+                rethrow(completionException.getCause());
+            }
+        }
+        return encrypted;
+    }
+
+    private byte[] encryptFor(byte[] data, PrivateKey privateKey, ScytalePublicKey scytalePublicKey) throws NoSuchPaddingException, InvalidAlgorithmParameterException, NoSuchAlgorithmException, IllegalBlockSizeException, BadPaddingException, NoSuchProviderException, InvalidKeyException {
+        PublicKey publicKey = scytalePublicKey.getPublicKey();
+        // A key of a supported type whose encoding does not decode cannot be encrypted to, like a key of another type
+        if (publicKey == null) {
+            return null;
+        }
+        String publicKeyType = publicKey.getAlgorithm();
+
+        if (publicKeyType.equalsIgnoreCase(RSACertificate.ALGORITHM)) {
+            return rsaEncrypt(data, scytalePublicKey);
+        } else if (isAgreementAlgorithm(publicKeyType) && publicKeyType.equalsIgnoreCase(privateKey.getAlgorithm())) {
+            return eccEncrypt(data, privateKey, scytalePublicKey);
+        }
+        return null;
+    }
+
+    private void rethrow(Throwable cause) throws NoSuchPaddingException, InvalidAlgorithmParameterException, NoSuchAlgorithmException, IllegalBlockSizeException, BadPaddingException, NoSuchProviderException, InvalidKeyException {
+        if (cause instanceof NoSuchPaddingException) {
+            throw (NoSuchPaddingException) cause;
+        }
+        if (cause instanceof InvalidAlgorithmParameterException) {
+            throw (InvalidAlgorithmParameterException) cause;
+        }
+        if (cause instanceof NoSuchAlgorithmException) {
+            throw (NoSuchAlgorithmException) cause;
+        }
+        if (cause instanceof IllegalBlockSizeException) {
+            throw (IllegalBlockSizeException) cause;
+        }
+        if (cause instanceof BadPaddingException) {
+            throw (BadPaddingException) cause;
+        }
+        if (cause instanceof NoSuchProviderException) {
+            throw (NoSuchProviderException) cause;
+        }
+        if (cause instanceof InvalidKeyException) {
+            throw (InvalidKeyException) cause;
+        }
+        if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        }
+        throw new CompletionException(cause);
+    }
+
+    private void decryptAll(BatchDecryption batch, List<String> cipherTexts, int offset, BatchResult<Integer, String> decrypted) {
+        if (executor == null || cipherTexts.size() < parallelThreshold) {
+            for (int i = 0; i < cipherTexts.size(); i++) {
+                try {
+                    decrypted.success(offset + i, batch.decrypt(cipherTexts.get(i)));
+                } catch (GeneralSecurityException | RuntimeException e) {
+                    decrypted.failure(offset + i, e);
+                }
+            }
+            return;
+        }
+
+        List<CompletableFuture<String>> pending = new ArrayList<>(cipherTexts.size());
+        for (String cipherText : cipherTexts) {
+            pending.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return batch.decrypt(cipherText);
+                } catch (GeneralSecurityException generalSecurityException) {
+                    throw new CompletionException(generalSecurityException);
+                }
+            }, executor));
+        }
+
+        for (int i = 0; i < cipherTexts.size(); i++) {
+            try {
+                decrypted.success(offset + i, pending.get(i).join());
+            } catch (CompletionException completionException) {
+                Throwable cause = completionException.getCause();
+                decrypted.failure(offset + i, cause instanceof Exception ? (Exception) cause : completionException);
+            }
+        }
+    }
+
+    /***
+     * Decrypt cipher text for the private key
+     * @return Plaintext, null if the cipher text names another recipient or no sender key
+     */
+    private byte[] open(Sealed sealed, PrivateKey privateKey, List<ScytalePublicKey> scytalePublicKeys) throws NoSuchPaddingException, NoSuchAlgorithmException, IllegalBlockSizeException, BadPaddingException, NoSuchProviderException, InvalidKeyException, InvalidAlgorithmParameterException {
+        if (!sealed.isFor(fingerprintOf(privateKey))) {
+            return null;
+        }
+
         String privateKeyType = privateKey.getAlgorithm();
 
         if (privateKeyType.equalsIgnoreCase(RSACertificate.ALGORITHM)) {
-            return rsaDecrypt(data, privateKey);
-        } else if (privateKeyType.equalsIgnoreCase(ECCCertificate.ALGORITHM)) {
-            return eccDecrypt(data, privateKey, scytalePublicKeys);
+            return rsaDecrypt(sealed.cipherText, privateKey);
+        } else if (isAgreementAlgorithm(privateKeyType)) {
+            return eccDecrypt(sealed.cipherText, privateKey, sealed.senders(scytalePublicKeys), agreementCache);
         }
 
-        return "";
+        return null;
     }
 
-    private String rsaEncrypt(String data, ScytalePublicKey scytalePublicKey) throws NoSuchPaddingException, NoSuchAlgorithmException, InvalidKeyException, BadPaddingException, IllegalBlockSizeException, NoSuchProviderException {
-        Cipher cipher = Cipher.getInstance(RSA_TRANSFORMATION, PROVIDER);
+    private byte[] unwrapContentKey(List<String> wrappedKeys, PrivateKey privateKey, List<ScytalePublicKey> scytalePublicKeys) throws NoSuchPaddingException, NoSuchAlgorithmException, NoSuchProviderException, InvalidKeyException, InvalidAlgorithmParameterException {
+        String privateKeyType = privateKey.getAlgorithm();
+        String recipientFingerprint = fingerprintOf(privateKey);
+
+        for (String wrappedKey : wrappedKeys) {
+            Sealed sealed = Sealed.parse(wrappedKey);
+            if (!sealed.isFor(recipientFingerprint)) {
+                continue;
+            }
+
+            byte[] contentKey = null;
+            if (privateKeyType.equalsIgnoreCase(RSACertificate.ALGORITHM)) {
+                try {
+                    contentKey = rsaDecrypt(sealed.cipherText, privateKey);
+                } catch (BadPaddingException | IllegalBlockSizeException e) {}
+            } else if (isAgreementAlgorithm(privateKeyType)) {
+                contentKey = eccDecrypt(sealed.cipherText, privateKey, sealed.senders(scytalePublicKeys), agreementCache);
+            }
+
+            if (contentKey != null && contentKey.length == AES_KEY_SIZE / Byte.SIZE) {
+                return contentKey;
+            }
+        }
+
+        return null;
+    }
+
+    private byte[] rsaEncrypt(byte[] data, ScytalePublicKey scytalePublicKey) throws NoSuchPaddingException, NoSuchAlgorithmException, InvalidKeyException, BadPaddingException, IllegalBlockSizeException, NoSuchProviderException {
+        Cipher cipher = rsaCiphers.get();
         cipher.init(Cipher.ENCRYPT_MODE, scytalePublicKey.getPublicKey());
-        return Base64.getEncoder().encodeToString(cipher.doFinal(data.getBytes()));
+        return cipher.doFinal(data);
     }
 
-    private String eccEncrypt(String data, PrivateKey privateKey, ScytalePublicKey scytalePublicKey) throws NoSuchPaddingException, NoSuchAlgorithmException, NoSuchProviderException, InvalidAlgorithmParameterException, InvalidKeyException, BadPaddingException, IllegalBlockSizeException {
-        Cipher cipher = Cipher.getInstance(ECC_TRANSFORMATION, PROVIDER);
+    private byte[] eccEncrypt(byte[] data, PrivateKey privateKey, ScytalePublicKey scytalePublicKey) throws NoSuchPaddingException, NoSuchAlgorithmException, NoSuchProviderException, InvalidAlgorithmParameterException, InvalidKeyException, BadPaddingException, IllegalBlockSizeException {
+        IESEngine engine = iesEngine(true, privateKey, scytalePublicKey, agreementCache);
+        if (engine != null) {
+            return process(engine, data);
+        }
+
+        Cipher cipher = eccCiphers.get();
         cipher.init(Cipher.ENCRYPT_MODE, new IEKeySpec(privateKey, scytalePublicKey.getPublicKey()), iesParameterSpec);
-        return Base64.getEncoder().encodeToString(cipher.doFinal(data.getBytes()));
+        return cipher.doFinal(data);
     }
 
 
-    private String rsaDecrypt(String data, PrivateKey privateKey) throws NoSuchPaddingException, NoSuchAlgorithmException, BadPaddingException, IllegalBlockSizeException, InvalidKeyException, NoSuchProviderException {
-        Cipher cipher = Cipher.getInstance(RSA_TRANSFORMATION, PROVIDER);
+    private byte[] rsaDecrypt(byte[] data, PrivateKey privateKey) throws NoSuchPaddingException, NoSuchAlgorithmException, BadPaddingException, IllegalBlockSizeException, InvalidKeyException, NoSuchProviderException {
+        Cipher cipher = rsaCiphers.get();
         cipher.init(Cipher.DECRYPT_MODE, privateKey);
-        return new String(cipher.doFinal(Base64.getDecoder().decode(data.getBytes())));
+        return cipher.doFinal(data);
     }
 
-    private String eccDecrypt(String data, PrivateKey privateKey, List<ScytalePublicKey> scytalePublicKeys) throws NoSuchPaddingException, NoSuchAlgorithmException, NoSuchProviderException, InvalidAlgorithmParameterException, InvalidKeyException {
-        Cipher cipher = Cipher.getInstance(ECC_TRANSFORMATION, PROVIDER);
+    private byte[] eccDecrypt(byte[] data, PrivateKey privateKey, List<ScytalePublicKey> scytalePublicKeys, AgreementCache agreements) throws NoSuchPaddingException, NoSuchAlgorithmException, NoSuchProviderException, InvalidAlgorithmParameterException, InvalidKeyException {
+        Cipher cipher = eccCiphers.get();
         for (ScytalePublicKey scytalePublicKey : scytalePublicKeys) {
+            PublicKey publicKey = scytalePublicKey.getPublicKey();
+            if (publicKey == null || !publicKey.getAlgorithm().equalsIgnoreCase(privateKey.getAlgorithm())) {
+                continue;
+            }
+
+            IESEngine engine = iesEngine(false, privateKey, scytalePublicKey, agreements);
+            if (engine != null) {
+                try {
+                    return process(engine, data);
+                } catch (BadPaddingException e) {}
+                continue;
+            }
+
             cipher.init(Cipher.DECRYPT_MODE, new IEKeySpec(privateKey, scytalePublicKey.getPublicKey()), iesParameterSpec);
             try {
-                return new String(cipher.doFinal(Base64.getDecoder().decode(data.getBytes())));
+                return cipher.doFinal(data);
             } catch (BadPaddingException | IllegalBlockSizeException e) {}
         }
 
-        return "";
+        return null;
+    }
+
+    /***
+     * The same ECIES engine as the provider's cipher, agreeing through an agreement cache when given one. X25519 keys,
+     * which the provider's cipher does not support, always use the engine with the platform's X25519 agreement.
+     * @return {@link IESEngine IESEngine}, null for EC keys if there is no cache or either key cannot be fingerprinted
+     */
+    private IESEngine iesEngine(boolean forEncryption, PrivateKey privateKey, ScytalePublicKey scytalePublicKey, AgreementCache agreements) throws InvalidKeyException {
+        String privateFingerprint = agreements == null ? null : fingerprintOf(privateKey);
+        String publicFingerprint = agreements == null ? null : scytalePublicKey.getFingerprint();
+        boolean cached = privateFingerprint != null && publicFingerprint != null;
+
+        BasicAgreement agreement;
+        CipherParameters privateParameters = null;
+        CipherParameters publicParameters = null;
+        if (privateKey.getAlgorithm().equalsIgnoreCase(X25519Certificate.ALGORITHM)) {
+            BasicAgreement x25519Agreement = new X25519Agreement(privateKey, scytalePublicKey.getPublicKey());
+            agreement = cached ? agreements.agreement(privateFingerprint, publicFingerprint, x25519Agreement) : x25519Agreement;
+        } else if (cached) {
+            agreement = agreements.agreement(privateFingerprint, publicFingerprint);
+            privateParameters = ECUtil.generatePrivateKeyParameter(privateKey);
+            publicParameters = ECUtil.generatePublicKeyParameter(scytalePublicKey.getPublicKey());
+        } else {
+            return null;
+        }
+
+        IESEngine engine = new IESEngine(agreement, new KDF2BytesGenerator(new SHA1Digest()), new HMac(new SHA1Digest()));
+        engine.init(forEncryption, privateParameters, publicParameters, iesParameters);
+        return engine;
+    }
+
+    private CipherPool cipherPool(ProviderSelector.Primitive primitive) {
+        return new CipherPool(primitive.getTransformation(), providers.getProvider(primitive));
+    }
+
+    private static boolean isAgreementAlgorithm(String algorithm) {
+        return algorithm.equalsIgnoreCase(ECCCertificate.ALGORITHM) || algorithm.equalsIgnoreCase(X25519Certificate.ALGORITHM);
+    }
+
+    private byte[] process(IESEngine engine, byte[] data) throws BadPaddingException {
+        try {
+            return engine.processBlock(data, 0, data.length);
+        } catch (InvalidCipherTextException invalidCipherTextException) {
+            throw new BadPaddingException(invalidCipherTextException.getMessage());
+        }
+    }
+
+    /***
+     * Deriving the public key of an EC private key costs a point multiplication, so fingerprints are kept for as long
+     * as the private key is in use
+     */
+    private String fingerprintOf(PrivateKey privateKey) {
+        String fingerprint = privateKeyFingerprints.get(privateKey);
+        if (fingerprint == null) {
+            fingerprint = KeyFingerprint.of(privateKey);
+            if (fingerprint != null) {
+                privateKeyFingerprints.put(privateKey, fingerprint);
+            }
+        }
+        return fingerprint;
+    }
+
+    /***
+     * State shared by every item of a batch decryption for one private key. Without an agreement cache configured a
+     * cache is kept for the batch alone, so each sender's agreement is calculated once per batch.
+     */
+    private final class BatchDecryption {
+        private final PrivateKey privateKey;
+        private final String privateKeyType;
+        private final String fingerprint;
+        private final List<ScytalePublicKey> scytalePublicKeys;
+        private final Map<String, ScytalePublicKey> sendersByFingerprint = new HashMap<>();
+        private final AgreementCache agreements;
+
+        private BatchDecryption(PrivateKey privateKey, List<ScytalePublicKey> scytalePublicKeys) {
+            this.privateKey = privateKey;
+            this.privateKeyType = privateKey.getAlgorithm();
+            this.fingerprint = fingerprintOf(privateKey);
+            this.scytalePublicKeys = scytalePublicKeys;
+            for (ScytalePublicKey scytalePublicKey : scytalePublicKeys) {
+                String senderFingerprint = scytalePublicKey.getFingerprint();
+                if (senderFingerprint != null) {
+                    sendersByFingerprint.putIfAbsent(senderFingerprint, scytalePublicKey);
+                }
+            }
+            this.agreements = agreementCache != null ? agreementCache : new AgreementCache(Math.max(1, scytalePublicKeys.size()));
+        }
+
+        private String decrypt(String cipherText) throws GeneralSecurityException {
+            Sealed sealed = Sealed.parse(cipherText);
+            if (!sealed.isFor(fingerprint)) {
+                throw new InvalidKeyException("Cipher text is for another key");
+            }
+
+            byte[] plainText = null;
+            if (privateKeyType.equalsIgnoreCase(RSACertificate.ALGORITHM)) {
+                plainText = rsaDecrypt(sealed.cipherText, privateKey);
+            } else if (isAgreementAlgorithm(privateKeyType)) {
+                plainText = eccDecrypt(sealed.cipherText, privateKey, sealed.senders(sendersByFingerprint, scytalePublicKeys), agreements);
+            }
+            if (plainText == null) {
+                throw new InvalidKeyException("No public key decrypts cipher text");
+            }
+
+            String decrypted = new String(plainText);
+            wipe(plainText);
+            return decrypted;
+        }
+    }
+
+    /***
+     * Cipher text for one recipient, formatted as {@code recipient.sender.cipherText} where recipient and sender are
+     * key fingerprints and the cipher text is Base64. Cipher text without fingerprints is plain Base64, which never
+     * contains the separator. Binary cipher text has the same ASCII header followed by the raw cipher text.
+     */
+    private static final class Sealed {
+        private static final char SEPARATOR = '.';
+
+        private final String recipient;
+        private final String sender;
+        private final byte[] cipherText;
+
+        private Sealed(String recipient, String sender, byte[] cipherText) {
+            this.recipient = recipient;
+            this.sender = sender;
+            this.cipherText = cipherText;
+        }
+
+        private static String format(ScytalePublicKey recipient, String senderFingerprint, byte[] cipherText) {
+            return recipient.getFingerprint() + SEPARATOR + (senderFingerprint == null ? "" : senderFingerprint) + SEPARATOR +
+                    Base64.getEncoder().encodeToString(cipherText);
+        }
+
+        private static byte[] seal(ScytalePublicKey recipient, String senderFingerprint, byte[] cipherText) {
+            byte[] header = (recipient.getFingerprint() + SEPARATOR + (senderFingerprint == null ? "" : senderFingerprint) + SEPARATOR)
+                    .getBytes(StandardCharsets.US_ASCII);
+            byte[] sealed = Arrays.copyOf(header, header.length + cipherText.length);
+            System.arraycopy(cipherText, 0, sealed, header.length, cipherText.length);
+            return sealed;
+        }
+
+        private static Sealed parse(byte[] sealed) {
+            int recipientEnd = indexOfSeparator(sealed, 0);
+            int senderEnd = recipientEnd == -1 ? -1 : indexOfSeparator(sealed, recipientEnd + 1);
+            if (senderEnd == -1) {
+                throw new IllegalArgumentException("Invalid cipher text header");
+            }
+            String sender = new String(sealed, recipientEnd + 1, senderEnd - recipientEnd - 1, StandardCharsets.US_ASCII);
+            return new Sealed(new String(sealed, 0, recipientEnd, StandardCharsets.US_ASCII), sender.isEmpty() ? null : sender,
+                    Arrays.copyOfRange(sealed, senderEnd + 1, sealed.length));
+        }
+
+        private static int indexOfSeparator(byte[] sealed, int from) {
+            for (int i = from; i < sealed.length; i++) {
+                if (sealed[i] == SEPARATOR) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private static Sealed parse(String data) {
+            int recipientEnd = data.indexOf(SEPARATOR);
+            if (recipientEnd == -1) {
+                return new Sealed(null, null, Base64.getDecoder().decode(data));
+            }
+
+            int senderEnd = data.indexOf(SEPARATOR, recipientEnd + 1);
+            if (senderEnd == -1) {
+                throw new IllegalArgumentException("Invalid cipher text header");
+            }
+            String sender = data.substring(recipientEnd + 1, senderEnd);
+            return new Sealed(data.substring(0, recipientEnd), sender.isEmpty() ? null : sender,
+                    Base64.getDecoder().decode(data.substring(senderEnd + 1)));
+        }
+
+        /***
+         * Whether the cipher text may be for the recipient, always true when either fingerprint is unknown
+         */
+        private boolean isFor(String recipientFingerprint) {
+            return recipient == null || recipientFingerprint == null || recipient.equals(recipientFingerprint);
+        }
+
+        /***
+         * The public keys which may have been used by the sender, only the named key when the sender is known
+         */
+        private List<ScytalePublicKey> senders(Map<String, ScytalePublicKey> sendersByFingerprint, List<ScytalePublicKey> scytalePublicKeys) {
+            if (sender == null) {
+                return scytalePublicKeys;
+            }
+            ScytalePublicKey senderKey = sendersByFingerprint.get(sender);
+            return senderKey == null ? List.of() : List.of(senderKey);
+        }
+
+        private List<ScytalePublicKey> senders(List<ScytalePublicKey> scytalePublicKeys) {
+            if (sender == null) {
+                return scytalePublicKeys;
+            }
+            List<ScytalePublicKey> senders = new ArrayList<>(1);
+            for (ScytalePublicKey scytalePublicKey : scytalePublicKeys) {
+                if (sender.equals(scytalePublicKey.getFingerprint())) {
+                    senders.add(scytalePublicKey);
+                }
+            }
+            return senders;
+        }
     }
 }
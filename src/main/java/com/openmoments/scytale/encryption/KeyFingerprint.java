@@ -0,0 +1,133 @@
+package com.openmoments.scytale.encryption;
+
+import org.bouncycastle.crypto.params.ECPrivateKeyParameters;
+import org.bouncycastle.jce.provider.asymmetric.ec.ECUtil;
+import org.bouncycastle.math.ec.ECPoint;
+
+import javax.crypto.KeyAgreement;
+import java.math.BigInteger;
+import java.security.GeneralSecurityException;
+import java.security.InvalidKeyException;
+import java.security.KeyFactory;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.interfaces.ECPrivateKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAKey;
+import java.security.interfaces.XECPrivateKey;
+import java.security.interfaces.XECPublicKey;
+import java.security.spec.NamedParameterSpec;
+import java.security.spec.XECPublicKeySpec;
+import java.util.Arrays;
+import java.util.Base64;
+
+/***
+ * Compact identifier of a key pair, the first 8 bytes of a SHA-256 digest of the public key encoded as unpadded URL
+ * safe Base64. The digest is taken over the RSA modulus, the EC public point or the X25519 u-coordinate rather than the
+ * encoded key, so the same fingerprint is produced whichever provider decoded the key and can be derived from the
+ * private key.
+ */
+public final class KeyFingerprint {
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+    private static final int FINGERPRINT_LENGTH = 8;
+    private static final BigInteger X25519_BASE_POINT = BigInteger.valueOf(9);
+
+    private KeyFingerprint() {}
+
+    /***
+     * Fingerprint a public key
+     * @param publicKey - {@link PublicKey PublicKey} to fingerprint
+     * @return {@link String String} fingerprint
+     */
+    public static String of(PublicKey publicKey) {
+        if (publicKey instanceof RSAKey) {
+            return digest(((RSAKey) publicKey).getModulus());
+        }
+        if (publicKey instanceof ECPublicKey) {
+            ECPublicKey ecPublicKey = (ECPublicKey) publicKey;
+            return digest(ecPublicKey.getW().getAffineX(), ecPublicKey.getW().getAffineY());
+        }
+        if (publicKey instanceof XECPublicKey) {
+            return digest(((XECPublicKey) publicKey).getU());
+        }
+        return digest(publicKey.getEncoded());
+    }
+
+    /***
+     * Fingerprint the public key of a private key's key pair
+     * @param privateKey - {@link PrivateKey PrivateKey} to fingerprint
+     * @return {@link String String} fingerprint, null if the public key cannot be derived from the private key
+     */
+    public static String of(PrivateKey privateKey) {
+        if (privateKey instanceof RSAKey) {
+            return digest(((RSAKey) privateKey).getModulus());
+        }
+        if (privateKey instanceof ECPrivateKey) {
+            return ecPublicPoint(privateKey);
+        }
+        if (privateKey instanceof XECPrivateKey) {
+            return x25519PublicU(privateKey);
+        }
+        return null;
+    }
+
+    private static String ecPublicPoint(PrivateKey privateKey) {
+        try {
+            ECPrivateKeyParameters ecPrivateKey = (ECPrivateKeyParameters) ECUtil.generatePrivateKeyParameter(privateKey);
+            ECPoint publicPoint = ecPrivateKey.getParameters().getG().multiply(ecPrivateKey.getD());
+            return digest(publicPoint.getX().toBigInteger(), publicPoint.getY().toBigInteger());
+        } catch (InvalidKeyException e) {
+            return null;
+        }
+    }
+
+    /***
+     * The public u-coordinate is the X25519 agreement of the private key with the base point u = 9, which the
+     * agreement encodes little endian
+     */
+    private static String x25519PublicU(PrivateKey privateKey) {
+        try {
+            PublicKey basePoint = CryptoContext.get().keyFactory(X25519Certificate.ALGORITHM)
+                    .generatePublic(new XECPublicKeySpec(NamedParameterSpec.X25519, X25519_BASE_POINT));
+            KeyAgreement keyAgreement = CryptoContext.get().keyAgreement(X25519Certificate.ALGORITHM);
+            keyAgreement.init(privateKey);
+            keyAgreement.doPhase(basePoint, true);
+
+            byte[] publicU = keyAgreement.generateSecret();
+            for (int i = 0; i < publicU.length / 2; i++) {
+                byte swap = publicU[i];
+                publicU[i] = publicU[publicU.length - 1 - i];
+                publicU[publicU.length - 1 - i] = swap;
+            }
+            return digest(new BigInteger(1, publicU));
+        } catch (GeneralSecurityException e) {
+            return null;
+        }
+    }
+
+    private static String digest(BigInteger... values) {
+        MessageDigest messageDigest = sha256();
+        for (BigInteger value : values) {
+            messageDigest.update(value.toByteArray());
+        }
+        return encode(messageDigest.digest());
+    }
+
+    private static String digest(byte[] encoded) {
+        return encode(sha256().digest(encoded));
+    }
+
+    private static String encode(byte[] digest) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(digest, FINGERPRINT_LENGTH));
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance(DIGEST_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(DIGEST_ALGORITHM + " is required of every Java platform", e);
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package com.openmoments.scytale.encryption;
+
+import java.io.Closeable;
+import java.security.GeneralSecurityException;
+import java.security.InvalidAlgorithmParameterException;
+import java.security.KeyPair;
+import java.security.NoSuchAlgorithmException;
+import java.security.NoSuchProviderException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/***
+ * Key pairs of one {@link CertificateType CertificateType} and key length generated ahead of time, so callers such as
+ * user onboarding are not blocked by RSA key generation. Once started, low priority daemon threads keep the pool
+ * filled to the {@link #highWaterMark(int) highWaterMark}. When the pool is empty a key pair is generated on the
+ * calling thread instead. Pooled private keys are held in memory until taken, so the pool should be closed when no
+ * longer needed.
+ */
+public class KeyPairPool implements Closeable {
+    private static final Logger LOG = Logger.getLogger(KeyPairPool.class.getName());
+    private static final int DEFAULT_HIGH_WATER_MARK = 8;
+    private static final int DEFAULT_THREADS = 1;
+    private static final double NANOS_PER_SECOND = 1_000_000_000d;
+
+    private final CertificateType certificateType;
+    private final Queue<KeyPair> keyPairs = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger level = new AtomicInteger();
+    private final AtomicInteger refilling = new AtomicInteger();
+    private final AtomicLong generated = new AtomicLong();
+    private final AtomicLong generatingNanos = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private volatile AsymmetricCertificate certificate;
+    private volatile int highWaterMark = DEFAULT_HIGH_WATER_MARK;
+    private volatile int threads = DEFAULT_THREADS;
+    private volatile ExecutorService executor;
+
+    /***
+     * Constructor requiring the type of key pair pooled
+     * @param certificateType - {@link CertificateType CertificateType} of the key pairs
+     * @throws IllegalArgumentException - if the certificate type is null
+     */
+    public KeyPairPool(CertificateType certificateType) {
+        if (certificateType == null) {
+            throw new IllegalArgumentException("Certificate type cannot be null");
+        }
+        this.certificateType = certificateType;
+        this.certificate = certificateType.factory.get();
+    }
+
+    /***
+     * Specify the key length of the key pairs, defaults to the certificate's own default. Should be specified before
+     * the pool is started, as key pairs already pooled are kept
+     * @param keyLength - Key length, see {@link AsymmetricCertificate#length(int) length}
+     * @return Instance of KeyPairPool
+     */
+    public KeyPairPool length(int keyLength) {
+        this.certificate = certificateType.factory.get().length(keyLength);
+        return this;
+    }
+
+    /***
+     * Specify the number of key pairs the pool is refilled to, defaults to 8
+     * @param highWaterMark - Key pairs held when full
+     * @return Instance of KeyPairPool
+     */
+    public KeyPairPool highWaterMark(int highWaterMark) {
+        if (highWaterMark <= 0) {
+            throw new IllegalArgumentException("High water mark must be positive integer");
+        }
+        this.highWaterMark = highWaterMark;
+        return this;
+    }
+
+    /***
+     * Specify the number of background threads refilling the pool, defaults to 1
+     * @param threads - Refill threads
+     * @return Instance of KeyPairPool
+     */
+    public KeyPairPool threads(int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Refill threads must be positive integer");
+        }
+        this.threads = threads;
+        return this;
+    }
+
+    /***
+     * Start filling the pool in the background on low priority daemon threads
+     * @return Instance of KeyPairPool
+     */
+    public synchronized KeyPairPool start() {
+        if (executor != null) {
+            return this;
+        }
+
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "scytale-key-pairs-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        for (int i = 0; i < threads; i++) {
+            scheduleRefill();
+        }
+        return this;
+    }
+
+    /***
+     * Take a key pair from the pool, or generate one if the pool is empty
+     * @return {@link KeyPair KeyPair} which is not given to any other caller
+     * @throws NoSuchAlgorithmException - if the key pair could not be generated inline
+     * @throws NoSuchProviderException - if the Security Provider does not exist
+     * @throws InvalidAlgorithmParameterException - if the key generation parameters are not supported
+     */
+    public KeyPair take() throws NoSuchAlgorithmException, NoSuchProviderException, InvalidAlgorithmParameterException {
+        KeyPair keyPair = keyPairs.poll();
+        if (keyPair != null) {
+            level.decrementAndGet();
+            scheduleRefill();
+            return keyPair;
+        }
+
+        misses.incrementAndGet();
+        scheduleRefill();
+        return certificate.generateKeyPair();
+    }
+
+    /***
+     * @return Number of key pairs ready to be taken
+     */
+    public int size() {
+        return keyPairs.size();
+    }
+
+    /***
+     * @return Number of key pairs generated inline because the pool was empty
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /***
+     * @return Number of key pairs generated by the background threads
+     */
+    public long getGenerated() {
+        return generated.get();
+    }
+
+    /***
+     * Key pairs per second the background threads add to the pool while refilling, excluding time spent full
+     * @return Refill rate across all threads, 0 if nothing has been generated yet
+     */
+    public double refillRate() {
+        long nanos = generatingNanos.get();
+        if (nanos == 0) {
+            return 0;
+        }
+        return generated.get() * NANOS_PER_SECOND / nanos * threads;
+    }
+
+    /***
+     * Stop refilling and discard the pooled key pairs
+     */
+    @Override
+    public void close() {
+        ExecutorService running;
+        synchronized (this) {
+            running = executor;
+            executor = null;
+        }
+
+        if (running != null) {
+            running.shutdownNow();
+            try {
+                running.awaitTermination(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        keyPairs.clear();
+        level.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return "KeyPairPool{" + "type=" + certificateType + ", size=" + size() + ", misses=" + misses.get() + "}";
+    }
+
+    /***
+     * Start a refill unless every thread is already refilling or the pool is full
+     */
+    private void scheduleRefill() {
+        ExecutorService running = executor;
+        if (running == null) {
+            return;
+        }
+
+        int active = refilling.get();
+        while (active < threads && level.get() < highWaterMark) {
+            if (refilling.compareAndSet(active, active + 1)) {
+                try {
+                    running.execute(this::refill);
+                } catch (RejectedExecutionException e) {
+                    refilling.decrementAndGet();
+                }
+                return;
+            }
+            active = refilling.get();
+        }
+    }
+
+    /***
+     * Generate key pairs until the pool, including pairs being generated by other threads, reaches the high water mark.
+     * A key pair taken while this thread is finishing is picked up by the check for another refill.
+     */
+    private void refill() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                int current = level.get();
+                if (current >= highWaterMark) {
+                    break;
+                }
+                if (!level.compareAndSet(current, current + 1)) {
+                    continue;
+                }
+
+                try {
+                    long start = System.nanoTime();
+                    KeyPair keyPair = certificate.generateKeyPair();
+                    generatingNanos.addAndGet(System.nanoTime() - start);
+                    generated.incrementAndGet();
+                    if (executor == null) {
+                        break;
+                    }
+                    keyPairs.add(keyPair);
+                } catch (GeneralSecurityException | RuntimeException e) {
+                    level.decrementAndGet();
+                    LOG.log(Level.WARNING, "Failed to generate " + certificateType + " key pair for pool", e);
+                    return;
+                }
+            }
+        } finally {
+            refilling.decrementAndGet();
+        }
+        scheduleRefill();
+    }
+}
@@ -0,0 +1,232 @@
+package com.openmoments.scytale.encryption;
+
+import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.NoSuchPaddingException;
+import javax.crypto.spec.GCMParameterSpec;
+import java.security.*;
+import java.security.spec.AlgorithmParameterSpec;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/***
+ * Chooses the JCE provider used for each primitive whose output is the same whichever provider produces it, so a
+ * faster provider can be used without affecting existing cipher text or keys. Providers are either configured or
+ * chosen by {@link #benchmark() benchmark}. ECIES is only provided by BouncyCastle and is not selectable.
+ */
+public final class ProviderSelector {
+    private static final Logger LOG = Logger.getLogger(ProviderSelector.class.getName());
+    private static final int WARMUP_ITERATIONS = 10;
+    private static final int MEASURED_ITERATIONS = 20;
+    private static final int SAMPLE_LENGTH = 32;
+    private static final int BENCHMARK_RSA_KEY_SIZE = 2048;
+    private static final int GCM_NONCE_LENGTH = 12;
+    private static final int GCM_TAG_LENGTH = 128;
+
+    public enum Primitive {
+        RSA_OAEP("Cipher", "RSA", "RSA/ECB/OAEPwithSHA1andMGF1Padding", "BC"),
+        AES_GCM("Cipher", "AES", "AES/GCM/NoPadding", null),
+        EC_KEY_PAIR("KeyPairGenerator", "EC", "EC", "BC");
+
+        private final String type;
+        private final String algorithm;
+        private final String transformation;
+        private final String defaultProvider;
+
+        Primitive(String type, String algorithm, String transformation, String defaultProvider) {
+            this.type = type;
+            this.algorithm = algorithm;
+            this.transformation = transformation;
+            this.defaultProvider = defaultProvider;
+        }
+
+        String getTransformation() {
+            return transformation;
+        }
+    }
+
+    private final CryptoContext context = CryptoContext.get();
+    private final Map<Primitive, String> selected = new EnumMap<>(Primitive.class);
+
+    /***
+     * Selects BouncyCastle for RSA-OAEP and EC key pairs and the highest priority provider for AES-GCM
+     */
+    public ProviderSelector() {
+        for (Primitive primitive : Primitive.values()) {
+            selected.put(primitive, primitive.defaultProvider);
+        }
+    }
+
+    /***
+     * Use a provider for a primitive
+     * @param primitive - {@link Primitive Primitive} to configure
+     * @param provider - Name of an installed security provider, null for the highest priority provider
+     * @return Instance of ProviderSelector
+     * @throws IllegalArgumentException - if the provider is not installed
+     */
+    public ProviderSelector provider(Primitive primitive, String provider) {
+        if (provider != null && Security.getProvider(provider) == null) {
+            throw new IllegalArgumentException("Security provider " + provider + " is not installed");
+        }
+        selected.put(primitive, provider);
+        return this;
+    }
+
+    /***
+     * @param primitive - {@link Primitive Primitive} to look up
+     * @return Name of the provider selected for the primitive, null for the highest priority provider
+     */
+    public String getProvider(Primitive primitive) {
+        return selected.get(primitive);
+    }
+
+    /***
+     * @return {@link Map Map} of the provider selected for each primitive, null for the highest priority provider
+     */
+    public Map<Primitive, String> getSelected() {
+        return Collections.unmodifiableMap(new EnumMap<>(selected));
+    }
+
+    /***
+     * Time each installed provider of every primitive and select the fastest. A provider is only considered when its
+     * output can be read by the default provider and the other way round. Takes in the order of a second, so is
+     * intended to run once at startup. The selection is logged.
+     * @return Instance of ProviderSelector
+     */
+    public ProviderSelector benchmark() {
+        for (Primitive primitive : Primitive.values()) {
+            Provider[] providers = Security.getProviders(primitive.type + "." + primitive.algorithm);
+            if (providers == null) {
+                continue;
+            }
+
+            String fastest = selected.get(primitive);
+            long fastestTime = Long.MAX_VALUE;
+            for (Provider provider : providers) {
+                try {
+                    long time = trial(primitive, provider.getName());
+                    LOG.log(Level.FINE, "{0} with {1} took {2}ns", new Object[]{primitive, provider.getName(), time});
+                    if (time < fastestTime) {
+                        fastest = provider.getName();
+                        fastestTime = time;
+                    }
+                } catch (GeneralSecurityException | RuntimeException e) {
+                    LOG.log(Level.FINE, primitive + " with " + provider.getName() + " is not usable", e);
+                }
+            }
+            selected.put(primitive, fastest);
+        }
+
+        LOG.log(Level.INFO, "Selected security providers {0}", selected);
+        return this;
+    }
+
+    Cipher cipher(Primitive primitive) throws NoSuchPaddingException, NoSuchAlgorithmException, NoSuchProviderException {
+        return cipher(primitive, selected.get(primitive));
+    }
+
+    KeyPairGenerator keyPairGenerator(Primitive primitive) throws NoSuchAlgorithmException, NoSuchProviderException {
+        return context.keyPairGenerator(primitive.transformation, selected.get(primitive));
+    }
+
+    @Override
+    public String toString() {
+        return "ProviderSelector{" + selected + "}";
+    }
+
+    private static Cipher cipher(Primitive primitive, String provider) throws NoSuchPaddingException, NoSuchAlgorithmException, NoSuchProviderException {
+        return provider == null ? Cipher.getInstance(primitive.transformation) : Cipher.getInstance(primitive.transformation, provider);
+    }
+
+    /***
+     * @return Nanoseconds taken by the measured iterations
+     * @throws GeneralSecurityException - if the provider fails or is not interoperable with the default provider
+     */
+    private long trial(Primitive primitive, String provider) throws GeneralSecurityException {
+        switch (primitive) {
+            case RSA_OAEP:
+                KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance(primitive.algorithm);
+                keyPairGenerator.initialize(BENCHMARK_RSA_KEY_SIZE);
+                KeyPair keyPair = keyPairGenerator.generateKeyPair();
+                return trialCipher(primitive, provider, keyPair.getPublic(), keyPair.getPrivate());
+            case AES_GCM:
+                Key key = KeyGenerator.getInstance(primitive.algorithm).generateKey();
+                return trialCipher(primitive, provider, key, key);
+            case EC_KEY_PAIR:
+                return trialKeyPair(primitive, provider);
+            default:
+                throw new NoSuchAlgorithmException("No trial for " + primitive);
+        }
+    }
+
+    private long trialCipher(Primitive primitive, String provider, Key encryptKey, Key decryptKey) throws GeneralSecurityException {
+        Cipher candidate = cipher(primitive, provider);
+        Cipher reference = cipher(primitive, primitive.defaultProvider);
+        roundTrip(primitive, candidate, reference, encryptKey, decryptKey);
+        roundTrip(primitive, reference, candidate, encryptKey, decryptKey);
+
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            roundTrip(primitive, candidate, candidate, encryptKey, decryptKey);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            roundTrip(primitive, candidate, candidate, encryptKey, decryptKey);
+        }
+        return System.nanoTime() - start;
+    }
+
+    private void roundTrip(Primitive primitive, Cipher encrypt, Cipher decrypt, Key encryptKey, Key decryptKey) throws GeneralSecurityException {
+        SecureRandom secureRandom = context.secureRandom();
+        byte[] sample = new byte[SAMPLE_LENGTH];
+        secureRandom.nextBytes(sample);
+
+        AlgorithmParameterSpec parameters = null;
+        if (primitive == Primitive.AES_GCM) {
+            byte[] nonce = new byte[GCM_NONCE_LENGTH];
+            secureRandom.nextBytes(nonce);
+            parameters = new GCMParameterSpec(GCM_TAG_LENGTH, nonce);
+        }
+
+        encrypt.init(Cipher.ENCRYPT_MODE, encryptKey, parameters);
+        byte[] cipherText = encrypt.doFinal(sample);
+        decrypt.init(Cipher.DECRYPT_MODE, decryptKey, parameters);
+        if (!Arrays.equals(sample, decrypt.doFinal(cipherText))) {
+            throw new GeneralSecurityException("Providers are not interoperable");
+        }
+    }
+
+    private long trialKeyPair(Primitive primitive, String provider) throws GeneralSecurityException {
+        KeyPairGenerator candidate = KeyPairGenerator.getInstance(primitive.algorithm, provider);
+        candidate.initialize(new ECGenParameterSpec(ECCCertificate.EC_GEN_PARAMETER_SPEC));
+
+        KeyFactory reference = KeyFactory.getInstance(primitive.algorithm, primitive.defaultProvider);
+        boolean converted = !provider.equals(primitive.defaultProvider);
+
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            generateKeyPair(candidate, reference, converted);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            generateKeyPair(candidate, reference, converted);
+        }
+        return System.nanoTime() - start;
+    }
+
+    /***
+     * Keys from another provider are decoded by the default provider, as {@link ECCCertificate ECCCertificate} does
+     */
+    private void generateKeyPair(KeyPairGenerator candidate, KeyFactory reference, boolean converted) throws GeneralSecurityException {
+        KeyPair keyPair = candidate.generateKeyPair();
+        if (converted) {
+            reference.generatePublic(new X509EncodedKeySpec(keyPair.getPublic().getEncoded()));
+            reference.generatePrivate(new PKCS8EncodedKeySpec(keyPair.getPrivate().getEncoded()));
+        }
+    }
+}
@@ -12,6 +12,7 @@ public final class RSACertificate implements AsymmetricCertificate {
 
     protected static final String ALGORITHM = "RSA";
     private static final int DEFAULT_KEY_SIZE = 4096;
+    private final CryptoContext context = CryptoContext.get();
     private int keySize = DEFAULT_KEY_SIZE;
 
     /***
@@ -21,9 +22,8 @@ public final class RSACertificate implements AsymmetricCertificate {
      */
     @Override
     public KeyPair generateKeyPair() throws NoSuchAlgorithmException {
-        KeyPairGenerator kpg;
-        kpg = KeyPairGenerator.getInstance(ALGORITHM);
-        kpg.initialize(keySize);
+        KeyPairGenerator kpg = context.keyPairGenerator(ALGORITHM);
+        kpg.initialize(keySize, context.secureRandom());
 
         return kpg.generateKeyPair();
     }
@@ -67,7 +67,7 @@ public final class RSACertificate implements AsymmetricCertificate {
         byte[] privateKeyBytes = privateKeyInputStream.readAllBytes();
         byte[] publicKeyBytes = publicKeyInputStream.readAllBytes();
 
-        KeyFactory keyFactory = KeyFactory.getInstance(ALGORITHM);
+        KeyFactory keyFactory = context.keyFactory(ALGORITHM);
         PKCS8EncodedKeySpec keySpec = new PKCS8EncodedKeySpec(privateKeyBytes);
         PrivateKey privateKey = keyFactory.generatePrivate(keySpec);
 
@@ -0,0 +1,46 @@
+package com.openmoments.scytale.encryption;
+
+import org.bouncycastle.crypto.BasicAgreement;
+import org.bouncycastle.crypto.CipherParameters;
+
+import javax.crypto.KeyAgreement;
+import java.math.BigInteger;
+import java.security.GeneralSecurityException;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+
+/***
+ * X25519 agreement through the platform's XDH implementation, for the BouncyCastle IES engine which only takes its own
+ * key parameters. The keys are given up front and the engine's parameters are ignored.
+ */
+final class X25519Agreement implements BasicAgreement {
+    private final PrivateKey privateKey;
+    private final PublicKey publicKey;
+
+    X25519Agreement(PrivateKey privateKey, PublicKey publicKey) {
+        this.privateKey = privateKey;
+        this.publicKey = publicKey;
+    }
+
+    @Override
+    public void init(CipherParameters ignored) {}
+
+    /***
+     * The 32 byte shared secret is returned as an unsigned big endian integer, and the IES engine derives its keys from
+     * that integer's minimal encoding, with leading zero bytes dropped and a zero byte added when the top bit is set.
+     * The KDF input is therefore not always 32 bytes. This is the engine's encoding for EC agreements too and is part
+     * of the wire format, so cipher text already written only decrypts if it is kept.
+     * @throws IllegalArgumentException - if the keys cannot agree, such as a public key of small order
+     */
+    @Override
+    public BigInteger calculateAgreement(CipherParameters ignored) {
+        try {
+            KeyAgreement keyAgreement = CryptoContext.get().keyAgreement(X25519Certificate.ALGORITHM);
+            keyAgreement.init(privateKey);
+            keyAgreement.doPhase(publicKey, true);
+            return new BigInteger(1, keyAgreement.generateSecret());
+        } catch (GeneralSecurityException generalSecurityException) {
+            throw new IllegalArgumentException("X25519 agreement failed", generalSecurityException);
+        }
+    }
+}
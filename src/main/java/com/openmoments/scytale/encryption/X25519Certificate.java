@@ -0,0 +1,82 @@
+package com.openmoments.scytale.encryption;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.*;
+import java.security.spec.InvalidKeySpecException;
+import java.security.spec.NamedParameterSpec;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+
+/***
+ * Curve25519 key pairs for X25519 key agreement, from the platform's XDH implementation. Key generation and agreement
+ * are far cheaper than RSA-4096 or secp256r1 through BouncyCastle.
+ */
+public final class X25519Certificate implements AsymmetricCertificate {
+    protected static final String ALGORITHM = "XDH";
+    protected static final String CURVE = "X25519";
+
+    private final CryptoContext context = CryptoContext.get();
+
+    X25519Certificate() {}
+
+    /***
+     * Generate a X25519 KeyPair
+     * @return {@link KeyPair KeyPair}
+     * @throws NoSuchAlgorithmException - if the platform does not provide X25519
+     */
+    @Override
+    public KeyPair generateKeyPair() throws NoSuchAlgorithmException {
+        KeyPairGenerator keyPairGenerator = context.keyPairGenerator(CURVE);
+        try {
+            keyPairGenerator.initialize(NamedParameterSpec.X25519, context.secureRandom());
+        } catch (InvalidAlgorithmParameterException e) {
+            throw new NoSuchAlgorithmException(CURVE, e);
+        }
+        return keyPairGenerator.generateKeyPair();
+    }
+
+    /***
+     * X25519 keys are always 255 bits, the length is ignored
+     * @param keyLength - Ignored
+     * @return Instance of X25519Certificate
+     */
+    @Override
+    public X25519Certificate length(int keyLength) {
+        return this;
+    }
+
+    /***
+     * Generates a public and private key combination which are written to output streams
+     * @param privateKeyOutputStream - Output stream for the private key
+     * @param publicKeyOutputStream - Output stream for the public key
+     * @throws IOException - Indicates an error writing to a output stream
+     * @throws NoSuchAlgorithmException - if the platform does not provide X25519
+     */
+    @Override
+    public void toStream(OutputStream privateKeyOutputStream, OutputStream publicKeyOutputStream) throws IOException, NoSuchAlgorithmException {
+        KeyPair keyPair = generateKeyPair();
+        privateKeyOutputStream.write(keyPair.getPrivate().getEncoded());
+        publicKeyOutputStream.write(keyPair.getPublic().getEncoded());
+    }
+
+    /***
+     * Create a KeyPair from input streams
+     * @param privateKeyInputStream - Private key {@link InputStream InputStream}
+     * @param publicKeyInputStream - Public Key {@link InputStream InputStream}
+     * @return {@link KeyPair KeyPair}
+     * @throws IOException - if there is an error reading from the input stream
+     * @throws NoSuchAlgorithmException - if the platform does not provide X25519
+     * @throws InvalidKeySpecException - if the X25519 key was invalid
+     */
+    @Override
+    public KeyPair fromStream(InputStream privateKeyInputStream, InputStream publicKeyInputStream) throws IOException, NoSuchAlgorithmException, InvalidKeySpecException {
+        KeyFactory keyFactory = context.keyFactory(ALGORITHM);
+
+        PrivateKey privateKey = keyFactory.generatePrivate(new PKCS8EncodedKeySpec(privateKeyInputStream.readAllBytes()));
+        PublicKey publicKey = keyFactory.generatePublic(new X509EncodedKeySpec(publicKeyInputStream.readAllBytes()));
+
+        return new KeyPair(publicKey, privateKey);
+    }
+}
@@ -0,0 +1,56 @@
+package com.openmoments.scytale.entities;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/***
+ * Outcome of a bulk operation, reporting the result or failure of each item in the order submitted
+ * @param <K> - Type of the submitted items
+ * @param <V> - Type of the result of each successful item
+ */
+public final class BatchResult<K, V> {
+    private final Map<K, V> results = new LinkedHashMap<>();
+    private final Map<K, Exception> failures = new LinkedHashMap<>();
+
+    public BatchResult<K, V> success(K item, V result) {
+        results.put(item, result);
+        return this;
+    }
+
+    public BatchResult<K, V> failure(K item, Exception failure) {
+        failures.put(item, failure);
+        return this;
+    }
+
+    public Map<K, V> getResults() {
+        return Collections.unmodifiableMap(results);
+    }
+
+    public Map<K, Exception> getFailures() {
+        return Collections.unmodifiableMap(failures);
+    }
+
+    public boolean hasFailures() {
+        return !failures.isEmpty();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        BatchResult<?, ?> batchResult = (BatchResult<?, ?>) o;
+        return results.equals(batchResult.results) && failures.equals(batchResult.failures);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(results, failures);
+    }
+
+    @Override
+    public String toString() {
+        return "BatchResult{results=" + results + ", failures=" + failures + "}";
+    }
+}
@@ -0,0 +1,85 @@
+package com.openmoments.scytale.entities;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/***
+ * Data encrypted once with a symmetric content key, along with that content key wrapped for each recipient. Each
+ * wrapped key names the fingerprint of its recipient, so they are held in order rather than by public key ID, which
+ * may be repeated or missing.
+ */
+public final class Envelope {
+    private static final String PAYLOAD_ATTR = "payload";
+    private static final String KEYS_ATTR = "keys";
+
+    private final String payload;
+    private final List<String> wrappedKeys;
+
+    /***
+     * @param payload - Base64 encoded nonce and cipher text of the data
+     * @param wrappedKeys - Content key wrapped for each recipient, in the order of the recipients
+     */
+    public Envelope(String payload, List<String> wrappedKeys) {
+        this.payload = payload;
+        this.wrappedKeys = List.copyOf(wrappedKeys);
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+
+    public List<String> getWrappedKeys() {
+        return wrappedKeys;
+    }
+
+    /***
+     * Encode the envelope as a JSON object for transmission or storage
+     * @return {@link String String} JSON object
+     */
+    public String encode() {
+        return new JSONObject().put(PAYLOAD_ATTR, payload).put(KEYS_ATTR, new JSONArray(wrappedKeys)).toString();
+    }
+
+    /***
+     * Decode an envelope previously encoded with {@link #encode()}
+     * @param encoded - {@link String String} JSON object
+     * @return {@link Envelope Envelope}
+     * @throws IllegalArgumentException - if the envelope is not valid
+     */
+    public static Envelope decode(String encoded) {
+        try {
+            JSONObject envelope = new JSONObject(encoded);
+            JSONArray keys = envelope.getJSONArray(KEYS_ATTR);
+            List<String> wrappedKeys = new ArrayList<>(keys.length());
+            for (int i = 0; i < keys.length(); i++) {
+                wrappedKeys.add(keys.getString(i));
+            }
+            return new Envelope(envelope.getString(PAYLOAD_ATTR), wrappedKeys);
+        } catch (JSONException e) {
+            throw new IllegalArgumentException("Invalid envelope", e);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Envelope envelope = (Envelope) o;
+        return payload.equals(envelope.payload) && wrappedKeys.equals(envelope.wrappedKeys);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(payload, wrappedKeys);
+    }
+
+    @Override
+    public String toString() {
+        return "Envelope{" + "recipients=" + wrappedKeys.size() + ", payloadLength=" + payload.length() + "}";
+    }
+}
@@ -2,28 +2,89 @@ package com.openmoments.scytale.entities;
 
 import com.openmoments.scytale.encryption.CertificateEncoder;
 import com.openmoments.scytale.encryption.CertificateType;
+import com.openmoments.scytale.encryption.KeyFingerprint;
 
-import java.security.NoSuchAlgorithmException;
-import java.security.NoSuchProviderException;
+import java.security.GeneralSecurityException;
 import java.security.PublicKey;
-import java.security.spec.InvalidKeySpecException;
 import java.util.Objects;
 
+/***
+ * A public key held by a keystore. The encoding is validated and the key type identified on construction, but the key
+ * is only decoded the first time {@link #getPublicKey()} is called, so keys which are listed or counted but never used
+ * for encryption cost no decoding.
+ */
 public final class ScytalePublicKey {
+    private static final CertificateEncoder CERTIFICATE_ENCODER = new CertificateEncoder();
+
     private final Long id;
-    private final PublicKey publicKey;
+    private final String encodedKey;
+    private final CertificateType certificateType;
+    private volatile PublicKey publicKey;
+    private volatile String fingerprint;
 
+    /***
+     * Constructor requiring the key as returned by the API
+     * @param id - ID of the key
+     * @param publicKey - Base64 encoded X.509 public key
+     * @throws IllegalArgumentException - if the key is missing, not valid Base64 or not X.509 encoded
+     */
     public ScytalePublicKey(Long id, String publicKey) {
+        if (publicKey == null) {
+            throw new IllegalArgumentException("Public key is required");
+        }
         this.id = id;
-        this.publicKey = getPublicKeyFromBase64(publicKey);
+        this.encodedKey = CERTIFICATE_ENCODER.trimPublicKey(publicKey);
+        this.certificateType = CERTIFICATE_ENCODER.publicKeyType(encodedKey).orElse(null);
     }
 
     public Long getId() {
         return id;
     }
 
+    /***
+     * The key as returned by the API without any header or line breaks, without decoding
+     * @return {@link String String} encoded public key
+     */
+    public String getEncodedKey() {
+        return encodedKey;
+    }
+
+    /***
+     * @return {@link CertificateType CertificateType} of the key, known without decoding it, null if the key is not a
+     * supported type
+     */
+    public CertificateType getCertificateType() {
+        return certificateType;
+    }
+
+    /***
+     * Decode the key, if not already decoded
+     * @return {@link PublicKey PublicKey}, null if the key is not a supported type or not a valid key of its type
+     */
     public PublicKey getPublicKey() {
-        return publicKey;
+        PublicKey decoded = publicKey;
+        if (decoded == null && certificateType != null) {
+            try {
+                decoded = CERTIFICATE_ENCODER.base64DecodePublicKey(encodedKey, certificateType);
+            } catch (GeneralSecurityException e) {
+                return null;
+            }
+            publicKey = decoded;
+        }
+        return decoded;
+    }
+
+    /***
+     * Compact identifier of the key, see {@link KeyFingerprint KeyFingerprint}
+     * @return {@link String String} fingerprint, null if the key is not a supported type or cannot be decoded
+     */
+    public String getFingerprint() {
+        String keyFingerprint = fingerprint;
+        if (keyFingerprint == null && getPublicKey() != null) {
+            keyFingerprint = KeyFingerprint.of(getPublicKey());
+            fingerprint = keyFingerprint;
+        }
+        return keyFingerprint;
     }
 
     @Override
@@ -31,30 +92,16 @@ public final class ScytalePublicKey {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         ScytalePublicKey scytalePublicKey1 = (ScytalePublicKey) o;
-        return id.equals(scytalePublicKey1.id) && publicKey.equals(scytalePublicKey1.publicKey);
+        return Objects.equals(id, scytalePublicKey1.id) && encodedKey.equals(scytalePublicKey1.encodedKey);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(id, publicKey);
+        return Objects.hash(id, encodedKey);
     }
 
     @Override
     public String toString() {
-        return "PublicKey{" + "id=" + id + ", publicKey='" + publicKey + "'}";
-    }
-
-    private PublicKey getPublicKeyFromBase64(String key) {
-        CertificateEncoder certificateEncoder = new CertificateEncoder();
-        try {
-            return certificateEncoder.base64DecodePublicKey(key, CertificateType.RSA);
-        } catch (NoSuchAlgorithmException | InvalidKeySpecException | NoSuchProviderException e) {
-            try {
-                return certificateEncoder.base64DecodePublicKey(key, CertificateType.ECC);
-            } catch (NoSuchAlgorithmException | NoSuchProviderException | InvalidKeySpecException noSuchAlgorithmException) {
-                return null;
-            }
-        }
-
+        return "PublicKey{" + "id=" + id + ", type=" + certificateType + "}";
     }
 }
@@ -1,16 +1,33 @@
 package com.openmoments.scytale;
 
 import javax.net.ssl.SSLSession;
+import java.io.IOException;
 import java.net.URI;
+import java.net.URISyntaxException;
 import java.net.http.HttpClient;
 import java.net.http.HttpHeaders;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 public class TestUtils {
 
-    public static HttpResponse<String> setupHTTPResponse(int responseCode, String responseBody) {
+    public static <T> HttpResponse<T> setupHTTPResponse(int responseCode, T responseBody) {
+        return setupHTTPResponse(responseCode, responseBody, null);
+    }
+
+    public static <T> HttpResponse<T> setupHTTPResponse(int responseCode, T responseBody, Map<String, List<String>> headers) {
         return new HttpResponse<>() {
             @Override
             public int statusCode() {
@@ -23,17 +40,17 @@ public class TestUtils {
             }
 
             @Override
-            public Optional<HttpResponse<String>> previousResponse() {
+            public Optional<HttpResponse<T>> previousResponse() {
                 return Optional.empty();
             }
 
             @Override
             public HttpHeaders headers() {
-                return null;
+                return headers == null ? null : HttpHeaders.of(headers, (name, value) -> true);
             }
 
             @Override
-            public String body() {
+            public T body() {
                 return responseBody;
             }
 
@@ -53,4 +70,37 @@ public class TestUtils {
             }
         };
     }
+
+    public static String readTestFile(String resourcePath) {
+        try {
+            Path path = Paths.get(TestUtils.class.getClassLoader().getResource(resourcePath).toURI());
+            return Files.lines(path).collect(Collectors.joining("\n"));
+        } catch (URISyntaxException | IOException e) {
+            e.printStackTrace();
+        }
+        return "";
+    }
+
+    public static class TestClock extends Clock {
+        private Instant now = Instant.EPOCH;
+
+        public void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
 }
@@ -0,0 +1,183 @@
+package com.openmoments.scytale.api;
+
+import com.openmoments.scytale.TestUtils;
+import com.openmoments.scytale.cache.KeyStoreCache;
+import com.openmoments.scytale.cache.PublicKeyCache;
+import com.openmoments.scytale.entities.KeyStore;
+import com.openmoments.scytale.entities.ScytalePublicKey;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@DisplayName("Key Change Subscription")
+class KeyChangeSubscriptionTest {
+
+    private final APIRequest apiRequest = mock(APIRequest.class);
+
+    @BeforeEach
+    void setup() {
+        when(apiRequest.supportsStreaming()).thenReturn(true);
+    }
+
+    @Test
+    @DisplayName("Should require APIRequest")
+    void shouldRequireAPIRequest() {
+        Exception illegalArgumentException = assertThrows(IllegalArgumentException.class, () -> new KeyChangeSubscription(null));
+        assertEquals("API Request interface is required", illegalArgumentException.getMessage());
+    }
+
+    @Test
+    @DisplayName("Should apply key and keystore events")
+    void shouldApplyEvents() throws Exception {
+        String testPublicKey = TestUtils.readTestFile("test_rsa_public.pem");
+        JSONObject keyAdded = new JSONObject().put("keystoreId", 1).put("id", 2).put("publicKey", testPublicKey);
+        when(apiRequest.stream(eq("keystores/events"), any())).thenReturn(TestUtils.setupHTTPResponse(200, Stream.of(
+                ": keep-alive",
+                "id: 1",
+                "event: key.added",
+                "data: " + keyAdded,
+                "",
+                "id: 2",
+                "event: keystore.updated",
+                "data: {\"id\": 1,",
+                "data:  \"name\": \"Renamed\"}",
+                ""
+        )));
+
+        PublicKeyCache publicKeyCache = new PublicKeyCache();
+        publicKeyCache.put(1L, List.of(new ScytalePublicKey(1L, testPublicKey)), null);
+        KeyStoreCache keyStoreCache = new KeyStoreCache();
+        CountDownLatch received = new CountDownLatch(2);
+
+        try (KeyChangeSubscription subscription = new KeyChangeSubscription(apiRequest)
+                .publicKeyCache(publicKeyCache)
+                .keyStoreCache(keyStoreCache)
+                .reconnectDelay(Duration.ofMinutes(1))
+                .listener(new KeyChangeListener() {
+                    @Override
+                    public void onKeyChanged(Long keyStoreId, ScytalePublicKey scytalePublicKey) {
+                        received.countDown();
+                    }
+
+                    @Override
+                    public void onKeyStoreChanged(KeyStore keyStore) {
+                        received.countDown();
+                    }
+                }).start()) {
+
+            assertTrue(received.await(1, TimeUnit.SECONDS));
+            assertFalse(subscription.isPolling());
+            assertEquals(List.of(new ScytalePublicKey(1L, testPublicKey), new ScytalePublicKey(2L, testPublicKey)),
+                    publicKeyCache.get(1L).orElseThrow().getKeys());
+            assertEquals(Optional.of(new KeyStore(1L, "Renamed")), keyStoreCache.getByName("Renamed"));
+        }
+    }
+
+    @Test
+    @DisplayName("Should resume from last event ID")
+    void shouldResumeFromLastEvent() throws Exception {
+        when(apiRequest.stream(eq("keystores/events"), any()))
+                .thenReturn(TestUtils.setupHTTPResponse(200, Stream.of("retry: 10", "id: 7", "event: unknown", "data: {}", "")))
+                .thenReturn(TestUtils.setupHTTPResponse(200, Stream.empty()));
+
+        try (KeyChangeSubscription subscription = new KeyChangeSubscription(apiRequest).start()) {
+            verify(apiRequest, timeout(1000).atLeastOnce()).stream("keystores/events", Map.of("Last-Event-ID", "7"));
+            assertEquals("7", subscription.getLastEventId());
+        }
+    }
+
+    @Test
+    @DisplayName("Should advance last event ID for events without data")
+    void shouldAdvanceIdWithoutData() throws Exception {
+        when(apiRequest.stream(eq("keystores/events"), any()))
+                .thenReturn(TestUtils.setupHTTPResponse(200, Stream.of("retry: 10", "id: 7", "event: unknown", "data: {}", "", "id: 8", "")))
+                .thenReturn(TestUtils.setupHTTPResponse(200, Stream.empty()));
+
+        try (KeyChangeSubscription subscription = new KeyChangeSubscription(apiRequest).start()) {
+            verify(apiRequest, timeout(1000).atLeastOnce()).stream("keystores/events", Map.of("Last-Event-ID", "8"));
+            assertEquals("8", subscription.getLastEventId());
+        }
+    }
+
+    @Test
+    @DisplayName("Should poll watched keystores when stream unavailable")
+    void shouldFallbackToPolling() throws Exception {
+        when(apiRequest.stream(any(), any())).thenThrow(new IOException("Connection refused"));
+        when(apiRequest.get(eq("keystores/1/keys"))).thenReturn(TestUtils.setupHTTPResponse(200, "[]"));
+
+        try (KeyChangeSubscription subscription = new KeyChangeSubscription(apiRequest)
+                .watch(List.of(new KeyStore(1L, "Watched")))
+                .reconnectAttempts(1)
+                .pollInterval(Duration.ofMinutes(1))
+                .start()) {
+
+            verify(apiRequest, timeout(1000)).get("keystores/1/keys");
+            assertTrue(subscription.isPolling());
+        }
+    }
+
+    @Test
+    @DisplayName("Should reconnect when stream drops part way through")
+    void shouldReconnectAfterDroppedStream() throws Exception {
+        Stream<String> dropped = Stream.of("id: 3", "event: unknown", "data: {}", "", "id: 4").map(line -> {
+            if (line.equals("id: 4")) {
+                throw new UncheckedIOException(new IOException("Connection reset"));
+            }
+            return line;
+        });
+        when(apiRequest.stream(eq("keystores/events"), any()))
+                .thenReturn(TestUtils.setupHTTPResponse(200, dropped))
+                .thenReturn(TestUtils.setupHTTPResponse(200, Stream.empty()));
+
+        try (KeyChangeSubscription subscription = new KeyChangeSubscription(apiRequest).reconnectDelay(Duration.ofMillis(10)).start()) {
+            verify(apiRequest, timeout(1000).atLeastOnce()).stream("keystores/events", Map.of("Last-Event-ID", "3"));
+            assertEquals("3", subscription.getLastEventId());
+        }
+    }
+
+    @Test
+    @DisplayName("Should poll and notify listener when streaming is not supported")
+    void shouldPollWithoutStreaming() throws Exception {
+        String testPublicKey = TestUtils.readTestFile("test_rsa_public.pem");
+        String keysJson = new JSONArray().put(new JSONObject().put("id", 2).put("publicKey", testPublicKey)).toString();
+        when(apiRequest.supportsStreaming()).thenReturn(false);
+        when(apiRequest.get(eq("keystores/1/keys"))).thenReturn(TestUtils.setupHTTPResponse(200, keysJson));
+        CountDownLatch received = new CountDownLatch(1);
+
+        try (KeyChangeSubscription subscription = new KeyChangeSubscription(apiRequest)
+                .watch(List.of(new KeyStore(1L, "Watched")))
+                .pollInterval(Duration.ofMinutes(1))
+                .listener(new KeyChangeListener() {
+                    @Override
+                    public void onKeyChanged(Long keyStoreId, ScytalePublicKey scytalePublicKey) {
+                        received.countDown();
+                    }
+
+                    @Override
+                    public void onKeyStoreChanged(KeyStore keyStore) {
+                    }
+                }).start()) {
+
+            assertTrue(received.await(1, TimeUnit.SECONDS));
+            assertTrue(subscription.isPolling());
+            verify(apiRequest, never()).stream(any(), any());
+        }
+    }
+}
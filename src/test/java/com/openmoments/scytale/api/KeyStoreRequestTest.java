@@ -1,6 +1,9 @@
 package com.openmoments.scytale.api;
 
 import com.openmoments.scytale.TestUtils;
+import com.openmoments.scytale.cache.KeyStoreCache;
+import com.openmoments.scytale.cache.KeyStoreReplica;
+import com.openmoments.scytale.entities.BatchResult;
 import com.openmoments.scytale.entities.KeyStore;
 import com.openmoments.scytale.exception.InvalidKeystoreException;
 import com.openmoments.scytale.exception.ScytaleException;
@@ -12,7 +15,13 @@ import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 
 import java.io.IOException;
+import java.net.http.HttpResponse;
 import java.security.cert.CertificateException;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -20,6 +29,9 @@ import static org.junit.jupiter.params.provider.Arguments.arguments;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @DisplayName("Keystore Request Tests")
@@ -136,4 +148,260 @@ class KeyStoreRequestTest {
         String expectedMessage = "Keystore with name Test  does not exist";
         assertEquals(expectedMessage, invalidKeyStoreException.getMessage());
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Cached lookup by ID should not repeat API request")
+    void shouldServeCachedKeystoreById() throws IOException, InterruptedException, ScytaleException, CertificateException {
+        APIRequest cachedRequest = mock(APIRequest.class);
+        when(cachedRequest.get(eq(KeyStoreRequest.KEYSTORE_URI + "/1")))
+                .thenReturn(TestUtils.setupHTTPResponse(200, KEYSTORE_JSON));
+
+        KeyStoreRequest keyStoreRequest = new KeyStoreRequest(cachedRequest).cache(new KeyStoreCache());
+        keyStoreRequest.getById(1L);
+        KeyStore keyStore = keyStoreRequest.getById(1L).get();
+
+        assertEquals(new KeyStore(1L, "Test"), keyStore);
+        verify(cachedRequest, times(1)).get(KeyStoreRequest.KEYSTORE_URI + "/1");
+    }
+
+    @Test
+    @DisplayName("Cached search should serve all keystores returned")
+    void shouldServeCachedSearchResults() throws IOException, InterruptedException, InvalidKeystoreException, ScytaleException, CertificateException {
+        APIRequest cachedRequest = mock(APIRequest.class);
+        String jsonArray = "[" + KEYSTORE_JSON + ", {\"id\": 2, \"name\": \"Test JSON\"}]";
+        when(cachedRequest.get(KeyStoreRequest.KEYSTORE_URI + "/search?name=Test"))
+                .thenReturn(TestUtils.setupHTTPResponse(200, jsonArray));
+
+        KeyStoreRequest keyStoreRequest = new KeyStoreRequest(cachedRequest).cache(new KeyStoreCache());
+        keyStoreRequest.searchByName("Test");
+
+        assertEquals(new KeyStore(1L, "Test"), keyStoreRequest.searchByName("Test").get());
+        assertEquals(new KeyStore(2L, "Test JSON"), keyStoreRequest.getById(2L).get());
+        verify(cachedRequest, times(1)).get(any());
+    }
+
+    @Test
+    @DisplayName("Missing name should be cached")
+    void shouldCacheMissingName() throws IOException, InterruptedException, CertificateException {
+        APIRequest cachedRequest = mock(APIRequest.class);
+        when(cachedRequest.get(KeyStoreRequest.KEYSTORE_URI + "/search?name=Missing"))
+                .thenReturn(TestUtils.setupHTTPResponse(200, "[" + KEYSTORE_JSON + "]"));
+
+        KeyStoreRequest keyStoreRequest = new KeyStoreRequest(cachedRequest).cache(new KeyStoreCache());
+        assertThrows(InvalidKeystoreException.class, () -> keyStoreRequest.searchByName("Missing"));
+        Exception invalidKeyStoreException = assertThrows(InvalidKeystoreException.class,
+                () -> keyStoreRequest.searchByName("Missing"));
+
+        assertEquals("Keystore with name Missing does not exist", invalidKeyStoreException.getMessage());
+        verify(cachedRequest, times(1)).get(any());
+    }
+
+    @Test
+    @DisplayName("Update should refresh cached keystore")
+    void shouldRefreshCacheOnUpdate() throws IOException, InterruptedException, InvalidKeystoreException, ScytaleException, CertificateException {
+        APIRequest cachedRequest = mock(APIRequest.class);
+        when(cachedRequest.get(eq(KeyStoreRequest.KEYSTORE_URI + "/1")))
+                .thenReturn(TestUtils.setupHTTPResponse(200, KEYSTORE_JSON));
+        when(cachedRequest.put(eq(KeyStoreRequest.KEYSTORE_URI + "/1"), any(JSONObject.class)))
+                .thenReturn(TestUtils.setupHTTPResponse(200, "{\"id\": 1, \"name\": \"Updated KeyStore\"}"));
+
+        KeyStoreRequest keyStoreRequest = new KeyStoreRequest(cachedRequest).cache(new KeyStoreCache());
+        keyStoreRequest.getById(1L);
+        keyStoreRequest.updateKeyStore(new KeyStore(1L, "Updated KeyStore"));
+
+        assertEquals(new KeyStore(1L, "Updated KeyStore"), keyStoreRequest.getById(1L).get());
+        assertEquals(new KeyStore(1L, "Updated KeyStore"), keyStoreRequest.searchByName("Updated KeyStore").get());
+        verify(cachedRequest, times(1)).get(any());
+    }
+
+    @Test
+    @DisplayName("Callback update should invalidate cached keystore once accepted")
+    void shouldInvalidateCacheWhenCallbackUpdateAccepted() throws IOException, InterruptedException, ScytaleException, CertificateException {
+        APIRequest asyncRequest = mock(APIRequest.class);
+        APIRequestCallback callback = mock(APIRequestCallback.class);
+        CompletableFuture<HttpResponse<String>> response = new CompletableFuture<>();
+        when(asyncRequest.putAsync(eq(KeyStoreRequest.KEYSTORE_URI + "/1"), any(JSONObject.class))).thenReturn(response);
+        KeyStoreCache keyStoreCache = new KeyStoreCache();
+
+        KeyStoreRequest keyStoreRequest = new KeyStoreRequest(asyncRequest, callback).cache(keyStoreCache);
+        assertTrue(keyStoreRequest.updateKeyStore(new KeyStore(1L, "Updated KeyStore")).isEmpty());
+        // A lookup while the PUT is in flight caches the old keystore
+        keyStoreCache.put(new KeyStore(1L, "Test"));
+
+        response.complete(TestUtils.setupHTTPResponse(200, ""));
+
+        assertTrue(keyStoreCache.getById(1L).isEmpty());
+        verify(callback).onSuccess(any());
+    }
+
+    @Test
+    @DisplayName("Callback update should only reach synced replica once accepted")
+    void shouldReplicateCallbackUpdateOnceAccepted() throws IOException, InterruptedException, InvalidKeystoreException, ScytaleException, CertificateException {
+        APIRequest asyncRequest = mock(APIRequest.class);
+        APIRequestCallback callback = mock(APIRequestCallback.class);
+        CompletableFuture<HttpResponse<String>> rejected = new CompletableFuture<>();
+        CompletableFuture<HttpResponse<String>> accepted = new CompletableFuture<>();
+        when(asyncRequest.putAsync(eq(KeyStoreRequest.KEYSTORE_URI + "/1"), any(JSONObject.class))).thenReturn(rejected).thenReturn(accepted);
+
+        KeyStoreReplica replica = new KeyStoreReplica();
+        replica.putKeyStore(new KeyStore(1L, "Test"));
+        replica.setCursor("1");
+
+        KeyStoreRequest keyStoreRequest = new KeyStoreRequest(asyncRequest, callback).replica(replica);
+        keyStoreRequest.updateKeyStore(new KeyStore(1L, "Rejected"));
+        assertEquals(Optional.of(new KeyStore(1L, "Test")), replica.getById(1L));
+
+        rejected.complete(TestUtils.setupHTTPResponse(400, "{\"error\": \"Invalid name\"}"));
+        assertEquals(Optional.of(new KeyStore(1L, "Test")), replica.getById(1L));
+
+        keyStoreRequest.updateKeyStore(new KeyStore(1L, "Renamed"));
+        accepted.complete(TestUtils.setupHTTPResponse(200, ""));
+        assertEquals(Optional.of(new KeyStore(1L, "Renamed")), replica.getById(1L));
+    }
+
+    @Test
+    @DisplayName("Synced replica should serve lookups and fall back to API")
+    void shouldServeFromReplica() throws IOException, InterruptedException, InvalidKeystoreException, ScytaleException, CertificateException {
+        APIRequest replicatedRequest = mock(APIRequest.class);
+        when(replicatedRequest.get(eq(KeyStoreRequest.KEYSTORE_URI + "/2")))
+                .thenReturn(TestUtils.setupHTTPResponse(200, "{\"id\": 2, \"name\": \"Unreplicated\"}"));
+
+        KeyStoreReplica replica = new KeyStoreReplica();
+        replica.putKeyStore(new KeyStore(1L, "Test"));
+        replica.setCursor("1");
+
+        KeyStoreRequest keyStoreRequest = new KeyStoreRequest(replicatedRequest).replica(replica);
+
+        assertEquals(new KeyStore(1L, "Test"), keyStoreRequest.getById(1L).get());
+        assertEquals(new KeyStore(1L, "Test"), keyStoreRequest.searchByName("Test").get());
+        assertEquals(new KeyStore(2L, "Unreplicated"), keyStoreRequest.getById(2L).get());
+        verify(replicatedRequest, times(1)).get(any());
+    }
+
+    @Test
+    @DisplayName("Synced replica should serve local writes")
+    void shouldWriteThroughToReplica() throws IOException, InterruptedException, InvalidKeystoreException, ScytaleException, CertificateException {
+        APIRequest replicatedRequest = mock(APIRequest.class);
+        when(replicatedRequest.put(eq(KeyStoreRequest.KEYSTORE_URI + "/1"), any(JSONObject.class)))
+                .thenReturn(TestUtils.setupHTTPResponse(200, "{\"id\": 1, \"name\": \"Renamed\"}"));
+        when(replicatedRequest.post(eq(KeyStoreRequest.KEYSTORE_URI), any(JSONObject.class)))
+                .thenReturn(TestUtils.setupHTTPResponse(200, "{\"id\": 2, \"name\": \"Created\"}"));
+
+        KeyStoreReplica replica = new KeyStoreReplica();
+        replica.putKeyStore(new KeyStore(1L, "Test"));
+        replica.setCursor("1");
+
+        KeyStoreRequest keyStoreRequest = new KeyStoreRequest(replicatedRequest).replica(replica);
+        keyStoreRequest.updateKeyStore(new KeyStore(1L, "Renamed"));
+        keyStoreRequest.createKeyStore("Created");
+
+        assertEquals(new KeyStore(1L, "Renamed"), keyStoreRequest.getById(1L).get());
+        assertEquals(new KeyStore(1L, "Renamed"), keyStoreRequest.searchByName("Renamed").get());
+        assertEquals(new KeyStore(2L, "Created"), keyStoreRequest.getById(2L).get());
+        verify(replicatedRequest, never()).get(any());
+    }
+
+    @Test
+    @DisplayName("Should create keystores with batch endpoint")
+    void shouldCreateKeyStoresInBatch() throws IOException, InterruptedException, ScytaleException, CertificateException {
+        APIRequest batchRequest = mock(APIRequest.class);
+        when(batchRequest.post(eq(KeyStoreRequest.KEYSTORE_URI + "/batch"), any(JSONObject.class)))
+                .thenReturn(TestUtils.setupHTTPResponse(200, "[" + KEYSTORE_JSON + ", {\"error\": \"Duplicate name\"}]"));
+
+        BatchResult<String, KeyStore> created = new KeyStoreRequest(batchRequest).createKeyStores(List.of("Test", "Duplicate", "Test"));
+
+        assertEquals(Map.of("Test", new KeyStore(1L, "Test")), created.getResults());
+        assertEquals("API response failed with Duplicate name", created.getFailures().get("Duplicate").getMessage());
+        verify(batchRequest, times(1)).post(any(), any());
+    }
+
+    @Test
+    @DisplayName("Should pipeline creation when batch endpoint unsupported")
+    void shouldPipelineCreateKeyStores() throws IOException, InterruptedException, ScytaleException, CertificateException {
+        APIRequest pipelinedRequest = mock(APIRequest.class);
+        when(pipelinedRequest.post(eq(KeyStoreRequest.KEYSTORE_URI + "/batch"), any(JSONObject.class)))
+                .thenReturn(TestUtils.setupHTTPResponse(404, "Not Found"));
+        when(pipelinedRequest.postAsync(eq(KeyStoreRequest.KEYSTORE_URI), any(JSONObject.class))).thenAnswer(invocation -> {
+            String name = invocation.getArgument(1, JSONObject.class).getString("name");
+            return CompletableFuture.completedFuture(TestUtils.setupHTTPResponse(200, new JSONObject().put("id", name.length()).put("name", name).toString()));
+        });
+
+        KeyStoreCache keyStoreCache = new KeyStoreCache();
+        BatchResult<String, KeyStore> created = new KeyStoreRequest(pipelinedRequest).cache(keyStoreCache).concurrency(2)
+                .createKeyStores(List.of("A", "BB", "CCC"));
+
+        assertEquals(List.of("A", "BB", "CCC"), List.copyOf(created.getResults().keySet()));
+        assertFalse(created.hasFailures());
+        assertEquals(Optional.of(new KeyStore(3L, "CCC")), keyStoreCache.getByName("CCC"));
+    }
+
+    @Test
+    @DisplayName("Should find keystores by IDs with batch endpoint")
+    void shouldGetByIdsInBatch() throws IOException, InterruptedException, ScytaleException, CertificateException {
+        APIRequest batchRequest = mock(APIRequest.class);
+        when(batchRequest.get(KeyStoreRequest.KEYSTORE_URI + "?ids=3,2"))
+                .thenReturn(TestUtils.setupHTTPResponse(200, "[{\"id\": 2, \"name\": \"Second\"}]"));
+        when(batchRequest.getAsync(KeyStoreRequest.KEYSTORE_URI + "/3"))
+                .thenReturn(CompletableFuture.completedFuture(TestUtils.setupHTTPResponse(404, "Not Found")));
+
+        KeyStoreCache keyStoreCache = new KeyStoreCache();
+        keyStoreCache.put(new KeyStore(1L, "Test"));
+
+        BatchResult<Long, KeyStore> found = new KeyStoreRequest(batchRequest).cache(keyStoreCache).getByIds(List.of(3L, 1L, 2L));
+
+        assertEquals(List.of(1L, 2L), List.copyOf(found.getResults().keySet()));
+        assertEquals(new KeyStore(2L, "Second"), found.getResults().get(2L));
+        assertEquals("API response failed with Not Found", found.getFailures().get(3L).getMessage());
+        assertEquals(Optional.of(new KeyStore(2L, "Second")), keyStoreCache.getById(2L));
+        verify(batchRequest, times(1)).get(any());
+        verify(batchRequest, times(1)).getAsync(any());
+    }
+
+    @Test
+    @DisplayName("Should fan out lookups when batch endpoint ignores IDs")
+    void shouldFanOutWhenIdsIgnored() throws IOException, InterruptedException, ScytaleException, CertificateException {
+        APIRequest listingRequest = mock(APIRequest.class);
+        when(listingRequest.get(KeyStoreRequest.KEYSTORE_URI + "?ids=1"))
+                .thenReturn(TestUtils.setupHTTPResponse(200, "[{\"id\": 5, \"name\": \"Other\"}]"));
+        when(listingRequest.getAsync(KeyStoreRequest.KEYSTORE_URI + "/1"))
+                .thenReturn(CompletableFuture.completedFuture(TestUtils.setupHTTPResponse(200, KEYSTORE_JSON)));
+
+        KeyStoreRequest keyStoreRequest = new KeyStoreRequest(listingRequest);
+        assertEquals(Map.of(1L, new KeyStore(1L, "Test")), keyStoreRequest.getByIds(List.of(1L)).getResults());
+        assertEquals(Map.of(1L, new KeyStore(1L, "Test")), keyStoreRequest.getByIds(List.of(1L)).getResults());
+        verify(listingRequest, times(1)).get(any());
+        verify(listingRequest, times(2)).getAsync(any());
+    }
+
+    @Test
+    @DisplayName("Should fan out lookups when batch endpoint unsupported")
+    void shouldFanOutGetByIds() throws IOException, InterruptedException, ScytaleException, CertificateException {
+        APIRequest fanOutRequest = mock(APIRequest.class);
+        when(fanOutRequest.get(KeyStoreRequest.KEYSTORE_URI + "?ids=1,2")).thenReturn(TestUtils.setupHTTPResponse(404, "Not Found"));
+        when(fanOutRequest.getAsync(KeyStoreRequest.KEYSTORE_URI + "/1"))
+                .thenReturn(CompletableFuture.completedFuture(TestUtils.setupHTTPResponse(200, KEYSTORE_JSON)));
+        when(fanOutRequest.getAsync(KeyStoreRequest.KEYSTORE_URI + "/2"))
+                .thenReturn(CompletableFuture.completedFuture(TestUtils.setupHTTPResponse(404, "Not Found")));
+
+        BatchResult<Long, KeyStore> found = new KeyStoreRequest(fanOutRequest).getByIds(List.of(1L, 2L));
+
+        assertEquals(Map.of(1L, new KeyStore(1L, "Test")), found.getResults());
+        assertEquals("API response failed with Not Found", found.getFailures().get(2L).getMessage());
+    }
+
+    @Test
+    @DisplayName("Should stream search results across pages into cache")
+    void shouldStreamSearchPages() throws IOException, InterruptedException, CertificateException {
+        APIRequest pagedRequest = mock(APIRequest.class);
+        when(pagedRequest.getAsync(KeyStoreRequest.KEYSTORE_URI + "/search?name=Test&limit=1")).thenReturn(CompletableFuture.completedFuture(
+                TestUtils.setupHTTPResponse(200, "{\"keystores\": [{\"id\": 1, \"name\": \"Test\"}], \"nextCursor\": \"1\"}")));
+        when(pagedRequest.getAsync(KeyStoreRequest.KEYSTORE_URI + "/search?name=Test&limit=1&cursor=1")).thenReturn(CompletableFuture.completedFuture(
+                TestUtils.setupHTTPResponse(200, "{\"keystores\": [{\"id\": 2, \"name\": \"Test 2\"}]}")));
+
+        KeyStoreCache keyStoreCache = new KeyStoreCache();
+        try (Stream<KeyStore> keyStores = new KeyStoreRequest(pagedRequest).cache(keyStoreCache).pageSize(1).streamByName("Test")) {
+            assertEquals(List.of(new KeyStore(1L, "Test"), new KeyStore(2L, "Test 2")), keyStores.collect(Collectors.toList()));
+        }
+        assertEquals(Optional.of(new KeyStore(2L, "Test 2")), keyStoreCache.getById(2L));
+    }
+}
@@ -0,0 +1,165 @@
+package com.openmoments.scytale.api;
+
+import com.openmoments.scytale.TestUtils;
+import com.openmoments.scytale.encryption.CertificateEncoder;
+import com.openmoments.scytale.encryption.CertificateFactory;
+import com.openmoments.scytale.encryption.CertificateType;
+import com.openmoments.scytale.entities.BatchResult;
+import com.openmoments.scytale.entities.KeyStore;
+import com.openmoments.scytale.entities.ScytalePublicKey;
+import com.openmoments.scytale.exception.ScytaleException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@DisplayName("Key Write Queue")
+class KeyWriteQueueTest {
+
+    private final PublicKeyRequest publicKeyRequest = mock(PublicKeyRequest.class);
+    private final KeyStore keyStore = new KeyStore(1L, "Test");
+    private final String testPublicKey = TestUtils.readTestFile("test_rsa_public.pem");
+
+    @Test
+    @DisplayName("Should require PublicKeyRequest")
+    void shouldRequirePublicKeyRequest() {
+        Exception illegalArgumentException = assertThrows(IllegalArgumentException.class, () -> new KeyWriteQueue(null));
+        assertEquals("PublicKey request is required", illegalArgumentException.getMessage());
+    }
+
+    @Test
+    @DisplayName("Should flush queued adds as one batch")
+    void shouldFlushAddsInBatch() throws Exception {
+        when(publicKeyRequest.addAll(List.of(testPublicKey, "Invalid"), keyStore)).thenReturn(new BatchResult<String, ScytalePublicKey>()
+                .success(testPublicKey, new ScytalePublicKey(1L, testPublicKey))
+                .failure("Invalid", new ScytaleException("Invalid key")));
+
+        KeyWriteQueue keyWriteQueue = new KeyWriteQueue(publicKeyRequest);
+        CompletableFuture<ScytalePublicKey> added = keyWriteQueue.add(testPublicKey, keyStore);
+        CompletableFuture<ScytalePublicKey> rejected = keyWriteQueue.add("Invalid", keyStore);
+
+        assertSame(added, keyWriteQueue.add(testPublicKey, keyStore));
+        assertFalse(added.isDone());
+        assertEquals(2, keyWriteQueue.size());
+
+        keyWriteQueue.flush();
+
+        assertEquals(new ScytalePublicKey(1L, testPublicKey), added.get());
+        Exception executionException = assertThrows(ExecutionException.class, rejected::get);
+        assertEquals("Invalid key", executionException.getCause().getMessage());
+        assertEquals(0, keyWriteQueue.size());
+    }
+
+    @Test
+    @DisplayName("Should coalesce updates of the same key")
+    void shouldCoalesceUpdates() throws Exception {
+        ScytalePublicKey first = new ScytalePublicKey(5L, testPublicKey);
+        KeyPair rotated = new CertificateFactory().get(CertificateType.RSA).generateKeyPair();
+        ScytalePublicKey latest = new ScytalePublicKey(5L, new CertificateEncoder().base64EncodePublicKey(rotated.getPublic()));
+        when(publicKeyRequest.update(latest, keyStore)).thenReturn(latest);
+
+        KeyWriteQueue keyWriteQueue = new KeyWriteQueue(publicKeyRequest);
+        CompletableFuture<ScytalePublicKey> replaced = keyWriteQueue.update(first, keyStore);
+        CompletableFuture<ScytalePublicKey> updated = keyWriteQueue.update(latest, keyStore);
+        assertEquals(1, keyWriteQueue.size());
+
+        keyWriteQueue.flush();
+
+        assertEquals(latest, updated.get());
+        assertEquals(latest, replaced.get());
+        verify(publicKeyRequest, times(1)).update(any(), any());
+    }
+
+    @Test
+    @DisplayName("Should keep writes queued when API unreachable")
+    void shouldRetryFailedFlush() throws Exception {
+        when(publicKeyRequest.addAll(any(), eq(keyStore)))
+                .thenThrow(new IOException("Connection refused"))
+                .thenReturn(new BatchResult<String, ScytalePublicKey>().success(testPublicKey, new ScytalePublicKey(1L, testPublicKey)));
+
+        KeyWriteQueue keyWriteQueue = new KeyWriteQueue(publicKeyRequest);
+        CompletableFuture<ScytalePublicKey> added = keyWriteQueue.add(testPublicKey, keyStore);
+
+        keyWriteQueue.flush();
+        assertFalse(added.isDone());
+        assertEquals(1, keyWriteQueue.size());
+
+        keyWriteQueue.flush();
+        assertEquals(new ScytalePublicKey(1L, testPublicKey), added.get());
+    }
+
+    @Test
+    @DisplayName("Should fail queued adds when API rejects batch")
+    void shouldFailAddsOnRejection() throws Exception {
+        when(publicKeyRequest.addAll(any(), eq(keyStore))).thenThrow(new ScytaleException("API response failed with Bad Request"));
+
+        KeyWriteQueue keyWriteQueue = new KeyWriteQueue(publicKeyRequest);
+        CompletableFuture<ScytalePublicKey> added = keyWriteQueue.add(testPublicKey, keyStore);
+
+        keyWriteQueue.flush();
+
+        Exception executionException = assertThrows(ExecutionException.class, added::get);
+        assertTrue(executionException.getCause() instanceof ScytaleException);
+        assertEquals(0, keyWriteQueue.size());
+    }
+
+    @Test
+    @DisplayName("Should flush once batch size reached")
+    void shouldFlushOnBatchSize() throws Exception {
+        when(publicKeyRequest.addAll(any(), eq(keyStore))).thenReturn(new BatchResult<>());
+
+        try (KeyWriteQueue keyWriteQueue = new KeyWriteQueue(publicKeyRequest).batchSize(2).flushInterval(Duration.ofMinutes(1)).start()) {
+            keyWriteQueue.add("First", keyStore);
+            keyWriteQueue.add("Second", keyStore);
+
+            verify(publicKeyRequest, timeout(1000)).addAll(List.of("First", "Second"), keyStore);
+        }
+    }
+
+    @Test
+    @DisplayName("Should replay journaled writes after restart")
+    void shouldReplayJournal(@TempDir Path tempDir) throws Exception {
+        Path journal = tempDir.resolve("writes.journal");
+        when(publicKeyRequest.addAll(List.of(testPublicKey), keyStore))
+                .thenReturn(new BatchResult<String, ScytalePublicKey>().success(testPublicKey, new ScytalePublicKey(1L, testPublicKey)));
+
+        // Never flushed or closed, as if the process stopped
+        new KeyWriteQueue(publicKeyRequest).journal(journal).flushInterval(Duration.ofMinutes(1)).start().add(testPublicKey, keyStore);
+
+        KeyWriteQueue restarted = new KeyWriteQueue(publicKeyRequest).journal(journal).flushInterval(Duration.ofMinutes(1)).start();
+        assertEquals(1, restarted.size());
+
+        restarted.flush();
+        verify(publicKeyRequest).addAll(List.of(testPublicKey), keyStore);
+        assertEquals(0, Files.size(journal));
+        restarted.close();
+    }
+
+    @Test
+    @DisplayName("Should journal writes queued before start")
+    void shouldJournalWritesQueuedBeforeStart(@TempDir Path tempDir) throws Exception {
+        Path journal = tempDir.resolve("writes.journal");
+
+        KeyWriteQueue keyWriteQueue = new KeyWriteQueue(publicKeyRequest).journal(journal).flushInterval(Duration.ofMinutes(1));
+        keyWriteQueue.add(testPublicKey, keyStore);
+        // Never flushed or closed, as if the process stopped
+        keyWriteQueue.start();
+
+        KeyWriteQueue restarted = new KeyWriteQueue(publicKeyRequest).journal(journal).flushInterval(Duration.ofMinutes(1)).start();
+        assertEquals(1, restarted.size());
+        assertEquals(1, Files.readAllLines(journal).size());
+    }
+}
@@ -1,6 +1,9 @@
 package com.openmoments.scytale.api;
 
 import com.openmoments.scytale.TestUtils;
+import com.openmoments.scytale.cache.KeyStoreReplica;
+import com.openmoments.scytale.cache.PublicKeyCache;
+import com.openmoments.scytale.entities.BatchResult;
 import com.openmoments.scytale.entities.KeyStore;
 import com.openmoments.scytale.entities.ScytalePublicKey;
 import com.openmoments.scytale.exception.ScytaleException;
@@ -16,15 +19,24 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.security.cert.CertificateException;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @DisplayName("PublicKey Request Tests")
@@ -75,6 +87,47 @@ class PublicKeyRequestTest {
 
             assertEquals(expectedList, getResponse);
         }
+
+        @Test
+        @DisplayName("Should return only key IDs without decoding keys")
+        void shouldReturnIds() throws IOException, InterruptedException, ScytaleException, CertificateException {
+            when(apiRequest.get(eq("keystores/1/keys?fields=id")))
+                .thenReturn(TestUtils.setupHTTPResponse(200, "[{\"id\": 1}, {\"id\": 2, \"publicKey\": \"Not decoded\"}]"));
+
+            assertEquals(List.of(1L, 2L), new PublicKeyRequest(apiRequest).getIds(keyStore));
+        }
+
+        @Test
+        @DisplayName("Should stream key IDs across pages")
+        void shouldStreamIds() throws IOException, InterruptedException, CertificateException {
+            APIRequest pagedRequest = mock(APIRequest.class);
+            when(pagedRequest.getAsync("keystores/1/keys?fields=id&limit=2")).thenReturn(CompletableFuture.completedFuture(
+                    TestUtils.setupHTTPResponse(200, "{\"keys\": [{\"id\": 1}, {\"id\": 2}], \"nextCursor\": \"2\"}")));
+            when(pagedRequest.getAsync("keystores/1/keys?fields=id&limit=2&cursor=2")).thenReturn(CompletableFuture.completedFuture(
+                    TestUtils.setupHTTPResponse(200, "{\"keys\": [{\"id\": 3}]}")));
+
+            try (Stream<Long> ids = new PublicKeyRequest(pagedRequest).pageSize(2).streamIds(keyStore)) {
+                assertEquals(List.of(1L, 2L, 3L), ids.collect(Collectors.toList()));
+            }
+        }
+
+        @Test
+        @DisplayName("Should stream keys across pages")
+        void shouldStreamPages() throws IOException, InterruptedException, CertificateException {
+            String testPublicKey = readTestFile("test_rsa_public.pem");
+            APIRequest pagedRequest = mock(APIRequest.class);
+            when(pagedRequest.getAsync("keystores/1/keys?limit=1")).thenReturn(CompletableFuture.completedFuture(TestUtils.setupHTTPResponse(200,
+                    new JSONObject().put("keys", new JSONArray().put(new JSONObject().put("id", 1).put("publicKey", testPublicKey)))
+                            .put("nextCursor", "2").toString())));
+            when(pagedRequest.getAsync("keystores/1/keys?limit=1&cursor=2")).thenReturn(CompletableFuture.completedFuture(TestUtils.setupHTTPResponse(200,
+                    new JSONObject().put("keys", new JSONArray().put(new JSONObject().put("id", 2).put("publicKey", testPublicKey)))
+                            .put("nextCursor", JSONObject.NULL).toString())));
+
+            try (Stream<ScytalePublicKey> keys = new PublicKeyRequest(pagedRequest).pageSize(1).streamAll(keyStore)) {
+                assertEquals(List.of(new ScytalePublicKey(1L, testPublicKey), new ScytalePublicKey(2L, testPublicKey)),
+                        keys.collect(Collectors.toList()));
+            }
+        }
     }
 
     @Nested
@@ -139,6 +192,227 @@ class PublicKeyRequestTest {
         }
     }
 
+    @Nested
+    @DisplayName("Bulk Add")
+    class PublicKeyAddAll {
+        private final APIRequest bulkRequest = mock(APIRequest.class);
+        private final String testPublicKey = readTestFile("test_rsa_public.pem");
+
+        @Test
+        @DisplayName("Should add keys with batch endpoint")
+        void shouldAddKeysInBatch() throws IOException, InterruptedException, ScytaleException, CertificateException {
+            JSONArray results = new JSONArray()
+                .put(new JSONObject().put("id", 1).put("publicKey", testPublicKey))
+                .put(new JSONObject().put("error", "Invalid key"));
+            when(bulkRequest.post(eq("keystores/1/keys/batch"), any())).thenReturn(TestUtils.setupHTTPResponse(200, results.toString()));
+
+            BatchResult<String, ScytalePublicKey> added = new PublicKeyRequest(bulkRequest).addAll(List.of(testPublicKey, "Invalid"), keyStore);
+
+            assertEquals(Map.of(testPublicKey, new ScytalePublicKey(1L, testPublicKey)), added.getResults());
+            assertEquals("API response failed with Invalid key", added.getFailures().get("Invalid").getMessage());
+        }
+
+        @Test
+        @DisplayName("Should throw when batch results do not match keys")
+        void shouldThrowOnMismatchedBatch() throws IOException, InterruptedException, CertificateException {
+            when(bulkRequest.post(eq("keystores/1/keys/batch"), any())).thenReturn(TestUtils.setupHTTPResponse(200, "[]"));
+
+            Exception scytaleException = assertThrows(ScytaleException.class,
+                () -> new PublicKeyRequest(bulkRequest).addAll(List.of(testPublicKey), keyStore));
+
+            assertEquals("API Returned invalid JSON", scytaleException.getMessage());
+        }
+
+        @Test
+        @DisplayName("Should pipeline keys when batch endpoint unsupported")
+        void shouldPipelineKeys() throws IOException, InterruptedException, ScytaleException, CertificateException {
+            when(bulkRequest.post(eq("keystores/1/keys/batch"), any())).thenReturn(TestUtils.setupHTTPResponse(405, "Method Not Allowed"));
+            when(bulkRequest.postAsync(eq("keystores/1/keys"), any())).thenReturn(CompletableFuture.completedFuture(
+                TestUtils.setupHTTPResponse(200, new JSONObject().put("id", 2).put("publicKey", testPublicKey).toString())));
+
+            BatchResult<String, ScytalePublicKey> added = new PublicKeyRequest(bulkRequest).addAll(List.of(testPublicKey), keyStore);
+
+            assertEquals(Map.of(testPublicKey, new ScytalePublicKey(2L, testPublicKey)), added.getResults());
+        }
+    }
+
+    @Nested
+    @DisplayName("Bulk Get")
+    class PublicKeyGetAllKeys {
+        private final APIRequest bulkRequest = mock(APIRequest.class);
+        private final String testPublicKey = readTestFile("test_rsa_public.pem");
+        private final KeyStore second = new KeyStore(2L, "Second");
+        private final JSONArray keysJson = new JSONArray().put(new JSONObject().put("id", 1).put("publicKey", testPublicKey));
+
+        @Test
+        @DisplayName("Should get keys of keystores with batch endpoint")
+        void shouldGetAllKeysInBatch() throws IOException, InterruptedException, ScytaleException, CertificateException {
+            when(bulkRequest.get("keystores/keys?ids=1,2")).thenReturn(TestUtils.setupHTTPResponse(200, new JSONObject().put("1", keysJson).toString()));
+            when(bulkRequest.getAsync("keystores/2/keys")).thenReturn(CompletableFuture.completedFuture(TestUtils.setupHTTPResponse(404, "Not Found")));
+
+            PublicKeyCache publicKeyCache = new PublicKeyCache();
+            BatchResult<KeyStore, List<ScytalePublicKey>> found = new PublicKeyRequest(bulkRequest).cache(publicKeyCache)
+                .getAllKeys(List.of(keyStore, second));
+
+            assertEquals(Map.of(keyStore, List.of(new ScytalePublicKey(1L, testPublicKey))), found.getResults());
+            assertEquals("API response failed with Not Found", found.getFailures().get(second).getMessage());
+            assertEquals(1, publicKeyCache.get(1L).orElseThrow().getKeys().size());
+            verify(bulkRequest, never()).getAsync("keystores/1/keys");
+        }
+
+        @Test
+        @DisplayName("Should fan out when batch endpoint ignores IDs")
+        void shouldFanOutWhenIdsIgnored() throws IOException, InterruptedException, ScytaleException, CertificateException {
+            when(bulkRequest.get("keystores/keys?ids=1")).thenReturn(TestUtils.setupHTTPResponse(200, new JSONObject().put("7", keysJson).toString()));
+            when(bulkRequest.getAsync("keystores/1/keys")).thenReturn(CompletableFuture.completedFuture(TestUtils.setupHTTPResponse(200, keysJson.toString())));
+
+            BatchResult<KeyStore, List<ScytalePublicKey>> found = new PublicKeyRequest(bulkRequest).getAllKeys(List.of(keyStore));
+
+            assertEquals(Map.of(keyStore, List.of(new ScytalePublicKey(1L, testPublicKey))), found.getResults());
+            assertFalse(found.hasFailures());
+        }
+
+        @Test
+        @DisplayName("Should fan out when batch endpoint unsupported")
+        void shouldFanOutGetAllKeys() throws IOException, InterruptedException, ScytaleException, CertificateException {
+            when(bulkRequest.get("keystores/keys?ids=1,2")).thenReturn(TestUtils.setupHTTPResponse(501, "Not Implemented"));
+            when(bulkRequest.getAsync("keystores/1/keys")).thenReturn(CompletableFuture.completedFuture(TestUtils.setupHTTPResponse(200, keysJson.toString())));
+            when(bulkRequest.getAsync("keystores/2/keys")).thenReturn(CompletableFuture.completedFuture(TestUtils.setupHTTPResponse(200, "[]")));
+
+            BatchResult<KeyStore, List<ScytalePublicKey>> found = new PublicKeyRequest(bulkRequest).getAllKeys(List.of(keyStore, second));
+
+            assertEquals(Map.of(keyStore, List.of(new ScytalePublicKey(1L, testPublicKey)), second, List.of()), found.getResults());
+            assertFalse(found.hasFailures());
+        }
+    }
+
+    @Nested
+    @DisplayName("Caching")
+    class PublicKeyCaching {
+        private final APIRequest cachedRequest = mock(APIRequest.class);
+        private final String testPublicKey = readTestFile("test_rsa_public.pem");
+        private final String keysJson = new JSONArray()
+                .put(new JSONObject().put("id", 1).put("publicKey", testPublicKey)).toString();
+
+        @Test
+        @DisplayName("Should serve fresh keys from cache")
+        void shouldServeFreshKeys() throws IOException, InterruptedException, ScytaleException, CertificateException {
+            when(cachedRequest.get(eq("keystores/1/keys")))
+                .thenReturn(TestUtils.setupHTTPResponse(200, keysJson, Map.of("ETag", List.of("\"v1\""))));
+
+            PublicKeyRequest publicKeyRequest = new PublicKeyRequest(cachedRequest).cache(new PublicKeyCache());
+            publicKeyRequest.getAll(keyStore);
+            List<ScytalePublicKey> keys = publicKeyRequest.getAll(keyStore);
+
+            assertEquals(List.of(new ScytalePublicKey(1L, testPublicKey)), keys);
+            verify(cachedRequest, times(1)).get("keystores/1/keys");
+        }
+
+        @Test
+        @DisplayName("Should revalidate expired keys with entity tag")
+        void shouldRevalidateExpiredKeys() throws IOException, InterruptedException, ScytaleException, CertificateException {
+            when(cachedRequest.get(eq("keystores/1/keys")))
+                .thenReturn(TestUtils.setupHTTPResponse(200, keysJson, Map.of("ETag", List.of("\"v1\""))));
+            when(cachedRequest.get(eq("keystores/1/keys"), eq(Map.of("If-None-Match", "\"v1\""))))
+                .thenReturn(TestUtils.setupHTTPResponse(304, ""));
+
+            PublicKeyRequest publicKeyRequest = new PublicKeyRequest(cachedRequest)
+                .cache(new PublicKeyCache().expireAfterWrite(Duration.ZERO));
+            publicKeyRequest.getAll(keyStore);
+            List<ScytalePublicKey> keys = publicKeyRequest.getAll(keyStore);
+
+            assertEquals(List.of(new ScytalePublicKey(1L, testPublicKey)), keys);
+            verify(cachedRequest, times(1)).get(eq("keystores/1/keys"), any());
+        }
+
+        @Test
+        @DisplayName("Should refetch when not modified but no longer cached")
+        void shouldRefetchWhenEvicted() throws IOException, InterruptedException, ScytaleException, CertificateException {
+            when(cachedRequest.get(eq("keystores/1/keys")))
+                .thenReturn(TestUtils.setupHTTPResponse(200, keysJson, Map.of("ETag", List.of("\"v1\""))));
+            PublicKeyCache publicKeyCache = new PublicKeyCache().expireAfterWrite(Duration.ZERO);
+            when(cachedRequest.get(eq("keystores/1/keys"), eq(Map.of("If-None-Match", "\"v1\""))))
+                .thenAnswer(invocation -> {
+                    publicKeyCache.invalidate(keyStore.getId());
+                    return TestUtils.setupHTTPResponse(304, "");
+                });
+
+            PublicKeyRequest publicKeyRequest = new PublicKeyRequest(cachedRequest).cache(publicKeyCache);
+            publicKeyRequest.getAll(keyStore);
+            List<ScytalePublicKey> keys = publicKeyRequest.getAll(keyStore);
+
+            assertEquals(List.of(new ScytalePublicKey(1L, testPublicKey)), keys);
+            verify(cachedRequest, times(2)).get("keystores/1/keys");
+        }
+
+        @Test
+        @DisplayName("Should refresh keys in the background before expiry")
+        void shouldRefreshAhead() throws IOException, InterruptedException, ScytaleException, CertificateException {
+            when(cachedRequest.get(eq("keystores/1/keys")))
+                .thenReturn(TestUtils.setupHTTPResponse(200, keysJson, Map.of("ETag", List.of("\"v1\""))));
+            when(cachedRequest.get(eq("keystores/1/keys"), any()))
+                .thenReturn(TestUtils.setupHTTPResponse(200, "[]", Map.of("ETag", List.of("\"v2\""))));
+
+            PublicKeyRequest publicKeyRequest = new PublicKeyRequest(cachedRequest)
+                .cache(new PublicKeyCache().refreshAfterWrite(Duration.ZERO).refreshExecutor(Runnable::run));
+            publicKeyRequest.getAll(keyStore);
+
+            assertEquals(1, publicKeyRequest.getAll(keyStore).size());
+            assertEquals(0, publicKeyRequest.getAll(keyStore).size());
+        }
+
+        @Test
+        @DisplayName("Should add keys to cache without refetching")
+        void shouldCacheAddedKeys() throws IOException, InterruptedException, ScytaleException, CertificateException {
+            JSONObject added = new JSONObject().put("id", 2).put("publicKey", testPublicKey);
+            when(cachedRequest.get(eq("keystores/1/keys"))).thenReturn(TestUtils.setupHTTPResponse(200, keysJson));
+            when(cachedRequest.post(eq("keystores/1/keys"), any())).thenReturn(TestUtils.setupHTTPResponse(200, added.toString()));
+
+            PublicKeyRequest publicKeyRequest = new PublicKeyRequest(cachedRequest).cache(new PublicKeyCache());
+            publicKeyRequest.getAll(keyStore);
+            publicKeyRequest.add(testPublicKey, keyStore);
+
+            assertEquals(2, publicKeyRequest.getAll(keyStore).size());
+            verify(cachedRequest, times(1)).get("keystores/1/keys");
+            verify(cachedRequest, never()).get(eq("keystores/1/keys"), any());
+        }
+
+        @Test
+        @DisplayName("Should serve keys from synced replica")
+        void shouldServeFromReplica() throws IOException, InterruptedException, ScytaleException, CertificateException {
+            KeyStoreReplica replica = new KeyStoreReplica();
+            replica.putKeyStore(keyStore);
+            replica.putKey(keyStore.getId(), new ScytalePublicKey(1L, testPublicKey));
+
+            PublicKeyRequest publicKeyRequest = new PublicKeyRequest(cachedRequest).replica(replica);
+            when(cachedRequest.get(eq("keystores/1/keys"))).thenReturn(TestUtils.setupHTTPResponse(200, "[]"));
+            assertEquals(0, publicKeyRequest.getAll(keyStore).size());
+
+            replica.setCursor("1");
+            assertEquals(List.of(new ScytalePublicKey(1L, testPublicKey)), publicKeyRequest.getAll(keyStore));
+            verify(cachedRequest, times(1)).get("keystores/1/keys");
+        }
+
+        @Test
+        @DisplayName("Should serve added keys from synced replica")
+        void shouldWriteThroughToReplica() throws IOException, InterruptedException, ScytaleException, CertificateException {
+            JSONObject added = new JSONObject().put("id", 2).put("publicKey", testPublicKey);
+            when(cachedRequest.post(eq("keystores/1/keys"), any())).thenReturn(TestUtils.setupHTTPResponse(200, added.toString()));
+
+            KeyStoreReplica replica = new KeyStoreReplica();
+            replica.putKeyStore(keyStore);
+            replica.putKey(keyStore.getId(), new ScytalePublicKey(1L, testPublicKey));
+            replica.setCursor("1");
+
+            PublicKeyRequest publicKeyRequest = new PublicKeyRequest(cachedRequest).replica(replica);
+            publicKeyRequest.add(testPublicKey, keyStore);
+
+            assertEquals(List.of(new ScytalePublicKey(1L, testPublicKey), new ScytalePublicKey(2L, testPublicKey)),
+                publicKeyRequest.getAll(keyStore));
+            verify(cachedRequest, never()).get(any());
+        }
+    }
+
     String readTestFile(String resourcePath) {
         try {
             Path path = Paths.get(getClass().getClassLoader().getResource(resourcePath).toURI());
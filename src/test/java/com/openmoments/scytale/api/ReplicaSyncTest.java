@@ -0,0 +1,131 @@
+package com.openmoments.scytale.api;
+
+import com.openmoments.scytale.TestUtils;
+import com.openmoments.scytale.cache.KeyStoreReplica;
+import com.openmoments.scytale.entities.KeyStore;
+import com.openmoments.scytale.entities.ScytalePublicKey;
+import com.openmoments.scytale.exception.ScytaleException;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@DisplayName("Replica Sync")
+class ReplicaSyncTest {
+
+    private final APIRequest apiRequest = mock(APIRequest.class);
+    private final KeyStoreReplica replica = new KeyStoreReplica();
+    private final String testPublicKey = TestUtils.readTestFile("test_rsa_public.pem");
+
+    @Test
+    @DisplayName("Should require replica")
+    void shouldRequireReplica() {
+        Exception illegalArgumentException = assertThrows(IllegalArgumentException.class, () -> new ReplicaSync(apiRequest, null));
+        assertEquals("Replica is required", illegalArgumentException.getMessage());
+    }
+
+    @Test
+    @DisplayName("Should fetch complete catalogue across pages before marking synced")
+    void shouldFetchCompleteCatalogue() throws Exception {
+        when(apiRequest.get("keystores/changes")).thenAnswer(invocation -> {
+            assertFalse(replica.isSynced());
+            return TestUtils.setupHTTPResponse(200, new JSONObject()
+                    .put("cursor", "a").put("hasMore", true)
+                    .put("keystores", new JSONArray().put(new JSONObject().put("id", 1).put("name", "First")))
+                    .toString());
+        });
+        when(apiRequest.get("keystores/changes?since=a")).thenReturn(TestUtils.setupHTTPResponse(200, new JSONObject()
+                .put("cursor", "b")
+                .put("keys", new JSONArray().put(key(1, 1)))
+                .toString()));
+
+        assertEquals(2, new ReplicaSync(apiRequest, replica).sync());
+        assertEquals("b", replica.getCursor());
+        assertEquals(Optional.of(new KeyStore(1L, "First")), replica.getByName("First"));
+        assertEquals(Optional.of(List.of(new ScytalePublicKey(1L, testPublicKey))), replica.getKeys(1L));
+    }
+
+    @Test
+    @DisplayName("Should apply deltas since cursor")
+    void shouldApplyDelta() throws Exception {
+        replica.putKeyStore(new KeyStore(1L, "First"));
+        replica.putKeyStore(new KeyStore(2L, "Second"));
+        replica.putKey(1L, new ScytalePublicKey(1L, testPublicKey));
+        replica.setCursor("a b");
+
+        when(apiRequest.get("keystores/changes?since=a+b")).thenReturn(TestUtils.setupHTTPResponse(200, new JSONObject()
+                .put("cursor", "c")
+                .put("keys", new JSONArray().put(key(1, 2)))
+                .put("deletedKeys", new JSONArray().put(new JSONObject().put("keystoreId", 1).put("id", 1)))
+                .put("deletedKeystores", new JSONArray().put(2))
+                .toString()));
+
+        assertEquals(3, new ReplicaSync(apiRequest, replica).sync());
+        assertEquals("c", replica.getCursor());
+        assertEquals(Optional.empty(), replica.getById(2L));
+        assertEquals(Optional.of(List.of(new ScytalePublicKey(2L, testPublicKey))), replica.getKeys(1L));
+    }
+
+    @Test
+    @DisplayName("Should refetch catalogue when cursor expired")
+    void shouldResyncExpiredCursor() throws Exception {
+        replica.putKeyStore(new KeyStore(2L, "Stale"));
+        replica.setCursor("old");
+
+        when(apiRequest.get("keystores/changes?since=old")).thenReturn(TestUtils.setupHTTPResponse(410, "Gone"));
+        when(apiRequest.get("keystores/changes")).thenReturn(TestUtils.setupHTTPResponse(200, new JSONObject()
+                .put("cursor", "new")
+                .put("keystores", new JSONArray().put(new JSONObject().put("id", 1).put("name", "First")))
+                .toString()));
+
+        new ReplicaSync(apiRequest, replica).sync();
+
+        assertEquals("new", replica.getCursor());
+        assertEquals(List.of(new KeyStore(1L, "First")), replica.keyStores());
+    }
+
+    @Test
+    @DisplayName("Should keep serving replica while refetching catalogue")
+    void shouldServeDuringResync() throws Exception {
+        replica.putKeyStore(new KeyStore(2L, "Stale"));
+        replica.setCursor("old");
+
+        when(apiRequest.get("keystores/changes?since=old")).thenReturn(TestUtils.setupHTTPResponse(410, "Gone"));
+        when(apiRequest.get("keystores/changes")).thenAnswer(invocation -> {
+            assertEquals(Optional.of(new KeyStore(2L, "Stale")), replica.getById(2L));
+            assertTrue(replica.isSynced());
+            return TestUtils.setupHTTPResponse(200, new JSONObject()
+                .put("cursor", "new")
+                .put("keystores", new JSONArray().put(new JSONObject().put("id", 1).put("name", "First")))
+                .toString());
+        });
+
+        assertEquals(1, new ReplicaSync(apiRequest, replica).sync());
+
+        assertEquals(Optional.empty(), replica.getById(2L));
+        assertEquals(Optional.of(new KeyStore(1L, "First")), replica.getByName("First"));
+    }
+
+    @Test
+    @DisplayName("Should keep cursor when sync fails")
+    void shouldKeepCursorOnFailure() throws Exception {
+        replica.setCursor("a");
+        when(apiRequest.get(any())).thenReturn(TestUtils.setupHTTPResponse(500, "Error"));
+
+        Exception scytaleException = assertThrows(ScytaleException.class, () -> new ReplicaSync(apiRequest, replica).sync());
+
+        assertEquals("API response failed with Error", scytaleException.getMessage());
+        assertEquals("a", replica.getCursor());
+    }
+
+    private JSONObject key(long keyStoreId, long id) {
+        return new JSONObject().put("keystoreId", keyStoreId).put("id", id).put("publicKey", testPublicKey);
+    }
+}
@@ -1,7 +1,9 @@
 package com.openmoments.scytale.api;
 
 import com.openmoments.scytale.TestUtils;
+import com.openmoments.scytale.entities.BatchResult;
 import com.openmoments.scytale.exception.ScytaleException;
+import org.json.JSONArray;
 import org.json.JSONObject;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -10,11 +12,24 @@ import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
 import java.security.cert.CertificateException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 class ScytaleRequestTest {
@@ -90,4 +105,145 @@ class ScytaleRequestTest {
         }
     }
 
-}
\ No newline at end of file
+
+    @Nested
+    @DisplayName("Bulk Requests")
+    class ScytaleBulk {
+        @Test
+        @DisplayName("Should reject invalid concurrency")
+        void shouldRejectInvalidConcurrency() {
+            Exception illegalArgumentException = assertThrows(IllegalArgumentException.class, () -> scytaleRequest.concurrency(0));
+            assertEquals("Concurrency must be positive integer", illegalArgumentException.getMessage());
+        }
+
+        @Test
+        @DisplayName("Should stop using unsupported batch endpoint")
+        void shouldRememberUnsupportedBatch() throws IOException, InterruptedException, ScytaleException, CertificateException {
+            when(apiRequest.post(any(), any())).thenReturn(TestUtils.setupHTTPResponse(405, "Method Not Allowed"));
+
+            assertTrue(scytaleRequest.postBatch("/batch", new JSONObject()).isEmpty());
+            assertTrue(scytaleRequest.postBatch("/batch", new JSONObject()).isEmpty());
+            verify(apiRequest, times(1)).post(any(), any());
+        }
+
+        @Test
+        @DisplayName("Should not remember batch endpoint as unsupported after not found")
+        void shouldRetryBatchAfterNotFound() throws IOException, InterruptedException, ScytaleException, CertificateException {
+            when(apiRequest.post(any(), any())).thenReturn(TestUtils.setupHTTPResponse(404, "Not Found"));
+            when(apiRequest.get(any())).thenReturn(TestUtils.setupHTTPResponse(400, "Bad Request"));
+
+            assertTrue(scytaleRequest.postBatch("keystores/1/keys/batch", new JSONObject()).isEmpty());
+            assertTrue(scytaleRequest.postBatch("keystores/2/keys/batch", new JSONObject()).isEmpty());
+            assertTrue(scytaleRequest.getBatch("keystores?ids=1").isEmpty());
+            assertTrue(scytaleRequest.getBatch("keystores?ids=2").isEmpty());
+            verify(apiRequest, times(2)).post(any(), any());
+            verify(apiRequest, times(2)).get(any());
+        }
+
+        @Test
+        @DisplayName("Should fail batch post on bad request")
+        void shouldFailBatchOnBadRequest() throws IOException, InterruptedException, CertificateException {
+            when(apiRequest.post(any(), any())).thenReturn(TestUtils.setupHTTPResponse(400, "Bad Request"));
+
+            Exception scytaleException = assertThrows(ScytaleException.class, () -> scytaleRequest.postBatch("/batch", new JSONObject()));
+            assertEquals("API response failed with Bad Request", scytaleException.getMessage());
+        }
+
+        @Test
+        @DisplayName("Should remember unsupported batch endpoint across keystores")
+        void shouldRememberUnsupportedBatchPerEndpoint() throws IOException, InterruptedException, ScytaleException, CertificateException {
+            when(apiRequest.get(any())).thenReturn(TestUtils.setupHTTPResponse(405, "Method Not Allowed"));
+
+            assertTrue(scytaleRequest.getBatch("keystores/1/keys/batch?ids=1").isEmpty());
+            assertTrue(scytaleRequest.getBatch("keystores/2/keys/batch?ids=2").isEmpty());
+            verify(apiRequest, times(1)).get(any());
+        }
+
+        @Test
+        @DisplayName("Should not exceed concurrency when pipelining")
+        void shouldBoundInFlightRequests() throws IOException, InterruptedException, CertificateException {
+            AtomicInteger inFlight = new AtomicInteger();
+            AtomicInteger maximum = new AtomicInteger();
+            when(apiRequest.postAsync(any(), any())).thenAnswer(invocation -> {
+                maximum.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                return CompletableFuture.supplyAsync(() -> {
+                    try {
+                        Thread.sleep(10);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    inFlight.decrementAndGet();
+                    return TestUtils.setupHTTPResponse(200, "OK");
+                });
+            });
+
+            BatchResult<Integer, String> batchResult = scytaleRequest.concurrency(2)
+                    .postEach(List.of(1, 2, 3, 4, 5, 6), item -> "/", item -> new JSONObject(), body -> body);
+
+            assertEquals(6, batchResult.getResults().size());
+            assertTrue(maximum.get() <= 2);
+        }
+
+        @Test
+        @DisplayName("Should report pipelined failures per item")
+        void shouldReportFailuresPerItem() throws IOException, InterruptedException, CertificateException {
+            when(apiRequest.postAsync(eq("/1"), any())).thenReturn(CompletableFuture.completedFuture(TestUtils.setupHTTPResponse(200, "One")));
+            when(apiRequest.postAsync(eq("/2"), any())).thenReturn(CompletableFuture.completedFuture(TestUtils.setupHTTPResponse(500, "Error")));
+            when(apiRequest.postAsync(eq("/3"), any())).thenThrow(new IOException("Connection reset"));
+
+            BatchResult<Integer, String> batchResult = scytaleRequest.postEach(List.of(1, 2, 3), item -> "/" + item, item -> new JSONObject(), body -> body);
+
+            assertEquals(Map.of(1, "One"), batchResult.getResults());
+            assertEquals("API response failed with Error", batchResult.getFailures().get(2).getMessage());
+            assertEquals("Connection reset", batchResult.getFailures().get(3).getMessage());
+        }
+    }
+
+    @Nested
+    @DisplayName("Paged Requests")
+    class ScytalePaged {
+        private final ScytaleRequest.ResponseParser<List<Integer>> parser = body -> new JSONArray(body).toList().stream()
+                .map(Integer.class::cast).collect(Collectors.toList());
+
+        @Test
+        @DisplayName("Should reject invalid page size")
+        void shouldRejectInvalidPageSize() {
+            Exception illegalArgumentException = assertThrows(IllegalArgumentException.class, () -> scytaleRequest.pageSize(0));
+            assertEquals("Page size must be positive integer", illegalArgumentException.getMessage());
+        }
+
+        @Test
+        @DisplayName("Should request next page before current page consumed")
+        void shouldReadAhead() throws IOException, InterruptedException, CertificateException {
+            when(apiRequest.getAsync("/items?limit=2")).thenReturn(CompletableFuture.completedFuture(TestUtils.setupHTTPResponse(200,
+                    new JSONObject().put("items", new JSONArray().put(1).put(2)).put("nextCursor", "a b").toString())));
+            when(apiRequest.getAsync("/items?limit=2&cursor=a+b")).thenReturn(CompletableFuture.completedFuture(TestUtils.setupHTTPResponse(200,
+                    new JSONObject().put("items", new JSONArray().put(3)).toString())));
+
+            Iterator<Integer> items = scytaleRequest.pageSize(2).getPaged("/items", "items", parser).iterator();
+
+            assertEquals(1, items.next());
+            verify(apiRequest).getAsync("/items?limit=2&cursor=a+b");
+            assertEquals(List.of(2, 3), List.of(items.next(), items.next()));
+            assertFalse(items.hasNext());
+        }
+
+        @Test
+        @DisplayName("Should treat unpaged array as only page")
+        void shouldAcceptUnpagedArray() throws IOException, InterruptedException, CertificateException {
+            when(apiRequest.getAsync("/items?name=x&limit=100")).thenReturn(CompletableFuture.completedFuture(TestUtils.setupHTTPResponse(200, "[1,2]")));
+
+            assertEquals(List.of(1, 2), scytaleRequest.getPaged("/items?name=x", "items", parser).collect(Collectors.toList()));
+        }
+
+        @Test
+        @DisplayName("Should throw when page fails")
+        void shouldThrowOnFailedPage() throws IOException, InterruptedException, CertificateException {
+            when(apiRequest.getAsync("/items?limit=100")).thenReturn(CompletableFuture.completedFuture(TestUtils.setupHTTPResponse(500, "Error")));
+
+            Stream<Integer> items = scytaleRequest.getPaged("/items", "items", parser);
+            Exception completionException = assertThrows(CompletionException.class, () -> items.collect(Collectors.toList()));
+            assertEquals("API response failed with Error", completionException.getCause().getMessage());
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.openmoments.scytale.api;
+
+import com.openmoments.scytale.TestUtils;
+import com.openmoments.scytale.exception.ScytaleException;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@DisplayName("Snapshot Exporter")
+class SnapshotExporterTest {
+
+    private final APIRequest apiRequest = mock(APIRequest.class);
+
+    @Test
+    @DisplayName("Should write every page of the catalogue")
+    void shouldExportCatalogue(@TempDir Path tempDir) throws Exception {
+        Path snapshot = tempDir.resolve("keys.ndjson");
+        when(apiRequest.get("keystores/changes")).thenReturn(TestUtils.setupHTTPResponse(200, new JSONObject()
+                .put("cursor", "a").put("hasMore", true)
+                .put("keystores", new JSONArray().put(new JSONObject().put("id", 1).put("name", "First")))
+                .toString()));
+        when(apiRequest.get("keystores/changes?since=a")).thenReturn(TestUtils.setupHTTPResponse(200, new JSONObject()
+                .put("cursor", "b")
+                .put("keys", new JSONArray().put(new JSONObject().put("keystoreId", 1).put("id", 2).put("publicKey", "Key")))
+                .toString()));
+
+        List<TransferProgress> reported = new ArrayList<>();
+        TransferProgress progress = new SnapshotExporter(apiRequest).progress(reported::add).export(snapshot);
+
+        assertEquals(1, progress.getKeyStores());
+        assertEquals(1, progress.getKeys());
+        assertEquals(2, reported.size());
+        List<String> lines = Files.readAllLines(snapshot);
+        assertEquals(3, lines.size());
+        assertTrue(new JSONObject().put("type", "keystore").put("id", 1).put("name", "First").similar(new JSONObject(lines.get(0))));
+        assertTrue(new JSONObject().put("type", "key").put("keystoreId", 1).put("id", 2).put("publicKey", "Key").similar(new JSONObject(lines.get(1))));
+        assertTrue(new JSONObject().put("type", "end").put("cursor", "b").similar(new JSONObject(lines.get(2))));
+        assertFalse(Files.exists(tempDir.resolve("keys.ndjson.checkpoint")));
+        assertFalse(Files.exists(tempDir.resolve("keys.ndjson.pages")));
+    }
+
+    @Test
+    @DisplayName("Should write only the latest version of changes which were not deleted")
+    void shouldApplyChangesAndDeletions(@TempDir Path tempDir) throws Exception {
+        Path snapshot = tempDir.resolve("keys.ndjson");
+        when(apiRequest.get("keystores/changes")).thenReturn(TestUtils.setupHTTPResponse(200, new JSONObject()
+                .put("cursor", "a").put("hasMore", true)
+                .put("keystores", new JSONArray()
+                        .put(new JSONObject().put("id", 1).put("name", "First"))
+                        .put(new JSONObject().put("id", 2).put("name", "Deleted")))
+                .put("keys", new JSONArray()
+                        .put(new JSONObject().put("keystoreId", 1).put("id", 3).put("publicKey", "Old"))
+                        .put(new JSONObject().put("keystoreId", 1).put("id", 4).put("publicKey", "Removed"))
+                        .put(new JSONObject().put("keystoreId", 2).put("id", 5).put("publicKey", "Orphaned")))
+                .toString()));
+        when(apiRequest.get("keystores/changes?since=a")).thenReturn(TestUtils.setupHTTPResponse(200, new JSONObject()
+                .put("cursor", "b")
+                .put("keystores", new JSONArray().put(new JSONObject().put("id", 1).put("name", "Renamed")))
+                .put("keys", new JSONArray().put(new JSONObject().put("keystoreId", 1).put("id", 3).put("publicKey", "New")))
+                .put("deletedKeys", new JSONArray().put(new JSONObject().put("keystoreId", 1).put("id", 4)))
+                .put("deletedKeystores", new JSONArray().put(2))
+                .toString()));
+
+        TransferProgress progress = new SnapshotExporter(apiRequest).export(snapshot);
+
+        assertEquals(1, progress.getKeyStores());
+        assertEquals(1, progress.getKeys());
+        List<String> lines = Files.readAllLines(snapshot);
+        assertEquals(3, lines.size());
+        assertTrue(new JSONObject().put("type", "keystore").put("id", 1).put("name", "Renamed").similar(new JSONObject(lines.get(0))));
+        assertTrue(new JSONObject().put("type", "key").put("keystoreId", 1).put("id", 3).put("publicKey", "New").similar(new JSONObject(lines.get(1))));
+        assertTrue(new JSONObject().put("type", "end").put("cursor", "b").similar(new JSONObject(lines.get(2))));
+    }
+
+    @Test
+    @DisplayName("Should resume from checkpoint discarding incomplete page")
+    void shouldResumeFromCheckpoint(@TempDir Path tempDir) throws Exception {
+        Path snapshot = tempDir.resolve("keys.ndjson");
+        String written = "{\"type\":\"keystore\",\"id\":1,\"name\":\"First\"}\n";
+        Files.writeString(tempDir.resolve("keys.ndjson.pages"), written + "{\"type\":\"keystore\",\"id\":2,\"na");
+        Files.writeString(tempDir.resolve("keys.ndjson.checkpoint"),
+                new JSONObject().put("cursor", "a").put("offset", written.length()).toString());
+
+        when(apiRequest.get("keystores/changes?since=a")).thenReturn(TestUtils.setupHTTPResponse(200, new JSONObject()
+                .put("cursor", "b")
+                .put("keystores", new JSONArray().put(new JSONObject().put("id", 2).put("name", "Second")))
+                .toString()));
+
+        TransferProgress progress = new SnapshotExporter(apiRequest).export(snapshot);
+
+        verify(apiRequest, never()).get("keystores/changes");
+        assertEquals(2, progress.getKeyStores());
+        List<String> lines = Files.readAllLines(snapshot);
+        assertEquals(3, lines.size());
+        assertEquals(1, new JSONObject(lines.get(0)).getLong("id"));
+        assertEquals("Second", new JSONObject(lines.get(1)).getString("name"));
+        assertEquals("end", new JSONObject(lines.get(2)).getString("type"));
+    }
+
+    @Test
+    @DisplayName("Should throw on invalid page")
+    void shouldThrowOnInvalidPage(@TempDir Path tempDir) throws Exception {
+        when(apiRequest.get("keystores/changes")).thenReturn(TestUtils.setupHTTPResponse(200, "Invalid"));
+
+        Exception scytaleException = assertThrows(ScytaleException.class,
+                () -> new SnapshotExporter(apiRequest).export(tempDir.resolve("keys.ndjson")));
+        assertEquals(ScytaleRequest.RETURNED_INVALID_JSON, scytaleException.getMessage());
+    }
+}
@@ -0,0 +1,176 @@
+package com.openmoments.scytale.api;
+
+import com.openmoments.scytale.entities.BatchResult;
+import com.openmoments.scytale.entities.KeyStore;
+import com.openmoments.scytale.entities.ScytalePublicKey;
+import com.openmoments.scytale.exception.ScytaleException;
+import org.json.JSONObject;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@DisplayName("Snapshot Importer")
+class SnapshotImporterTest {
+
+    private final KeyStoreRequest keyStoreRequest = mock(KeyStoreRequest.class);
+    private final PublicKeyRequest publicKeyRequest = mock(PublicKeyRequest.class);
+
+    @Test
+    @DisplayName("Should require requests")
+    void shouldRequireRequests() {
+        Exception illegalArgumentException = assertThrows(IllegalArgumentException.class, () -> new SnapshotImporter(keyStoreRequest, null));
+        assertEquals("KeyStore and PublicKey requests are required", illegalArgumentException.getMessage());
+    }
+
+    @Test
+    @DisplayName("Should create keystores and add keys under new IDs")
+    void shouldImportSnapshot(@TempDir Path tempDir) throws Exception {
+        Path snapshot = tempDir.resolve("keys.ndjson");
+        Files.write(snapshot, List.of(
+                "{\"type\":\"keystore\",\"id\":1,\"name\":\"First\"}",
+                "{\"type\":\"keystore\",\"id\":2,\"name\":\"Second\"}",
+                "{\"type\":\"key\",\"keystoreId\":1,\"id\":1,\"publicKey\":\"A\"}",
+                "{\"type\":\"key\",\"keystoreId\":2,\"id\":2,\"publicKey\":\"B\"}",
+                "{\"type\":\"key\",\"keystoreId\":3,\"id\":3,\"publicKey\":\"C\"}",
+                "{\"type\":\"end\",\"cursor\":\"b\"}"));
+
+        KeyStore first = new KeyStore(10L, "First");
+        KeyStore second = new KeyStore(20L, "Second");
+        when(keyStoreRequest.createKeyStores(Set.of("First", "Second"))).thenReturn(new BatchResult<String, KeyStore>()
+                .success("First", first)
+                .failure("Second", new ScytaleException("Keystore already exists")));
+        when(publicKeyRequest.addAll(List.of("A"), first)).thenReturn(new BatchResult<String, ScytalePublicKey>().success("A", null));
+
+        TransferProgress progress = new SnapshotImporter(keyStoreRequest, publicKeyRequest).importFrom(snapshot);
+
+        assertEquals(1, progress.getKeyStores());
+        assertEquals(1, progress.getKeys());
+        assertEquals(3, progress.getFailures());
+        verify(keyStoreRequest, never()).searchByName(any());
+        verify(publicKeyRequest, never()).addAll(any(), eq(second));
+        assertFalse(Files.exists(tempDir.resolve("keys.ndjson.import-checkpoint")));
+    }
+
+    @Test
+    @DisplayName("Should resume after last complete chunk")
+    void shouldResumeFromCheckpoint(@TempDir Path tempDir) throws Exception {
+        Path snapshot = tempDir.resolve("keys.ndjson");
+        Files.write(snapshot, List.of(
+                "{\"type\":\"keystore\",\"id\":1,\"name\":\"First\"}",
+                "{\"type\":\"key\",\"keystoreId\":1,\"id\":1,\"publicKey\":\"A\"}"));
+        Files.writeString(tempDir.resolve("keys.ndjson.import-checkpoint"),
+                "{\"line\":1,\"keystores\":{\"1\":{\"id\":10,\"name\":\"First\"}}}\n{\"line\":2,\"keys");
+
+        KeyStore first = new KeyStore(10L, "First");
+        when(publicKeyRequest.addAll(List.of("A"), first)).thenReturn(new BatchResult<String, ScytalePublicKey>().success("A", null));
+
+        TransferProgress progress = new SnapshotImporter(keyStoreRequest, publicKeyRequest).chunkSize(1).importFrom(snapshot);
+
+        verify(keyStoreRequest, never()).createKeyStores(any());
+        assertEquals(1, progress.getKeys());
+        assertEquals(0, progress.getFailures());
+    }
+
+    @Test
+    @DisplayName("Should keep checkpoint when API unreachable")
+    void shouldKeepCheckpointOnFailure(@TempDir Path tempDir) throws Exception {
+        Path snapshot = tempDir.resolve("keys.ndjson");
+        Files.write(snapshot, List.of(
+                "{\"type\":\"keystore\",\"id\":1,\"name\":\"First\"}",
+                "{\"type\":\"key\",\"keystoreId\":1,\"id\":1,\"publicKey\":\"A\"}"));
+
+        KeyStore first = new KeyStore(10L, "First");
+        when(keyStoreRequest.createKeyStores(Set.of("First"))).thenReturn(new BatchResult<String, KeyStore>().success("First", first));
+        when(publicKeyRequest.addAll(List.of("A"), first)).thenThrow(new IOException("Connection refused"));
+
+        Exception ioException = assertThrows(IOException.class,
+                () -> new SnapshotImporter(keyStoreRequest, publicKeyRequest).chunkSize(1).importFrom(snapshot));
+        assertEquals("Connection refused", ioException.getMessage());
+        List<String> checkpoint = Files.readAllLines(tempDir.resolve("keys.ndjson.import-checkpoint"));
+        assertEquals(2, checkpoint.size());
+        assertEquals(10, new JSONObject(checkpoint.get(0)).getJSONObject("keystores").getJSONObject("1").getLong("id"));
+        assertEquals(1, new JSONObject(checkpoint.get(1)).getLong("line"));
+    }
+
+    @Test
+    @DisplayName("Should not create keystores again when resuming a chunk interrupted after creating them")
+    void shouldResumeWithoutDuplicatingKeyStores(@TempDir Path tempDir) throws Exception {
+        Path snapshot = tempDir.resolve("keys.ndjson");
+        Files.write(snapshot, List.of(
+                "{\"type\":\"keystore\",\"id\":1,\"name\":\"First\"}",
+                "{\"type\":\"key\",\"keystoreId\":1,\"id\":1,\"publicKey\":\"A\"}"));
+
+        KeyStore first = new KeyStore(10L, "First");
+        when(keyStoreRequest.createKeyStores(Set.of("First"))).thenReturn(new BatchResult<String, KeyStore>().success("First", first));
+        when(publicKeyRequest.addAll(List.of("A"), first))
+                .thenThrow(new IOException("Connection refused"))
+                .thenReturn(new BatchResult<String, ScytalePublicKey>().success("A", null));
+
+        SnapshotImporter snapshotImporter = new SnapshotImporter(keyStoreRequest, publicKeyRequest);
+        assertThrows(IOException.class, () -> snapshotImporter.importFrom(snapshot));
+        TransferProgress progress = snapshotImporter.importFrom(snapshot);
+
+        verify(keyStoreRequest, times(1)).createKeyStores(any());
+        assertEquals(1, progress.getKeys());
+        assertEquals(0, progress.getFailures());
+    }
+
+    @Test
+    @DisplayName("Should create separate keystores for exported keystores sharing a name")
+    void shouldImportKeyStoresSharingName(@TempDir Path tempDir) throws Exception {
+        Path snapshot = tempDir.resolve("keys.ndjson");
+        Files.write(snapshot, List.of(
+                "{\"type\":\"keystore\",\"id\":1,\"name\":\"Shared\"}",
+                "{\"type\":\"keystore\",\"id\":2,\"name\":\"Shared\"}",
+                "{\"type\":\"key\",\"keystoreId\":1,\"id\":1,\"publicKey\":\"A\"}",
+                "{\"type\":\"key\",\"keystoreId\":2,\"id\":2,\"publicKey\":\"B\"}"));
+
+        KeyStore first = new KeyStore(10L, "Shared");
+        KeyStore second = new KeyStore(20L, "Shared");
+        when(keyStoreRequest.createKeyStores(Set.of("Shared"))).thenReturn(new BatchResult<String, KeyStore>().success("Shared", first));
+        when(keyStoreRequest.createKeyStore("Shared")).thenReturn(Optional.of(second));
+        when(publicKeyRequest.addAll(List.of("A"), first)).thenReturn(new BatchResult<String, ScytalePublicKey>().success("A", null));
+        when(publicKeyRequest.addAll(List.of("B"), second)).thenReturn(new BatchResult<String, ScytalePublicKey>().success("B", null));
+
+        TransferProgress progress = new SnapshotImporter(keyStoreRequest, publicKeyRequest).importFrom(snapshot);
+
+        assertEquals(2, progress.getKeyStores());
+        assertEquals(2, progress.getKeys());
+        assertEquals(0, progress.getFailures());
+    }
+
+    @Test
+    @DisplayName("Should not merge exported keystores sharing a name when one cannot be created")
+    void shouldNotMergeKeyStoresSharingName(@TempDir Path tempDir) throws Exception {
+        Path snapshot = tempDir.resolve("keys.ndjson");
+        Files.write(snapshot, List.of(
+                "{\"type\":\"keystore\",\"id\":1,\"name\":\"Shared\"}",
+                "{\"type\":\"keystore\",\"id\":2,\"name\":\"Shared\"}",
+                "{\"type\":\"key\",\"keystoreId\":1,\"id\":1,\"publicKey\":\"A\"}",
+                "{\"type\":\"key\",\"keystoreId\":2,\"id\":2,\"publicKey\":\"B\"}"));
+
+        KeyStore first = new KeyStore(10L, "Shared");
+        when(keyStoreRequest.createKeyStores(Set.of("Shared"))).thenReturn(new BatchResult<String, KeyStore>().success("Shared", first));
+        when(keyStoreRequest.createKeyStore("Shared")).thenThrow(new ScytaleException("Keystore already exists"));
+        when(publicKeyRequest.addAll(List.of("A"), first)).thenReturn(new BatchResult<String, ScytalePublicKey>().success("A", null));
+
+        TransferProgress progress = new SnapshotImporter(keyStoreRequest, publicKeyRequest).importFrom(snapshot);
+
+        assertEquals(1, progress.getKeyStores());
+        assertEquals(1, progress.getKeys());
+        assertEquals(2, progress.getFailures());
+        verify(publicKeyRequest, never()).addAll(List.of("B"), first);
+    }
+}
@@ -0,0 +1,74 @@
+package com.openmoments.scytale.cache;
+
+import com.openmoments.scytale.TestUtils;
+import com.openmoments.scytale.entities.KeyStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("KeyStore Cache")
+class KeyStoreCacheTest {
+
+    private TestUtils.TestClock clock;
+    private KeyStoreCache keyStoreCache;
+
+    @BeforeEach
+    void setup() {
+        clock = new TestUtils.TestClock();
+        keyStoreCache = new KeyStoreCache(clock);
+    }
+
+    @Test
+    @DisplayName("Should find keystore by ID and name")
+    void shouldFindByIdAndName() {
+        KeyStore keyStore = new KeyStore(1L, "Test");
+        keyStoreCache.put(keyStore);
+
+        assertEquals(Optional.of(keyStore), keyStoreCache.getById(1L));
+        assertEquals(Optional.of(keyStore), keyStoreCache.getByName("Test"));
+    }
+
+    @Test
+    @DisplayName("Should drop previous name when renamed")
+    void shouldDropPreviousNameWhenRenamed() {
+        keyStoreCache.put(new KeyStore(1L, "Test"));
+        keyStoreCache.put(new KeyStore(1L, "Renamed"));
+
+        assertEquals(Optional.empty(), keyStoreCache.getByName("Test"));
+        assertEquals(Optional.of(new KeyStore(1L, "Renamed")), keyStoreCache.getByName("Renamed"));
+    }
+
+    @Test
+    @DisplayName("Should expire missing names")
+    void shouldExpireMissingNames() {
+        keyStoreCache.putMissing("Missing");
+        assertTrue(keyStoreCache.isMissing("Missing"));
+
+        clock.advance(Duration.ofSeconds(30));
+        assertFalse(keyStoreCache.isMissing("Missing"));
+    }
+
+    @Test
+    @DisplayName("Should clear missing name once keystore cached")
+    void shouldClearMissingWhenPut() {
+        keyStoreCache.putMissing("Test");
+        keyStoreCache.put(new KeyStore(1L, "Test"));
+
+        assertFalse(keyStoreCache.isMissing("Test"));
+    }
+
+    @Test
+    @DisplayName("Should invalidate by ID")
+    void shouldInvalidateById() {
+        keyStoreCache.put(new KeyStore(1L, "Test"));
+        keyStoreCache.invalidate(1L);
+
+        assertEquals(Optional.empty(), keyStoreCache.getById(1L));
+        assertEquals(Optional.empty(), keyStoreCache.getByName("Test"));
+    }
+}
@@ -0,0 +1,91 @@
+package com.openmoments.scytale.cache;
+
+import com.openmoments.scytale.api.KeyStoreRequest;
+import com.openmoments.scytale.api.PublicKeyRequest;
+import com.openmoments.scytale.entities.KeyStore;
+import com.openmoments.scytale.exception.InvalidKeystoreException;
+import com.openmoments.scytale.exception.ScytaleException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@DisplayName("KeyStore Prefetcher")
+class KeyStorePrefetcherTest {
+
+    private final KeyStoreRequest keyStoreRequest = mock(KeyStoreRequest.class);
+    private final PublicKeyRequest publicKeyRequest = mock(PublicKeyRequest.class);
+
+    @Test
+    @DisplayName("Should complete immediately when nothing configured")
+    void shouldCompleteWhenEmpty() throws Exception {
+        Map<String, KeyStore> prefetched = new KeyStorePrefetcher(keyStoreRequest, publicKeyRequest)
+                .properties(new Properties())
+                .start().get();
+
+        assertTrue(prefetched.isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should fetch configured keystores and keys")
+    void shouldFetchConfiguredKeyStores() throws Exception {
+        Properties properties = new Properties();
+        properties.setProperty("prefetch.keystores", "First, Second,");
+        properties.setProperty("prefetch.concurrency", "2");
+
+        when(keyStoreRequest.searchByName("First")).thenReturn(Optional.of(new KeyStore(1L, "First")));
+        when(keyStoreRequest.searchByName("Second")).thenReturn(Optional.of(new KeyStore(2L, "Second")));
+
+        Map<String, KeyStore> prefetched = new KeyStorePrefetcher(keyStoreRequest, publicKeyRequest)
+                .properties(properties)
+                .start().get();
+
+        assertEquals(Map.of("First", new KeyStore(1L, "First"), "Second", new KeyStore(2L, "Second")), prefetched);
+        verify(publicKeyRequest).getAll(new KeyStore(1L, "First"));
+        verify(publicKeyRequest).getAll(new KeyStore(2L, "Second"));
+    }
+
+    @Test
+    @DisplayName("Should not exceed concurrency")
+    void shouldBoundConcurrency() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maximum = new AtomicInteger();
+        when(keyStoreRequest.searchByName(any())).thenAnswer(invocation -> {
+            maximum.accumulateAndGet(running.incrementAndGet(), Math::max);
+            Thread.sleep(20);
+            running.decrementAndGet();
+            return Optional.of(new KeyStore(1L, invocation.getArgument(0)));
+        });
+
+        new KeyStorePrefetcher(keyStoreRequest, publicKeyRequest)
+                .names(List.of("1", "2", "3", "4", "5", "6"))
+                .concurrency(2)
+                .start().get();
+
+        assertTrue(maximum.get() <= 2);
+    }
+
+    @Test
+    @DisplayName("Should fail readiness naming failed keystores")
+    void shouldFailWhenKeyStoreMissing() throws Exception {
+        when(keyStoreRequest.searchByName("First")).thenReturn(Optional.of(new KeyStore(1L, "First")));
+        when(keyStoreRequest.searchByName("Missing")).thenThrow(new InvalidKeystoreException("Keystore with name Missing does not exist"));
+
+        Exception executionException = assertThrows(ExecutionException.class,
+                () -> new KeyStorePrefetcher(keyStoreRequest, publicKeyRequest).names(List.of("First", "Missing")).start().get());
+
+        assertTrue(executionException.getCause() instanceof ScytaleException);
+        assertEquals("Failed to prefetch keystores [Missing]", executionException.getCause().getMessage());
+    }
+}
@@ -0,0 +1,82 @@
+package com.openmoments.scytale.cache;
+
+import com.openmoments.scytale.TestUtils;
+import com.openmoments.scytale.entities.KeyStore;
+import com.openmoments.scytale.entities.ScytalePublicKey;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("KeyStore Replica")
+class KeyStoreReplicaTest {
+
+    private final String testPublicKey = TestUtils.readTestFile("test_rsa_public.pem");
+    private final KeyStoreReplica replica = new KeyStoreReplica();
+
+    @Test
+    @DisplayName("Should not be synced without cursor")
+    void shouldRequireCursor() {
+        assertFalse(replica.isSynced());
+        replica.setCursor("1");
+        assertTrue(replica.isSynced());
+        replica.clear();
+        assertFalse(replica.isSynced());
+    }
+
+    @Test
+    @DisplayName("Should reindex renamed keystore")
+    void shouldReindexRename() {
+        replica.putKeyStore(new KeyStore(1L, "Original"));
+        replica.putKeyStore(new KeyStore(1L, "Renamed"));
+
+        assertEquals(Optional.empty(), replica.getByName("Original"));
+        assertEquals(Optional.of(new KeyStore(1L, "Renamed")), replica.getByName("Renamed"));
+    }
+
+    @Test
+    @DisplayName("Should return keys ordered by ID")
+    void shouldOrderKeys() {
+        replica.putKeyStore(new KeyStore(1L, "Test"));
+        replica.putKey(1L, new ScytalePublicKey(3L, testPublicKey));
+        replica.putKey(1L, new ScytalePublicKey(2L, testPublicKey));
+        replica.putKey(1L, new ScytalePublicKey(4L, testPublicKey));
+        replica.removeKey(1L, 4L);
+
+        assertEquals(Optional.of(List.of(new ScytalePublicKey(2L, testPublicKey), new ScytalePublicKey(3L, testPublicKey))),
+                replica.getKeys(1L));
+    }
+
+    @Test
+    @DisplayName("Should remove keys with keystore")
+    void shouldRemoveKeyStore() {
+        replica.putKeyStore(new KeyStore(1L, "Test"));
+        replica.putKey(1L, new ScytalePublicKey(1L, testPublicKey));
+        replica.removeKeyStore(1L);
+
+        assertEquals(Optional.empty(), replica.getById(1L));
+        assertEquals(Optional.empty(), replica.getByName("Test"));
+        assertEquals(Optional.empty(), replica.getKeys(1L));
+    }
+
+    @Test
+    @DisplayName("Should replace catalogue and cursor")
+    void shouldReplaceWith() {
+        replica.putKeyStore(new KeyStore(1L, "Old"));
+        replica.setCursor("1");
+
+        KeyStoreReplica replacement = new KeyStoreReplica();
+        replacement.putKeyStore(new KeyStore(2L, "New"));
+        replacement.putKey(2L, new ScytalePublicKey(1L, testPublicKey));
+        replacement.setCursor("2");
+        replica.replaceWith(replacement);
+
+        assertEquals("2", replica.getCursor());
+        assertEquals(Optional.empty(), replica.getByName("Old"));
+        assertEquals(List.of(new KeyStore(2L, "New")), replica.keyStores());
+        assertEquals(Optional.of(List.of(new ScytalePublicKey(1L, testPublicKey))), replica.getKeys(2L));
+    }
+}
@@ -0,0 +1,79 @@
+package com.openmoments.scytale.cache;
+
+import com.openmoments.scytale.TestUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("LRU Cache")
+class LruCacheTest {
+
+    private TestUtils.TestClock clock;
+    private LruCache<String, Integer> cache;
+
+    @BeforeEach
+    void setup() {
+        clock = new TestUtils.TestClock();
+        cache = new LruCache<>(2, Duration.ofMinutes(1), clock);
+    }
+
+    @Test
+    @DisplayName("Should throw when size invalid")
+    void shouldThrowWhenSizeInvalid() {
+        Exception illegalArgumentException = assertThrows(IllegalArgumentException.class,
+                () -> new LruCache<String, Integer>(0, Duration.ofMinutes(1)));
+
+        assertEquals("Cache size must be positive integer", illegalArgumentException.getMessage());
+    }
+
+    @Test
+    @DisplayName("Should return stored value")
+    void shouldReturnStoredValue() {
+        cache.put("one", 1);
+
+        assertEquals(Optional.of(1), cache.get("one"));
+        assertEquals(Optional.empty(), cache.get("two"));
+    }
+
+    @Test
+    @DisplayName("Should expire entries")
+    void shouldExpireEntries() {
+        cache.put("one", 1);
+        clock.advance(Duration.ofMinutes(1));
+
+        assertEquals(Optional.empty(), cache.get("one"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    @DisplayName("Should evict least recently used")
+    void shouldEvictLeastRecentlyUsed() {
+        cache.put("one", 1);
+        cache.put("two", 2);
+        cache.get("one");
+        cache.put("three", 3);
+
+        assertEquals(Optional.of(1), cache.get("one"));
+        assertEquals(Optional.empty(), cache.get("two"));
+        assertEquals(Optional.of(3), cache.get("three"));
+    }
+
+    @Test
+    @DisplayName("Should invalidate entries")
+    void shouldInvalidateEntries() {
+        cache.put("one", 1);
+        cache.put("two", 2);
+        cache.invalidate("one");
+
+        assertEquals(Optional.empty(), cache.get("one"));
+        assertEquals(1, cache.size());
+
+        cache.invalidateAll();
+        assertEquals(0, cache.size());
+    }
+}
@@ -0,0 +1,169 @@
+package com.openmoments.scytale.cache;
+
+import com.openmoments.scytale.TestUtils;
+import com.openmoments.scytale.entities.ScytalePublicKey;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("PublicKey Cache File")
+class PublicKeyCacheFileTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path cachePath;
+    private ScytalePublicKey scytalePublicKey;
+
+    @BeforeEach
+    void setup() {
+        cachePath = tempDir.resolve("keys.cache");
+        scytalePublicKey = new ScytalePublicKey(1L, TestUtils.readTestFile("test_rsa_public.pem"));
+    }
+
+    @Test
+    @DisplayName("Should read keys written by a previous instance")
+    void shouldReadAfterReopen() throws IOException {
+        try (PublicKeyCacheFile cacheFile = new PublicKeyCacheFile(cachePath)) {
+            cacheFile.write(1L, new CachedKeys(List.of(scytalePublicKey), "\"v1\"", Instant.ofEpochMilli(1000L)));
+            cacheFile.write(2L, new CachedKeys(List.of(), null, Instant.ofEpochMilli(2000L)));
+        }
+
+        try (PublicKeyCacheFile cacheFile = new PublicKeyCacheFile(cachePath)) {
+            CachedKeys stored = cacheFile.read(1L).get();
+
+            assertEquals(List.of(scytalePublicKey), stored.getKeys());
+            assertEquals("\"v1\"", stored.getETag());
+            assertEquals(Instant.ofEpochMilli(1000L), stored.getValidatedAt());
+            assertNull(cacheFile.read(2L).get().getETag());
+            assertEquals(Set.of(1L, 2L), cacheFile.keyStoreIds());
+        }
+    }
+
+    @Test
+    @DisplayName("Should replace and remove keys")
+    void shouldReplaceAndRemove() throws IOException {
+        try (PublicKeyCacheFile cacheFile = new PublicKeyCacheFile(cachePath)) {
+            cacheFile.write(1L, new CachedKeys(List.of(), "\"v1\"", Instant.EPOCH));
+            cacheFile.write(1L, new CachedKeys(List.of(scytalePublicKey), "\"v2\"", Instant.EPOCH));
+            cacheFile.write(2L, new CachedKeys(List.of(scytalePublicKey), "\"v1\"", Instant.EPOCH));
+            cacheFile.remove(2L);
+        }
+
+        try (PublicKeyCacheFile cacheFile = new PublicKeyCacheFile(cachePath)) {
+            assertEquals("\"v2\"", cacheFile.read(1L).get().getETag());
+            assertTrue(cacheFile.read(2L).isEmpty());
+        }
+    }
+
+    @Test
+    @DisplayName("Should discard incomplete record")
+    void shouldDiscardTornRecord() throws IOException {
+        try (PublicKeyCacheFile cacheFile = new PublicKeyCacheFile(cachePath)) {
+            cacheFile.write(1L, new CachedKeys(List.of(scytalePublicKey), "\"v1\"", Instant.EPOCH));
+        }
+        long validLength = Files.size(cachePath);
+        try (FileChannel channel = FileChannel.open(cachePath, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.allocate(12).putInt(500).putLong(2L).flip());
+        }
+
+        try (PublicKeyCacheFile cacheFile = new PublicKeyCacheFile(cachePath)) {
+            assertTrue(cacheFile.read(1L).isPresent());
+            assertTrue(cacheFile.read(2L).isEmpty());
+        }
+        assertEquals(validLength, Files.size(cachePath));
+    }
+
+    @Test
+    @DisplayName("Should keep entity tags longer than a short and grow past the initial mapping")
+    void shouldStoreLongETagsAndGrow() throws IOException {
+        String longETag = "\"" + "e".repeat(40_000) + "\"";
+        try (PublicKeyCacheFile cacheFile = new PublicKeyCacheFile(cachePath)) {
+            for (long id = 1; id <= 200; id++) {
+                cacheFile.write(id, new CachedKeys(List.of(scytalePublicKey), id == 1 ? longETag : "\"v1\"", Instant.EPOCH));
+            }
+            assertEquals(longETag, cacheFile.read(1L).get().getETag());
+        }
+
+        try (PublicKeyCacheFile cacheFile = new PublicKeyCacheFile(cachePath)) {
+            assertEquals(longETag, cacheFile.read(1L).get().getETag());
+            assertEquals(List.of(scytalePublicKey), cacheFile.read(200L).get().getKeys());
+            assertEquals(200, cacheFile.keyStoreIds().size());
+        }
+    }
+
+    @Test
+    @DisplayName("Should clear keys and accept new ones")
+    void shouldClear() throws IOException {
+        try (PublicKeyCacheFile cacheFile = new PublicKeyCacheFile(cachePath)) {
+            cacheFile.write(1L, new CachedKeys(List.of(scytalePublicKey), "\"v1\"", Instant.EPOCH));
+            cacheFile.write(2L, new CachedKeys(List.of(scytalePublicKey), "\"v1\"", Instant.EPOCH));
+            cacheFile.clear();
+            cacheFile.write(3L, new CachedKeys(List.of(scytalePublicKey), "\"v3\"", Instant.EPOCH));
+
+            assertEquals(Set.of(3L), cacheFile.keyStoreIds());
+        }
+
+        try (PublicKeyCacheFile cacheFile = new PublicKeyCacheFile(cachePath)) {
+            assertEquals(Set.of(3L), cacheFile.keyStoreIds());
+            assertEquals("\"v3\"", cacheFile.read(3L).get().getETag());
+        }
+    }
+
+    @Test
+    @DisplayName("Should throw when file is not a cache file")
+    void shouldThrowWhenNotCacheFile() throws IOException {
+        Files.writeString(cachePath, "Not a cache file");
+
+        Exception ioException = assertThrows(IOException.class, () -> new PublicKeyCacheFile(cachePath));
+
+        assertEquals("File " + cachePath + " is not a public key cache", ioException.getMessage());
+    }
+
+    @Test
+    @DisplayName("Cache should serve keys from file and refresh them")
+    void shouldServePersistedKeysFromCache() throws IOException {
+        try (PublicKeyCacheFile cacheFile = new PublicKeyCacheFile(cachePath)) {
+            new PublicKeyCache().persistTo(cacheFile).put(1L, List.of(scytalePublicKey), "\"v1\"");
+        }
+
+        try (PublicKeyCacheFile cacheFile = new PublicKeyCacheFile(cachePath)) {
+            PublicKeyCache publicKeyCache = new PublicKeyCache().persistTo(cacheFile);
+            CachedKeys cachedKeys = publicKeyCache.get(1L).get();
+
+            assertEquals(List.of(scytalePublicKey), cachedKeys.getKeys());
+            assertEquals("\"v1\"", cachedKeys.getETag());
+            assertTrue(publicKeyCache.isFresh(cachedKeys));
+            assertTrue(publicKeyCache.shouldRefresh(cachedKeys));
+        }
+    }
+
+    @Test
+    @DisplayName("Cache should not serve persisted keys after invalidating all")
+    void shouldNotServePersistedKeysAfterInvalidateAll() throws IOException {
+        try (PublicKeyCacheFile cacheFile = new PublicKeyCacheFile(cachePath)) {
+            PublicKeyCache publicKeyCache = new PublicKeyCache().persistTo(cacheFile);
+            publicKeyCache.put(1L, List.of(scytalePublicKey), "\"v1\"");
+            publicKeyCache.invalidateAll();
+
+            assertTrue(publicKeyCache.get(1L).isEmpty());
+        }
+
+        try (PublicKeyCacheFile cacheFile = new PublicKeyCacheFile(cachePath)) {
+            assertTrue(new PublicKeyCache().persistTo(cacheFile).get(1L).isEmpty());
+        }
+    }
+}
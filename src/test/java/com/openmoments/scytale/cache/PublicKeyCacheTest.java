@@ -0,0 +1,81 @@
+package com.openmoments.scytale.cache;
+
+import com.openmoments.scytale.TestUtils;
+import com.openmoments.scytale.entities.ScytalePublicKey;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("PublicKey Cache")
+class PublicKeyCacheTest {
+
+    private TestUtils.TestClock clock;
+    private PublicKeyCache publicKeyCache;
+    private String testPublicKey;
+
+    @BeforeEach
+    void setup() {
+        clock = new TestUtils.TestClock();
+        publicKeyCache = new PublicKeyCache(clock)
+                .expireAfterWrite(Duration.ofMinutes(1))
+                .refreshAfterWrite(Duration.ofSeconds(45));
+        testPublicKey = TestUtils.readTestFile("test_rsa_public.pem");
+    }
+
+    @Test
+    @DisplayName("Should report freshness and refresh ahead of expiry")
+    void shouldReportFreshness() {
+        CachedKeys cachedKeys = publicKeyCache.put(1L, List.of(new ScytalePublicKey(1L, testPublicKey)), "\"v1\"");
+        assertTrue(publicKeyCache.isFresh(cachedKeys));
+        assertFalse(publicKeyCache.shouldRefresh(cachedKeys));
+
+        clock.advance(Duration.ofSeconds(45));
+        assertTrue(publicKeyCache.isFresh(cachedKeys));
+        assertTrue(publicKeyCache.shouldRefresh(cachedKeys));
+
+        clock.advance(Duration.ofSeconds(15));
+        assertFalse(publicKeyCache.isFresh(cachedKeys));
+        assertTrue(publicKeyCache.get(1L).isPresent());
+    }
+
+    @Test
+    @DisplayName("Revalidation should keep keys and entity tag")
+    void shouldKeepKeysWhenRevalidated() {
+        publicKeyCache.put(1L, List.of(new ScytalePublicKey(1L, testPublicKey)), "\"v1\"");
+        clock.advance(Duration.ofMinutes(2));
+
+        CachedKeys revalidated = publicKeyCache.revalidated(1L).get();
+
+        assertTrue(publicKeyCache.isFresh(revalidated));
+        assertEquals("\"v1\"", revalidated.getETag());
+        assertEquals(1, revalidated.getKeys().size());
+    }
+
+    @Test
+    @DisplayName("Should add and replace single keys")
+    void shouldPutSingleKeys() {
+        publicKeyCache.put(1L, List.of(new ScytalePublicKey(1L, testPublicKey)), "\"v1\"");
+        publicKeyCache.putKey(1L, new ScytalePublicKey(2L, testPublicKey));
+        publicKeyCache.putKey(1L, new ScytalePublicKey(1L, testPublicKey));
+        publicKeyCache.putKey(2L, new ScytalePublicKey(3L, testPublicKey));
+
+        assertEquals(2, publicKeyCache.get(1L).get().getKeys().size());
+        assertNull(publicKeyCache.get(1L).get().getETag());
+        assertTrue(publicKeyCache.get(2L).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should only allow a single refresh per keystore")
+    void shouldClaimRefresh() {
+        assertTrue(publicKeyCache.startRefresh(1L));
+        assertFalse(publicKeyCache.startRefresh(1L));
+
+        publicKeyCache.finishRefresh(1L);
+        assertTrue(publicKeyCache.startRefresh(1L));
+    }
+}
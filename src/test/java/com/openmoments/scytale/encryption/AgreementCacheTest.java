@@ -0,0 +1,72 @@
+package com.openmoments.scytale.encryption;
+
+import org.bouncycastle.crypto.BasicAgreement;
+import org.bouncycastle.crypto.agreement.ECDHBasicAgreement;
+import org.bouncycastle.jce.provider.asymmetric.ec.ECUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.security.KeyPair;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Agreement Cache")
+class AgreementCacheTest {
+    private KeyPair sender;
+    private KeyPair recipient;
+
+    @BeforeEach
+    void setup() throws Exception {
+        AsymmetricCertificate eccCertificate = new CertificateFactory().get(CertificateType.ECC);
+        sender = eccCertificate.generateKeyPair();
+        recipient = eccCertificate.generateKeyPair();
+    }
+
+    @Test
+    @DisplayName("Should return same agreement as ECDH")
+    void shouldMatchECDH() throws Exception {
+        AgreementCache agreementCache = new AgreementCache(10);
+        ECDHBasicAgreement ecdhAgreement = new ECDHBasicAgreement();
+        ecdhAgreement.init(ECUtil.generatePrivateKeyParameter(sender.getPrivate()));
+        BigInteger expected = ecdhAgreement.calculateAgreement(ECUtil.generatePublicKeyParameter(recipient.getPublic()));
+
+        assertEquals(expected, agree(agreementCache, "a", "b"));
+        assertEquals(expected, agree(agreementCache, "a", "b"));
+        assertEquals(1, agreementCache.size());
+    }
+
+    @Test
+    @DisplayName("Should evict least recently used agreement")
+    void shouldEvictLeastRecentlyUsed() throws Exception {
+        AgreementCache agreementCache = new AgreementCache(2);
+        agree(agreementCache, "a", "b");
+        agree(agreementCache, "a", "c");
+        agree(agreementCache, "a", "b");
+        agree(agreementCache, "a", "d");
+
+        assertEquals(2, agreementCache.size());
+        agreementCache.purge("c");
+        assertEquals(2, agreementCache.size());
+    }
+
+    @Test
+    @DisplayName("Should purge agreements made with either key")
+    void shouldPurgeEitherKey() throws Exception {
+        AgreementCache agreementCache = new AgreementCache(10);
+        agree(agreementCache, "a", "b");
+        agree(agreementCache, "c", "a");
+        agree(agreementCache, "c", "d");
+
+        agreementCache.purge("a");
+
+        assertEquals(1, agreementCache.size());
+    }
+
+    private BigInteger agree(AgreementCache agreementCache, String privateFingerprint, String publicFingerprint) throws Exception {
+        BasicAgreement agreement = agreementCache.agreement(privateFingerprint, publicFingerprint);
+        agreement.init(ECUtil.generatePrivateKeyParameter(sender.getPrivate()));
+        return agreement.calculateAgreement(ECUtil.generatePublicKeyParameter(recipient.getPublic()));
+    }
+}
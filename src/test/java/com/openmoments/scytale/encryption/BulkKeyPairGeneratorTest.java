@@ -0,0 +1,136 @@
+package com.openmoments.scytale.encryption;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+import java.security.KeyPair;
+import java.security.interfaces.RSAPublicKey;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Bulk Key Pair Generator")
+class BulkKeyPairGeneratorTest {
+
+    @Nested
+    @DisplayName("Configuration")
+    class Configuration {
+        @Test
+        @DisplayName("Should require certificate type")
+        void shouldRequireType() {
+            IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> new BulkKeyPairGenerator(null));
+            assertEquals("Certificate type cannot be null", exception.getMessage());
+        }
+
+        @Test
+        @DisplayName("Should require executor")
+        void shouldRequireExecutor() {
+            IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                    () -> new BulkKeyPairGenerator(CertificateType.X25519).executor(null));
+            assertEquals("Executor is required", exception.getMessage());
+        }
+
+        @Test
+        @DisplayName("Should reject negative count")
+        void shouldRejectNegativeCount() {
+            IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                    () -> new BulkKeyPairGenerator(CertificateType.X25519).generateKeyPairs(-1));
+            assertEquals("Key pair count cannot be negative", exception.getMessage());
+        }
+    }
+
+    @Nested
+    @DisplayName("Generate")
+    class Generate {
+        @Test
+        @DisplayName("Should generate distinct key pairs")
+        void shouldGenerateDistinct() throws Exception {
+            List<KeyPair> keyPairs = new BulkKeyPairGenerator(CertificateType.ECC).generateKeyPairs(20);
+
+            assertEquals(20, keyPairs.size());
+            assertEquals(20, keyPairs.stream().map(keyPair -> KeyFingerprint.of(keyPair.getPublic())).distinct().count());
+        }
+
+        @Test
+        @DisplayName("Should generate key pairs of the specified length on the executor")
+        void shouldUseLengthAndExecutor() throws Exception {
+            ExecutorService executor = Executors.newFixedThreadPool(2);
+            try {
+                List<KeyPair> keyPairs = new BulkKeyPairGenerator(CertificateType.RSA).length(1024).executor(executor)
+                        .generateKeyPairsAsync(3).get();
+
+                assertEquals(3, keyPairs.size());
+                keyPairs.forEach(keyPair -> assertEquals(1024, ((RSAPublicKey) keyPair.getPublic()).getModulus().bitLength()));
+            } finally {
+                executor.shutdown();
+            }
+        }
+
+        @Test
+        @DisplayName("Should pass each key pair to consumer")
+        void shouldStreamToConsumer() throws Exception {
+            List<KeyPair> keyPairs = new ArrayList<>();
+            new BulkKeyPairGenerator(CertificateType.X25519).generateKeyPairs(100, keyPairs::add);
+
+            assertEquals(100, keyPairs.size());
+            assertTrue(new BulkKeyPairGenerator(CertificateType.X25519).generateKeyPairs(0).isEmpty());
+        }
+
+        @Test
+        @DisplayName("Should write key pairs as PEM blocks which decode")
+        void shouldWriteEncoded() throws Exception {
+            StringWriter writer = new StringWriter();
+            new BulkKeyPairGenerator(CertificateType.RSA).writeKeyPairs(3, writer);
+
+            Matcher matcher = Pattern.compile("-----BEGIN (.+)-----\n([A-Za-z0-9+/=\n]+)\n-----END \\1-----\n").matcher(writer.toString());
+            List<String> labels = new ArrayList<>();
+            CertificateEncoder certificateEncoder = new CertificateEncoder();
+            int end = 0;
+            while (matcher.find()) {
+                assertEquals(end, matcher.start());
+                end = matcher.end();
+                labels.add(matcher.group(1));
+                for (String line : matcher.group(2).split("\n")) {
+                    assertTrue(line.length() <= 64);
+                }
+                String body = matcher.group(2).replace("\n", "");
+                if (BulkKeyPairGenerator.PRIVATE_KEY_LABEL.equals(matcher.group(1))) {
+                    assertNotNull(certificateEncoder.base64DecodePrivateKey(body, CertificateType.RSA));
+                } else {
+                    assertEquals(Optional.of(CertificateType.RSA), certificateEncoder.publicKeyType(body));
+                    assertNotNull(certificateEncoder.base64DecodePublicKey(body, CertificateType.RSA));
+                }
+            }
+
+            assertEquals(writer.toString().length(), end);
+            assertEquals(List.of(BulkKeyPairGenerator.PRIVATE_KEY_LABEL, BulkKeyPairGenerator.PUBLIC_KEY_LABEL,
+                    BulkKeyPairGenerator.PRIVATE_KEY_LABEL, BulkKeyPairGenerator.PUBLIC_KEY_LABEL,
+                    BulkKeyPairGenerator.PRIVATE_KEY_LABEL, BulkKeyPairGenerator.PUBLIC_KEY_LABEL), labels);
+        }
+
+        @Test
+        @DisplayName("Should throw generation failure")
+        void shouldThrowFailure() {
+            ExecutorService executor = Executors.newSingleThreadExecutor();
+            try {
+                BulkKeyPairGenerator generator = new BulkKeyPairGenerator(CertificateType.RSA).length(-1).executor(executor);
+
+                assertThrows(RuntimeException.class, () -> generator.generateKeyPairs(2));
+                CompletableFuture<List<KeyPair>> failed = generator.generateKeyPairsAsync(1);
+                assertThrows(CompletionException.class, failed::join);
+            } finally {
+                executor.shutdown();
+            }
+        }
+    }
+}
@@ -5,7 +5,9 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
 import java.security.*;
+import java.util.Base64;
 import java.util.Map;
+import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -95,4 +97,48 @@ class CertificateEncoderTest {
         assertEquals(keyPair.getPrivate(), privateKey);
         assertEquals(keyPair.getPublic(), publicKey);
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Should Base64 decode X25519 Certificate")
+    void shouldBase64DecodeX25519() throws Exception {
+        KeyPair keyPair = new CertificateFactory().get(CertificateType.X25519).generateKeyPair();
+        assertNotNull(keyPair);
+
+        Map<CertificateEncoder.KeyType, String> encodedKeys = certificateEncoder.base64Encode(keyPair);
+
+        PrivateKey privateKey = certificateEncoder.base64DecodePrivateKey(encodedKeys.get(CertificateEncoder.KeyType.PRIVATE), CertificateType.X25519);
+        PublicKey publicKey = certificateEncoder.base64DecodePublicKey(encodedKeys.get(CertificateEncoder.KeyType.PUBLIC), CertificateType.X25519);
+
+        assertEquals(keyPair.getPrivate(), privateKey);
+        assertEquals(keyPair.getPublic(), publicKey);
+    }
+
+    @Test
+    @DisplayName("Should identify public key type without decoding")
+    void shouldIdentifyPublicKeyType() throws Exception {
+        for (CertificateType certificateType : CertificateType.values()) {
+            KeyPair keyPair = new CertificateFactory().get(certificateType).generateKeyPair();
+            String encoded = certificateEncoder.base64EncodePublicKey(keyPair.getPublic());
+            assertEquals(Optional.of(certificateType), certificateEncoder.publicKeyType(encoded));
+        }
+    }
+
+    @Test
+    @DisplayName("Should not identify unsupported public key type")
+    void shouldNotIdentifyUnsupportedPublicKeyType() throws Exception {
+        KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("DSA");
+        keyPairGenerator.initialize(1024);
+        String encoded = Base64.getEncoder().encodeToString(keyPairGenerator.generateKeyPair().getPublic().getEncoded());
+
+        assertEquals(Optional.empty(), certificateEncoder.publicKeyType(encoded));
+    }
+
+    @Test
+    @DisplayName("Should reject public key which is not X.509 encoded Base64")
+    void shouldRejectInvalidPublicKey() {
+        assertThrows(IllegalArgumentException.class, () -> certificateEncoder.publicKeyType("not base64!"));
+        Exception illegalArgumentException = assertThrows(IllegalArgumentException.class,
+                () -> certificateEncoder.publicKeyType(Base64.getEncoder().encodeToString(new byte[]{1, 2, 3})));
+        assertEquals("Public key is not X.509 encoded", illegalArgumentException.getMessage());
+    }
+}
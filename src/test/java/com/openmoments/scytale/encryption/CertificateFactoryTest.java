@@ -24,4 +24,13 @@ class CertificateFactoryTest {
         assertNotNull(certificate);
         assertTrue(certificate instanceof RSACertificate);
     }
+
+    @Test
+    @DisplayName("Should return a X25519 certificate")
+    void shouldReturnNewInstanceOfX25519() {
+        AsymmetricCertificate certificate = new CertificateFactory().get(CertificateType.X25519);
+
+        assertNotNull(certificate);
+        assertTrue(certificate instanceof X25519Certificate);
+    }
 }
\ No newline at end of file
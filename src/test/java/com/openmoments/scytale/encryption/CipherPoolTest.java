@@ -0,0 +1,44 @@
+package com.openmoments.scytale.encryption;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.Cipher;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Cipher Pool")
+class CipherPoolTest {
+
+    private final CipherPool cipherPool = new CipherPool("AES/GCM/NoPadding", null);
+
+    @Test
+    @DisplayName("Should reuse cipher on same thread")
+    void shouldReuseOnSameThread() throws Exception {
+        assertSame(cipherPool.get(), cipherPool.get());
+        assertEquals("AES/GCM/NoPadding", cipherPool.get().getAlgorithm());
+    }
+
+    @Test
+    @DisplayName("Should not share cipher between threads")
+    void shouldConfineToThread() throws Exception {
+        Cipher cipher = cipherPool.get();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Cipher other = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return cipherPool.get();
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }, executor).get();
+
+            assertNotSame(cipher, other);
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.openmoments.scytale.encryption;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.security.KeyFactory;
+import java.security.Security;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Crypto Context")
+class CryptoContextTest {
+
+    @Test
+    @DisplayName("Should share one context with BouncyCastle registered")
+    void shouldShareContext() {
+        assertSame(CryptoContext.get(), CryptoContext.get());
+        assertNotNull(Security.getProvider(Encryptor.PROVIDER));
+    }
+
+    @Test
+    @DisplayName("Should register BouncyCastle once")
+    void shouldRegisterOnce() {
+        new Encryptor();
+        new ECCCertificate();
+        new CertificateEncoder();
+
+        long registered = Arrays.stream(Security.getProviders())
+                .filter(provider -> Encryptor.PROVIDER.equals(provider.getName()))
+                .count();
+        assertEquals(1, registered);
+    }
+
+    @Test
+    @DisplayName("Should reuse factories on same thread")
+    void shouldReuseOnSameThread() throws Exception {
+        CryptoContext context = CryptoContext.get();
+
+        assertSame(context.keyFactory(RSACertificate.ALGORITHM), context.keyFactory(RSACertificate.ALGORITHM));
+        assertSame(context.keyPairGenerator(RSACertificate.ALGORITHM), context.keyPairGenerator(RSACertificate.ALGORITHM));
+        assertSame(context.keyAgreement(X25519Certificate.ALGORITHM), context.keyAgreement(X25519Certificate.ALGORITHM));
+        assertEquals(Encryptor.PROVIDER, context.keyFactory(ECCCertificate.ALGORITHM, Encryptor.PROVIDER).getProvider().getName());
+        assertNotSame(context.keyFactory(ECCCertificate.ALGORITHM, Encryptor.PROVIDER), context.keyFactory(ECCCertificate.ALGORITHM, null));
+    }
+
+    @Test
+    @DisplayName("Should not share factories between threads")
+    void shouldConfineToThread() throws Exception {
+        KeyFactory keyFactory = CryptoContext.get().keyFactory(RSACertificate.ALGORITHM);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            KeyFactory other = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return CryptoContext.get().keyFactory(RSACertificate.ALGORITHM);
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }, executor).get();
+
+            assertNotSame(keyFactory, other);
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
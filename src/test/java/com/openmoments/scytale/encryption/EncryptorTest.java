@@ -1,15 +1,39 @@
 package com.openmoments.scytale.encryption;
 
+import com.openmoments.scytale.entities.BatchResult;
+import com.openmoments.scytale.entities.Envelope;
 import com.openmoments.scytale.entities.ScytalePublicKey;
+import org.bouncycastle.asn1.DERNull;
+import org.bouncycastle.asn1.pkcs.PKCSObjectIdentifiers;
+import org.bouncycastle.asn1.x509.AlgorithmIdentifier;
+import org.bouncycastle.asn1.x509.SubjectPublicKeyInfo;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 
+import javax.crypto.AEADBadTagException;
+import javax.crypto.ShortBufferException;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.security.*;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -45,6 +69,24 @@ class EncryptorTest {
             assertEquals(0, eccCipherText.size());
         }
 
+        @Test
+        @DisplayName("Should skip keys which do not decode")
+        void shouldSkipUndecodableKeys() throws Exception {
+            KeyPair keyPair = rsaCertificate.generateKeyPair();
+            String undecodable = Base64.getEncoder().encodeToString(new SubjectPublicKeyInfo(
+                    new AlgorithmIdentifier(PKCSObjectIdentifiers.rsaEncryption, DERNull.INSTANCE), new byte[]{1, 2, 3}).getEncoded());
+
+            List<ScytalePublicKey> scytalePublicKeys = List.of(
+                new ScytalePublicKey(1L, undecodable),
+                new ScytalePublicKey(2L, new CertificateEncoder().base64EncodePublicKey(keyPair.getPublic())));
+            assertEquals(CertificateType.RSA, scytalePublicKeys.get(0).getCertificateType());
+            assertNull(scytalePublicKeys.get(0).getPublicKey());
+
+            List<String> cipherText = encryptor.encrypt("Test", keyPair.getPrivate(), scytalePublicKeys);
+            assertEquals(1, cipherText.size());
+            assertEquals("Test", encryptor.decrypt(cipherText.get(0), keyPair.getPrivate(), scytalePublicKeys.subList(1, 2)));
+        }
+
         @Test
         @DisplayName("Encrypt to RSA")
         void shouldEncryptionRSA() throws Exception {
@@ -129,5 +171,506 @@ class EncryptorTest {
             List<String> cipherText = encryptor.encrypt("Test", keyPair.getPrivate(), scytalePublicKeys);
             assertEquals("Test", encryptor.decrypt(cipherText.get(0), keyPair.getPrivate(), scytalePublicKeys));
         }
+
+        @Test
+        @DisplayName("Should decrypt ECC text without key fingerprints")
+        void shouldDecryptLegacyECCText() throws Exception {
+            KeyPair keyPair = eccCertificate.generateKeyPair();
+            Map<CertificateEncoder.KeyType, String> encodedKeys = new CertificateEncoder().base64Encode(keyPair);
+
+            List<ScytalePublicKey> scytalePublicKeys = List.of(new ScytalePublicKey(1L, encodedKeys.get(CertificateEncoder.KeyType.PUBLIC)));
+            String cipherText = encryptor.encrypt("Test", keyPair.getPrivate(), scytalePublicKeys).get(0);
+            String legacyCipherText = cipherText.substring(cipherText.lastIndexOf('.') + 1);
+
+            assertEquals("Test", encryptor.decrypt(legacyCipherText, keyPair.getPrivate(), scytalePublicKeys));
+        }
+
+        @Test
+        @DisplayName("Should decrypt ECC text with sender among many keys")
+        void shouldDecryptFromSenderAmongKeys() throws Exception {
+            CertificateEncoder certificateEncoder = new CertificateEncoder();
+            KeyPair sender = eccCertificate.generateKeyPair();
+            KeyPair recipient = eccCertificate.generateKeyPair();
+
+            List<ScytalePublicKey> scytalePublicKeys = new ArrayList<>();
+            for (long id = 1; id <= 5; id++) {
+                scytalePublicKeys.add(new ScytalePublicKey(id, certificateEncoder.base64EncodePublicKey(eccCertificate.generateKeyPair().getPublic())));
+            }
+            scytalePublicKeys.add(new ScytalePublicKey(6L, certificateEncoder.base64EncodePublicKey(sender.getPublic())));
+            ScytalePublicKey recipientKey = new ScytalePublicKey(7L, certificateEncoder.base64EncodePublicKey(recipient.getPublic()));
+
+            String cipherText = encryptor.encrypt("Test", sender.getPrivate(), List.of(recipientKey)).get(0);
+
+            assertTrue(cipherText.startsWith(recipientKey.getFingerprint() + "." + scytalePublicKeys.get(5).getFingerprint() + "."));
+            assertEquals("Test", encryptor.decrypt(cipherText, recipient.getPrivate(), scytalePublicKeys));
+        }
+
+        @Test
+        @DisplayName("Should return empty when cipher text is for another key")
+        void shouldReturnEmptyForOtherRecipient() throws Exception {
+            CertificateEncoder certificateEncoder = new CertificateEncoder();
+            KeyPair keyPair = rsaCertificate.generateKeyPair();
+            KeyPair otherKeyPair = rsaCertificate.generateKeyPair();
+
+            List<ScytalePublicKey> scytalePublicKeys = List.of(new ScytalePublicKey(1L, certificateEncoder.base64EncodePublicKey(keyPair.getPublic())));
+            String cipherText = encryptor.encrypt("Test", keyPair.getPrivate(), scytalePublicKeys).get(0);
+
+            assertEquals("", encryptor.decrypt(cipherText, otherKeyPair.getPrivate(), scytalePublicKeys));
+        }
+    }
+
+    @Nested
+    @DisplayName("X25519 Test")
+    class X25519 {
+        private AsymmetricCertificate x25519Certificate;
+
+        @BeforeEach
+        void setup() {
+            x25519Certificate = new CertificateFactory().get(CertificateType.X25519);
+        }
+
+        @Test
+        @DisplayName("Should round trip text from decoded public keys")
+        void shouldRoundTripText() throws Exception {
+            KeyPair sender = x25519Certificate.generateKeyPair();
+            KeyPair recipient = x25519Certificate.generateKeyPair();
+            List<ScytalePublicKey> senderKeys = List.of(publicKey(1L, rsaCertificate.generateKeyPair()), publicKey(2L, sender));
+
+            String cipherText = encryptor.encrypt("Test", sender.getPrivate(), List.of(publicKey(3L, recipient))).get(0);
+
+            assertNotNull(senderKeys.get(1).getPublicKey());
+            assertEquals("Test", encryptor.decrypt(cipherText, recipient.getPrivate(), senderKeys));
+            assertEquals("Test", new Encryptor().agreementCache(10).decrypt(cipherText, recipient.getPrivate(), senderKeys));
+        }
+
+        @Test
+        @DisplayName("Should round trip envelope")
+        void shouldRoundTripEnvelope() throws Exception {
+            KeyPair keyPair = x25519Certificate.generateKeyPair();
+            List<ScytalePublicKey> scytalePublicKeys = List.of(publicKey(1L, keyPair));
+
+            Envelope envelope = encryptor.encryptEnvelope("Test", keyPair.getPrivate(), scytalePublicKeys);
+
+            assertEquals("Test", encryptor.decryptEnvelope(envelope, keyPair.getPrivate(), scytalePublicKeys));
+        }
+
+        @Test
+        @DisplayName("Should skip recipients of another key type")
+        void shouldSkipOtherKeyTypes() throws Exception {
+            KeyPair keyPair = x25519Certificate.generateKeyPair();
+
+            List<String> cipherText = encryptor.encrypt("Test", keyPair.getPrivate(), List.of(publicKey(1L, eccCertificate.generateKeyPair()), publicKey(2L, keyPair)));
+
+            assertEquals(1, cipherText.size());
+        }
+    }
+
+    @Nested
+    @DisplayName("Envelope Test")
+    class Envelopes {
+        @Test
+        @DisplayName("Should round trip data larger than RSA key")
+        void shouldRoundTripRSAEnvelope() throws Exception {
+            KeyPair keyPair = rsaCertificate.generateKeyPair();
+            KeyPair other = rsaCertificate.generateKeyPair();
+            List<ScytalePublicKey> scytalePublicKeys = List.of(publicKey(1L, other), publicKey(2L, keyPair));
+            String data = "Test".repeat(4096);
+
+            Envelope envelope = encryptor.encryptEnvelope(data, keyPair.getPrivate(), scytalePublicKeys);
+
+            assertEquals(2, envelope.getWrappedKeys().size());
+            assertEquals(data, encryptor.decryptEnvelope(Envelope.decode(envelope.encode()), keyPair.getPrivate(), scytalePublicKeys));
+            assertEquals(data, encryptor.decryptEnvelope(envelope, other.getPrivate(), scytalePublicKeys));
+        }
+
+        @Test
+        @DisplayName("Should wrap for every recipient when key IDs repeat or are missing")
+        void shouldWrapForDuplicateAndMissingIds() throws Exception {
+            KeyPair keyPair = rsaCertificate.generateKeyPair();
+            KeyPair duplicate = rsaCertificate.generateKeyPair();
+            KeyPair unsaved = rsaCertificate.generateKeyPair();
+            List<ScytalePublicKey> scytalePublicKeys = List.of(publicKey(1L, keyPair), publicKey(1L, duplicate), publicKey(null, unsaved));
+
+            Envelope envelope = Envelope.decode(encryptor.encryptEnvelope("Test", keyPair.getPrivate(), scytalePublicKeys).encode());
+
+            assertEquals(3, envelope.getWrappedKeys().size());
+            for (KeyPair recipient : List.of(keyPair, duplicate, unsaved)) {
+                assertEquals("Test", encryptor.decryptEnvelope(envelope, recipient.getPrivate(), scytalePublicKeys));
+            }
+        }
+
+        @Test
+        @DisplayName("Should round trip ECC envelope")
+        void shouldRoundTripECCEnvelope() throws Exception {
+            KeyPair keyPair = eccCertificate.generateKeyPair();
+            List<ScytalePublicKey> scytalePublicKeys = List.of(publicKey(1L, keyPair));
+
+            Envelope envelope = encryptor.encryptEnvelope("Test", keyPair.getPrivate(), scytalePublicKeys);
+
+            assertEquals("Test", encryptor.decryptEnvelope(envelope, keyPair.getPrivate(), scytalePublicKeys));
+        }
+
+        @Test
+        @DisplayName("Should return empty when not a recipient")
+        void shouldReturnEmptyForOtherKey() throws Exception {
+            KeyPair keyPair = rsaCertificate.generateKeyPair();
+            KeyPair other = rsaCertificate.generateKeyPair();
+            List<ScytalePublicKey> scytalePublicKeys = List.of(publicKey(1L, keyPair));
+
+            Envelope envelope = encryptor.encryptEnvelope("Test", keyPair.getPrivate(), scytalePublicKeys);
+
+            assertEquals("", encryptor.decryptEnvelope(envelope, other.getPrivate(), scytalePublicKeys));
+        }
+
+        @Test
+        @DisplayName("Should reject tampered payload")
+        void shouldRejectTamperedPayload() throws Exception {
+            KeyPair keyPair = rsaCertificate.generateKeyPair();
+            List<ScytalePublicKey> scytalePublicKeys = List.of(publicKey(1L, keyPair));
+
+            Envelope envelope = encryptor.encryptEnvelope("Test", keyPair.getPrivate(), scytalePublicKeys);
+            byte[] payload = Base64.getDecoder().decode(envelope.getPayload());
+            payload[payload.length - 1] ^= 1;
+            Envelope tampered = new Envelope(Base64.getEncoder().encodeToString(payload), envelope.getWrappedKeys());
+
+            assertThrows(AEADBadTagException.class, () -> encryptor.decryptEnvelope(tampered, keyPair.getPrivate(), scytalePublicKeys));
+        }
+    }
+
+    @Nested
+    @DisplayName("Streaming Test")
+    class Streaming {
+        @ParameterizedTest
+        @ValueSource(ints = {0, 15, 16, 17, 100})
+        @DisplayName("Should round trip stream across segment boundaries")
+        void shouldRoundTripStream(int length) throws Exception {
+            KeyPair keyPair = rsaCertificate.generateKeyPair();
+            List<ScytalePublicKey> scytalePublicKeys = List.of(publicKey(1L, keyPair));
+            byte[] data = new byte[length];
+            new SecureRandom().nextBytes(data);
+
+            ByteArrayOutputStream encrypted = new ByteArrayOutputStream();
+            encryptor.segmentSize(16).encrypt(new ByteArrayInputStream(data), encrypted, keyPair.getPrivate(), scytalePublicKeys);
+
+            ByteArrayOutputStream decrypted = new ByteArrayOutputStream();
+            encryptor.decrypt(new ByteArrayInputStream(encrypted.toByteArray()), decrypted, keyPair.getPrivate(), scytalePublicKeys);
+            assertArrayEquals(data, decrypted.toByteArray());
+        }
+
+        @Test
+        @DisplayName("Should stream to every recipient when key IDs repeat or are missing")
+        void shouldStreamForDuplicateAndMissingIds() throws Exception {
+            KeyPair keyPair = rsaCertificate.generateKeyPair();
+            KeyPair duplicate = rsaCertificate.generateKeyPair();
+            KeyPair unsaved = rsaCertificate.generateKeyPair();
+            List<ScytalePublicKey> scytalePublicKeys = List.of(publicKey(1L, keyPair), publicKey(1L, duplicate), publicKey(null, unsaved));
+            byte[] data = "Test".getBytes(StandardCharsets.UTF_8);
+
+            ByteArrayOutputStream encrypted = new ByteArrayOutputStream();
+            encryptor.encrypt(new ByteArrayInputStream(data), encrypted, keyPair.getPrivate(), scytalePublicKeys);
+
+            for (KeyPair recipient : List.of(keyPair, duplicate, unsaved)) {
+                ByteArrayOutputStream decrypted = new ByteArrayOutputStream();
+                encryptor.decrypt(new ByteArrayInputStream(encrypted.toByteArray()), decrypted, recipient.getPrivate(), scytalePublicKeys);
+                assertArrayEquals(data, decrypted.toByteArray());
+            }
+        }
+
+        @Test
+        @DisplayName("Should round trip between channels as Base64 text")
+        void shouldRoundTripChannelsAsText(@TempDir Path tempDir) throws Exception {
+            KeyPair keyPair = eccCertificate.generateKeyPair();
+            List<ScytalePublicKey> scytalePublicKeys = List.of(publicKey(1L, keyPair));
+            Path plain = Files.writeString(tempDir.resolve("plain.txt"), "Test".repeat(100_000));
+            Path cipherText = tempDir.resolve("cipher.txt");
+
+            try (OutputStream text = Base64.getEncoder().wrap(Files.newOutputStream(cipherText));
+                 OutputStream encrypting = encryptor.encryptingStream(text, keyPair.getPrivate(), scytalePublicKeys)) {
+                Files.copy(plain, encrypting);
+            }
+
+            Path decrypted = tempDir.resolve("decrypted.txt");
+            try (FileChannel source = FileChannel.open(cipherText);
+                 FileChannel target = FileChannel.open(decrypted, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                InputStream text = Base64.getDecoder().wrap(Channels.newInputStream(source));
+                encryptor.decrypt(Channels.newChannel(text), target, keyPair.getPrivate(), scytalePublicKeys);
+            }
+            assertEquals(Files.readString(plain), Files.readString(decrypted));
+        }
+
+        @Test
+        @DisplayName("Should reject truncated stream")
+        void shouldRejectTruncatedStream() throws Exception {
+            KeyPair keyPair = rsaCertificate.generateKeyPair();
+            List<ScytalePublicKey> scytalePublicKeys = List.of(publicKey(1L, keyPair));
+
+            ByteArrayOutputStream encrypted = new ByteArrayOutputStream();
+            encryptor.segmentSize(16).encrypt(new ByteArrayInputStream(new byte[64]), encrypted, keyPair.getPrivate(), scytalePublicKeys);
+            byte[] truncated = Arrays.copyOf(encrypted.toByteArray(), encrypted.size() - 32);
+
+            assertThrows(IOException.class, () -> encryptor.decrypt(new ByteArrayInputStream(truncated), new ByteArrayOutputStream(),
+                    keyPair.getPrivate(), scytalePublicKeys));
+        }
+
+        @Test
+        @DisplayName("Should reject private key which is not a recipient")
+        void shouldRejectOtherKey() throws Exception {
+            KeyPair keyPair = rsaCertificate.generateKeyPair();
+            KeyPair other = rsaCertificate.generateKeyPair();
+            List<ScytalePublicKey> scytalePublicKeys = List.of(publicKey(1L, keyPair));
+
+            ByteArrayOutputStream encrypted = new ByteArrayOutputStream();
+            encryptor.encrypt(new ByteArrayInputStream(new byte[8]), encrypted, keyPair.getPrivate(), scytalePublicKeys);
+
+            assertThrows(InvalidKeyException.class, () -> encryptor.decryptingStream(new ByteArrayInputStream(encrypted.toByteArray()),
+                    other.getPrivate(), scytalePublicKeys));
+        }
+    }
+
+    @Nested
+    @DisplayName("Parallel Test")
+    class Parallel {
+        @Test
+        @DisplayName("Should reject invalid threshold")
+        void shouldRejectInvalidThreshold() {
+            Exception illegalArgumentException = assertThrows(IllegalArgumentException.class, () -> encryptor.parallelThreshold(0));
+            assertEquals("Parallel threshold must be positive integer", illegalArgumentException.getMessage());
+        }
+
+        @Test
+        @DisplayName("Should keep recipient order when encrypting in parallel")
+        void shouldKeepOrder() throws Exception {
+            List<KeyPair> keyPairs = new ArrayList<>();
+            List<ScytalePublicKey> scytalePublicKeys = new ArrayList<>();
+            for (long id = 1; id <= 4; id++) {
+                KeyPair keyPair = eccCertificate.generateKeyPair();
+                keyPairs.add(keyPair);
+                scytalePublicKeys.add(publicKey(id, keyPair));
+            }
+            KeyPair sender = eccCertificate.generateKeyPair();
+            ExecutorService executor = Executors.newFixedThreadPool(4);
+
+            try {
+                List<String> cipherText = encryptor.parallel(executor).parallelThreshold(2).encrypt("Test", sender.getPrivate(), scytalePublicKeys);
+
+                assertEquals(4, cipherText.size());
+                for (int i = 0; i < keyPairs.size(); i++) {
+                    assertEquals("Test", encryptor.decrypt(cipherText.get(i), keyPairs.get(i).getPrivate(), List.of(publicKey(0L, sender))));
+                }
+            } finally {
+                executor.shutdown();
+            }
+        }
+
+        @Test
+        @DisplayName("Should stay on calling thread below threshold")
+        void shouldStaySequentialBelowThreshold() throws Exception {
+            KeyPair keyPair = rsaCertificate.generateKeyPair();
+            Executor failing = runnable -> fail("Should not use executor");
+
+            List<String> cipherText = encryptor.parallel(failing).parallelThreshold(2).encrypt("Test", keyPair.getPrivate(), List.of(publicKey(1L, keyPair)));
+
+            assertEquals(1, cipherText.size());
+        }
+    }
+
+    @Nested
+    @DisplayName("Binary Test")
+    class Binary {
+        @Test
+        @DisplayName("Should round trip bytes for RSA and ECC")
+        void shouldRoundTripBytes() throws Exception {
+            byte[] data = new byte[] { 0, 1, 2, (byte) 0xFF, '.', 0 };
+            for (AsymmetricCertificate certificate : List.of(rsaCertificate, eccCertificate)) {
+                KeyPair keyPair = certificate.generateKeyPair();
+                List<ScytalePublicKey> scytalePublicKeys = List.of(publicKey(1L, keyPair));
+
+                List<byte[]> cipherText = encryptor.encrypt(data, keyPair.getPrivate(), scytalePublicKeys);
+
+                assertEquals(1, cipherText.size());
+                assertArrayEquals(data, encryptor.decrypt(cipherText.get(0), keyPair.getPrivate(), scytalePublicKeys));
+            }
+        }
+
+        @Test
+        @DisplayName("Should return empty bytes when cipher text is for another key")
+        void shouldReturnEmptyForOtherKey() throws Exception {
+            KeyPair keyPair = eccCertificate.generateKeyPair();
+            KeyPair otherKeyPair = eccCertificate.generateKeyPair();
+            List<ScytalePublicKey> scytalePublicKeys = List.of(publicKey(1L, keyPair));
+
+            byte[] cipherText = encryptor.encrypt("Test".getBytes(), keyPair.getPrivate(), scytalePublicKeys).get(0);
+
+            assertEquals(0, encryptor.decrypt(cipherText, otherKeyPair.getPrivate(), scytalePublicKeys).length);
+        }
+
+        @Test
+        @DisplayName("Should round trip between direct buffers")
+        void shouldRoundTripDirectBuffers() throws Exception {
+            KeyPair keyPair = eccCertificate.generateKeyPair();
+            List<ScytalePublicKey> scytalePublicKeys = List.of(publicKey(1L, keyPair));
+            ByteBuffer data = ByteBuffer.allocateDirect(16).put("Test".getBytes()).flip();
+            ByteBuffer cipherText = ByteBuffer.allocateDirect(256);
+
+            int written = encryptor.encrypt(data, keyPair.getPrivate(), scytalePublicKeys.get(0), cipherText);
+
+            assertEquals(written, cipherText.position());
+            assertFalse(data.hasRemaining());
+
+            ByteBuffer plainText = ByteBuffer.allocateDirect(16);
+            assertEquals(4, encryptor.decrypt(cipherText.flip(), keyPair.getPrivate(), scytalePublicKeys, plainText));
+            byte[] decrypted = new byte[4];
+            plainText.flip().get(decrypted);
+            assertEquals("Test", new String(decrypted));
+        }
+
+        @Test
+        @DisplayName("Should leave buffers untouched when output too small")
+        void shouldRejectShortBuffer() throws Exception {
+            KeyPair keyPair = eccCertificate.generateKeyPair();
+            ByteBuffer data = ByteBuffer.wrap("Test".getBytes());
+            ByteBuffer cipherText = ByteBuffer.allocate(8);
+
+            assertThrows(ShortBufferException.class, () -> encryptor.encrypt(data, keyPair.getPrivate(), publicKey(1L, keyPair), cipherText));
+            assertEquals(4, data.remaining());
+            assertEquals(0, cipherText.position());
+        }
+
+        @Test
+        @DisplayName("Should wipe heap and direct buffers")
+        void shouldWipe() {
+            byte[] data = "Test".getBytes();
+            ByteBuffer direct = ByteBuffer.allocateDirect(4).put(data.clone()).flip().position(2);
+
+            Encryptor.wipe(data);
+            Encryptor.wipe(direct);
+
+            assertArrayEquals(new byte[4], data);
+            assertEquals(2, direct.position());
+            for (int i = 0; i < direct.capacity(); i++) {
+                assertEquals(0, direct.get(i));
+            }
+        }
+    }
+
+    @Nested
+    @DisplayName("Batch Test")
+    class Batch {
+        @Test
+        @DisplayName("Should report failures without losing batch")
+        void shouldReportFailures() throws Exception {
+            KeyPair sender = eccCertificate.generateKeyPair();
+            KeyPair recipient = eccCertificate.generateKeyPair();
+            KeyPair other = eccCertificate.generateKeyPair();
+            List<ScytalePublicKey> senderKeys = List.of(publicKey(1L, eccCertificate.generateKeyPair()), publicKey(2L, sender));
+
+            String first = encryptor.encrypt("First", sender.getPrivate(), List.of(publicKey(3L, recipient))).get(0);
+            String second = encryptor.encrypt("Second", sender.getPrivate(), List.of(publicKey(3L, recipient))).get(0);
+            String forOther = encryptor.encrypt("Other", sender.getPrivate(), List.of(publicKey(4L, other))).get(0);
+
+            BatchResult<Integer, String> decrypted = encryptor.decryptAll(List.of(first, forOther, "Invalid!", second), recipient.getPrivate(), senderKeys);
+
+            assertEquals(Map.of(0, "First", 3, "Second"), decrypted.getResults());
+            assertEquals(2, decrypted.getFailures().size());
+            assertTrue(decrypted.getFailures().get(1) instanceof InvalidKeyException);
+            assertTrue(decrypted.getFailures().get(2) instanceof IllegalArgumentException);
+        }
+
+        @Test
+        @DisplayName("Should report repeated cipher text at each position")
+        void shouldReportRepeatedCipherText() throws Exception {
+            KeyPair keyPair = rsaCertificate.generateKeyPair();
+            List<ScytalePublicKey> scytalePublicKeys = List.of(publicKey(1L, keyPair));
+            String cipherText = encryptor.encrypt("Test", keyPair.getPrivate(), scytalePublicKeys).get(0);
+
+            BatchResult<Integer, String> decrypted = encryptor.decryptAll(List.of(cipherText, "Invalid!", cipherText, "Invalid!"), keyPair.getPrivate(), scytalePublicKeys);
+
+            assertEquals(Map.of(0, "Test", 2, "Test"), decrypted.getResults());
+            assertEquals(List.of(1, 3), new ArrayList<>(decrypted.getFailures().keySet()));
+        }
+
+        @Test
+        @DisplayName("Should keep order when decrypting in parallel")
+        void shouldKeepOrderInParallel() throws Exception {
+            KeyPair keyPair = rsaCertificate.generateKeyPair();
+            List<ScytalePublicKey> scytalePublicKeys = List.of(publicKey(1L, keyPair));
+            List<String> cipherTexts = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                cipherTexts.add(encryptor.encrypt("Test" + i, keyPair.getPrivate(), scytalePublicKeys).get(0));
+            }
+            ExecutorService executor = Executors.newFixedThreadPool(4);
+
+            try {
+                BatchResult<Integer, String> decrypted = encryptor.parallel(executor).parallelThreshold(2).decryptAll(cipherTexts, keyPair.getPrivate(), scytalePublicKeys);
+
+                assertEquals(List.of("Test0", "Test1", "Test2", "Test3"), new ArrayList<>(decrypted.getResults().values()));
+                assertFalse(decrypted.hasFailures());
+            } finally {
+                executor.shutdown();
+            }
+        }
+
+        @Test
+        @DisplayName("Should decrypt stream in windows")
+        void shouldDecryptStream() throws Exception {
+            KeyPair sender = eccCertificate.generateKeyPair();
+            KeyPair recipient = eccCertificate.generateKeyPair();
+            List<ScytalePublicKey> recipientKeys = List.of(publicKey(1L, recipient));
+            Encryptor cachingEncryptor = new Encryptor().agreementCache(1);
+            List<String> cipherTexts = new ArrayList<>();
+            for (int i = 0; i < 300; i++) {
+                cipherTexts.add(cachingEncryptor.encrypt("Test" + i, sender.getPrivate(), recipientKeys).get(0));
+            }
+
+            List<BatchResult<Integer, String>> windows = new ArrayList<>();
+            encryptor.decryptAll(cipherTexts.stream(), recipient.getPrivate(), List.of(publicKey(2L, sender)), windows::add);
+
+            assertEquals(2, windows.size());
+            assertEquals(256, windows.get(0).getResults().size());
+            assertEquals("Test299", windows.get(1).getResults().get(299));
+        }
+    }
+
+    @Nested
+    @DisplayName("Agreement Cache Test")
+    class Agreements {
+        @Test
+        @DisplayName("Should reject invalid cache size")
+        void shouldRejectInvalidSize() {
+            Exception illegalArgumentException = assertThrows(IllegalArgumentException.class, () -> encryptor.agreementCache(0));
+            assertEquals("Agreement cache size must be positive integer", illegalArgumentException.getMessage());
+        }
+
+        @Test
+        @DisplayName("Should interoperate with uncached encryption")
+        void shouldInteroperateWithoutCache() throws Exception {
+            KeyPair sender = eccCertificate.generateKeyPair();
+            KeyPair recipient = eccCertificate.generateKeyPair();
+            Encryptor cachingEncryptor = new Encryptor().agreementCache(10);
+
+            String cached = cachingEncryptor.encrypt("Test", sender.getPrivate(), List.of(publicKey(1L, recipient))).get(0);
+            String uncached = encryptor.encrypt("Test", sender.getPrivate(), List.of(publicKey(1L, recipient))).get(0);
+
+            assertEquals("Test", encryptor.decrypt(cached, recipient.getPrivate(), List.of(publicKey(2L, sender))));
+            assertEquals("Test", cachingEncryptor.decrypt(uncached, recipient.getPrivate(), List.of(publicKey(2L, sender))));
+            assertEquals("Test", cachingEncryptor.decrypt(cached, recipient.getPrivate(), List.of(publicKey(2L, sender))));
+        }
+
+        @Test
+        @DisplayName("Should still decrypt after purging rotated key")
+        void shouldDecryptAfterPurge() throws Exception {
+            KeyPair sender = eccCertificate.generateKeyPair();
+            KeyPair recipient = eccCertificate.generateKeyPair();
+            Encryptor cachingEncryptor = new Encryptor().agreementCache(10);
+
+            String cipherText = cachingEncryptor.encrypt("Test", sender.getPrivate(), List.of(publicKey(1L, recipient))).get(0);
+            cachingEncryptor.purgeAgreements(sender.getPrivate()).purgeAgreements(publicKey(1L, recipient));
+
+            assertEquals("Test", cachingEncryptor.decrypt(cipherText, recipient.getPrivate(), List.of(publicKey(2L, sender))));
+        }
+    }
+
+    private ScytalePublicKey publicKey(Long id, KeyPair keyPair) {
+        return new ScytalePublicKey(id, new CertificateEncoder().base64EncodePublicKey(keyPair.getPublic()));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,33 @@
+package com.openmoments.scytale.encryption;
+
+import com.openmoments.scytale.entities.ScytalePublicKey;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.security.KeyPair;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Key Fingerprint")
+class KeyFingerprintTest {
+
+    @ParameterizedTest
+    @EnumSource(CertificateType.class)
+    @DisplayName("Should derive same fingerprint from private and decoded public key")
+    void shouldMatchPrivateAndPublicKey(CertificateType certificateType) throws Exception {
+        KeyPair keyPair = new CertificateFactory().get(certificateType).generateKeyPair();
+        ScytalePublicKey scytalePublicKey = new ScytalePublicKey(1L, new CertificateEncoder().base64EncodePublicKey(keyPair.getPublic()));
+
+        assertEquals(KeyFingerprint.of(keyPair.getPrivate()), scytalePublicKey.getFingerprint());
+    }
+
+    @Test
+    @DisplayName("Should differ between keys")
+    void shouldDifferBetweenKeys() throws Exception {
+        AsymmetricCertificate eccCertificate = new CertificateFactory().get(CertificateType.ECC);
+
+        assertNotEquals(KeyFingerprint.of(eccCertificate.generateKeyPair().getPublic()), KeyFingerprint.of(eccCertificate.generateKeyPair().getPublic()));
+    }
+}
@@ -0,0 +1,115 @@
+package com.openmoments.scytale.encryption;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.security.KeyPair;
+import java.security.interfaces.RSAPublicKey;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Key Pair Pool")
+class KeyPairPoolTest {
+
+    private KeyPairPool keyPairPool;
+
+    @AfterEach
+    void tearDown() {
+        if (keyPairPool != null) {
+            keyPairPool.close();
+        }
+    }
+
+    @Nested
+    @DisplayName("Configuration")
+    class Configuration {
+        @Test
+        @DisplayName("Should require certificate type")
+        void shouldRequireType() {
+            IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> new KeyPairPool(null));
+            assertEquals("Certificate type cannot be null", exception.getMessage());
+        }
+
+        @Test
+        @DisplayName("Should reject invalid high water mark")
+        void shouldRejectHighWaterMark() {
+            IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                    () -> new KeyPairPool(CertificateType.X25519).highWaterMark(0));
+            assertEquals("High water mark must be positive integer", exception.getMessage());
+        }
+
+        @Test
+        @DisplayName("Should reject invalid thread count")
+        void shouldRejectThreads() {
+            IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                    () -> new KeyPairPool(CertificateType.X25519).threads(-1));
+            assertEquals("Refill threads must be positive integer", exception.getMessage());
+        }
+    }
+
+    @Nested
+    @DisplayName("Take")
+    class Take {
+        @Test
+        @DisplayName("Should generate inline when not started")
+        void shouldGenerateInline() throws Exception {
+            keyPairPool = new KeyPairPool(CertificateType.X25519);
+
+            assertNotNull(keyPairPool.take());
+            assertEquals(1, keyPairPool.getMisses());
+            assertEquals(0, keyPairPool.getGenerated());
+            assertEquals(0, keyPairPool.size());
+        }
+
+        @Test
+        @DisplayName("Should fill to high water mark and refill after take")
+        void shouldFillAndRefill() throws Exception {
+            keyPairPool = new KeyPairPool(CertificateType.X25519).highWaterMark(4).threads(2).start();
+            awaitSize(4);
+
+            Set<KeyPair> taken = new HashSet<>();
+            for (int i = 0; i < 4; i++) {
+                taken.add(keyPairPool.take());
+            }
+            awaitSize(4);
+
+            assertEquals(4, taken.size());
+            assertEquals(8, keyPairPool.getGenerated());
+            assertEquals(0, keyPairPool.getMisses());
+            assertTrue(keyPairPool.refillRate() > 0);
+        }
+
+        @Test
+        @DisplayName("Should pool key pairs of the specified length")
+        void shouldUseLength() throws Exception {
+            keyPairPool = new KeyPairPool(CertificateType.RSA).length(1024).highWaterMark(1).start();
+            awaitSize(1);
+
+            assertEquals(1024, ((RSAPublicKey) keyPairPool.take().getPublic()).getModulus().bitLength());
+        }
+
+        @Test
+        @DisplayName("Should discard pooled key pairs when closed")
+        void shouldDiscardWhenClosed() throws Exception {
+            keyPairPool = new KeyPairPool(CertificateType.X25519).highWaterMark(2).start();
+            awaitSize(2);
+            keyPairPool.close();
+
+            assertEquals(0, keyPairPool.size());
+            assertNotNull(keyPairPool.take());
+            assertEquals(1, keyPairPool.getMisses());
+        }
+    }
+
+    private void awaitSize(int size) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (keyPairPool.size() < size && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(size, keyPairPool.size());
+    }
+}
@@ -0,0 +1,79 @@
+package com.openmoments.scytale.encryption;
+
+import com.openmoments.scytale.entities.Envelope;
+import com.openmoments.scytale.entities.ScytalePublicKey;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.security.KeyPair;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Provider Selector")
+class ProviderSelectorTest {
+
+    @Test
+    @DisplayName("Should default to existing providers")
+    void shouldDefaultToExistingProviders() {
+        ProviderSelector providerSelector = new ProviderSelector();
+
+        assertEquals("BC", providerSelector.getProvider(ProviderSelector.Primitive.RSA_OAEP));
+        assertNull(providerSelector.getProvider(ProviderSelector.Primitive.AES_GCM));
+        assertEquals("BC", providerSelector.getProvider(ProviderSelector.Primitive.EC_KEY_PAIR));
+    }
+
+    @Test
+    @DisplayName("Should reject provider which is not installed")
+    void shouldRejectMissingProvider() {
+        Exception illegalArgumentException = assertThrows(IllegalArgumentException.class,
+                () -> new ProviderSelector().provider(ProviderSelector.Primitive.RSA_OAEP, "Missing"));
+        assertEquals("Security provider Missing is not installed", illegalArgumentException.getMessage());
+    }
+
+    @Test
+    @DisplayName("Should decrypt RSA cipher text from another provider")
+    void shouldInteroperateRSA() throws Exception {
+        KeyPair keyPair = new RSACertificate().length(2048).generateKeyPair();
+        List<ScytalePublicKey> scytalePublicKeys = List.of(publicKey(keyPair));
+        Encryptor bouncyCastle = new Encryptor();
+        Encryptor platform = new Encryptor().providers(new ProviderSelector().provider(ProviderSelector.Primitive.RSA_OAEP, "SunJCE"));
+
+        String fromPlatform = platform.encrypt("Test", keyPair.getPrivate(), scytalePublicKeys).get(0);
+        String fromBouncyCastle = bouncyCastle.encrypt("Test", keyPair.getPrivate(), scytalePublicKeys).get(0);
+
+        assertEquals("Test", bouncyCastle.decrypt(fromPlatform, keyPair.getPrivate(), scytalePublicKeys));
+        assertEquals("Test", platform.decrypt(fromBouncyCastle, keyPair.getPrivate(), scytalePublicKeys));
+    }
+
+    @Test
+    @DisplayName("Should encrypt with EC keys from another provider")
+    void shouldUseECKeysFromAnotherProvider() throws Exception {
+        ProviderSelector providerSelector = new ProviderSelector().provider(ProviderSelector.Primitive.EC_KEY_PAIR, "SunEC");
+        KeyPair keyPair = new ECCCertificate().providers(providerSelector).generateKeyPair();
+        List<ScytalePublicKey> scytalePublicKeys = List.of(publicKey(keyPair));
+        Encryptor encryptor = new Encryptor();
+
+        String cipherText = encryptor.encrypt("Test", keyPair.getPrivate(), scytalePublicKeys).get(0);
+
+        assertEquals(KeyFingerprint.of(keyPair.getPrivate()), scytalePublicKeys.get(0).getFingerprint());
+        assertEquals("Test", encryptor.decrypt(cipherText, keyPair.getPrivate(), scytalePublicKeys));
+    }
+
+    @Test
+    @DisplayName("Should select an interoperable provider for each primitive")
+    void shouldBenchmarkProviders() throws Exception {
+        ProviderSelector providerSelector = new ProviderSelector().benchmark();
+        KeyPair keyPair = new ECCCertificate().providers(providerSelector).generateKeyPair();
+        List<ScytalePublicKey> scytalePublicKeys = List.of(publicKey(keyPair));
+
+        Envelope envelope = new Encryptor().encryptEnvelope("Test", keyPair.getPrivate(), scytalePublicKeys);
+
+        assertEquals(3, providerSelector.getSelected().size());
+        assertEquals("Test", new Encryptor().providers(providerSelector).decryptEnvelope(envelope, keyPair.getPrivate(), scytalePublicKeys));
+    }
+
+    private ScytalePublicKey publicKey(KeyPair keyPair) {
+        return new ScytalePublicKey(1L, new CertificateEncoder().base64EncodePublicKey(keyPair.getPublic()));
+    }
+}
@@ -0,0 +1,61 @@
+package com.openmoments.scytale.encryption;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyPair;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("X25519 Certificate")
+class X25519CertificateTest {
+
+    @Test
+    @DisplayName("Should create key pair")
+    void shouldGenerateKeyPair() throws Exception {
+        KeyPair keyPair = new X25519Certificate().generateKeyPair();
+
+        assertEquals("XDH", keyPair.getPrivate().getAlgorithm());
+        assertEquals("XDH", keyPair.getPublic().getAlgorithm());
+    }
+
+    @Test
+    @DisplayName("Should create new cert to stream")
+    void shouldWriteKeysToStreams(@TempDir Path tempDir) throws Exception {
+        Path keyPath = tempDir.resolve("test.key");
+        Path pubPath = tempDir.resolve("test.pub");
+        OutputStream keyOutputStream = Files.newOutputStream(keyPath);
+        OutputStream pubOutputStream = Files.newOutputStream(pubPath);
+
+        new X25519Certificate().toStream(keyOutputStream, pubOutputStream);
+
+        assertNotEquals(0, Files.size(keyPath));
+        assertNotEquals(0, Files.size(pubPath));
+    }
+
+    @Test
+    @DisplayName("Should load cert from streams")
+    void shouldLoadKeysFromStream(@TempDir Path tempDir) throws Exception {
+        Path keyPath = tempDir.resolve("test.key");
+        Path pubPath = tempDir.resolve("test.pub");
+        OutputStream keyOutputStream = Files.newOutputStream(keyPath);
+        OutputStream pubOutputStream = Files.newOutputStream(pubPath);
+
+        new X25519Certificate().toStream(keyOutputStream, pubOutputStream);
+
+        InputStream keyInputStream = Files.newInputStream(keyPath);
+        InputStream pubInputStream = Files.newInputStream(pubPath);
+
+        KeyPair loadedPair = new X25519Certificate().fromStream(keyInputStream, pubInputStream);
+
+        assertNotNull(loadedPair);
+        assertNotEquals(0, loadedPair.getPrivate().getEncoded().length);
+        assertEquals("XDH", loadedPair.getPublic().getAlgorithm());
+        assertNotEquals(0, loadedPair.getPublic().getEncoded().length);
+    }
+}
\ No newline at end of file